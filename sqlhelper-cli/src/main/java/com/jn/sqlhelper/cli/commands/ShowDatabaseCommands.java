@@ -5,20 +5,27 @@ import com.jn.langx.text.StringTemplates;
 import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.Strings;
 import com.jn.langx.util.Throwables;
-import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.collection.Pipeline;
-import com.jn.langx.util.function.Consumer;
 import com.jn.langx.util.function.Function;
-import com.jn.langx.util.io.Charsets;
 import com.jn.langx.util.io.IOs;
 import com.jn.langx.util.io.LineDelimiter;
 import com.jn.langx.util.io.file.Files;
+import com.jn.sqlhelper.cli.dump.TableDataDumper;
+import com.jn.sqlhelper.cli.dump.TableDataLoader;
+import com.jn.sqlhelper.cli.dump.TablesDDLDumper;
+import com.jn.sqlhelper.cli.dump.TransferProgress;
+import com.jn.sqlhelper.cli.explain.InstrumentedQueryExplainer;
 import com.jn.sqlhelper.common.connection.ConnectionFactory;
 import com.jn.sqlhelper.common.connection.NamedConnectionConfiguration;
 import com.jn.sqlhelper.common.ddl.dump.DatabaseLoader;
 import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
 import com.jn.sqlhelper.common.ddl.model.Index;
 import com.jn.sqlhelper.common.ddl.model.Table;
+import com.jn.sqlhelper.common.ddl.snapshot.SchemaDiff;
+import com.jn.sqlhelper.common.ddl.snapshot.SchemaDiffer;
+import com.jn.sqlhelper.common.ddl.snapshot.SchemaSnapshot;
+import com.jn.sqlhelper.common.ddl.snapshot.SchemaSnapshotCapturer;
+import com.jn.sqlhelper.common.ddl.snapshot.SchemaSnapshots;
 import com.jn.sqlhelper.common.utils.Connections;
 import com.jn.sqlhelper.common.utils.SQLs;
 import com.jn.sqlhelper.dialect.ddl.generator.CommonTableGenerator;
@@ -29,13 +36,13 @@ import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static com.jn.sqlhelper.common.utils.SQLs.SQL_FILE_SUFFIX;
 
@@ -45,11 +52,14 @@ public class ShowDatabaseCommands {
     @Autowired
     DirectoryBasedFileConfigurationRepository<NamedConnectionConfiguration> repository;
 
-    private Connection getConnectionByConnectionConfigurationId(String id) {
+    private ConnectionFactory getConnectionFactory(String id) {
         NamedConnectionConfiguration configuration = repository.getById(id);
         Preconditions.checkNotNull(configuration, StringTemplates.formatWithPlaceholder("Can't find a connection configuration named {}", id));
-        ConnectionFactory factory = new ConnectionFactory(configuration);
-        return factory.getConnection();
+        return new ConnectionFactory(configuration);
+    }
+
+    private Connection getConnectionByConnectionConfigurationId(String id) {
+        return getConnectionFactory(id).getConnection();
     }
 
     @ShellMethod(key = "show tables", value = "Show table names")
@@ -147,58 +157,154 @@ public class ShowDatabaseCommands {
         }
     }
 
-    @ShellMethod(key = "dump ddl", value = "Show table DDL")
+    @ShellMethod(key = "dump ddl", value = "Dump tables DDL")
     public String dumpTablesDDL(@ShellOption(help = "the connection configuration name") String connectionName,
                                 @ShellOption(help = "the table name", defaultValue = "") String table,
                                 @ShellOption(help = "the dump directory") String directory,
                                 @ShellOption(help = "the dump filename") String filename,
-                                @ShellOption(help = "postback to you", defaultValue = "false") boolean postback) {
-        Connection connection = getConnectionByConnectionConfigurationId(connectionName);
-        BufferedWriter bf = null;
+                                @ShellOption(help = "postback to you", defaultValue = "false") boolean postback,
+                                @ShellOption(help = "the count of the threads which load the tables", defaultValue = "4") int parallelism,
+                                @ShellOption(help = "skip the tables dumped by the last interrupted dump", defaultValue = "false") boolean resume) {
         try {
-            DatabaseMetaData dbMetaData = connection.getMetaData();
-            DatabaseDescription databaseDescription = new DatabaseDescription(dbMetaData);
             table = Strings.getNullIfBlank(table);
-            List<Table> ts = new DatabaseLoader().loadTables(databaseDescription, Connections.getCatalog(connection), Connections.getSchema(connection), table, true, true, true, true);
-            Preconditions.checkNotNull(ts, StringTemplates.formatWithPlaceholder("table {} is not exists", table));
-
             if (!Strings.endsWithIgnoreCase(filename, SQL_FILE_SUFFIX)) {
                 filename = filename + ".sql";
             }
             Files.makeDirs(directory);
             File file = new File(directory, filename);
-            Files.makeFile(file);
-            bf = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
-            final BufferedWriter bufferedWriter = bf;
 
-            CommonTableGenerator generator = new CommonTableGenerator(databaseDescription);
+            TablesDDLDumper dumper = new TablesDDLDumper(getConnectionFactory(connectionName));
+            dumper.setParallelism(parallelism);
+            dumper.setResume(resume);
+            StringBuilder builder = postback ? new StringBuilder() : null;
+            int count = dumper.dump(table, file, builder);
+            logger.info("Dumped {} tables into {}", count, file.getPath());
+            return builder == null ? null : builder.toString();
+        } catch (Throwable ex) {
+            throw Throwables.wrapAsRuntimeException(ex);
+        }
+    }
 
-            StringBuilder builder = new StringBuilder();
-            Collects.forEach(ts, new Consumer<Table>() {
-                @Override
-                public void accept(Table t) {
-                    try {
-                        String ddl = generator.generate(t);
-                        builder.append(ddl);
-                        builder.append(LineDelimiter.DEFAULT.getValue());
-                        IOs.write(ddl.getBytes(Charsets.UTF_8), bufferedWriter, Charsets.UTF_8);
-                        bufferedWriter.write(LineDelimiter.DEFAULT.getValue());
-                        bufferedWriter.flush();
-                    } catch (Throwable ex) {
-                        logger.error(ex.getMessage());
-                    }
+    @ShellMethod(key = "dump data", value = "Dump table data")
+    public String dumpTableData(@ShellOption(help = "the connection configuration name") String connectionName,
+                                @ShellOption(help = "the table name") String table,
+                                @ShellOption(help = "the dump directory") String directory,
+                                @ShellOption(help = "the count of the connections which read the table", defaultValue = "4") int parallelism,
+                                @ShellOption(help = "the rows of a page", defaultValue = "5000") int pageSize) {
+        try {
+            TableDataDumper dumper = new TableDataDumper(getConnectionFactory(connectionName));
+            dumper.setParallelism(parallelism);
+            dumper.setPageSize(pageSize);
+            TransferProgress progress = dumper.dump(table, new File(directory));
+            logger.info(progress.toString());
+            return progress.toString();
+        } catch (Throwable ex) {
+            throw Throwables.wrapAsRuntimeException(ex);
+        }
+    }
+
+    @ShellMethod(key = "load data", value = "Load table data that dumped by 'dump data'")
+    public String loadTableData(@ShellOption(help = "the connection configuration name") String connectionName,
+                                @ShellOption(help = "the table name") String table,
+                                @ShellOption(help = "the directory of the data files") String directory,
+                                @ShellOption(help = "the count of the connections which write the table", defaultValue = "4") int parallelism,
+                                @ShellOption(help = "the rows of a batch", defaultValue = "1000") int batchSize) {
+        try {
+            TableDataLoader loader = new TableDataLoader(getConnectionFactory(connectionName));
+            loader.setParallelism(parallelism);
+            loader.setBatchSize(batchSize);
+            TransferProgress progress = loader.load(table, new File(directory));
+            logger.info(progress.toString());
+            return progress.toString();
+        } catch (Throwable ex) {
+            throw Throwables.wrapAsRuntimeException(ex);
+        }
+    }
 
+    @ShellMethod(key = "snapshot schema", value = "Capture the schema snapshots of the databases")
+    public String snapshotSchema(@ShellOption(help = "the connection configuration names, separated by ','") String connectionNames,
+                                 @ShellOption(help = "the snapshot directory") String directory,
+                                 @ShellOption(help = "the count of the databases which are captured at the same time", defaultValue = "8") int parallelism) {
+        try {
+            List<NamedConnectionConfiguration> configurations = new ArrayList<NamedConnectionConfiguration>();
+            for (String connectionName : connectionNames.split(",")) {
+                connectionName = connectionName.trim();
+                if (Strings.isNotEmpty(connectionName)) {
+                    NamedConnectionConfiguration configuration = repository.getById(connectionName);
+                    Preconditions.checkNotNull(configuration, StringTemplates.formatWithPlaceholder("Can't find a connection configuration named {}", connectionName));
+                    configurations.add(configuration);
                 }
-            });
-            if (postback) {
-                return builder.toString();
             }
-            return null;
+            SchemaSnapshotCapturer capturer = new SchemaSnapshotCapturer();
+            capturer.setParallelism(parallelism);
+            Map<String, SchemaSnapshot> snapshots = capturer.capture(configurations);
+
+            Files.makeDirs(directory);
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<String, SchemaSnapshot> entry : snapshots.entrySet()) {
+                File file = new File(directory, entry.getKey() + SchemaSnapshots.FILE_SUFFIX);
+                SchemaSnapshots.write(entry.getValue(), file);
+                builder.append(entry.getKey()).append(": ").append(entry.getValue().size()).append(" tables, ").append(file.getPath()).append(LineDelimiter.DEFAULT.getValue());
+            }
+            return builder.toString();
+        } catch (Throwable ex) {
+            throw Throwables.wrapAsRuntimeException(ex);
+        }
+    }
+
+    @ShellMethod(key = "diff schema", value = "Show the DDL which makes the schema of a database the same as a snapshot")
+    public String diffSchema(@ShellOption(help = "the expected schema snapshot file") String snapshot,
+                             @ShellOption(help = "the connection configuration name of the database which will be changed") String connectionName) {
+        Connection connection = getConnectionByConnectionConfigurationId(connectionName);
+        try {
+            SchemaSnapshot expected = SchemaSnapshots.read(new File(snapshot));
+            SchemaSnapshot actual = SchemaSnapshots.capture(connectionName, connection);
+            SchemaDiff diff = new SchemaDiffer().diff(expected, actual);
+            logger.info("Compared {} with {}: {} created, {} altered, {} dropped, {} unchanged tables", expected.getName(), connectionName,
+                    diff.getCreatedTables().size(), diff.getAlteredTables().size(), diff.getDroppedTables().size(), diff.getUnchangedTables());
+            return diff.generateDDL(new CommonTableGenerator(connection.getMetaData()));
+        } catch (Throwable ex) {
+            throw Throwables.wrapAsRuntimeException(ex);
+        } finally {
+            IOs.close(connection);
+        }
+    }
+
+    @ShellMethod(key = "explain", value = "Show the query plans of a select, its paged and count statements side by side")
+    public String explain(@ShellOption(help = "the connection configuration name") String connectionName,
+                          @ShellOption(help = "the select statement") String sql,
+                          @ShellOption(help = "the parameters of the placeholders, separated by ','", defaultValue = "") String parameters,
+                          @ShellOption(help = "the page number of the paged statement", defaultValue = "1") int pageNo,
+                          @ShellOption(help = "the rows of a page", defaultValue = "10") int pageSize,
+                          @ShellOption(help = "execute the statements to show the actual rows and times", defaultValue = "false") boolean analyze) {
+        Connection connection = getConnectionByConnectionConfigurationId(connectionName);
+        try {
+            return new InstrumentedQueryExplainer().explain(connection, sql, parseParameters(parameters), pageNo, pageSize, analyze);
         } catch (Throwable ex) {
             throw Throwables.wrapAsRuntimeException(ex);
         } finally {
-            IOs.close(bf);
             IOs.close(connection);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * the integers and the decimals are bound as numbers, the others are bound as strings
+     */
+    private static List<Object> parseParameters(String parameters) {
+        List<Object> values = new ArrayList<Object>();
+        if (Strings.isBlank(parameters)) {
+            return values;
+        }
+        for (String parameter : parameters.split(",")) {
+            parameter = parameter.trim();
+            if (parameter.matches("-?\\d{1,18}")) {
+                values.add(Long.parseLong(parameter));
+            } else if (parameter.matches("-?\\d+\\.\\d+")) {
+                values.add(new BigDecimal(parameter));
+            } else {
+                values.add(parameter);
+            }
+        }
+        return values;
+    }
+}
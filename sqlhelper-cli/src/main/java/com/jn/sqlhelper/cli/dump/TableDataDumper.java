@@ -0,0 +1,421 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.dump;
+
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.langx.util.io.IOs;
+import com.jn.langx.util.io.file.Files;
+import com.jn.sqlhelper.common.connection.ConnectionFactory;
+import com.jn.sqlhelper.common.utils.Connections;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Dumps the rows of a table into the {@link TableDataFormat} files, one file per partition:
+ * <pre>
+ * 1) if the table has a single integral primary key (an integer type, or a decimal type whose scale is 0),
+ *    the key range [min, max] is split into {@code parallelism} ranges,
+ *    every range is read with its own connection by keyset paging:
+ *    SELECT ... WHERE pk > ? AND pk <= ? ORDER BY pk, limited with {@link Dialect#getLimitSql(String, RowSelection)}
+ * 2) else the table is read with one streaming query
+ * </pre>
+ * Keyset paging keeps every page an index range scan, the cost of a page does not grow with the offset.
+ */
+public class TableDataDumper {
+    private static final Logger logger = LoggerFactory.getLogger(TableDataDumper.class);
+
+    private final ConnectionFactory connectionFactory;
+    private int parallelism = 4;
+    private int pageSize = 5000;
+
+    public TableDataDumper(ConnectionFactory connectionFactory) {
+        Preconditions.checkNotNull(connectionFactory);
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    public TransferProgress dump(String table, File directory) throws Exception {
+        Preconditions.checkNotNull(table);
+        final Dialect dialect;
+        final String quotedTable;
+        final List<String> columns;
+        String pk = null;
+        long[] boundaries = null;
+
+        Connection connection = getConnection();
+        try {
+            DatabaseMetaData dbMetaData = connection.getMetaData();
+            dialect = DialectRegistry.getInstance().getDialectByDatabaseMetadata(dbMetaData);
+            Preconditions.checkNotNull(dialect, StringTemplates.formatWithPlaceholder("Can't find a dialect for database {}", dbMetaData.getDatabaseProductName()));
+            quotedTable = dialect.getQuotedIdentifier(table);
+            columns = getColumns(connection, quotedTable);
+
+            String pkColumn = findSinglePrimaryKey(dbMetaData, Connections.getCatalog(connection), Connections.getSchema(connection), table);
+            if (pkColumn != null) {
+                pk = findColumn(columns, pkColumn);
+            }
+            if (pk != null && !isIntegral(connection, quotedTable, dialect.getQuotedIdentifier(pk))) {
+                pk = null;
+            }
+            if (pk != null && dialect.isSupportsLimit()) {
+                boundaries = computeBoundaries(connection, quotedTable, dialect.getQuotedIdentifier(pk));
+            }
+        } finally {
+            IOs.close(connection);
+        }
+
+        Files.makeDirs(directory);
+        for (File old : TableDataFormat.listDataFiles(directory, table)) {
+            if (!old.delete()) {
+                logger.warn("Can't delete the old data file: {}", old.getPath());
+            }
+        }
+
+        final StringBuilder selectBuilder = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                selectBuilder.append(", ");
+            }
+            selectBuilder.append(dialect.getQuotedIdentifier(columns.get(i)));
+        }
+        selectBuilder.append(" FROM ").append(quotedTable);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        TransferProgress progress;
+        if (boundaries == null) {
+            logger.info("Table {} has no single integral primary key, dump it with one streaming query", table);
+            progress = new TransferProgress("dump", table, 1);
+            tasks.add(new ScanPartitionDumper(table, columns, selectBuilder.toString(), new File(directory, TableDataFormat.getFileName(table, 0)), progress));
+        } else {
+            String quotedPk = dialect.getQuotedIdentifier(pk);
+            String rangeSql = selectBuilder.toString() + " WHERE " + quotedPk + " > ? AND " + quotedPk + " <= ? ORDER BY " + quotedPk;
+            progress = new TransferProgress("dump", table, boundaries.length - 1);
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                tasks.add(new KeysetPartitionDumper(dialect, table, columns, columns.indexOf(pk), rangeSql, boundaries[i], boundaries[i + 1], new File(directory, TableDataFormat.getFileName(table, i)), progress, i));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), new ThreadFactory() {
+            private int index = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-data-dumper-" + (index++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw Throwables.wrapAsRuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            progress.finish();
+        }
+        return progress;
+    }
+
+    private static List<String> getColumns(Connection connection, String quotedTable) throws SQLException {
+        Statement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = connection.createStatement();
+            rs = statement.executeQuery("SELECT * FROM " + quotedTable + " WHERE 1=0");
+            ResultSetMetaData rsMetaData = rs.getMetaData();
+            List<String> columns = new ArrayList<String>(rsMetaData.getColumnCount());
+            for (int i = 1; i <= rsMetaData.getColumnCount(); i++) {
+                columns.add(rsMetaData.getColumnName(i));
+            }
+            return columns;
+        } finally {
+            IOs.close(rs);
+            IOs.close(statement);
+        }
+    }
+
+    /**
+     * @return the primary key column, null if the table has no primary key or has a composite one
+     */
+    private static String findSinglePrimaryKey(DatabaseMetaData dbMetaData, String catalog, String schema, String table) throws SQLException {
+        ResultSet rs = null;
+        try {
+            rs = dbMetaData.getPrimaryKeys(catalog, schema, table);
+            String pk = null;
+            while (rs.next()) {
+                if (pk != null) {
+                    return null;
+                }
+                pk = rs.getString("COLUMN_NAME");
+            }
+            return pk;
+        } finally {
+            IOs.close(rs);
+        }
+    }
+
+    private static boolean isIntegral(Connection connection, String quotedTable, String quotedPk) throws SQLException {
+        Statement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = connection.createStatement();
+            rs = statement.executeQuery("SELECT " + quotedPk + " FROM " + quotedTable + " WHERE 1=0");
+            ResultSetMetaData rsMetaData = rs.getMetaData();
+            switch (rsMetaData.getColumnType(1)) {
+                case Types.BIGINT:
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                    return true;
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    return rsMetaData.getScale(1) == 0;
+                default:
+                    return false;
+            }
+        } finally {
+            IOs.close(rs);
+            IOs.close(statement);
+        }
+    }
+
+    private static String findColumn(List<String> columns, String name) {
+        for (String column : columns) {
+            if (column.equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the range boundaries: (b0, b1], (b1, b2] ... , null if the pk is not integral or the table is empty
+     */
+    private long[] computeBoundaries(Connection connection, String quotedTable, String quotedPk) throws SQLException {
+        Statement statement = null;
+        ResultSet rs = null;
+        Long min;
+        Long max;
+        try {
+            statement = connection.createStatement();
+            rs = statement.executeQuery("SELECT MIN(" + quotedPk + "), MAX(" + quotedPk + ") FROM " + quotedTable);
+            if (!rs.next()) {
+                return null;
+            }
+            min = toLong(rs.getObject(1));
+            max = toLong(rs.getObject(2));
+        } finally {
+            IOs.close(rs);
+            IOs.close(statement);
+        }
+        if (min == null || max == null || min == Long.MIN_VALUE) {
+            return null;
+        }
+        long lower = min - 1;
+        // the span of [Long.MIN_VALUE + 1, Long.MAX_VALUE] overflows a long
+        BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(lower));
+        int partitions = span.min(BigInteger.valueOf(parallelism)).max(BigInteger.ONE).intValue();
+        long[] boundaries = new long[partitions + 1];
+        for (int i = 0; i < partitions; i++) {
+            boundaries[i] = BigInteger.valueOf(lower).add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(partitions))).longValue();
+        }
+        boundaries[partitions] = max;
+        return boundaries;
+    }
+
+    private static Long toLong(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            return ((BigInteger) value).longValue();
+        }
+        if (value instanceof BigDecimal) {
+            try {
+                return ((BigDecimal) value).longValueExact();
+            } catch (ArithmeticException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private Connection getConnection() {
+        Connection connection = connectionFactory.getConnection();
+        Preconditions.checkNotNull(connection, "Can't get a connection");
+        return connection;
+    }
+
+    /**
+     * dumps a key range with keyset paging
+     */
+    private class KeysetPartitionDumper implements Callable<Void> {
+        private final Dialect dialect;
+        private final String table;
+        private final List<String> columns;
+        private final int pkIndex;
+        private final String sql;
+        private final long lower;
+        private final long upper;
+        private final File file;
+        private final TransferProgress progress;
+        private final int partition;
+
+        private KeysetPartitionDumper(Dialect dialect, String table, List<String> columns, int pkIndex, String sql, long lower, long upper, File file, TransferProgress progress, int partition) {
+            this.dialect = dialect;
+            this.table = table;
+            this.columns = columns;
+            this.pkIndex = pkIndex;
+            this.sql = sql;
+            this.lower = lower;
+            this.upper = upper;
+            this.file = file;
+            this.progress = progress;
+            this.partition = partition;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            RowSelection selection = new RowSelection();
+            selection.setOffset(0L);
+            selection.setLimit(pageSize);
+            selection.setFetchSize(pageSize);
+            int columnCount = columns.size();
+
+            Connection connection = getConnection();
+            DataOutputStream out = null;
+            PreparedStatement statement = null;
+            try {
+                out = TableDataFormat.newOutput(file);
+                TableDataFormat.writeHeader(out, table, columns);
+                statement = connection.prepareStatement(dialect.getLimitSql(sql, selection));
+                statement.setFetchSize(pageSize);
+                long key = lower;
+                while (true) {
+                    int col = 1;
+                    col += dialect.bindLimitParametersAtStartOfQuery(selection, statement, col);
+                    statement.setLong(col++, key);
+                    statement.setLong(col++, upper);
+                    dialect.bindLimitParametersAtEndOfQuery(selection, statement, col);
+                    dialect.setMaxRows(selection, statement);
+
+                    int rows = 0;
+                    ResultSet rs = statement.executeQuery();
+                    try {
+                        while (rs.next()) {
+                            // some dialects add a row number column, it is not written
+                            TableDataFormat.writeRow(out, rs, columnCount);
+                            Long pkValue = toLong(rs.getObject(pkIndex + 1));
+                            if (pkValue == null) {
+                                throw new IllegalStateException(StringTemplates.formatWithPlaceholder("The primary key of table {} is not a long: {}", table, rs.getObject(pkIndex + 1)));
+                            }
+                            key = pkValue;
+                            rows++;
+                        }
+                    } finally {
+                        IOs.close(rs);
+                    }
+                    progress.increment(partition, rows);
+                    if (rows < pageSize || key >= upper) {
+                        break;
+                    }
+                }
+                TableDataFormat.writeEnd(out);
+                out.flush();
+            } finally {
+                IOs.close(statement);
+                IOs.close(out);
+                IOs.close(connection);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * dumps the whole table with one query
+     */
+    private class ScanPartitionDumper implements Callable<Void> {
+        private final String table;
+        private final List<String> columns;
+        private final String sql;
+        private final File file;
+        private final TransferProgress progress;
+
+        private ScanPartitionDumper(String table, List<String> columns, String sql, File file, TransferProgress progress) {
+            this.table = table;
+            this.columns = columns;
+            this.sql = sql;
+            this.file = file;
+            this.progress = progress;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            int columnCount = columns.size();
+            Connection connection = getConnection();
+            DataOutputStream out = null;
+            Statement statement = null;
+            ResultSet rs = null;
+            try {
+                out = TableDataFormat.newOutput(file);
+                TableDataFormat.writeHeader(out, table, columns);
+                statement = connection.createStatement();
+                statement.setFetchSize(pageSize);
+                rs = statement.executeQuery(sql);
+                int rows = 0;
+                while (rs.next()) {
+                    TableDataFormat.writeRow(out, rs, columnCount);
+                    rows++;
+                    if (rows == pageSize) {
+                        progress.increment(0, rows);
+                        rows = 0;
+                    }
+                }
+                progress.increment(0, rows);
+                TableDataFormat.writeEnd(out);
+                out.flush();
+            } finally {
+                IOs.close(rs);
+                IOs.close(statement);
+                IOs.close(out);
+                IOs.close(connection);
+            }
+            return null;
+        }
+    }
+}
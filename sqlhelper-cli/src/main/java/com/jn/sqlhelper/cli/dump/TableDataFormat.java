@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.dump;
+
+import com.jn.langx.util.io.Charsets;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The table data file format, a stream of length-prefixed binary rows:
+ * <pre>
+ * file:   magic "SQLHDATA", version(int), table(string), column count(int), column names(string...), rows, END(byte 0)
+ * row:    ROW(byte 1), values
+ * value:  type tag(byte), payload
+ * string: length(int), utf-8 bytes
+ * </pre>
+ * The type tags are not bound to the JDBC types of a database, so the data can be loaded into another database.
+ */
+public class TableDataFormat {
+    public static final String FILE_SUFFIX = ".sqhd";
+    private static final byte[] MAGIC = "SQLHDATA".getBytes(Charsets.UTF_8);
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte ROW = 1;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte STRING = 4;
+    private static final byte BYTES = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte TIMESTAMP = 7;
+    private static final byte DATE = 8;
+    private static final byte TIME = 9;
+
+    private TableDataFormat() {
+    }
+
+    public static void writeHeader(DataOutputStream out, String table, List<String> columns) throws IOException {
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, table);
+        out.writeInt(columns.size());
+        for (String column : columns) {
+            writeString(out, column);
+        }
+    }
+
+    /**
+     * @return the table name and the column names
+     */
+    public static List<String> readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not a sqlhelper table data file");
+            }
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported table data file version: " + version);
+        }
+        String table = readString(in);
+        int columnCount = in.readInt();
+        List<String> header = new ArrayList<String>(columnCount + 1);
+        header.add(table);
+        for (int i = 0; i < columnCount; i++) {
+            header.add(readString(in));
+        }
+        return header;
+    }
+
+    /**
+     * writes the current row of the result set
+     */
+    public static void writeRow(DataOutputStream out, ResultSet rs, int columnCount) throws IOException, SQLException {
+        out.writeByte(ROW);
+        for (int i = 1; i <= columnCount; i++) {
+            writeValue(out, rs.getObject(i));
+        }
+    }
+
+    public static void writeEnd(DataOutputStream out) throws IOException {
+        out.writeByte(END);
+    }
+
+    /**
+     * @return the row values, null if the end is reached
+     */
+    public static Object[] readRow(DataInputStream in, int columnCount) throws IOException {
+        byte marker = in.readByte();
+        if (marker == END) {
+            return null;
+        }
+        if (marker != ROW) {
+            throw new IOException("Illegal row marker: " + marker);
+        }
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            row[i] = readValue(in);
+        }
+        return row;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException, SQLException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            out.writeByte(DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(TIME);
+            out.writeLong(((Time) value).getTime());
+        } else if (value instanceof java.util.Date) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((java.util.Date) value).getTime());
+            out.writeInt(0);
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            out.writeByte(BYTES);
+            writeBytes(out, blob.getBytes(1, (int) blob.length()));
+        } else if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+            out.writeByte(STRING);
+            writeString(out, clob.getSubString(1, (int) clob.length()));
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case STRING:
+                return readString(in);
+            case BYTES:
+                return readBytes(in);
+            case BOOLEAN:
+                return in.readBoolean();
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case DATE:
+                return new Date(in.readLong());
+            case TIME:
+                return new Time(in.readLong());
+            default:
+                throw new IOException("Illegal value type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(Charsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), Charsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the data files of the table in the directory, sorted by name
+     */
+    public static String getFileName(String table, int partition) {
+        return table + String.format(".part-%03d", partition) + FILE_SUFFIX;
+    }
+
+    /**
+     * @return the data files of the table, named by {@link #getFileName(String, int)}, in the partition order
+     */
+    public static List<File> listDataFiles(File directory, String table) {
+        final Pattern pattern = Pattern.compile(Pattern.quote(table) + "\\.part-\\d+" + Pattern.quote(FILE_SUFFIX));
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && pattern.matcher(file.getName()).matches();
+            }
+        });
+        List<File> result = new ArrayList<File>();
+        if (files != null) {
+            Collections.addAll(result, files);
+            Collections.sort(result);
+        }
+        return result;
+    }
+
+    public static DataOutputStream newOutput(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 256 * 1024));
+    }
+
+    public static DataInputStream newInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), 256 * 1024));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.dump;
+
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.batch.BatchMode;
+import com.jn.sqlhelper.common.batch.BatchUpdater;
+import com.jn.sqlhelper.common.batch.jdbc.BatchSqlBatchUpdater;
+import com.jn.sqlhelper.common.batch.jdbc.JdbcBatchStatement;
+import com.jn.sqlhelper.common.batch.jdbc.JdbcBatchUpdater;
+import com.jn.sqlhelper.common.batch.jdbc.SimpleBatchUpdater;
+import com.jn.sqlhelper.common.connection.ConnectionFactory;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Loads the {@link TableDataFormat} files of a table, every file is loaded with its own connection in a worker thread.
+ * <p>
+ * The rows are inserted with the batch updaters, the batch mode depends on the dialect:
+ * <pre>
+ * 1) {@link BatchMode#BATCH_SQL}: if {@link Dialect#isSupportsBatchSql()}, a multi-row INSERT ... VALUES (..), (..)
+ *    for a batch, at most 2000 parameters per statement
+ * 2) {@link BatchMode#JDBC_BATCH}: if {@link Dialect#isSupportsBatchUpdates()}
+ * 3) {@link BatchMode#SIMPLE}: else
+ * </pre>
+ * The transaction is committed after every batch.
+ */
+public class TableDataLoader {
+    private static final int MAX_PARAMETERS_PER_STATEMENT = 2000;
+
+    private final ConnectionFactory connectionFactory;
+    private int parallelism = 4;
+    private int batchSize = 1000;
+
+    public TableDataLoader(ConnectionFactory connectionFactory) {
+        Preconditions.checkNotNull(connectionFactory);
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public TransferProgress load(String table, File directory) throws Exception {
+        Preconditions.checkNotNull(table);
+        List<File> files = TableDataFormat.listDataFiles(directory, table);
+        Preconditions.checkArgument(!files.isEmpty(), StringTemplates.formatWithPlaceholder("Can't find any data file of table {} in {}", table, directory.getPath()));
+
+        final Dialect dialect;
+        Connection connection = getConnection();
+        try {
+            DatabaseMetaData dbMetaData = connection.getMetaData();
+            dialect = DialectRegistry.getInstance().getDialectByDatabaseMetadata(dbMetaData);
+            Preconditions.checkNotNull(dialect, StringTemplates.formatWithPlaceholder("Can't find a dialect for database {}", dbMetaData.getDatabaseProductName()));
+        } finally {
+            IOs.close(connection);
+        }
+
+        TransferProgress progress = new TransferProgress("load", table, files.size());
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            tasks.add(new FileLoader(dialect, table, files.get(i), progress, i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), new ThreadFactory() {
+            private int index = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-data-loader-" + (index++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw Throwables.wrapAsRuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            progress.finish();
+        }
+        return progress;
+    }
+
+    private Connection getConnection() {
+        Connection connection = connectionFactory.getConnection();
+        Preconditions.checkNotNull(connection, "Can't get a connection");
+        return connection;
+    }
+
+    private static final PreparedStatementSetter<Object[]> ROW_SETTER = new PreparedStatementSetter<Object[]>() {
+        @Override
+        public void setParameters(PreparedStatement statement, int startIndex, Object[] row) throws SQLException {
+            for (int i = 0; i < row.length; i++) {
+                statement.setObject(startIndex + i, row[i]);
+            }
+        }
+    };
+
+    private static final PreparedStatementSetter<List<Object[]>> ROWS_SETTER = new PreparedStatementSetter<List<Object[]>>() {
+        @Override
+        public void setParameters(PreparedStatement statement, int startIndex, List<Object[]> rows) throws SQLException {
+            int index = startIndex;
+            for (Object[] row : rows) {
+                ROW_SETTER.setParameters(statement, index, row);
+                index += row.length;
+            }
+        }
+    };
+
+    private class FileLoader implements Callable<Void> {
+        private final Dialect dialect;
+        private final String table;
+        private final File file;
+        private final TransferProgress progress;
+        private final int partition;
+
+        private FileLoader(Dialect dialect, String table, File file, TransferProgress progress, int partition) {
+            this.dialect = dialect;
+            this.table = table;
+            this.file = file;
+            this.progress = progress;
+            this.partition = partition;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            Connection connection = getConnection();
+            DataInputStream in = null;
+            boolean autoCommit = connection.getAutoCommit();
+            try {
+                connection.setAutoCommit(false);
+                in = TableDataFormat.newInput(file);
+                List<String> header = TableDataFormat.readHeader(in);
+                List<String> columns = header.subList(1, header.size());
+                int columnCount = columns.size();
+
+                BatchMode batchMode;
+                int rowsPerBatch = batchSize;
+                if (dialect.isSupportsBatchSql()) {
+                    batchMode = BatchMode.BATCH_SQL;
+                    rowsPerBatch = Math.max(1, Math.min(batchSize, MAX_PARAMETERS_PER_STATEMENT / columnCount));
+                } else if (dialect.isSupportsBatchUpdates()) {
+                    batchMode = BatchMode.JDBC_BATCH;
+                } else {
+                    batchMode = BatchMode.SIMPLE;
+                }
+                String insertPrefix = buildInsertPrefix(columns);
+                String rowValues = buildRowValues(columnCount);
+                String fullBatchSql = batchMode == BatchMode.BATCH_SQL ? buildValues(insertPrefix, rowValues, rowsPerBatch) : insertPrefix + rowValues;
+
+                List<Object[]> rows = new ArrayList<Object[]>(rowsPerBatch);
+                Object[] row;
+                while ((row = TableDataFormat.readRow(in, columnCount)) != null) {
+                    rows.add(row);
+                    if (rows.size() == rowsPerBatch) {
+                        insert(connection, batchMode, fullBatchSql, rows);
+                        rows.clear();
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    String sql = batchMode == BatchMode.BATCH_SQL ? buildValues(insertPrefix, rowValues, rows.size()) : fullBatchSql;
+                    insert(connection, batchMode, sql, rows);
+                }
+            } catch (Exception ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                IOs.close(in);
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } finally {
+                    IOs.close(connection);
+                }
+            }
+            return null;
+        }
+
+        private void insert(Connection connection, BatchMode batchMode, String sql, List<Object[]> rows) throws SQLException {
+            JdbcBatchStatement statement = new JdbcBatchStatement(batchMode, sql);
+            BatchUpdater<Object[], JdbcBatchStatement> updater;
+            switch (batchMode) {
+                case BATCH_SQL:
+                    updater = new BatchSqlBatchUpdater<Object[], JdbcBatchStatement>(connection, ROWS_SETTER);
+                    break;
+                case JDBC_BATCH:
+                    updater = new JdbcBatchUpdater<Object[], JdbcBatchStatement>(connection, ROW_SETTER);
+                    break;
+                default:
+                    updater = new SimpleBatchUpdater<Object[], JdbcBatchStatement>(connection, ROW_SETTER);
+                    break;
+            }
+            updater.batchUpdate(statement, rows);
+            connection.commit();
+            progress.increment(partition, rows.size());
+        }
+
+        private String buildInsertPrefix(List<String> columns) {
+            StringBuilder builder = new StringBuilder("INSERT INTO ").append(dialect.getQuotedIdentifier(table)).append(" (");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(dialect.getQuotedIdentifier(columns.get(i)));
+            }
+            return builder.append(") VALUES ").toString();
+        }
+    }
+
+    private static String buildRowValues(int columnCount) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String buildValues(String insertPrefix, String rowValues, int rows) {
+        StringBuilder builder = new StringBuilder(insertPrefix.length() + (rowValues.length() + 2) * rows);
+        builder.append(insertPrefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(rowValues);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.dump;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.langx.util.io.Charsets;
+import com.jn.langx.util.io.IOs;
+import com.jn.langx.util.io.LineDelimiter;
+import com.jn.langx.util.io.file.Files;
+import com.jn.sqlhelper.common.connection.ConnectionFactory;
+import com.jn.sqlhelper.common.ddl.dump.DatabaseLoader;
+import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
+import com.jn.sqlhelper.common.ddl.model.Table;
+import com.jn.sqlhelper.common.utils.Connections;
+import com.jn.sqlhelper.dialect.ddl.generator.CommonTableGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dumps the DDL of the tables into a file in a streaming way:
+ * <pre>
+ * 1) list the table names with one connection
+ * 2) load the table metadata (columns, pks, indexes, fks) in batches, every batch is loaded with its own connection
+ *    in a worker thread, and rendered with {@link CommonTableGenerator} as soon as it is loaded
+ * 3) write the DDLs in the table order, through one buffered file channel, flush it every {@code flushIntervalInTables} tables
+ * </pre>
+ * At most {@code 2 * parallelism} batches are in flight, so the heap holds a few batches only, not the whole catalog.
+ * <p>
+ * The names of the dumped tables are written to a '{file}.progress' file after every flush. If {@code resume} is true,
+ * the dumped tables are skipped and the file is appended. The progress file is deleted after all the tables are dumped,
+ * it is kept if any table is failed, so the failed tables can be dumped with {@code resume} later.
+ */
+public class TablesDDLDumper {
+    private static final Logger logger = LoggerFactory.getLogger(TablesDDLDumper.class);
+    private static final String PROGRESS_FILE_SUFFIX = ".progress";
+
+    private final ConnectionFactory connectionFactory;
+    private int parallelism = 4;
+    private int batchSize = 16;
+    private int flushIntervalInTables = 64;
+    private boolean resume = false;
+
+    public TablesDDLDumper(ConnectionFactory connectionFactory) {
+        Preconditions.checkNotNull(connectionFactory);
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void setFlushIntervalInTables(int flushIntervalInTables) {
+        this.flushIntervalInTables = Math.max(1, flushIntervalInTables);
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * @param tableNamePattern the table name pattern, null for all tables
+     * @param file             the dump file
+     * @param postback         the DDLs will be appended to it if it is not null
+     * @return the count of the dumped tables
+     */
+    public int dump(@Nullable String tableNamePattern, File file, @Nullable StringBuilder postback) throws Exception {
+        final String catalog;
+        final String schema;
+        List<Table> tables;
+        Connection connection = getConnection();
+        try {
+            catalog = Connections.getCatalog(connection);
+            schema = Connections.getSchema(connection);
+            tables = new DatabaseLoader().loadTables(new DatabaseDescription(connection.getMetaData()), catalog, schema, tableNamePattern);
+        } finally {
+            IOs.close(connection);
+        }
+        Preconditions.checkNotNull(tables, StringTemplates.formatWithPlaceholder("table {} is not exists", tableNamePattern));
+
+        File progressFile = new File(file.getParentFile(), file.getName() + PROGRESS_FILE_SUFFIX);
+        Set<String> dumpedTables = resume ? readProgress(progressFile) : Collections.<String>emptySet();
+        boolean append = resume && file.exists() && !dumpedTables.isEmpty();
+        if (!append) {
+            Files.makeFile(file);
+        }
+
+        List<List<Table>> batches = new ArrayList<List<Table>>();
+        List<Table> batch = null;
+        for (Table table : tables) {
+            if (dumpedTables.contains(table.getName())) {
+                continue;
+            }
+            if (batch == null || batch.size() >= batchSize) {
+                batch = new ArrayList<Table>(batchSize);
+                batches.add(batch);
+            }
+            batch.add(table);
+        }
+        int total = tables.size();
+        int dumped = dumpedTables.size();
+        if (batches.isEmpty()) {
+            logger.info("All of the {} tables have been dumped", total);
+            deleteProgress(progressFile);
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private int index = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-ddl-dumper-" + (index++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        FileOutputStream outputStream = null;
+        Writer writer = null;
+        Writer progressWriter = null;
+        int count = 0;
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            outputStream = new FileOutputStream(file, append);
+            FileChannel channel = outputStream.getChannel();
+            writer = new BufferedWriter(Channels.newWriter(channel, Charsets.UTF_8.newEncoder(), -1), 64 * 1024);
+            progressWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(progressFile, append), Charsets.UTF_8));
+
+            LinkedList<Future<List<String[]>>> inflight = new LinkedList<Future<List<String[]>>>();
+            Iterator<List<Table>> batchIterator = batches.iterator();
+            List<String> unflushedTables = new ArrayList<String>();
+            while (batchIterator.hasNext() || !inflight.isEmpty()) {
+                while (batchIterator.hasNext() && inflight.size() < 2 * parallelism) {
+                    inflight.add(executor.submit(new BatchRenderer(batchIterator.next(), failed)));
+                }
+                List<String[]> rendered = inflight.removeFirst().get();
+                for (String[] tableDDL : rendered) {
+                    writer.write(tableDDL[1]);
+                    writer.write(LineDelimiter.DEFAULT.getValue());
+                    if (postback != null) {
+                        postback.append(tableDDL[1]).append(LineDelimiter.DEFAULT.getValue());
+                    }
+                    unflushedTables.add(tableDDL[0]);
+                    count++;
+                    if (unflushedTables.size() >= flushIntervalInTables) {
+                        flush(writer, progressWriter, unflushedTables);
+                    }
+                }
+                logger.info("Dumped {}/{} tables", dumped + count, total);
+            }
+            flush(writer, progressWriter, unflushedTables);
+        } catch (ExecutionException ex) {
+            throw Throwables.wrapAsRuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            IOs.close(writer);
+            IOs.close(outputStream);
+            IOs.close(progressWriter);
+        }
+        if (failed.get() > 0) {
+            logger.warn("{} tables are failed to dump, the progress file is kept: {}", failed.get(), progressFile.getPath());
+        } else {
+            deleteProgress(progressFile);
+        }
+        return count;
+    }
+
+    private static void flush(Writer writer, Writer progressWriter, List<String> unflushedTables) throws IOException {
+        writer.flush();
+        for (String table : unflushedTables) {
+            progressWriter.write(table);
+            progressWriter.write(LineDelimiter.DEFAULT.getValue());
+        }
+        progressWriter.flush();
+        unflushedTables.clear();
+    }
+
+    private static void deleteProgress(File progressFile) {
+        if (progressFile.exists() && !progressFile.delete()) {
+            logger.warn("Can't delete the progress file: {}", progressFile.getPath());
+        }
+    }
+
+    private static Set<String> readProgress(File progressFile) throws IOException {
+        Set<String> tables = new HashSet<String>();
+        if (!progressFile.exists()) {
+            return tables;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(progressFile), Charsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    tables.add(line);
+                }
+            }
+        } finally {
+            IOs.close(reader);
+        }
+        return tables;
+    }
+
+    private Connection getConnection() {
+        Connection connection = connectionFactory.getConnection();
+        Preconditions.checkNotNull(connection, "Can't get a connection");
+        return connection;
+    }
+
+    /**
+     * loads and renders a batch of tables with its own connection
+     */
+    private class BatchRenderer implements Callable<List<String[]>> {
+        private final List<Table> tables;
+        private final AtomicInteger failed;
+
+        private BatchRenderer(List<Table> tables, AtomicInteger failed) {
+            this.tables = tables;
+            this.failed = failed;
+        }
+
+        @Override
+        public List<String[]> call() throws Exception {
+            List<String[]> result = new ArrayList<String[]>(tables.size());
+            Connection connection = getConnection();
+            try {
+                DatabaseDescription databaseDescription = new DatabaseDescription(connection.getMetaData());
+                CommonTableGenerator generator = new CommonTableGenerator(databaseDescription);
+                DatabaseLoader loader = new DatabaseLoader();
+                for (Table table : tables) {
+                    try {
+                        Table detail = findTable(loader.loadTables(databaseDescription, table.getCatalog(), table.getSchema(), table.getName(), true, true, true, true), table.getName());
+                        if (detail != null) {
+                            result.add(new String[]{table.getName(), generator.generate(detail)});
+                        } else {
+                            failed.incrementAndGet();
+                            logger.error("Can't find the table {} when dump its DDL", table.getName());
+                        }
+                    } catch (Throwable ex) {
+                        failed.incrementAndGet();
+                        logger.error("Error occur when dump the DDL of table {}: {}", table.getName(), ex.getMessage(), ex);
+                    }
+                }
+            } finally {
+                IOs.close(connection);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * the table name is used as a pattern, '_' matches any character, so find the exact one
+     */
+    private static Table findTable(List<Table> tables, String name) {
+        if (tables == null) {
+            return null;
+        }
+        for (Table table : tables) {
+            if (name.equals(table.getName())) {
+                return table;
+            }
+        }
+        return null;
+    }
+}
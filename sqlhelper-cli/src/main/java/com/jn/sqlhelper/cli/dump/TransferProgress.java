@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.dump;
+
+import com.jn.langx.util.io.LineDelimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The rows transferred by every partition of a table data dump or load.
+ */
+public class TransferProgress {
+    private static final Logger logger = LoggerFactory.getLogger(TransferProgress.class);
+    private static final long REPORT_INTERVAL_IN_ROWS = 100000;
+
+    private final String action;
+    private final String table;
+    private final AtomicLongArray rows;
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime = -1;
+
+    public TransferProgress(String action, String table, int partitions) {
+        this.action = action;
+        this.table = table;
+        this.rows = new AtomicLongArray(partitions);
+    }
+
+    public int getPartitions() {
+        return rows.length();
+    }
+
+    public void increment(int partition, int delta) {
+        long before = rows.getAndAdd(partition, delta);
+        long after = before + delta;
+        if (after / REPORT_INTERVAL_IN_ROWS != before / REPORT_INTERVAL_IN_ROWS) {
+            logger.info("{} {} partition {}: {} rows, total {} rows, {} rows/s", action, table, partition, after, getTotalRows(), getRowsPerSecond());
+        }
+    }
+
+    public void finish() {
+        endTime = System.currentTimeMillis();
+    }
+
+    public long getTotalRows() {
+        long total = 0;
+        for (int i = 0; i < rows.length(); i++) {
+            total += rows.get(i);
+        }
+        return total;
+    }
+
+    public long getElapsedMillis() {
+        long end = endTime < 0 ? System.currentTimeMillis() : endTime;
+        return Math.max(1, end - startTime);
+    }
+
+    public long getRowsPerSecond() {
+        return getTotalRows() * 1000 / getElapsedMillis();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(action).append(' ').append(table).append(": ")
+                .append(getTotalRows()).append(" rows in ").append(getElapsedMillis()).append(" ms, ")
+                .append(getRowsPerSecond()).append(" rows/s");
+        for (int i = 0; i < rows.length(); i++) {
+            builder.append(LineDelimiter.DEFAULT.getValue()).append("  partition ").append(i).append(": ").append(rows.get(i)).append(" rows");
+        }
+        return builder.toString();
+    }
+}
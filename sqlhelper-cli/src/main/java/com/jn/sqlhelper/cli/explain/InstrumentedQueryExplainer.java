@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.explain;
+
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.io.LineDelimiter;
+import com.jn.sqlhelper.common.statement.ListPreparedStatementSetter;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+import com.jn.sqlhelper.dialect.explain.QueryPlan;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
+import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import com.jn.sqlhelper.dialect.parameter.ArrayBasedParameterSetter;
+import com.jn.sqlhelper.dialect.parameter.ArrayBasedQueryParameters;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Explains a select and the statements that are instrumented from it by the {@link SQLStatementInstrumentor}:
+ * the paged statement and the count statement, the plans are shown side by side with the plan of the original one.
+ * It finds the count statement that lost the index usage after it is wrapped with 'select count(1) from (...) tmp_count',
+ * the count statement is optimized if it can be, see {@link SQLInstrumentorConfig#isOptimizeCountSql()}.
+ */
+public class InstrumentedQueryExplainer {
+    private static final String SEPARATOR = " || ";
+
+    private final SQLStatementInstrumentor instrumentor;
+
+    public InstrumentedQueryExplainer() {
+        SQLInstrumentorConfig config = new SQLInstrumentorConfig();
+        config.setName("explain");
+        config.setOptimizeCountSql(true);
+        instrumentor = new SQLStatementInstrumentor();
+        instrumentor.setConfig(config);
+        instrumentor.init();
+    }
+
+    /**
+     * @param connection the connection, it is not closed
+     * @param sql        the original select
+     * @param parameters the parameters of the placeholders of the select
+     * @param pageNo     the page number of the paged statement, the first page is 1
+     * @param pageSize   the rows of a page
+     * @param analyze    execute the statements to show the actual rows and times
+     */
+    public String explain(Connection connection, String sql, final List<Object> parameters, int pageNo, int pageSize, boolean analyze) throws SQLException {
+        DatabaseMetaData dbMetaData = connection.getMetaData();
+        final Dialect dialect = DialectRegistry.getInstance().getDialectByDatabaseMetadata(dbMetaData);
+        Preconditions.checkNotNull(dialect, StringTemplates.formatWithPlaceholder("Can't find a dialect for database {}", dbMetaData.getDatabaseProductName()));
+        Preconditions.checkTrue(dialect.isSupportsExplain(), StringTemplates.formatWithPlaceholder("The database {} does not support to explain a statement", dialect.getDatabaseId()));
+        QueryPlanExplainer explainer = dialect.getQueryPlanExplainer();
+
+        ListPreparedStatementSetter originalSetter = new ListPreparedStatementSetter();
+        QueryPlan originalPlan = explainer.explain(connection, sql, originalSetter, parameters, analyze);
+
+        final RowSelection selection = new RowSelection();
+        selection.setOffset((long) (Math.max(1, pageNo) - 1) * pageSize);
+        selection.setLimit(pageSize);
+        String pageSql = instrumentor.instrumentLimitSql(dialect, sql, selection);
+        ArrayBasedQueryParameters queryParameters = new ArrayBasedQueryParameters();
+        queryParameters.setParameters(parameters.toArray());
+        queryParameters.setRowSelection(selection);
+        QueryPlan pagePlan = explainer.explain(connection, pageSql, new PreparedStatementSetter<ArrayBasedQueryParameters>() {
+            @Override
+            public void setParameters(PreparedStatement statement, int startIndex, ArrayBasedQueryParameters queryParameters) throws SQLException {
+                instrumentor.bindParameters(dialect, statement, new ArrayBasedParameterSetter(), queryParameters, true);
+            }
+        }, queryParameters, analyze);
+
+        String countSql = instrumentor.countSql(sql);
+        QueryPlan countPlan = explainer.explain(connection, countSql, originalSetter, parameters, analyze);
+
+        StringBuilder builder = new StringBuilder(1024);
+        appendSideBySide(builder, "original: " + sql, originalPlan, "paged: " + pageSql, pagePlan);
+        builder.append(LineDelimiter.DEFAULT.getValue());
+        appendSideBySide(builder, "original: " + sql, originalPlan, "count: " + countSql, countPlan);
+        return builder.toString();
+    }
+
+    private static void appendSideBySide(StringBuilder builder, String leftTitle, QueryPlan left, String rightTitle, QueryPlan right) {
+        List<String> leftLines = lines(leftTitle, left);
+        List<String> rightLines = lines(rightTitle, right);
+        int width = 0;
+        for (String line : leftLines) {
+            width = Math.max(width, line.length());
+        }
+        int lineCount = Math.max(leftLines.size(), rightLines.size());
+        for (int i = 0; i < lineCount; i++) {
+            String leftLine = i < leftLines.size() ? leftLines.get(i) : "";
+            builder.append(leftLine);
+            for (int j = leftLine.length(); j < width; j++) {
+                builder.append(' ');
+            }
+            builder.append(SEPARATOR);
+            if (i < rightLines.size()) {
+                builder.append(rightLines.get(i));
+            }
+            builder.append(LineDelimiter.DEFAULT.getValue());
+        }
+    }
+
+    /**
+     * the title, a blank line, then the lines of the plan, the multiple lines values (e.g. the plans of H2) are split
+     */
+    private static List<String> lines(String title, QueryPlan plan) {
+        List<String> lines = new ArrayList<String>();
+        lines.add(title);
+        lines.add("");
+        Collections.addAll(lines, plan.getText().split("\r?\n"));
+        return lines;
+    }
+}
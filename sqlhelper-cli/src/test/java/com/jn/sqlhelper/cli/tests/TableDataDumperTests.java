@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.cli.tests;
+
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.cli.dump.TableDataDumper;
+import com.jn.sqlhelper.cli.dump.TableDataFormat;
+import com.jn.sqlhelper.cli.dump.TableDataLoader;
+import com.jn.sqlhelper.cli.dump.TransferProgress;
+import com.jn.sqlhelper.common.connection.ConnectionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+public class TableDataDumperTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConnectionFactory connectionFactory;
+    private Connection keeper;
+
+    @Before
+    public void setup() throws Exception {
+        connectionFactory = new ConnectionFactory("org.h2.Driver", "jdbc:h2:mem:table_data_dumper", "sa", "", null) {
+            @Override
+            public Connection getConnection() {
+                // H2 rejects the jdbc.* driver properties
+                try {
+                    return DriverManager.getConnection("jdbc:h2:mem:table_data_dumper", "sa", "");
+                } catch (SQLException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+        // keep the in-memory database alive
+        keeper = connectionFactory.getConnection();
+    }
+
+    @After
+    public void destroy() {
+        IOs.close(keeper);
+    }
+
+    @Test
+    public void testListDataFiles() throws Exception {
+        File directory = folder.getRoot();
+        for (String name : new String[]{"user.part-000.sqhd", "user.part-001.sqhd", "user_role.part-000.sqhd", "user.x.part-000.sqhd", "user.part-000.sqhd.bak"}) {
+            Assert.assertTrue(new File(directory, name).createNewFile());
+        }
+        List<File> files = TableDataFormat.listDataFiles(directory, "user");
+        Assert.assertEquals(2, files.size());
+        Assert.assertEquals(TableDataFormat.getFileName("user", 0), files.get(0).getName());
+        Assert.assertEquals(TableDataFormat.getFileName("user", 1), files.get(1).getName());
+    }
+
+    @Test
+    public void testDumpExtremeKeys() throws Exception {
+        execute("CREATE TABLE EXTREME_KEY (ID BIGINT PRIMARY KEY, NAME VARCHAR(32))");
+        execute("INSERT INTO EXTREME_KEY VALUES (" + (Long.MIN_VALUE + 1) + ", 'min'), (0, 'zero'), (" + Long.MAX_VALUE + ", 'max')");
+
+        TableDataDumper dumper = new TableDataDumper(connectionFactory);
+        dumper.setPageSize(1);
+        TransferProgress progress = dumper.dump("EXTREME_KEY", folder.getRoot());
+        Assert.assertEquals(3, progress.getTotalRows());
+        Assert.assertEquals(4, progress.getPartitions());
+        assertRoundTrip("EXTREME_KEY", 3);
+    }
+
+    @Test
+    public void testDumpDecimalKeys() throws Exception {
+        execute("CREATE TABLE DECIMAL_KEY (ID DECIMAL(10, 2) PRIMARY KEY, NAME VARCHAR(32))");
+        execute("INSERT INTO DECIMAL_KEY VALUES (1, 'a'), (2.5, 'b'), (2.75, 'c'), (4, 'd')");
+
+        TableDataDumper dumper = new TableDataDumper(connectionFactory);
+        dumper.setPageSize(1);
+        TransferProgress progress = dumper.dump("DECIMAL_KEY", folder.getRoot());
+        // the decimal key is not used for the key ranges, no row is lost or duplicated
+        Assert.assertEquals(1, progress.getPartitions());
+        Assert.assertEquals(4, progress.getTotalRows());
+        assertRoundTrip("DECIMAL_KEY", 4);
+    }
+
+    private void assertRoundTrip(String table, int rows) throws Exception {
+        execute("DELETE FROM " + table);
+        TransferProgress progress = new TableDataLoader(connectionFactory).load(table, folder.getRoot());
+        Assert.assertEquals(rows, progress.getTotalRows());
+        Assert.assertEquals(rows, count(table));
+    }
+
+    private void execute(String sql) throws Exception {
+        Statement statement = keeper.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            IOs.close(statement);
+        }
+    }
+
+    private int count(String table) throws Exception {
+        Statement statement = keeper.createStatement();
+        ResultSet rs = null;
+        try {
+            rs = statement.executeQuery("SELECT COUNT(DISTINCT ID) FROM " + table);
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            IOs.close(rs);
+            IOs.close(statement);
+        }
+    }
+}
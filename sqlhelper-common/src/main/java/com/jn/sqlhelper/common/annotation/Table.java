@@ -23,7 +23,7 @@ import java.lang.annotation.Target;
 /**
  * 标识某个类对应的数据库表
  */
-@Retention(RetentionPolicy.CLASS)
+@Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 public @interface Table {
     /**
@@ -23,6 +23,11 @@ public class BatchResult<E> {
     private BatchStatement statement;
     private List<E> parameters;
     private int rowsAffected;
+    /**
+     * the inserted rows and the updated rows of an upsert, -1 if the database does not expose them, or they can't be told from the update count
+     */
+    private int rowsInserted = -1;
+    private int rowsUpdated = -1;
     private final Set<Throwable> throwables = Collects.newLinkedHashSet();
 
     public BatchStatement getStatement() {
@@ -49,6 +54,22 @@ public class BatchResult<E> {
         this.rowsAffected = rowsAffected;
     }
 
+    public int getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public void setRowsInserted(int rowsInserted) {
+        this.rowsInserted = rowsInserted;
+    }
+
+    public int getRowsUpdated() {
+        return rowsUpdated;
+    }
+
+    public void setRowsUpdated(int rowsUpdated) {
+        this.rowsUpdated = rowsUpdated;
+    }
+
     public List<Throwable> getThrowables() {
         return Collects.asList(throwables);
     }
@@ -15,10 +15,13 @@
 package com.jn.sqlhelper.common.batch.jdbc;
 
 import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.io.IOs;
 import com.jn.sqlhelper.common.batch.BatchResult;
 import com.jn.sqlhelper.common.batch.BatchStatement;
 import com.jn.sqlhelper.common.batch.BatchMode;
 import com.jn.sqlhelper.common.batch.BatchUpdater;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
 
 import java.sql.Connection;
@@ -30,13 +33,28 @@ public class BatchSqlBatchUpdater<E, STATEMENT extends BatchStatement> implement
     Connection connection;
     PreparedStatementSetter setter;
 
+    public BatchSqlBatchUpdater() {
+    }
+
+    public BatchSqlBatchUpdater(Connection connection, PreparedStatementSetter setter) {
+        this.connection = connection;
+        this.setter = setter;
+    }
+
     @Override
     public BatchResult batchUpdate(STATEMENT statement, List<E> parameters) throws SQLException {
         Preconditions.checkNotNull(statement);
         Preconditions.checkArgument(statement.getBatchMode() == BatchMode.BATCH_SQL);
+        MetricsSample sample = SqlHelperMetrics.startBatch(BatchMode.BATCH_SQL.name(), parameters.size());
         PreparedStatement pstmt = connection.prepareStatement(statement.getSql());
-        setter.setParameters(pstmt, 1, parameters);
-        int updatedRows = pstmt.executeUpdate();
+        int updatedRows;
+        try {
+            setter.setParameters(pstmt, 1, parameters);
+            updatedRows = pstmt.executeUpdate();
+        } finally {
+            IOs.close(pstmt);
+            sample.stop();
+        }
         BatchResult result = new BatchResult();
         result.setRowsAffected(updatedRows);
         result.setStatement(statement);
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.jn.sqlhelper.common.batch.jdbc;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.batch.BatchMode;
+import com.jn.sqlhelper.common.batch.BatchStatement;
+
+public class JdbcBatchStatement implements BatchStatement {
+    private BatchMode batchMode = BatchMode.JDBC_BATCH;
+    private String sql;
+
+    public JdbcBatchStatement() {
+
+    }
+
+    public JdbcBatchStatement(@NonNull BatchMode batchMode, @NonNull String sql) {
+        Preconditions.checkNotNull(batchMode);
+        Preconditions.checkNotNull(sql);
+        this.batchMode = batchMode;
+        this.sql = sql;
+    }
+
+    @Override
+    public BatchMode getBatchMode() {
+        return batchMode;
+    }
+
+    @Override
+    public void setBatchMode(BatchMode batchMode) {
+        this.batchMode = batchMode;
+    }
+
+    @Override
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+}
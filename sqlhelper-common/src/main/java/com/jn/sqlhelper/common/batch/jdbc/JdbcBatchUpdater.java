@@ -15,35 +15,58 @@
 package com.jn.sqlhelper.common.batch.jdbc;
 
 import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.io.IOs;
 import com.jn.sqlhelper.common.batch.BatchResult;
 import com.jn.sqlhelper.common.batch.BatchStatement;
 import com.jn.sqlhelper.common.batch.BatchMode;
 import com.jn.sqlhelper.common.batch.BatchUpdater;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 public class JdbcBatchUpdater<E, STATEMENT extends BatchStatement> implements BatchUpdater<E, STATEMENT> {
     Connection connection;
     PreparedStatementSetter<E> setter;
 
+    public JdbcBatchUpdater() {
+    }
+
+    public JdbcBatchUpdater(Connection connection, PreparedStatementSetter<E> setter) {
+        this.connection = connection;
+        this.setter = setter;
+    }
+
     @Override
     public BatchResult<E> batchUpdate(STATEMENT statement, List<E> parametersList) throws SQLException {
         Preconditions.checkNotNull(statement);
         Preconditions.checkArgument(statement.getBatchMode() == BatchMode.JDBC_BATCH);
+        MetricsSample sample = SqlHelperMetrics.startBatch(BatchMode.JDBC_BATCH.name(), parametersList.size());
         PreparedStatement pstmt = connection.prepareStatement(statement.getSql());
-        for (int i = 0; i < parametersList.size(); i++) {
-            setter.setParameters(pstmt, 1, parametersList.get(i));
-            pstmt.addBatch();
+        int sum = 0;
+        try {
+            for (int i = 0; i < parametersList.size(); i++) {
+                setter.setParameters(pstmt, 1, parametersList.get(i));
+                pstmt.addBatch();
+            }
+            int[] updateds = pstmt.executeBatch();
+            for (int updated : updateds) {
+                // Statement.SUCCESS_NO_INFO: the row count is unknown
+                sum += updated == Statement.SUCCESS_NO_INFO ? 1 : Math.max(updated, 0);
+            }
+        } finally {
+            IOs.close(pstmt);
+            sample.stop();
         }
-        int[] updateds = pstmt.executeBatch();
         BatchResult<E> result = new BatchResult<E>();
         result.setParameters(parametersList);
         result.setStatement(statement);
-        result.setRowsAffected(updateds[0]);
+        result.setRowsAffected(sum);
         return result;
     }
 }
@@ -15,10 +15,13 @@
 package com.jn.sqlhelper.common.batch.jdbc;
 
 import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.io.IOs;
 import com.jn.sqlhelper.common.batch.BatchResult;
 import com.jn.sqlhelper.common.batch.BatchStatement;
 import com.jn.sqlhelper.common.batch.BatchMode;
 import com.jn.sqlhelper.common.batch.BatchUpdater;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
 
 import java.sql.Connection;
@@ -30,16 +33,33 @@ public class SimpleBatchUpdater<E, STATEMENT extends BatchStatement> implements
     Connection connection;
     PreparedStatementSetter<E> setter;
 
+    public SimpleBatchUpdater() {
+    }
+
+    public SimpleBatchUpdater(Connection connection, PreparedStatementSetter<E> setter) {
+        this.connection = connection;
+        this.setter = setter;
+    }
+
     @Override
     public BatchResult<E> batchUpdate(STATEMENT statement, List<E> parametersList) throws SQLException {
         Preconditions.checkNotNull(statement);
         Preconditions.checkArgument(statement.getBatchMode() == BatchMode.SIMPLE);
         int sum = 0;
-        for (int i = 0; i < parametersList.size(); i++) {
-            PreparedStatement pstmt = connection.prepareStatement(statement.getSql());
-            setter.setParameters(pstmt, 1, parametersList.get(i));
-            int updated = pstmt.executeUpdate();
-            sum = sum + updated;
+        MetricsSample sample = SqlHelperMetrics.startBatch(BatchMode.SIMPLE.name(), parametersList.size());
+        try {
+            for (int i = 0; i < parametersList.size(); i++) {
+                PreparedStatement pstmt = connection.prepareStatement(statement.getSql());
+                try {
+                    setter.setParameters(pstmt, 1, parametersList.get(i));
+                    int updated = pstmt.executeUpdate();
+                    sum = sum + updated;
+                } finally {
+                    IOs.close(pstmt);
+                }
+            }
+        } finally {
+            sample.stop();
         }
         BatchResult<E> result = new BatchResult<E>();
         result.setStatement(statement);
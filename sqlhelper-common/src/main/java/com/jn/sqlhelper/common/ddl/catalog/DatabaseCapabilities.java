@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.catalog;
+
+import com.jn.langx.util.Strings;
+import com.jn.langx.util.ThrowableFunction;
+import com.jn.langx.util.Throwables;
+import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
+import com.jn.sqlhelper.common.utils.SQLs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.DatabaseMetaData;
+
+/**
+ * The capabilities and the identifier rules of a database, they are read from the {@link DatabaseMetaData} once,
+ * then they can be used after the connection is closed.
+ */
+public class DatabaseCapabilities {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseCapabilities.class);
+
+    private String url;
+    private String databaseProductName;
+    private String databaseProductVersion;
+    private String driverName;
+    private String driverVersion;
+    private boolean supportsBatchUpdates;
+    private boolean supportsMixedCaseIdentifiers;
+    private boolean supportsMixedCaseQuotedIdentifiers;
+    private boolean supportsCatalogsInTableDefinitions;
+    private boolean supportsSchemasInTableDefinitions;
+    private boolean supportsCatalogsInIndexDefinitions;
+    private boolean supportsSchemasInIndexDefinitions;
+    private boolean storesUpperCaseIdentifiers;
+    private boolean storesLowerCaseIdentifiers;
+    private String catalogSeparator;
+    private boolean catalogAtStart;
+    private String identifierQuoteString;
+
+    public static DatabaseCapabilities of(final DatabaseMetaData dbMetaData) {
+        DatabaseDescription description = new DatabaseDescription(dbMetaData);
+        DatabaseCapabilities capabilities = new DatabaseCapabilities();
+        capabilities.url = getString(new ThrowableFunction<Object, String>() {
+            @Override
+            public String doFun(Object o) throws Throwable {
+                return dbMetaData.getURL();
+            }
+        });
+        capabilities.databaseProductName = getString(new ThrowableFunction<Object, String>() {
+            @Override
+            public String doFun(Object o) throws Throwable {
+                return dbMetaData.getDatabaseProductName();
+            }
+        });
+        capabilities.databaseProductVersion = getString(new ThrowableFunction<Object, String>() {
+            @Override
+            public String doFun(Object o) throws Throwable {
+                return dbMetaData.getDatabaseProductVersion();
+            }
+        });
+        capabilities.driverName = getString(new ThrowableFunction<Object, String>() {
+            @Override
+            public String doFun(Object o) throws Throwable {
+                return dbMetaData.getDriverName();
+            }
+        });
+        capabilities.driverVersion = getString(new ThrowableFunction<Object, String>() {
+            @Override
+            public String doFun(Object o) throws Throwable {
+                return dbMetaData.getDriverVersion();
+            }
+        });
+        capabilities.identifierQuoteString = getString(new ThrowableFunction<Object, String>() {
+            @Override
+            public String doFun(Object o) throws Throwable {
+                return dbMetaData.getIdentifierQuoteString();
+            }
+        });
+        capabilities.storesUpperCaseIdentifiers = getBoolean(new ThrowableFunction<Object, Boolean>() {
+            @Override
+            public Boolean doFun(Object o) throws Throwable {
+                return dbMetaData.storesUpperCaseIdentifiers();
+            }
+        });
+        capabilities.storesLowerCaseIdentifiers = getBoolean(new ThrowableFunction<Object, Boolean>() {
+            @Override
+            public Boolean doFun(Object o) throws Throwable {
+                return dbMetaData.storesLowerCaseIdentifiers();
+            }
+        });
+        capabilities.supportsBatchUpdates = description.supportsBatchUpdates();
+        capabilities.supportsMixedCaseIdentifiers = description.supportsMixedCaseIdentifiers();
+        capabilities.supportsMixedCaseQuotedIdentifiers = description.supportsMixedCaseQuotedIdentifiers();
+        capabilities.supportsCatalogsInTableDefinitions = description.supportsCatalogsInTableDefinitions();
+        capabilities.supportsSchemasInTableDefinitions = description.supportsSchemasInTableDefinitions();
+        capabilities.supportsCatalogsInIndexDefinitions = description.supportsCatalogsInIndexDefinitions();
+        capabilities.supportsSchemasInIndexDefinitions = description.supportsSchemasInIndexDefinitions();
+        capabilities.catalogSeparator = description.getCatalogSeparator();
+        capabilities.catalogAtStart = description.isCatalogAtStart();
+        return capabilities;
+    }
+
+    private static String getString(ThrowableFunction<Object, String> getter) {
+        return Throwables.ignoreThrowable(logger, null, getter, null);
+    }
+
+    private static boolean getBoolean(ThrowableFunction<Object, Boolean> getter) {
+        return Throwables.ignoreThrowable(logger, false, getter, null);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getDatabaseProductName() {
+        return databaseProductName;
+    }
+
+    public String getDatabaseProductVersion() {
+        return databaseProductVersion;
+    }
+
+    public String getDriverName() {
+        return driverName;
+    }
+
+    public String getDriverVersion() {
+        return driverVersion;
+    }
+
+    public boolean supportsBatchUpdates() {
+        return supportsBatchUpdates;
+    }
+
+    public boolean supportsMixedCaseIdentifiers() {
+        return supportsMixedCaseIdentifiers;
+    }
+
+    public boolean supportsMixedCaseQuotedIdentifiers() {
+        return supportsMixedCaseQuotedIdentifiers;
+    }
+
+    public boolean supportsCatalogsInTableDefinitions() {
+        return supportsCatalogsInTableDefinitions;
+    }
+
+    public boolean supportsSchemasInTableDefinitions() {
+        return supportsSchemasInTableDefinitions;
+    }
+
+    public boolean supportsCatalogsInIndexDefinitions() {
+        return supportsCatalogsInIndexDefinitions;
+    }
+
+    public boolean supportsSchemasInIndexDefinitions() {
+        return supportsSchemasInIndexDefinitions;
+    }
+
+    public boolean storesUpperCaseIdentifiers() {
+        return storesUpperCaseIdentifiers;
+    }
+
+    public boolean storesLowerCaseIdentifiers() {
+        return storesLowerCaseIdentifiers;
+    }
+
+    public String getCatalogSeparator() {
+        return catalogSeparator;
+    }
+
+    public boolean isCatalogAtStart() {
+        return catalogAtStart;
+    }
+
+    /**
+     * @return the quote string, null if the quoting of the identifiers is not supported
+     */
+    public String getIdentifierQuoteString() {
+        return Strings.isBlank(identifierQuoteString) ? null : identifierQuoteString.trim();
+    }
+
+    public String quoteIdentifier(String identifier) {
+        String quote = getIdentifierQuoteString();
+        if (quote == null || Strings.isEmpty(identifier) || identifier.startsWith(quote)) {
+            return identifier;
+        }
+        return quote + identifier + quote;
+    }
+
+    /**
+     * @return the identifier in the case that the database stores the unquoted identifiers
+     */
+    public String toStoredCase(String identifier) {
+        if (identifier == null || supportsMixedCaseIdentifiers) {
+            return identifier;
+        }
+        if (storesUpperCaseIdentifiers) {
+            return identifier.toUpperCase();
+        }
+        if (storesLowerCaseIdentifiers) {
+            return identifier.toLowerCase();
+        }
+        return identifier;
+    }
+
+    public String getTableFQN(String catalog, String schema, String tableName) {
+        return SQLs.getTableFQN(catalog, schema, tableName, catalogSeparator, catalogAtStart);
+    }
+}
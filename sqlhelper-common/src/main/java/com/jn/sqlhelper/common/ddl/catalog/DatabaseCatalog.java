@@ -0,0 +1,322 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.catalog;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Emptys;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.ddl.dump.DatabaseLoader;
+import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory metadata of a {@link DataSource}:
+ * <pre>
+ * 1) the {@link DatabaseCapabilities}, they are read once, with the first connection that asks for them
+ * 2) the tables with the columns, primary keys and indexes, they are loaded with {@link DatabaseLoader}
+ *    in the background when they are asked for the first time, then refreshed every {@code refreshIntervalInSeconds}
+ * </pre>
+ * So the metadata can be read without touching the {@link DatabaseMetaData} on the request path.
+ * The tables are empty until the first load is completed.
+ * <p>
+ * The data source is referenced weakly, the catalog does not keep it alive. The background refresh stops
+ * after the data source is collected.
+ *
+ * @see DatabaseCatalogRegistry
+ */
+public class DatabaseCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseCatalog.class);
+
+    @NonNull
+    private final WeakReference<DataSource> dataSource;
+    @Nullable
+    private String catalog;
+    @Nullable
+    private String schema;
+    private long refreshIntervalInSeconds = 600;
+    private DatabaseLoader databaseLoader = new DatabaseLoader();
+
+    private volatile DatabaseCapabilities capabilities;
+    /**
+     * key: the table name in lower case, value: the tables of the name in all the loaded catalogs and schemas
+     */
+    private volatile Map<String, List<Table>> tables = Collections.emptyMap();
+    /**
+     * key: a loaded table
+     */
+    private volatile Map<Table, List<Index>> indexes = Collections.emptyMap();
+    private volatile boolean loaded = false;
+    private ScheduledExecutorService scheduler;
+
+    public DatabaseCatalog(DataSource dataSource) {
+        this(dataSource, null, null);
+    }
+
+    public DatabaseCatalog(DataSource dataSource, String catalog, String schema) {
+        Preconditions.checkNotNull(dataSource);
+        this.dataSource = new WeakReference<DataSource>(dataSource);
+        this.catalog = catalog;
+        this.schema = schema;
+    }
+
+    /**
+     * @return the data source, null if it has been collected
+     */
+    @Nullable
+    public DataSource getDataSource() {
+        return dataSource.get();
+    }
+
+    private DataSource requireDataSource() {
+        DataSource ds = dataSource.get();
+        if (ds == null) {
+            throw new IllegalStateException("the data source of the database catalog has been collected");
+        }
+        return ds;
+    }
+
+    public void setRefreshIntervalInSeconds(long refreshIntervalInSeconds) {
+        this.refreshIntervalInSeconds = refreshIntervalInSeconds;
+    }
+
+    public void setDatabaseLoader(DatabaseLoader databaseLoader) {
+        this.databaseLoader = databaseLoader;
+    }
+
+    /**
+     * @return the capabilities, they are read with a new connection of the data source if they are not read yet
+     */
+    public DatabaseCapabilities getCapabilities() {
+        if (capabilities == null) {
+            Connection connection = null;
+            try {
+                connection = requireDataSource().getConnection();
+                return getCapabilities(connection);
+            } catch (SQLException ex) {
+                throw Throwables.wrapAsRuntimeException(ex);
+            } finally {
+                IOs.close(connection);
+            }
+        }
+        return capabilities;
+    }
+
+    /**
+     * @param connection a connection of the data source, it is used only if the capabilities are not read yet
+     */
+    public DatabaseCapabilities getCapabilities(Connection connection) throws SQLException {
+        if (capabilities == null) {
+            synchronized (this) {
+                if (capabilities == null) {
+                    capabilities = DatabaseCapabilities.of(connection.getMetaData());
+                }
+            }
+        }
+        return capabilities;
+    }
+
+    /**
+     * Loads the tables in the background, then refreshes them every {@code refreshIntervalInSeconds}.
+     * If the interval is not positive, the tables are loaded once.
+     */
+    public synchronized void startup() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-database-catalog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                if (dataSource.get() == null) {
+                    shutdown();
+                    return;
+                }
+                try {
+                    refresh();
+                } catch (Throwable ex) {
+                    logger.warn("Error occur when refresh the database catalog: {}", ex.getMessage(), ex);
+                }
+            }
+        };
+        if (refreshIntervalInSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(task, 0, refreshIntervalInSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler.execute(task);
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private boolean isStarted() {
+        return scheduler != null;
+    }
+
+    /**
+     * Reloads the capabilities and all the tables in the current thread, with bulk metadata queries.
+     */
+    public void refresh() throws SQLException {
+        Connection connection = null;
+        try {
+            connection = requireDataSource().getConnection();
+            DatabaseMetaData dbMetaData = connection.getMetaData();
+            this.capabilities = DatabaseCapabilities.of(dbMetaData);
+            List<Table> loadedTables = databaseLoader.loadTables(new DatabaseDescription(dbMetaData), catalog, schema, "%", true, true, true, false);
+            Map<String, List<Table>> newTables = new HashMap<String, List<Table>>();
+            Map<Table, List<Index>> newIndexes = new IdentityHashMap<Table, List<Index>>();
+            int count = 0;
+            if (loadedTables != null) {
+                for (Table table : loadedTables) {
+                    if (table.getName() != null) {
+                        String key = table.getName().toLowerCase();
+                        List<Table> sameNameTables = newTables.get(key);
+                        if (sameNameTables == null) {
+                            sameNameTables = new ArrayList<Table>(1);
+                            newTables.put(key, sameNameTables);
+                        }
+                        sameNameTables.add(table);
+                        count++;
+                        if (Emptys.isNotEmpty(table.getIndexMap())) {
+                            newIndexes.put(table, Collections.unmodifiableList(new ArrayList<Index>(table.getIndexMap().values())));
+                        }
+                    }
+                }
+            }
+            this.tables = newTables;
+            this.indexes = newIndexes;
+            this.loaded = true;
+            logger.debug("Loaded the metadata of {} tables", count);
+        } finally {
+            IOs.close(connection);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void startupIfNecessary() {
+        if (!loaded && !isStarted()) {
+            startup();
+        }
+    }
+
+    /**
+     * @param table the table name
+     * @return the table, null if the table is unknown, the name is ambiguous or the tables are not loaded yet
+     */
+    @Nullable
+    public Table getTable(String table) {
+        return getTable(null, null, table);
+    }
+
+    /**
+     * @param catalog the catalog of the table, null matches any catalog
+     * @param schema  the schema of the table, null matches any schema
+     * @param table   the table name
+     * @return the table, null if the table is unknown, the name matches the tables of more than one catalog or schema,
+     * or the tables are not loaded yet
+     */
+    @Nullable
+    public Table getTable(@Nullable String catalog, @Nullable String schema, String table) {
+        startupIfNecessary();
+        if (Emptys.isEmpty(table)) {
+            return null;
+        }
+        List<Table> sameNameTables = tables.get(table.toLowerCase());
+        if (sameNameTables == null) {
+            return null;
+        }
+        Table found = null;
+        for (Table candidate : sameNameTables) {
+            if (matches(catalog, candidate.getCatalog()) && matches(schema, candidate.getSchema())) {
+                if (found != null) {
+                    return null;
+                }
+                found = candidate;
+            }
+        }
+        return found;
+    }
+
+    private static boolean matches(String expected, String actual) {
+        return Emptys.isEmpty(expected) || expected.equalsIgnoreCase(actual);
+    }
+
+    public Collection<Table> getTables() {
+        startupIfNecessary();
+        List<Table> result = new ArrayList<Table>();
+        for (List<Table> sameNameTables : tables.values()) {
+            result.addAll(sameNameTables);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public boolean contains(String table) {
+        return getTable(table) != null;
+    }
+
+    public boolean contains(@Nullable String catalog, @Nullable String schema, String table) {
+        return getTable(catalog, schema, table) != null;
+    }
+
+    /**
+     * @param table the table name
+     * @return the indexes of the table, an empty list if the table is unknown or the name is ambiguous
+     */
+    @NonNull
+    public List<Index> getIndexes(String table) {
+        return getIndexes(null, null, table);
+    }
+
+    /**
+     * @return the indexes of the table, an empty list if the table is unknown or the name is ambiguous
+     * @see #getTable(String, String, String)
+     */
+    @NonNull
+    public List<Index> getIndexes(@Nullable String catalog, @Nullable String schema, String table) {
+        Table found = getTable(catalog, schema, table);
+        List<Index> tableIndexes = found == null ? null : indexes.get(found);
+        return tableIndexes == null ? Collections.<Index>emptyList() : tableIndexes;
+    }
+}
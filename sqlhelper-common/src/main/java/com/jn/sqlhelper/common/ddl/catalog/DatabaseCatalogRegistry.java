@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.catalog;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.annotation.Singleton;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Strings;
+import com.jn.langx.util.collection.ConcurrentReferenceHashMap;
+import com.jn.langx.util.reflect.reference.ReferenceType;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The process wide {@link DatabaseCatalog}s, one per {@link DataSource} instance.
+ * The data sources are compared by identity and referenced weakly, a closed and dropped data source is not kept alive.
+ * <p>
+ * The code that has a connection only (without the data source), can find the capabilities
+ * with {@link #getCapabilities(DatabaseMetaData)}, they are cached by the jdbc url and the driver.
+ * Prefer {@link #getCatalog(DataSource)} if the data source is known, the data sources of the same url may differ.
+ */
+@Singleton
+public class DatabaseCatalogRegistry {
+    private static final DatabaseCatalogRegistry INSTANCE = new DatabaseCatalogRegistry();
+
+    private final ConcurrentMap<DataSource, DatabaseCatalog> catalogs = new ConcurrentReferenceHashMap<DataSource, DatabaseCatalog>(16, 0.75f, 16, ReferenceType.WEAK, ReferenceType.STRONG, EnumSet.of(ConcurrentReferenceHashMap.Option.IDENTITY_COMPARISONS));
+    /**
+     * key: the jdbc url, the driver name and version
+     */
+    private final ConcurrentMap<String, DatabaseCapabilities> capabilitiesMap = new ConcurrentHashMap<String, DatabaseCapabilities>();
+
+    public static DatabaseCatalogRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the catalog of the data source, it will be created if it is not exists
+     */
+    @NonNull
+    public DatabaseCatalog getCatalog(@NonNull DataSource dataSource) {
+        Preconditions.checkNotNull(dataSource);
+        DatabaseCatalog catalog = catalogs.get(dataSource);
+        if (catalog == null) {
+            DatabaseCatalog newCatalog = new DatabaseCatalog(dataSource);
+            catalog = catalogs.putIfAbsent(dataSource, newCatalog);
+            if (catalog == null) {
+                catalog = newCatalog;
+            }
+        }
+        return catalog;
+    }
+
+    @Nullable
+    public DatabaseCatalog findCatalog(@Nullable DataSource dataSource) {
+        return dataSource == null ? null : catalogs.get(dataSource);
+    }
+
+    /**
+     * registers a catalog that is configured by the user, e.g. with a catalog, schema or refresh interval
+     */
+    public void register(@NonNull DatabaseCatalog catalog) {
+        Preconditions.checkNotNull(catalog);
+        DataSource dataSource = catalog.getDataSource();
+        Preconditions.checkNotNull(dataSource, "the data source of the catalog has been collected");
+        DatabaseCatalog old = catalogs.put(dataSource, catalog);
+        if (old != null && old != catalog) {
+            old.shutdown();
+        }
+    }
+
+    public void unregister(DataSource dataSource) {
+        DatabaseCatalog catalog = dataSource == null ? null : catalogs.remove(dataSource);
+        if (catalog != null) {
+            catalog.shutdown();
+        }
+    }
+
+    /**
+     * @return the catalogs whose data sources are alive
+     */
+    public Collection<DatabaseCatalog> getCatalogs() {
+        return Collections.unmodifiableCollection(new ArrayList<DatabaseCatalog>(catalogs.values()));
+    }
+
+    public DatabaseCapabilities getCapabilities(@NonNull DatabaseMetaData dbMetaData) throws SQLException {
+        String url = dbMetaData.getURL();
+        if (Strings.isEmpty(url)) {
+            return DatabaseCapabilities.of(dbMetaData);
+        }
+        String key = url + "|" + dbMetaData.getDriverName() + "|" + dbMetaData.getDriverVersion();
+        DatabaseCapabilities capabilities = capabilitiesMap.get(key);
+        if (capabilities == null) {
+            capabilities = DatabaseCapabilities.of(dbMetaData);
+            DatabaseCapabilities existed = capabilitiesMap.putIfAbsent(key, capabilities);
+            if (existed != null) {
+                capabilities = existed;
+            }
+        }
+        return capabilities;
+    }
+}
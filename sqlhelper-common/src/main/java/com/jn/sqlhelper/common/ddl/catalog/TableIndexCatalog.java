@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.catalog;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.ddl.dump.DatabaseLoader;
+import com.jn.sqlhelper.common.ddl.model.Index;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * An in-memory catalog of the table indexes, it is a view of a {@link DatabaseCatalog},
+ * so the index metadata can be read without touching the {@link java.sql.DatabaseMetaData} on the request path.
+ * <p>
+ * The catalog is empty until the first load is completed.
+ */
+public class TableIndexCatalog {
+    @NonNull
+    private final DatabaseCatalog databaseCatalog;
+
+    public TableIndexCatalog(DataSource dataSource) {
+        this(dataSource, null, null);
+    }
+
+    public TableIndexCatalog(DataSource dataSource, String catalog, String schema) {
+        this(new DatabaseCatalog(dataSource, catalog, schema));
+    }
+
+    public TableIndexCatalog(@NonNull DatabaseCatalog databaseCatalog) {
+        Preconditions.checkNotNull(databaseCatalog);
+        this.databaseCatalog = databaseCatalog;
+    }
+
+    public DataSource getDataSource() {
+        return databaseCatalog.getDataSource();
+    }
+
+    public DatabaseCatalog getDatabaseCatalog() {
+        return databaseCatalog;
+    }
+
+    public void setRefreshIntervalInSeconds(long refreshIntervalInSeconds) {
+        databaseCatalog.setRefreshIntervalInSeconds(refreshIntervalInSeconds);
+    }
+
+    public void setDatabaseLoader(DatabaseLoader databaseLoader) {
+        databaseCatalog.setDatabaseLoader(databaseLoader);
+    }
+
+    /**
+     * Loads the indexes in the background, then refreshes them every {@code refreshIntervalInSeconds}.
+     * If the interval is not positive, the indexes are loaded once.
+     */
+    public void startup() {
+        databaseCatalog.startup();
+    }
+
+    public void shutdown() {
+        databaseCatalog.shutdown();
+    }
+
+    /**
+     * Reloads all the indexes in the current thread.
+     */
+    public void refresh() throws SQLException {
+        databaseCatalog.refresh();
+    }
+
+    public boolean isLoaded() {
+        return databaseCatalog.isLoaded();
+    }
+
+    /**
+     * @param table the table name
+     * @return the indexes of the table, an empty list if the table is unknown
+     */
+    @NonNull
+    public List<Index> getIndexes(String table) {
+        return databaseCatalog.getIndexes(table);
+    }
+
+    /**
+     * @param catalog the catalog of the table, null matches any catalog
+     * @param schema  the schema of the table, null matches any schema
+     * @param table   the table name
+     * @return the indexes of the table, an empty list if the table is unknown or the name matches the tables of more than one schema
+     */
+    @NonNull
+    public List<Index> getIndexes(@Nullable String catalog, @Nullable String schema, String table) {
+        return databaseCatalog.getIndexes(catalog, schema, table);
+    }
+
+    public boolean contains(String table) {
+        return databaseCatalog.contains(table);
+    }
+
+    public boolean contains(@Nullable String catalog, @Nullable String schema, String table) {
+        return databaseCatalog.contains(catalog, schema, table);
+    }
+}
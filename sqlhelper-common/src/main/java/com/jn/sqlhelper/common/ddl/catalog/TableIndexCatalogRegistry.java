@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.catalog;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.annotation.Singleton;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.ddl.model.Index;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The registered index catalogs, the sql instrumentation finds the indexes of a table in them.
+ */
+@Singleton
+public class TableIndexCatalogRegistry {
+    private static final TableIndexCatalogRegistry INSTANCE = new TableIndexCatalogRegistry();
+
+    private final List<TableIndexCatalog> catalogs = new CopyOnWriteArrayList<TableIndexCatalog>();
+
+    public static TableIndexCatalogRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public void register(@NonNull TableIndexCatalog catalog) {
+        Preconditions.checkNotNull(catalog);
+        if (!catalogs.contains(catalog)) {
+            catalogs.add(catalog);
+        }
+    }
+
+    public void unregister(TableIndexCatalog catalog) {
+        catalogs.remove(catalog);
+    }
+
+    public boolean isEmpty() {
+        return catalogs.isEmpty();
+    }
+
+    /**
+     * @return the indexes of the table in the first catalog that knows it,
+     * the loaded catalogs in the {@link DatabaseCatalogRegistry} are searched if no registered catalog knows it
+     */
+    @NonNull
+    public List<Index> getIndexes(String table) {
+        return getIndexes(null, null, table);
+    }
+
+    /**
+     * @param catalog the catalog of the table, null matches any catalog
+     * @param schema  the schema of the table, null matches any schema
+     * @param table   the table name
+     * @return the indexes of the table in the first catalog that knows it, an empty list if the table is unknown or
+     * the name matches the tables of more than one schema in a catalog
+     */
+    @NonNull
+    public List<Index> getIndexes(@Nullable String catalog, @Nullable String schema, String table) {
+        for (TableIndexCatalog indexCatalog : catalogs) {
+            if (indexCatalog.contains(catalog, schema, table)) {
+                return indexCatalog.getIndexes(catalog, schema, table);
+            }
+        }
+        for (DatabaseCatalog databaseCatalog : DatabaseCatalogRegistry.getInstance().getCatalogs()) {
+            if (databaseCatalog.isLoaded() && databaseCatalog.contains(catalog, schema, table)) {
+                return databaseCatalog.getIndexes(catalog, schema, table);
+            }
+        }
+        return Collections.emptyList();
+    }
+}
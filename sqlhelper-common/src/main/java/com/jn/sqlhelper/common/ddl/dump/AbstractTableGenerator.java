@@ -31,6 +31,39 @@ public abstract class AbstractTableGenerator implements TableGenerator {
         return generateAnyTableDDL(table);
     }
 
+    public String generateAddColumn(Table table, Column column) throws SQLException {
+        return buildAlterTableClause(table) + " ADD " + buildDefineColumnClause(table, column) + ";" + LineDelimiter.DEFAULT.getValue();
+    }
+
+    public String generateModifyColumn(Table table, Column column) throws SQLException {
+        return buildAlterModifyColumnClause(table, column);
+    }
+
+    public String generateDropColumn(Table table, Column column) throws SQLException {
+        return buildAlterTableClause(table) + " DROP COLUMN " + column.getName() + ";" + LineDelimiter.DEFAULT.getValue();
+    }
+
+    public String generateAddPrimaryKey(Table table) throws SQLException {
+        return buildAlterAddPrimaryKeyClause(table);
+    }
+
+    public String generateDropPrimaryKey(Table table) throws SQLException {
+        return buildAlterTableClause(table) + " DROP PRIMARY KEY;" + LineDelimiter.DEFAULT.getValue();
+    }
+
+    public String generateCreateIndex(Table table, Index index) throws SQLException {
+        return buildCreateIndexDDLClause(table, index);
+    }
+
+    public String generateDropIndex(Table table, Index index) throws SQLException {
+        return buildDropIndexDDLClause(table, index);
+    }
+
+    public String generateDropTable(Table table) throws SQLException {
+        String tableFQN = getTableFQN(databaseDesc.supportsCatalogsInTableDefinitions() ? table.getCatalog() : null, databaseDesc.supportsSchemasInTableDefinitions() ? table.getSchema() : null, table.getName());
+        return "DROP TABLE " + tableFQN + ";" + LineDelimiter.DEFAULT.getValue();
+    }
+
     protected boolean isSupportsSetPrimaryKeyInTableDDL() {
         return false;
     }
@@ -219,8 +252,10 @@ public abstract class AbstractTableGenerator implements TableGenerator {
                 }
 
                 builder.append(indexColumn.getColumnName());
-                if (indexColumn.getAscOrDesc() != SortType.UNSUPPORTED) {
-                    builder.append(" ").append(indexColumn.getAscOrDesc().name());
+                // the drivers may return no sort order
+                SortType sortType = indexColumn.getAscOrDesc();
+                if (sortType != null && sortType != SortType.UNSUPPORTED) {
+                    builder.append(" ").append(sortType.name());
                 }
             }
         });
@@ -228,6 +263,22 @@ public abstract class AbstractTableGenerator implements TableGenerator {
         return builder.toString();
     }
 
+    protected String buildAlterTableClause(Table table) {
+        String tableFQN = getTableFQN(databaseDesc.supportsCatalogsInTableDefinitions() ? table.getCatalog() : null, databaseDesc.supportsSchemasInTableDefinitions() ? table.getSchema() : null, table.getName());
+        return "ALTER TABLE " + tableFQN;
+    }
+
+    /**
+     * The default is 'ALTER TABLE t MODIFY column_definition', it is supported by MySQL, MariaDB, Oracle
+     */
+    protected String buildAlterModifyColumnClause(Table table, Column column) {
+        return buildAlterTableClause(table) + " MODIFY " + buildDefineColumnClause(table, column) + ";" + LineDelimiter.DEFAULT.getValue();
+    }
+
+    protected String buildDropIndexDDLClause(Table table, Index index) {
+        return "DROP INDEX " + index.getName() + ";" + LineDelimiter.DEFAULT.getValue();
+    }
+
     /**
      * @param catalog   null if catalog is not supported
      * @param schema    null if schema is not supported
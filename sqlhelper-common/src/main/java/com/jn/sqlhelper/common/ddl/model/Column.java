@@ -194,7 +194,7 @@ public class Column {
         this.isGeneratedColumn = isGeneratedColumn;
     }
 
-    public int getSize() {
+    public Integer getSize() {
         return size;
     }
 
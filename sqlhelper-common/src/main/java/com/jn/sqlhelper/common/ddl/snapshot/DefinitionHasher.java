@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.sqlhelper.common.ddl.model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 64 bit FNV-1a hashes of the definitions of the tables, columns, indexes.
+ * <p>
+ * The catalog, schema and the column position are not a part of a definition,
+ * so the same table in two database instances has the same hash. The names are case insensitive.
+ */
+class DefinitionHasher {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long hash = FNV_OFFSET_BASIS;
+
+    private DefinitionHasher add(Object value) {
+        if (value == null) {
+            return addByte(0);
+        }
+        String string = value.toString();
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            addByte(c & 0xff);
+            addByte(c >>> 8);
+        }
+        return addByte(1);
+    }
+
+    private DefinitionHasher addName(String name) {
+        return add(name == null ? null : name.toLowerCase());
+    }
+
+    private DefinitionHasher add(long value) {
+        for (int i = 0; i < 8; i++) {
+            addByte((int) (value >>> (i * 8)));
+        }
+        return this;
+    }
+
+    private DefinitionHasher addByte(int b) {
+        hash ^= (b & 0xff);
+        hash *= FNV_PRIME;
+        return this;
+    }
+
+    static long hash(Column column) {
+        return new DefinitionHasher()
+                .addName(column.getName())
+                .add(column.getJdbcType())
+                .addName(column.getTypeName())
+                .add(column.getSize())
+                .add(column.getDecimalDigits())
+                .add(column.getCharOctetLength())
+                .add(column.getIsNullable())
+                .add(column.getDefaultValue())
+                .add(column.getIsAutoincrement())
+                .add(column.getIsGeneratedColumn())
+                .add(column.getRemarks())
+                .hash;
+    }
+
+    static long hash(Index index) {
+        DefinitionHasher hasher = new DefinitionHasher().addName(index.getName());
+        for (IndexColumn column : index.getColumns()) {
+            hasher.addName(column.getColumnName())
+                    .add(column.isNonUnique())
+                    .add(column.getType())
+                    .add(column.getAscOrDesc())
+                    .add(column.getFilterCondition());
+        }
+        return hasher.hash;
+    }
+
+    static long hashPrimaryKey(Table table) {
+        DefinitionHasher hasher = new DefinitionHasher();
+        for (PrimaryKeyColumn column : table.getPkColumns()) {
+            hasher.addName(column.getColumnName());
+        }
+        return hasher.hash;
+    }
+
+    static long hashForeignKeys(Table table) {
+        List<String> fkColumns = new ArrayList<String>(table.getFkColumnMap().keySet());
+        Collections.sort(fkColumns);
+        DefinitionHasher hasher = new DefinitionHasher();
+        for (String fkColumn : fkColumns) {
+            ImportedColumn column = table.getFkColumnMap().get(fkColumn);
+            hasher.addName(column.getFkColumnName())
+                    .addName(column.getPkTableName())
+                    .addName(column.getPkColumnName())
+                    .add(column.getUpdateRule())
+                    .add(column.getDeleteRule())
+                    .add(column.getDeferrability());
+        }
+        return hasher.hash;
+    }
+
+    /**
+     * @param columnHashes the column hashes in the column order
+     * @param indexHashes  the index hashes in the index name order
+     */
+    static long hash(Table table, List<Long> columnHashes, List<Long> indexHashes, long primaryKeyHash, long foreignKeysHash) {
+        DefinitionHasher hasher = new DefinitionHasher()
+                .addName(table.getName())
+                .add(table.getTableType())
+                .add(table.getRemarks())
+                .add(table.getSql());
+        for (Long columnHash : columnHashes) {
+            hasher.add(columnHash.longValue());
+        }
+        for (Long indexHash : indexHashes) {
+            hasher.add(indexHash.longValue());
+        }
+        return hasher.add(primaryKeyHash).add(foreignKeysHash).hash;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.sqlhelper.common.ddl.dump.AbstractTableGenerator;
+import com.jn.sqlhelper.common.ddl.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The differences between an expected and an actual schema snapshot.
+ * {@link #generateDDL(AbstractTableGenerator)} renders the statements that make the actual schema the same as the expected one.
+ */
+public class SchemaDiff {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaDiff.class);
+
+    private final SchemaSnapshot expected;
+    private final SchemaSnapshot actual;
+    private final List<Table> createdTables = new ArrayList<Table>();
+    private final List<Table> droppedTables = new ArrayList<Table>();
+    private final List<TableDiff> alteredTables = new ArrayList<TableDiff>();
+    private int unchangedTables;
+
+    public SchemaDiff(SchemaSnapshot expected, SchemaSnapshot actual) {
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public SchemaSnapshot getExpected() {
+        return expected;
+    }
+
+    public SchemaSnapshot getActual() {
+        return actual;
+    }
+
+    public List<Table> getCreatedTables() {
+        return createdTables;
+    }
+
+    public List<Table> getDroppedTables() {
+        return droppedTables;
+    }
+
+    public List<TableDiff> getAlteredTables() {
+        return alteredTables;
+    }
+
+    public int getUnchangedTables() {
+        return unchangedTables;
+    }
+
+    void setUnchangedTables(int unchangedTables) {
+        this.unchangedTables = unchangedTables;
+    }
+
+    public boolean isEmpty() {
+        return createdTables.isEmpty() && droppedTables.isEmpty() && alteredTables.isEmpty();
+    }
+
+    /**
+     * @param generator the table generator of the actual database
+     */
+    public String generateDDL(AbstractTableGenerator generator) throws SQLException {
+        StringBuilder builder = new StringBuilder(1024);
+        for (Table table : createdTables) {
+            builder.append(generator.generate(moveTo(table, actual.getCatalog(), actual.getSchema())));
+        }
+        for (TableDiff diff : alteredTables) {
+            Table table = diff.getActual();
+            for (Index index : diff.getDroppedIndexes()) {
+                builder.append(generator.generateDropIndex(table, index));
+            }
+            if (diff.isPrimaryKeyChanged() && table.hasPrimaryKeys()) {
+                builder.append(generator.generateDropPrimaryKey(table));
+            }
+            for (Column column : diff.getDroppedColumns()) {
+                builder.append(generator.generateDropColumn(table, column));
+            }
+            for (Column column : diff.getAddedColumns()) {
+                builder.append(generator.generateAddColumn(table, column));
+            }
+            for (Column column : diff.getModifiedColumns()) {
+                builder.append(generator.generateModifyColumn(table, column));
+            }
+            if (diff.isPrimaryKeyChanged() && diff.getExpected().hasPrimaryKeys()) {
+                builder.append(generator.generateAddPrimaryKey(moveTo(diff.getExpected(), table.getCatalog(), table.getSchema())));
+            }
+            for (Index index : diff.getAddedIndexes()) {
+                builder.append(generator.generateCreateIndex(table, index));
+            }
+            if (diff.isForeignKeysChanged()) {
+                logger.warn("The foreign keys of table {} are changed, the foreign key statements are not generated", table.getName());
+            }
+        }
+        for (Table table : droppedTables) {
+            builder.append(generator.generateDropTable(table));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * copies the definition of a table from the expected schema into the actual catalog and schema
+     */
+    private static Table moveTo(Table source, String catalog, String schema) {
+        Table table = new Table();
+        table.setCatalog(catalog);
+        table.setSchema(schema);
+        table.setName(source.getName());
+        table.setTableType(source.getTableType());
+        table.setRemarks(source.getRemarks());
+        table.setTypeCatalog(source.getTypeCatalog());
+        table.setTypeSchema(source.getTypeSchema());
+        table.setTypeName(source.getTypeName());
+        table.setSelfReferencingColumnName(source.getSelfReferencingColumnName());
+        table.setRefGeneration(source.getRefGeneration());
+        table.setSql(source.getSql());
+        for (Column column : source.getColumns()) {
+            table.addColumn(column);
+        }
+        for (PrimaryKeyColumn pkColumn : source.getPkColumns()) {
+            table.addPKColumn(pkColumn);
+        }
+        for (Index index : source.getIndexMap().values()) {
+            table.addIndex(index);
+        }
+        for (ImportedColumn fkColumn : source.getFkColumnMap().values()) {
+            table.addFKColumn(fkColumn);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.ddl.model.Column;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.Table;
+
+/**
+ * Compares two snapshots in memory, by the definition hashes:
+ * <pre>
+ * 1) a table whose hash is not changed is skipped without looking into it
+ * 2) else the columns, indexes are compared by their hashes, a changed index is dropped and created again
+ * </pre>
+ */
+public class SchemaDiffer {
+
+    /**
+     * @param expected the expected schema, e.g. the schema of the baseline database
+     * @param actual   the schema that will be changed
+     */
+    public SchemaDiff diff(SchemaSnapshot expected, SchemaSnapshot actual) {
+        Preconditions.checkNotNull(expected);
+        Preconditions.checkNotNull(actual);
+        SchemaDiff diff = new SchemaDiff(expected, actual);
+        int unchanged = 0;
+        for (TableSnapshot expectedTable : expected.getTables()) {
+            TableSnapshot actualTable = actual.getTable(expectedTable.getName());
+            if (actualTable == null) {
+                diff.getCreatedTables().add(expectedTable.getTable());
+            } else if (actualTable.getHash() == expectedTable.getHash()) {
+                unchanged++;
+            } else {
+                TableDiff tableDiff = diff(expectedTable, actualTable);
+                if (tableDiff.isEmpty()) {
+                    unchanged++;
+                } else {
+                    diff.getAlteredTables().add(tableDiff);
+                }
+            }
+        }
+        for (TableSnapshot actualTable : actual.getTables()) {
+            if (expected.getTable(actualTable.getName()) == null) {
+                diff.getDroppedTables().add(actualTable.getTable());
+            }
+        }
+        diff.setUnchangedTables(unchanged);
+        return diff;
+    }
+
+    private TableDiff diff(TableSnapshot expectedTable, TableSnapshot actualTable) {
+        Table expected = expectedTable.getTable();
+        Table actual = actualTable.getTable();
+        TableDiff diff = new TableDiff(expected, actual);
+
+        for (Column column : expected.getColumns()) {
+            Long actualHash = actualTable.getColumnHash(column.getName());
+            if (actualHash == null) {
+                diff.getAddedColumns().add(column);
+            } else if (!actualHash.equals(expectedTable.getColumnHash(column.getName()))) {
+                diff.getModifiedColumns().add(column);
+            }
+        }
+        for (Column column : actual.getColumns()) {
+            if (expectedTable.getColumnHash(column.getName()) == null) {
+                diff.getDroppedColumns().add(column);
+            }
+        }
+
+        for (Index index : expected.getIndexMap().values()) {
+            Long actualHash = actualTable.getIndexHash(index.getName());
+            if (actualHash == null) {
+                diff.getAddedIndexes().add(index);
+            } else if (!actualHash.equals(expectedTable.getIndexHash(index.getName()))) {
+                diff.getDroppedIndexes().add(actual.getIndex(index.getName()) == null ? index : actual.getIndex(index.getName()));
+                diff.getAddedIndexes().add(index);
+            }
+        }
+        for (Index index : actual.getIndexMap().values()) {
+            if (expectedTable.getIndexHash(index.getName()) == null) {
+                diff.getDroppedIndexes().add(index);
+            }
+        }
+
+        diff.setPrimaryKeyChanged(expectedTable.getPrimaryKeyHash() != actualTable.getPrimaryKeyHash());
+        diff.setForeignKeysChanged(expectedTable.getForeignKeysHash() != actualTable.getForeignKeysHash());
+        return diff;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.langx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tables of a schema at a time point.
+ *
+ * @see SchemaSnapshots
+ * @see SchemaDiffer
+ */
+public class SchemaSnapshot {
+    private String name;
+    @Nullable
+    private String databaseProductName;
+    @Nullable
+    private String catalog;
+    @Nullable
+    private String schema;
+    private long capturedTime;
+    /**
+     * key: the lower case table name
+     */
+    private final Map<String, TableSnapshot> tables = new LinkedHashMap<String, TableSnapshot>();
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDatabaseProductName() {
+        return databaseProductName;
+    }
+
+    public void setDatabaseProductName(String databaseProductName) {
+        this.databaseProductName = databaseProductName;
+    }
+
+    public String getCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(String catalog) {
+        this.catalog = catalog;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public void setSchema(String schema) {
+        this.schema = schema;
+    }
+
+    public long getCapturedTime() {
+        return capturedTime;
+    }
+
+    public void setCapturedTime(long capturedTime) {
+        this.capturedTime = capturedTime;
+    }
+
+    public void addTable(TableSnapshot table) {
+        tables.put(table.getName().toLowerCase(), table);
+    }
+
+    public TableSnapshot getTable(String name) {
+        return tables.get(name.toLowerCase());
+    }
+
+    public List<TableSnapshot> getTables() {
+        return new ArrayList<TableSnapshot>(tables.values());
+    }
+
+    public int size() {
+        return tables.size();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.connection.ConnectionFactory;
+import com.jn.sqlhelper.common.connection.NamedConnectionConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Captures the snapshots of many databases in parallel, every database with one connection.
+ * A database that fails to be captured is logged and skipped.
+ */
+public class SchemaSnapshotCapturer {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSnapshotCapturer.class);
+    private int parallelism = 8;
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @return key: the connection configuration name
+     */
+    public Map<String, SchemaSnapshot> capture(List<NamedConnectionConfiguration> configurations) throws InterruptedException {
+        Preconditions.checkNotNull(configurations);
+        Map<String, SchemaSnapshot> snapshots = new LinkedHashMap<String, SchemaSnapshot>();
+        if (configurations.isEmpty()) {
+            return snapshots;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, configurations.size()), new ThreadFactory() {
+            private int index = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-snapshot-capturer-" + (index++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<SchemaSnapshot>> futures = new ArrayList<Future<SchemaSnapshot>>(configurations.size());
+            for (final NamedConnectionConfiguration configuration : configurations) {
+                futures.add(executor.submit(new Callable<SchemaSnapshot>() {
+                    @Override
+                    public SchemaSnapshot call() throws Exception {
+                        Connection connection = new ConnectionFactory(configuration).getConnection();
+                        Preconditions.checkNotNull(connection, "Can't get a connection");
+                        try {
+                            return SchemaSnapshots.capture(configuration.getName(), connection);
+                        } finally {
+                            IOs.close(connection);
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                String name = configurations.get(i).getName();
+                try {
+                    SchemaSnapshot snapshot = futures.get(i).get();
+                    snapshots.put(name, snapshot);
+                    logger.info("Captured the schema snapshot of {}: {} tables", name, snapshot.size());
+                } catch (ExecutionException ex) {
+                    logger.error("Error occur when capture the schema snapshot of {}: {}", name, ex.getCause().getMessage(), ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.io.Charsets;
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.ddl.dump.DatabaseLoader;
+import com.jn.sqlhelper.common.ddl.model.*;
+import com.jn.sqlhelper.common.ddl.model.internal.*;
+import com.jn.sqlhelper.common.utils.Connections;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captures, saves and loads the {@link SchemaSnapshot}s.
+ * <p>
+ * A snapshot file is a binary stream of the model fields and the definition hashes, so loading a snapshot
+ * does not parse any text or compute any hash:
+ * <pre>
+ * magic "SQLHSNAP", version(int), name, database product name, catalog, schema, captured time(long), table count(int), tables
+ * </pre>
+ */
+public class SchemaSnapshots {
+    public static final String FILE_SUFFIX = ".snapshot";
+    private static final byte[] MAGIC = "SQLHSNAP".getBytes(Charsets.UTF_8);
+    private static final int VERSION = 1;
+
+    private SchemaSnapshots() {
+    }
+
+    /**
+     * captures the tables (with the columns, primary keys, indexes, foreign keys) of the current catalog and schema
+     */
+    public static SchemaSnapshot capture(String name, Connection connection) throws SQLException {
+        DatabaseMetaData dbMetaData = connection.getMetaData();
+        String catalog = Connections.getCatalog(connection);
+        String schema = Connections.getSchema(connection);
+        List<Table> tables = new DatabaseLoader().loadTables(new DatabaseDescription(dbMetaData), catalog, schema, null, true, true, true, true);
+
+        SchemaSnapshot snapshot = new SchemaSnapshot();
+        snapshot.setName(name);
+        snapshot.setDatabaseProductName(dbMetaData.getDatabaseProductName());
+        snapshot.setCatalog(catalog);
+        snapshot.setSchema(schema);
+        snapshot.setCapturedTime(System.currentTimeMillis());
+        if (tables != null) {
+            for (Table table : tables) {
+                snapshot.addTable(new TableSnapshot(table));
+            }
+        }
+        return snapshot;
+    }
+
+    public static void write(SchemaSnapshot snapshot, File file) throws IOException {
+        Preconditions.checkNotNull(snapshot);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+            write(snapshot, out);
+            out.flush();
+        } finally {
+            IOs.close(out);
+        }
+    }
+
+    public static SchemaSnapshot read(File file) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            return read(in);
+        } finally {
+            IOs.close(in);
+        }
+    }
+
+    public static void write(SchemaSnapshot snapshot, DataOutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, snapshot.getName());
+        writeString(out, snapshot.getDatabaseProductName());
+        writeString(out, snapshot.getCatalog());
+        writeString(out, snapshot.getSchema());
+        out.writeLong(snapshot.getCapturedTime());
+        List<TableSnapshot> tables = snapshot.getTables();
+        out.writeInt(tables.size());
+        for (TableSnapshot table : tables) {
+            writeTable(out, table);
+        }
+    }
+
+    public static SchemaSnapshot read(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not a sqlhelper schema snapshot file");
+            }
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported schema snapshot version: " + version);
+        }
+        SchemaSnapshot snapshot = new SchemaSnapshot();
+        snapshot.setName(readString(in));
+        snapshot.setDatabaseProductName(readString(in));
+        snapshot.setCatalog(readString(in));
+        snapshot.setSchema(readString(in));
+        snapshot.setCapturedTime(in.readLong());
+        int tableCount = in.readInt();
+        for (int i = 0; i < tableCount; i++) {
+            snapshot.addTable(readTable(in));
+        }
+        return snapshot;
+    }
+
+    private static void writeTable(DataOutputStream out, TableSnapshot snapshot) throws IOException {
+        Table table = snapshot.getTable();
+        out.writeLong(snapshot.getHash());
+        out.writeLong(snapshot.getPrimaryKeyHash());
+        out.writeLong(snapshot.getForeignKeysHash());
+        writeString(out, table.getCatalog());
+        writeString(out, table.getSchema());
+        writeString(out, table.getName());
+        writeEnum(out, table.getTableType());
+        writeString(out, table.getRemarks());
+        writeString(out, table.getTypeCatalog());
+        writeString(out, table.getTypeSchema());
+        writeString(out, table.getTypeName());
+        writeString(out, table.getSelfReferencingColumnName());
+        writeString(out, table.getRefGeneration());
+        writeString(out, table.getSql());
+
+        out.writeInt(table.getColumns().size());
+        for (Column column : table.getColumns()) {
+            out.writeLong(snapshot.getColumnHash(column.getName()));
+            writeColumn(out, column);
+        }
+
+        out.writeInt(table.getPkColumns().size());
+        for (PrimaryKeyColumn pkColumn : table.getPkColumns()) {
+            writeString(out, pkColumn.getColumnName());
+            writeInteger(out, pkColumn.getKeySeq());
+            writeString(out, pkColumn.getName());
+        }
+
+        out.writeInt(table.getIndexMap().size());
+        for (Index index : table.getIndexMap().values()) {
+            out.writeLong(snapshot.getIndexHash(index.getName()));
+            writeString(out, index.getName());
+            out.writeInt(index.getColumns().size());
+            for (IndexColumn indexColumn : index.getColumns()) {
+                writeIndexColumn(out, indexColumn);
+            }
+        }
+
+        out.writeInt(table.getFkColumnMap().size());
+        for (ImportedColumn fkColumn : table.getFkColumnMap().values()) {
+            writeImportedColumn(out, fkColumn);
+        }
+    }
+
+    private static TableSnapshot readTable(DataInputStream in) throws IOException {
+        long hash = in.readLong();
+        long primaryKeyHash = in.readLong();
+        long foreignKeysHash = in.readLong();
+        Table table = new Table();
+        table.setCatalog(readString(in));
+        table.setSchema(readString(in));
+        table.setName(readString(in));
+        table.setTableType(readEnum(in, TableType.class));
+        table.setRemarks(readString(in));
+        table.setTypeCatalog(readString(in));
+        table.setTypeSchema(readString(in));
+        table.setTypeName(readString(in));
+        table.setSelfReferencingColumnName(readString(in));
+        table.setRefGeneration(readString(in));
+        table.setSql(readString(in));
+
+        int columnCount = in.readInt();
+        Map<String, Long> columnHashes = new LinkedHashMap<String, Long>(columnCount * 2);
+        for (int i = 0; i < columnCount; i++) {
+            long columnHash = in.readLong();
+            Column column = readColumn(in, table);
+            columnHashes.put(column.getName().toLowerCase(), columnHash);
+            table.addColumn(column);
+        }
+
+        int pkColumnCount = in.readInt();
+        for (int i = 0; i < pkColumnCount; i++) {
+            PrimaryKeyColumn pkColumn = new PrimaryKeyColumn();
+            pkColumn.setCatalog(table.getCatalog());
+            pkColumn.setSchema(table.getSchema());
+            pkColumn.setTableName(table.getName());
+            pkColumn.setColumnName(readString(in));
+            pkColumn.setKeySeq(readInteger(in));
+            pkColumn.setName(readString(in));
+            table.addPKColumn(pkColumn);
+        }
+
+        int indexCount = in.readInt();
+        Map<String, Long> indexHashes = new LinkedHashMap<String, Long>(indexCount * 2);
+        for (int i = 0; i < indexCount; i++) {
+            long indexHash = in.readLong();
+            Index index = new Index(table.getCatalog(), table.getSchema(), table.getName(), readString(in));
+            int indexColumnCount = in.readInt();
+            for (int j = 0; j < indexColumnCount; j++) {
+                index.addColumn(readIndexColumn(in, index));
+            }
+            indexHashes.put(index.getName().toLowerCase(), indexHash);
+            table.addIndex(index);
+        }
+
+        int fkColumnCount = in.readInt();
+        for (int i = 0; i < fkColumnCount; i++) {
+            table.addFKColumn(readImportedColumn(in, table));
+        }
+        return new TableSnapshot(table, hash, primaryKeyHash, foreignKeysHash, columnHashes, indexHashes);
+    }
+
+    private static void writeColumn(DataOutputStream out, Column column) throws IOException {
+        writeString(out, column.getName());
+        writeEnum(out, column.getJdbcType());
+        writeString(out, column.getTypeName());
+        writeInteger(out, column.getSize());
+        writeInteger(out, column.getBufferLength());
+        writeInteger(out, column.getDecimalDigits());
+        writeInteger(out, column.getNumPrecRadix());
+        writeInteger(out, column.getNullable());
+        writeString(out, column.getRemarks());
+        writeString(out, column.getDefaultValue());
+        writeEnum(out, column.getSqlDataType());
+        writeInteger(out, column.getSqlDatetimeSub());
+        writeInteger(out, column.getCharOctetLength());
+        writeInteger(out, column.getOrdinalPosition());
+        writeEnum(out, column.getIsNullable());
+        writeString(out, column.getScopeCatalog());
+        writeString(out, column.getScopeSchema());
+        writeString(out, column.getScopeTable());
+        writeInteger(out, column.getSourceDataType());
+        writeEnum(out, column.getIsAutoincrement());
+        writeEnum(out, column.getIsGeneratedColumn());
+    }
+
+    private static Column readColumn(DataInputStream in, Table table) throws IOException {
+        Column column = new Column();
+        column.setCatalog(table.getCatalog());
+        column.setSchema(table.getSchema());
+        column.setTableName(table.getName());
+        column.setName(readString(in));
+        column.setJdbcType(readEnum(in, JdbcType.class));
+        column.setTypeName(readString(in));
+        column.setSize(readInteger(in));
+        column.setBufferLength(readInteger(in));
+        column.setDecimalDigits(readInteger(in));
+        column.setNumPrecRadix(readInteger(in));
+        column.setNullable(readInteger(in));
+        column.setRemarks(readString(in));
+        column.setDefaultValue(readString(in));
+        column.setSqlDataType(readEnum(in, JdbcType.class));
+        column.setSqlDatetimeSub(readInteger(in));
+        column.setCharOctetLength(readInteger(in));
+        column.setOrdinalPosition(readInteger(in));
+        column.setIsNullable(readEnum(in, BooleanFlag.class));
+        column.setScopeCatalog(readString(in));
+        column.setScopeSchema(readString(in));
+        column.setScopeTable(readString(in));
+        column.setSourceDataType(readInteger(in));
+        column.setIsAutoincrement(readEnum(in, BooleanFlag.class));
+        column.setIsGeneratedColumn(readEnum(in, BooleanFlag.class));
+        return column;
+    }
+
+    private static void writeIndexColumn(DataOutputStream out, IndexColumn column) throws IOException {
+        out.writeBoolean(column.isNonUnique());
+        writeString(out, column.getIndexQualifier());
+        writeEnum(out, column.getType());
+        out.writeInt(column.getOrdinalPosition());
+        writeString(out, column.getColumnName());
+        writeEnum(out, column.getAscOrDesc());
+        writeInteger(out, column.getSortType());
+        writeLong(out, column.getCardinality());
+        writeLong(out, column.getPages());
+        writeString(out, column.getFilterCondition());
+    }
+
+    private static IndexColumn readIndexColumn(DataInputStream in, Index index) throws IOException {
+        IndexColumn column = new IndexColumn();
+        column.setCatalog(index.getCatalog());
+        column.setSchema(index.getSchema());
+        column.setTableName(index.getTableName());
+        column.setIndexName(index.getName());
+        column.setNonUnique(in.readBoolean());
+        column.setIndexQualifier(readString(in));
+        column.setType(readEnum(in, IndexType.class));
+        column.setOrdinalPosition(in.readInt());
+        column.setColumnName(readString(in));
+        column.setAscOrDesc(readEnum(in, SortType.class));
+        column.setSortType(readInteger(in));
+        column.setCardinality(readLong(in));
+        column.setPages(readLong(in));
+        column.setFilterCondition(readString(in));
+        return column;
+    }
+
+    private static void writeImportedColumn(DataOutputStream out, ImportedColumn column) throws IOException {
+        writeString(out, column.getPkTableCatalog());
+        writeString(out, column.getPkTableSchema());
+        writeString(out, column.getPkTableName());
+        writeString(out, column.getPkColumnName());
+        writeString(out, column.getFkColumnName());
+        writeInteger(out, column.getKeySeq());
+        writeEnum(out, column.getUpdateRule());
+        writeEnum(out, column.getDeleteRule());
+        writeString(out, column.getFkName());
+        writeString(out, column.getPkName());
+        writeEnum(out, column.getDeferrability());
+    }
+
+    private static ImportedColumn readImportedColumn(DataInputStream in, Table table) throws IOException {
+        ImportedColumn column = new ImportedColumn();
+        column.setPkTableCatalog(readString(in));
+        column.setPkTableSchema(readString(in));
+        column.setPkTableName(readString(in));
+        column.setPkColumnName(readString(in));
+        column.setFkTableCatalog(table.getCatalog());
+        column.setFkTableSchema(table.getSchema());
+        column.setFkTableName(table.getName());
+        column.setFkColumnName(readString(in));
+        column.setKeySeq(readInteger(in));
+        column.setUpdateRule(readEnum(in, FkMutatedRule.class));
+        column.setDeleteRule(readEnum(in, FkMutatedRule.class));
+        column.setFkName(readString(in));
+        column.setPkName(readString(in));
+        column.setDeferrability(readEnum(in, FkInitiallyRule.class));
+        return column;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum value) throws IOException {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> enumClass) throws IOException {
+        String name = readString(in);
+        return name == null ? null : Enum.valueOf(enumClass, name);
+    }
+}
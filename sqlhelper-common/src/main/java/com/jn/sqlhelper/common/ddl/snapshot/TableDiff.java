@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.sqlhelper.common.ddl.model.Column;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The differences of a table that exists in both the expected and the actual snapshots.
+ */
+public class TableDiff {
+    private final Table expected;
+    private final Table actual;
+    private final List<Column> addedColumns = new ArrayList<Column>();
+    private final List<Column> modifiedColumns = new ArrayList<Column>();
+    private final List<Column> droppedColumns = new ArrayList<Column>();
+    private final List<Index> addedIndexes = new ArrayList<Index>();
+    private final List<Index> droppedIndexes = new ArrayList<Index>();
+    private boolean primaryKeyChanged;
+    private boolean foreignKeysChanged;
+
+    public TableDiff(Table expected, Table actual) {
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public Table getExpected() {
+        return expected;
+    }
+
+    public Table getActual() {
+        return actual;
+    }
+
+    public List<Column> getAddedColumns() {
+        return addedColumns;
+    }
+
+    public List<Column> getModifiedColumns() {
+        return modifiedColumns;
+    }
+
+    public List<Column> getDroppedColumns() {
+        return droppedColumns;
+    }
+
+    public List<Index> getAddedIndexes() {
+        return addedIndexes;
+    }
+
+    public List<Index> getDroppedIndexes() {
+        return droppedIndexes;
+    }
+
+    public boolean isPrimaryKeyChanged() {
+        return primaryKeyChanged;
+    }
+
+    public void setPrimaryKeyChanged(boolean primaryKeyChanged) {
+        this.primaryKeyChanged = primaryKeyChanged;
+    }
+
+    public boolean isForeignKeysChanged() {
+        return foreignKeysChanged;
+    }
+
+    public void setForeignKeysChanged(boolean foreignKeysChanged) {
+        this.foreignKeysChanged = foreignKeysChanged;
+    }
+
+    public boolean isEmpty() {
+        return addedColumns.isEmpty() && modifiedColumns.isEmpty() && droppedColumns.isEmpty()
+                && addedIndexes.isEmpty() && droppedIndexes.isEmpty()
+                && !primaryKeyChanged && !foreignKeysChanged;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.ddl.snapshot;
+
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.ddl.model.Column;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.Table;
+
+import java.util.*;
+
+/**
+ * A table and the definition hashes of it and its columns, indexes, primary key and foreign keys.
+ * The hashes are computed once, when the snapshot is captured, and saved into the snapshot file.
+ */
+public class TableSnapshot {
+    private final Table table;
+    private final long hash;
+    private final long primaryKeyHash;
+    private final long foreignKeysHash;
+    /**
+     * key: the lower case column name
+     */
+    private final Map<String, Long> columnHashes;
+    /**
+     * key: the lower case index name
+     */
+    private final Map<String, Long> indexHashes;
+
+    public TableSnapshot(Table table) {
+        Preconditions.checkNotNull(table);
+        this.table = table;
+        this.columnHashes = new LinkedHashMap<String, Long>();
+        List<Long> orderedColumnHashes = new ArrayList<Long>(table.getColumns().size());
+        for (Column column : table.getColumns()) {
+            long columnHash = DefinitionHasher.hash(column);
+            columnHashes.put(column.getName().toLowerCase(), columnHash);
+            orderedColumnHashes.add(columnHash);
+        }
+        this.indexHashes = new LinkedHashMap<String, Long>();
+        List<Long> orderedIndexHashes = new ArrayList<Long>(table.getIndexMap().size());
+        for (Index index : table.getIndexMap().values()) {
+            long indexHash = DefinitionHasher.hash(index);
+            indexHashes.put(index.getName().toLowerCase(), indexHash);
+            orderedIndexHashes.add(indexHash);
+        }
+        this.primaryKeyHash = DefinitionHasher.hashPrimaryKey(table);
+        this.foreignKeysHash = DefinitionHasher.hashForeignKeys(table);
+        this.hash = DefinitionHasher.hash(table, orderedColumnHashes, orderedIndexHashes, primaryKeyHash, foreignKeysHash);
+    }
+
+    TableSnapshot(Table table, long hash, long primaryKeyHash, long foreignKeysHash, Map<String, Long> columnHashes, Map<String, Long> indexHashes) {
+        this.table = table;
+        this.hash = hash;
+        this.primaryKeyHash = primaryKeyHash;
+        this.foreignKeysHash = foreignKeysHash;
+        this.columnHashes = columnHashes;
+        this.indexHashes = indexHashes;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public String getName() {
+        return table.getName();
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public long getPrimaryKeyHash() {
+        return primaryKeyHash;
+    }
+
+    public long getForeignKeysHash() {
+        return foreignKeysHash;
+    }
+
+    public Long getColumnHash(String column) {
+        return columnHashes.get(column.toLowerCase());
+    }
+
+    public Long getIndexHash(String index) {
+        return indexHashes.get(index.toLowerCase());
+    }
+
+    Map<String, Long> getColumnHashes() {
+        return Collections.unmodifiableMap(columnHashes);
+    }
+
+    Map<String, Long> getIndexHashes() {
+        return Collections.unmodifiableMap(indexHashes);
+    }
+}
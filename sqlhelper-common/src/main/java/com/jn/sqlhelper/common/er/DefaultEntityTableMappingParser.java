@@ -22,17 +22,25 @@ import com.jn.langx.util.reflect.Reflects;
 import com.jn.langx.util.reflect.classparse.FieldInfo;
 import com.jn.langx.util.reflect.classparse.FieldSetterAndGetterClassParser;
 import com.jn.sqlhelper.common.annotation.Column;
+import com.jn.sqlhelper.common.annotation.PK;
 import com.jn.sqlhelper.common.annotation.Table;
 import com.jn.sqlhelper.common.annotation.Tenant;
+import com.jn.sqlhelper.common.symbolmapper.CamelToUnderlineSymbolMapper;
+import com.jn.sqlhelper.common.symbolmapper.SqlSymbolMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Map;
 
 public class DefaultEntityTableMappingParser implements EntityTableParser {
     private FieldSetterAndGetterClassParser setterAndGetterClassParser;
+    /**
+     * maps a field that has no @Column to its column
+     */
+    private SqlSymbolMapper defaultColumnMapper = new CamelToUnderlineSymbolMapper();
     private static final Logger logger = LoggerFactory.getLogger(DefaultEntityTableMappingParser.class);
 
     public DefaultEntityTableMappingParser() {
@@ -44,10 +52,37 @@ public class DefaultEntityTableMappingParser implements EntityTableParser {
     public EntityTableMapping parse(Class<?> entityClass) {
         Preconditions.checkNotNull(entityClass);
         EntityTableMapping mapping = new EntityTableMapping();
+        mapping.setEntityClass(entityClass);
         parseTable(entityClass, mapping);
+        parseFields(entityClass, mapping);
+        parsePK(entityClass, mapping);
         return mapping;
     }
 
+    public void setDefaultColumnMapper(SqlSymbolMapper defaultColumnMapper) {
+        if (defaultColumnMapper != null) {
+            this.defaultColumnMapper = defaultColumnMapper;
+        }
+    }
+
+    private void parsePK(Class<?> entityClass, EntityTableMapping mapping) {
+        if (Reflects.hasAnnotation(entityClass, PK.class)) {
+            // @PK takes precedence over the JPA @Id
+            PK pk = Reflects.getAnnotation(entityClass, PK.class);
+            mapping.getIdFields().clear();
+            for (String field : pk.value()) {
+                if (mapping.getColumnMappings().containsKey(field)) {
+                    mapping.getIdFields().add(field);
+                } else {
+                    logger.warn("The @PK field {} is not a column of the class {}", field, Reflects.getFQNClassName(entityClass));
+                }
+            }
+        }
+        if (mapping.getIdFields().isEmpty() && mapping.getColumnMappings().containsKey("id")) {
+            mapping.getIdFields().add("id");
+        }
+    }
+
     private void parseTable(Class<?> entityClass, EntityTableMapping mapping) {
         if (Reflects.hasAnnotation(entityClass, Table.class)) {
             Table table = Reflects.getAnnotation(entityClass, Table.class);
@@ -79,8 +114,23 @@ public class DefaultEntityTableMappingParser implements EntityTableParser {
     }
 
     private void parseField(FieldInfo fieldInfo, EntityTableMapping mapping) {
+        Field field = fieldInfo.getField();
+        if (field == null || Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || Reflects.getAnnotation(field, javax.persistence.Transient.class) != null) {
+            return;
+        }
         parseAsColumn(fieldInfo, mapping);
         parseAsTenant(fieldInfo, mapping);
+        parseAsJpaId(fieldInfo, mapping);
+    }
+
+    private void parseAsJpaId(FieldInfo fieldInfo, EntityTableMapping mapping) {
+        boolean isId = Reflects.getAnnotation(fieldInfo.getField(), javax.persistence.Id.class) != null;
+        if (!isId && fieldInfo.getGetter() != null) {
+            isId = Reflects.getAnnotation(fieldInfo.getGetter(), javax.persistence.Id.class) != null;
+        }
+        if (isId) {
+            mapping.getIdFields().add(fieldInfo.getFieldName());
+        }
     }
 
     private void parseAsTenant(FieldInfo fieldInfo, EntityTableMapping mapping) {
@@ -209,6 +259,9 @@ public class DefaultEntityTableMappingParser implements EntityTableParser {
         if (Emptys.isEmpty(columnName)) {
             columnName = parseColumnUsingJpaAnnotation(fieldInfo);
         }
+        if (Emptys.isEmpty(columnName)) {
+            columnName = defaultColumnMapper.apply(fieldName);
+        }
         mapping.getColumnMappings().put(fieldName, columnName);
     }
 }
@@ -18,6 +18,7 @@ import com.jn.langx.util.Emptys;
 import com.jn.langx.util.collection.Collects;
 
 import java.lang.ref.SoftReference;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -44,6 +45,11 @@ public class EntityTableMapping {
      */
     private String tenantField;
 
+    /**
+     * 主键字段，来自 @PK 或者 JPA @Id，都没有时使用 id 字段
+     */
+    private List<String> idFields = Collects.emptyArrayList();
+
     public Class getEntityClass() {
         return entityClass.get();
     }
@@ -80,6 +86,18 @@ public class EntityTableMapping {
         return Emptys.isNotEmpty(tenantField) && columnMappings.containsKey(tenantField);
     }
 
+    public List<String> getIdFields() {
+        return idFields;
+    }
+
+    public void setIdFields(List<String> idFields) {
+        this.idFields = idFields;
+    }
+
+    public boolean hasIdColumn() {
+        return !idFields.isEmpty();
+    }
+
     public String getTenantColumn() {
         if (Emptys.isNotEmpty(tenantField)) {
             return columnMappings.get(tenantField);
@@ -15,12 +15,20 @@
 package com.jn.sqlhelper.common.er;
 
 import com.jn.langx.annotation.Singleton;
+import com.jn.langx.util.Emptys;
 import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.collection.ConcurrentReferenceHashMap;
 import com.jn.langx.util.reflect.reference.ReferenceType;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 @Singleton
 public class EntityTableRegistry {
+    private static final EntityTableRegistry INSTANCE = new EntityTableRegistry();
+
+    public static EntityTableRegistry getInstance() {
+        return INSTANCE;
+    }
 
     private EntityTableParser entityTableParser = new DefaultEntityTableMappingParser();
     /**
@@ -29,12 +37,21 @@ public class EntityTableRegistry {
      */
     private ConcurrentReferenceHashMap<Class<?>, EntityTableMapping> map = new ConcurrentReferenceHashMap<Class<?>, EntityTableMapping>(1000, 0.95f, Runtime.getRuntime().availableProcessors(), ReferenceType.SOFT, ReferenceType.STRONG);
 
+    /**
+     * Key: table name, in lower case
+     * Value: the tenant column of the table
+     */
+    private ConcurrentHashMap<String, String> tenantColumns = new ConcurrentHashMap<String, String>();
+
     public EntityTableMapping getEntityTableMapping(Class entityClass) {
         Preconditions.checkNotNull(entityClass);
         EntityTableMapping mapping = map.get(entityClass);
         if (mapping == null) {
             mapping = entityTableParser.parse(entityClass);
             map.putIfAbsent(entityClass, mapping);
+            if (mapping != null && mapping.hasTenantColumn() && Emptys.isNotEmpty(mapping.getTable())) {
+                tenantColumns.put(mapping.getTable().toLowerCase(), mapping.getTenantColumn());
+            }
         }
         EntityTableMapping mapping0 = map.get(entityClass);
         if (mapping0 != null) {
@@ -42,4 +59,22 @@ public class EntityTableRegistry {
         }
         return mapping;
     }
+
+    /**
+     * @param table the table name
+     * @return the tenant column of the table, null if the table is not mapped by any parsed entity with a tenant column
+     */
+    public String getTenantColumn(String table) {
+        if (Emptys.isEmpty(table)) {
+            return null;
+        }
+        return tenantColumns.get(table.toLowerCase());
+    }
+
+    /**
+     * @return whether any parsed entity has a tenant column
+     */
+    public boolean hasTenantTables() {
+        return !tenantColumns.isEmpty();
+    }
 }
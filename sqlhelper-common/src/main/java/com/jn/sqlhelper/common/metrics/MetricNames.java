@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.metrics;
+
+/**
+ * The names of the metrics, the timers are in nanoseconds.
+ */
+public class MetricNames {
+    /**
+     * timer, parse a sql to the AST
+     */
+    public static final String SQL_PARSE = "sqlhelper.sql.parse";
+    /**
+     * timer, transform a sql, tag: {@link #TAG_TYPE} (limit, orderBy, tenant)
+     */
+    public static final String SQL_TRANSFORM = "sqlhelper.sql.transform";
+    /**
+     * timer, build the count sql
+     */
+    public static final String SQL_COUNT_BUILD = "sqlhelper.sql.count.build";
+    /**
+     * counter, tags: {@link #TAG_CACHE} (instrumentedSql, countSql, resultSetDescription, rowMappingPlan), {@link #TAG_RESULT} (hit, miss)
+     */
+    public static final String CACHE_ACCESS = "sqlhelper.cache.access";
+    /**
+     * timer, execute a count query or a page query, tags: {@link #TAG_TYPE} (count, page), {@link #TAG_FRAMEWORK}
+     */
+    public static final String QUERY = "sqlhelper.query";
+    /**
+     * timer, the whole handler pipeline of the mybatis plugin, tag: {@link #TAG_METHOD}
+     */
+    public static final String MYBATIS_PIPELINE = "sqlhelper.mybatis.pipeline";
+    /**
+     * counter, the rows mapped by the row mappers, tag: {@link #TAG_MAPPER}
+     */
+    public static final String ROWS_MAPPED = "sqlhelper.rows.mapped";
+    /**
+     * timer, map a result set, tag: {@link #TAG_MAPPER}
+     */
+    public static final String ROWS_MAPPING = "sqlhelper.rows.mapping";
+    /**
+     * distribution, the size of a batch, tag: {@link #TAG_MODE}
+     */
+    public static final String BATCH_SIZE = "sqlhelper.batch.size";
+    /**
+     * timer, execute a batch, tag: {@link #TAG_MODE}
+     */
+    public static final String BATCH_UPDATE = "sqlhelper.batch.update";
+
+    public static final String TAG_TYPE = "type";
+    public static final String TAG_CACHE = "cache";
+    public static final String TAG_RESULT = "result";
+    public static final String TAG_FRAMEWORK = "framework";
+    public static final String TAG_METHOD = "method";
+    public static final String TAG_MAPPER = "mapper";
+    public static final String TAG_MODE = "mode";
+    public static final String TAG_ERROR = "error";
+
+    private MetricNames() {
+    }
+}
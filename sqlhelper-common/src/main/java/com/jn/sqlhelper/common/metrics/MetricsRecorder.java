@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.metrics;
+
+/**
+ * The SPI of the metrics and tracing of sqlhelper, it is found with the {@link java.util.ServiceLoader},
+ * or set with {@link SqlHelperMetrics#setRecorder(MetricsRecorder)}.
+ * <p>
+ * The tags are key, value pairs: {@code "key1", "value1", "key2", "value2"}
+ *
+ * @see MetricNames
+ * @see SqlHelperMetrics
+ */
+public interface MetricsRecorder {
+    /**
+     * @return false, the instrumentation points will skip all the recording
+     */
+    boolean isEnabled();
+
+    /**
+     * Invoked when a timed operation is started, a tracing binding can open a span, and attach it to the sample.
+     */
+    void onStart(MetricsSample sample);
+
+    /**
+     * Invoked when a timed operation is stopped, the duration, tags and the error are set.
+     */
+    void onStop(MetricsSample sample);
+
+    void increment(String name, long amount, String... tags);
+
+    /**
+     * records a value of a distribution, e.g. the size of a batch
+     */
+    void record(String name, double amount, String... tags);
+}
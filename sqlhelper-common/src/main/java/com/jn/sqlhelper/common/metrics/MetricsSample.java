@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A timed operation, it is created with {@link SqlHelperMetrics#start(String)}, and must be stopped with {@link #stop()}.
+ * <p>
+ * When the metrics is disabled, the shared {@link #NOOP} is returned, so nothing is allocated.
+ */
+public class MetricsSample {
+    public static final MetricsSample NOOP = new MetricsSample(null, null) {
+        @Override
+        public MetricsSample tag(String key, String value) {
+            return this;
+        }
+
+        @Override
+        public MetricsSample error(Throwable error) {
+            return this;
+        }
+
+        @Override
+        public void stop() {
+        }
+    };
+
+    private final MetricsRecorder recorder;
+    private final String name;
+    private final List<String> tags = new ArrayList<String>(4);
+    private final long startTime;
+    private long duration = -1;
+    private Throwable error;
+    /**
+     * the object attached by the recorder, e.g. a span
+     */
+    private Object attachment;
+
+    MetricsSample(MetricsRecorder recorder, String name) {
+        this.recorder = recorder;
+        this.name = name;
+        this.startTime = System.nanoTime();
+    }
+
+    public MetricsSample tag(String key, String value) {
+        tags.add(key);
+        tags.add(value);
+        return this;
+    }
+
+    public MetricsSample error(Throwable error) {
+        this.error = error;
+        return this;
+    }
+
+    public void stop() {
+        if (duration < 0) {
+            duration = System.nanoTime() - startTime;
+            recorder.onStop(this);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getTags() {
+        return tags.toArray(new String[tags.size()]);
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the duration in nanoseconds, -1 if it is not stopped
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.metrics;
+
+public class NoopMetricsRecorder implements MetricsRecorder {
+    public static final NoopMetricsRecorder INSTANCE = new NoopMetricsRecorder();
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void onStart(MetricsSample sample) {
+    }
+
+    @Override
+    public void onStop(MetricsSample sample) {
+    }
+
+    @Override
+    public void increment(String name, long amount, String... tags) {
+    }
+
+    @Override
+    public void record(String name, double amount, String... tags) {
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.metrics;
+
+import com.jn.langx.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * The entry of the metrics for all the instrumentation points of sqlhelper.
+ * <p>
+ * The recorder is the first {@link MetricsRecorder} found with the {@link ServiceLoader}, e.g. the sqlhelper-micrometer.jar,
+ * else the {@link NoopMetricsRecorder}. When it is disabled, every method returns after a volatile read.
+ */
+public class SqlHelperMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(SqlHelperMetrics.class);
+    private static volatile MetricsRecorder recorder = loadRecorder();
+
+    private SqlHelperMetrics() {
+    }
+
+    private static MetricsRecorder loadRecorder() {
+        try {
+            Iterator<MetricsRecorder> iterator = ServiceLoader.load(MetricsRecorder.class).iterator();
+            if (iterator.hasNext()) {
+                MetricsRecorder metricsRecorder = iterator.next();
+                logger.info("Use the metrics recorder: {}", metricsRecorder.getClass().getName());
+                return metricsRecorder;
+            }
+        } catch (Throwable ex) {
+            logger.warn("Error occur when load the metrics recorder: {}", ex.getMessage(), ex);
+        }
+        return NoopMetricsRecorder.INSTANCE;
+    }
+
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    public static void setRecorder(MetricsRecorder metricsRecorder) {
+        Preconditions.checkNotNull(metricsRecorder);
+        recorder = metricsRecorder;
+    }
+
+    public static boolean isEnabled() {
+        return recorder.isEnabled();
+    }
+
+    /**
+     * starts a timed operation, the returned sample must be stopped
+     */
+    public static MetricsSample start(String name) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (!metricsRecorder.isEnabled()) {
+            return MetricsSample.NOOP;
+        }
+        MetricsSample sample = new MetricsSample(metricsRecorder, name);
+        metricsRecorder.onStart(sample);
+        return sample;
+    }
+
+    public static void increment(String name, long amount, String... tags) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (metricsRecorder.isEnabled()) {
+            metricsRecorder.increment(name, amount, tags);
+        }
+    }
+
+    public static void record(String name, double amount, String... tags) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (metricsRecorder.isEnabled()) {
+            metricsRecorder.record(name, amount, tags);
+        }
+    }
+
+    /**
+     * records the size of a batch, then starts the timer of the batch
+     *
+     * @param mode the batch mode
+     */
+    public static MetricsSample startBatch(String mode, int size) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (!metricsRecorder.isEnabled()) {
+            return MetricsSample.NOOP;
+        }
+        metricsRecorder.record(MetricNames.BATCH_SIZE, size, MetricNames.TAG_MODE, mode);
+        return start(MetricNames.BATCH_UPDATE).tag(MetricNames.TAG_MODE, mode);
+    }
+
+    /**
+     * @param cache the cache name, e.g. instrumentedSql, countSql
+     */
+    public static void recordCacheAccess(String cache, boolean hit) {
+        MetricsRecorder metricsRecorder = recorder;
+        if (metricsRecorder.isEnabled()) {
+            metricsRecorder.increment(MetricNames.CACHE_ACCESS, 1, MetricNames.TAG_CACHE, cache, MetricNames.TAG_RESULT, hit ? "hit" : "miss");
+        }
+    }
+}
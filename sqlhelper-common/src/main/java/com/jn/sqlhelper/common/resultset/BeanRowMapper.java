@@ -9,7 +9,6 @@ import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.Throwables;
 import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.converter.ConverterService;
-import com.jn.langx.util.function.Predicate;
 import com.jn.langx.util.reflect.Modifiers;
 import com.jn.langx.util.reflect.Reflects;
 import com.jn.langx.util.reflect.classparse.FieldInfo;
@@ -21,6 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
+import java.util.List;
 import java.util.Map;
 
 public class BeanRowMapper<T> implements RowMapper<T> {
@@ -42,30 +42,35 @@ public class BeanRowMapper<T> implements RowMapper<T> {
     }
 
     private Map<String, EntityFieldInfo> fieldMap;
+    /**
+     * the fields, the column readers of the last result set
+     */
+    private volatile BoundPlan boundPlan;
 
     @Override
     public T mapping(ResultSet row, int currentRowIndex, ResultSetDescription resultSetDescription) {
-        if (sqlSymbolMapper == null) {
-            sqlSymbolMapper = new UnderlineToCamelSymbolMapper();
-        }
-        int columnCount = resultSetDescription.getColumnCount();
+        BoundPlan boundPlan = getMappingPlan(resultSetDescription);
+        RowMappingPlan plan = boundPlan.plan;
         T instance = Reflects.newInstance(targetClass);
-        for (int i = 1; i <= columnCount; i++) {
-            String columnName = resultSetDescription.getColumnName(i);
-            EntityFieldInfo fieldInfo = findFieldForColumn(columnName);
+        for (int i = 0; i < plan.getColumnCount(); i++) {
+            EntityFieldInfo fieldInfo = plan.getField(i);
             if (fieldInfo == null) {
-                if (ignoreUnrecognizableColumn) {
-                    continue;
-                }
-                String errorMessage = StringTemplates.formatWithPlaceholder("Can't find a field link to a column: {} in the class: {}", columnName, targetClass);
-                throw new NoMappedFieldException(errorMessage);
+                continue;
             }
+            int column = i + 1;
             Object value = null;
+            ColumnReader reader = boundPlan.readers[i];
             try {
-                value = ResultSets.getResultSetValue(row, i, fieldInfo.getFieldType());
+                value = reader.read(row, column);
             } catch (Throwable ex) {
+                if (reader == ColumnReaders.OBJECT) {
+                    throw Throwables.wrapAsRuntimeException(ex);
+                }
+                // the typed getter does not work for the column, it is read untyped from now on,
+                // the reader is replaced in the bound plan only, the shared plan is not changed
+                boundPlan.readers[i] = ColumnReaders.OBJECT;
                 try {
-                    value = ResultSets.getResultSetValue(row, i);
+                    value = ColumnReaders.OBJECT.read(row, column);
                 } catch (Throwable ex2) {
                     throw Throwables.wrapAsRuntimeException(ex2);
                 }
@@ -112,37 +117,69 @@ public class BeanRowMapper<T> implements RowMapper<T> {
     }
 
 
-    private EntityFieldInfo findFieldForColumn(final String columnName) {
-        if (fieldMap == null) {
-            return null;
+    /**
+     * The plan is resolved with the first row of a result set, it is shared by all the bean row mappers of the class
+     * by {@link RowMappingPlanCache}, the later result sets that have the same columns reuse it.
+     */
+    private BoundPlan getMappingPlan(ResultSetDescription resultSetDescription) {
+        BoundPlan boundPlan = this.boundPlan;
+        if (boundPlan != null && boundPlan.resultSetDescription == resultSetDescription) {
+            return boundPlan;
         }
-
-        EntityFieldInfo fieldInfo = fieldMap.get(columnName);
-        if (fieldInfo != null) {
-            return fieldInfo;
+        if (sqlSymbolMapper == null) {
+            sqlSymbolMapper = new UnderlineToCamelSymbolMapper();
         }
-
-        fieldInfo = Collects.findFirst(fieldMap.values(), new Predicate<EntityFieldInfo>() {
+        // the plan depends on these options also
+        List<Object> options = Collects.<Object>newArrayList(ignoreUnrecognizableColumn, sqlSymbolMapper);
+        RowMappingPlan plan = RowMappingPlanCache.getInstance().getPlan(targetClass, options, resultSetDescription, new RowMappingPlanCache.PlanFactory() {
             @Override
-            public boolean test(EntityFieldInfo field) {
-                return Collects.anyMatch(field.getColumnNames(), new Predicate<String>() {
-                    @Override
-                    public boolean test(String value) {
-                        if (value.equalsIgnoreCase(columnName)) {
-                            return true;
-                        }
-                        if (sqlSymbolMapper != null) {
-                            return sqlSymbolMapper.apply(columnName).equalsIgnoreCase(sqlSymbolMapper.apply(value));
-                        }
-                        return false;
-                    }
-                });
+            public RowMappingPlan create(ResultSetSignature signature, ResultSetDescription description) {
+                return newMappingPlan(signature);
             }
         });
-        if (fieldInfo != null) {
-            fieldMap.put(columnName, fieldInfo);
+        boundPlan = new BoundPlan(resultSetDescription, plan);
+        this.boundPlan = boundPlan;
+        return boundPlan;
+    }
+
+    private RowMappingPlan newMappingPlan(ResultSetSignature signature) {
+        int columnCount = signature.getColumnCount();
+        EntityFieldInfo[] fields = new EntityFieldInfo[columnCount];
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        EntityFieldNameIndex fieldNameIndex = fieldMap == null ? null : EntityFieldNameIndex.of(targetClass, fieldMap, sqlSymbolMapper);
+        for (int i = 0; i < columnCount; i++) {
+            String columnName = signature.getColumnName(i + 1);
+            EntityFieldInfo fieldInfo = fieldNameIndex == null ? null : fieldNameIndex.findField(columnName);
+            if (fieldInfo == null) {
+                if (ignoreUnrecognizableColumn) {
+                    continue;
+                }
+                String errorMessage = StringTemplates.formatWithPlaceholder("Can't find a field link to a column: {} in the class: {}", columnName, targetClass);
+                throw new NoMappedFieldException(errorMessage);
+            }
+            fields[i] = fieldInfo;
+            readers[i] = ColumnReaders.get(signature.getColumnType(i + 1), fieldInfo.getFieldType());
+        }
+        return new RowMappingPlan(signature, fields, readers);
+    }
+
+    /**
+     * the plan of the last result set, and its column readers, a reader whose typed getter fails is replaced by
+     * {@link ColumnReaders#OBJECT} for the rest rows of the result set
+     */
+    private static class BoundPlan {
+        private final ResultSetDescription resultSetDescription;
+        private final RowMappingPlan plan;
+        private final ColumnReader[] readers;
+
+        private BoundPlan(ResultSetDescription resultSetDescription, RowMappingPlan plan) {
+            this.resultSetDescription = resultSetDescription;
+            this.plan = plan;
+            this.readers = new ColumnReader[plan.getColumnCount()];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = plan.getReader(i);
+            }
         }
-        return fieldInfo;
     }
 
     private void setValue(FieldInfo fieldInfo, Object target, Object fieldValue) throws Throwable {
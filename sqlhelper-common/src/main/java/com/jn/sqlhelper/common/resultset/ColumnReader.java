@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.resultset;
+
+import com.jn.langx.annotation.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the value of a column in the current row, it is resolved once for a (jdbc type, java type) pair
+ * by {@link ColumnReaders}, so the rows are read without any type dispatch.
+ */
+public interface ColumnReader<T> {
+    /**
+     * @param rs    the result set, it is at the row to read
+     * @param index the column index, the first column is 1
+     * @return the value, null if the column is SQL NULL
+     */
+    @Nullable
+    T read(ResultSet rs, int index) throws SQLException;
+}
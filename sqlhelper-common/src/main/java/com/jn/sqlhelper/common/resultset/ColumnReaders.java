@@ -0,0 +1,472 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.resultset;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Numbers;
+import com.jn.langx.util.collection.ConcurrentReferenceHashMap;
+import com.jn.langx.util.io.IOs;
+import com.jn.langx.util.reflect.reference.ReferenceType;
+import com.jn.sqlhelper.common.ddl.model.internal.JdbcType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link ColumnReader}s, they are cached by the (jdbc type, java type) pair if the java type is a JDK type,
+ * the readers of the application types are not cached, they would keep the class loaders alive:
+ * <pre>
+ * 1) the primitives and the well known types are read by the typed getters, the NULL is checked by {@code wasNull()}
+ * 2) the BLOB, CLOB columns that are read as the byte[], String are streamed, the LOB locators are not kept
+ * 3) the JSR-310 types are read by the JDBC 4.2 {@code getObject(int, Class)}, if the driver does not support it,
+ *    they are converted from the java.sql date, time, timestamp
+ * 4) the other types are read by the JDBC 4.1 {@code getObject(int, Class)}, if the driver does not support it,
+ *    they are read by {@link ResultSets#getResultSetValue(ResultSet, int)}
+ * </pre>
+ * The {@code getObject(int, Class)} is looked up once, since the project is compiled for java 6.
+ * If a driver does not support it for a java type (it throws a {@link SQLFeatureNotSupportedException}, an exception whose
+ * SQL state is in the class 0A, or it does not implement the method), the type is read by the fallback for all the later rows
+ * of that driver, the other drivers are not affected. The other exceptions are thrown.
+ */
+public class ColumnReaders {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnReaders.class);
+    @Nullable
+    private static final Method GET_OBJECT_WITH_TYPE = findMethod(ResultSet.class, "getObject", int.class, Class.class);
+
+    private static final ConcurrentMap<ReaderKey, ColumnReader> READERS = new ConcurrentHashMap<ReaderKey, ColumnReader>();
+    /**
+     * key: the result set class of a driver, it is weakly referenced,
+     * value: the names of the java types that the driver can't read by {@code getObject(int, Class)}
+     */
+    private static final ConcurrentMap<Class, Set<String>> GET_OBJECT_UNSUPPORTED_TYPES = new ConcurrentReferenceHashMap<Class, Set<String>>(16, 0.75f, 16, ReferenceType.WEAK, ReferenceType.STRONG, EnumSet.of(ConcurrentReferenceHashMap.Option.IDENTITY_COMPARISONS));
+
+    private ColumnReaders() {
+    }
+
+    /**
+     * reads the value by {@code getObject(int)}, the Blob, Clob are read as the byte[], String
+     */
+    public static final ColumnReader<Object> OBJECT = new ColumnReader<Object>() {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return ResultSets.getResultSetValue(rs, index);
+        }
+    };
+
+    public static final ColumnReader<String> STRING = new ColumnReader<String>() {
+        @Override
+        public String read(ResultSet rs, int index) throws SQLException {
+            return rs.getString(index);
+        }
+    };
+
+    public static final ColumnReader<Boolean> BOOLEAN = new ColumnReader<Boolean>() {
+        @Override
+        public Boolean read(ResultSet rs, int index) throws SQLException {
+            boolean value = rs.getBoolean(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<Byte> BYTE = new ColumnReader<Byte>() {
+        @Override
+        public Byte read(ResultSet rs, int index) throws SQLException {
+            byte value = rs.getByte(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<Short> SHORT = new ColumnReader<Short>() {
+        @Override
+        public Short read(ResultSet rs, int index) throws SQLException {
+            short value = rs.getShort(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<Integer> INT = new ColumnReader<Integer>() {
+        @Override
+        public Integer read(ResultSet rs, int index) throws SQLException {
+            int value = rs.getInt(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<Long> LONG = new ColumnReader<Long>() {
+        @Override
+        public Long read(ResultSet rs, int index) throws SQLException {
+            long value = rs.getLong(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<Float> FLOAT = new ColumnReader<Float>() {
+        @Override
+        public Float read(ResultSet rs, int index) throws SQLException {
+            float value = rs.getFloat(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<Double> DOUBLE = new ColumnReader<Double>() {
+        @Override
+        public Double read(ResultSet rs, int index) throws SQLException {
+            double value = rs.getDouble(index);
+            return rs.wasNull() ? null : value;
+        }
+    };
+
+    public static final ColumnReader<BigDecimal> BIG_DECIMAL = new ColumnReader<BigDecimal>() {
+        @Override
+        public BigDecimal read(ResultSet rs, int index) throws SQLException {
+            return rs.getBigDecimal(index);
+        }
+    };
+
+    public static final ColumnReader<Date> DATE = new ColumnReader<Date>() {
+        @Override
+        public Date read(ResultSet rs, int index) throws SQLException {
+            return rs.getDate(index);
+        }
+    };
+
+    public static final ColumnReader<Time> TIME = new ColumnReader<Time>() {
+        @Override
+        public Time read(ResultSet rs, int index) throws SQLException {
+            return rs.getTime(index);
+        }
+    };
+
+    public static final ColumnReader<Timestamp> TIMESTAMP = new ColumnReader<Timestamp>() {
+        @Override
+        public Timestamp read(ResultSet rs, int index) throws SQLException {
+            return rs.getTimestamp(index);
+        }
+    };
+
+    public static final ColumnReader<byte[]> BYTES = new ColumnReader<byte[]>() {
+        @Override
+        public byte[] read(ResultSet rs, int index) throws SQLException {
+            return rs.getBytes(index);
+        }
+    };
+
+    public static final ColumnReader<Blob> BLOB = new ColumnReader<Blob>() {
+        @Override
+        public Blob read(ResultSet rs, int index) throws SQLException {
+            return rs.getBlob(index);
+        }
+    };
+
+    public static final ColumnReader<Clob> CLOB = new ColumnReader<Clob>() {
+        @Override
+        public Clob read(ResultSet rs, int index) throws SQLException {
+            return rs.getClob(index);
+        }
+    };
+
+    /**
+     * streams a BLOB, LONGVARBINARY column to a byte[]
+     */
+    public static final ColumnReader<byte[]> BINARY_STREAM = new ColumnReader<byte[]>() {
+        @Override
+        public byte[] read(ResultSet rs, int index) throws SQLException {
+            InputStream input = rs.getBinaryStream(index);
+            if (input == null) {
+                return null;
+            }
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, length);
+                }
+                return output.toByteArray();
+            } catch (IOException ex) {
+                throw new SQLException("Can't read the binary stream of the column " + index, ex);
+            } finally {
+                IOs.close(input);
+            }
+        }
+    };
+
+    /**
+     * streams a CLOB, NCLOB, LONGVARCHAR column to a String
+     */
+    public static final ColumnReader<String> CHARACTER_STREAM = new ColumnReader<String>() {
+        @Override
+        public String read(ResultSet rs, int index) throws SQLException {
+            Reader reader = rs.getCharacterStream(index);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                StringBuilder builder = new StringBuilder();
+                char[] buffer = new char[4096];
+                int length;
+                while ((length = reader.read(buffer)) != -1) {
+                    builder.append(buffer, 0, length);
+                }
+                return builder.toString();
+            } catch (IOException ex) {
+                throw new SQLException("Can't read the character stream of the column " + index, ex);
+            } finally {
+                IOs.close(reader);
+            }
+        }
+    };
+
+    /**
+     * Enums can either be represented through a String or an enum index value, the conversion is left up to the caller,
+     * but make sure that nothing other than a String or an Integer is returned.
+     */
+    public static final ColumnReader<Object> ENUM = new ColumnReader<Object>() {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            Object obj = rs.getObject(index);
+            if (obj instanceof String) {
+                return obj;
+            } else if (obj instanceof Number) {
+                return Numbers.convertNumberToTargetClass((Number) obj, Integer.class);
+            } else {
+                // e.g. on Postgres: getObject returns a PGObject but we need a String
+                return rs.getString(index);
+            }
+        }
+    };
+
+    /**
+     * @param jdbcType     the jdbc type of the column, null if it is unknown
+     * @param requiredType the java type, null if any type is ok
+     * @return the reader, it is cached if the java type is a JDK type
+     */
+    @NonNull
+    public static ColumnReader<?> get(@Nullable JdbcType jdbcType, @Nullable Class<?> requiredType) {
+        if (requiredType != null && requiredType.getClassLoader() != null) {
+            return resolve(jdbcType, requiredType);
+        }
+        ReaderKey key = new ReaderKey(jdbcType, requiredType);
+        ColumnReader reader = READERS.get(key);
+        if (reader == null) {
+            reader = resolve(jdbcType, requiredType);
+            ColumnReader existed = READERS.putIfAbsent(key, reader);
+            if (existed != null) {
+                reader = existed;
+            }
+        }
+        return reader;
+    }
+
+    private static ColumnReader<?> resolve(@Nullable JdbcType jdbcType, @Nullable Class<?> requiredType) {
+        if (requiredType == null || Object.class == requiredType) {
+            return OBJECT;
+        }
+        if (String.class == requiredType) {
+            return jdbcType == JdbcType.CLOB || jdbcType == JdbcType.NCLOB ? CHARACTER_STREAM : STRING;
+        }
+        if (boolean.class == requiredType || Boolean.class == requiredType) {
+            return BOOLEAN;
+        }
+        if (byte.class == requiredType || Byte.class == requiredType) {
+            return BYTE;
+        }
+        if (short.class == requiredType || Short.class == requiredType) {
+            return SHORT;
+        }
+        if (int.class == requiredType || Integer.class == requiredType) {
+            return INT;
+        }
+        if (long.class == requiredType || Long.class == requiredType) {
+            return LONG;
+        }
+        if (float.class == requiredType || Float.class == requiredType) {
+            return FLOAT;
+        }
+        if (double.class == requiredType || Double.class == requiredType || Number.class == requiredType) {
+            return DOUBLE;
+        }
+        if (BigDecimal.class == requiredType) {
+            return BIG_DECIMAL;
+        }
+        if (Date.class == requiredType) {
+            return DATE;
+        }
+        if (Time.class == requiredType) {
+            return TIME;
+        }
+        if (Timestamp.class == requiredType || java.util.Date.class == requiredType) {
+            return TIMESTAMP;
+        }
+        if (byte[].class == requiredType) {
+            return jdbcType == JdbcType.BLOB || jdbcType == JdbcType.LONGVARBINARY ? BINARY_STREAM : BYTES;
+        }
+        if (Blob.class == requiredType) {
+            return BLOB;
+        }
+        if (Clob.class == requiredType) {
+            return CLOB;
+        }
+        if (requiredType.isEnum()) {
+            return ENUM;
+        }
+        String typeName = requiredType.getName();
+        if ("java.time.LocalDate".equals(typeName)) {
+            return new TypedObjectReader(requiredType, DATE, findMethod(Date.class, "toLocalDate"));
+        }
+        if ("java.time.LocalTime".equals(typeName)) {
+            return new TypedObjectReader(requiredType, TIME, findMethod(Time.class, "toLocalTime"));
+        }
+        if ("java.time.LocalDateTime".equals(typeName)) {
+            return new TypedObjectReader(requiredType, TIMESTAMP, findMethod(Timestamp.class, "toLocalDateTime"));
+        }
+        if ("java.time.Instant".equals(typeName)) {
+            return new TypedObjectReader(requiredType, TIMESTAMP, findMethod(Timestamp.class, "toInstant"));
+        }
+        return new TypedObjectReader(requiredType, OBJECT, null);
+    }
+
+    @Nullable
+    private static Method findMethod(Class clazz, String name, Class... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private static boolean isGetObjectSupported(ResultSet rs, Class<?> requiredType) {
+        if (GET_OBJECT_WITH_TYPE == null) {
+            return false;
+        }
+        Set<String> unsupportedTypes = GET_OBJECT_UNSUPPORTED_TYPES.get(rs.getClass());
+        return unsupportedTypes == null || !unsupportedTypes.contains(requiredType.getName());
+    }
+
+    private static void setGetObjectUnsupported(ResultSet rs, Class<?> requiredType) {
+        Class driverClass = rs.getClass();
+        Set<String> unsupportedTypes = GET_OBJECT_UNSUPPORTED_TYPES.get(driverClass);
+        if (unsupportedTypes == null) {
+            Set<String> newUnsupportedTypes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            unsupportedTypes = GET_OBJECT_UNSUPPORTED_TYPES.putIfAbsent(driverClass, newUnsupportedTypes);
+            if (unsupportedTypes == null) {
+                unsupportedTypes = newUnsupportedTypes;
+            }
+        }
+        unsupportedTypes.add(requiredType.getName());
+    }
+
+    /**
+     * @return whether the exception tells that the driver does not support the {@code getObject(int, Class)} for the type
+     */
+    private static boolean isFeatureNotSupported(Throwable ex) {
+        if (ex instanceof SQLFeatureNotSupportedException || ex instanceof AbstractMethodError || ex instanceof UnsupportedOperationException) {
+            return true;
+        }
+        if (ex instanceof SQLException) {
+            String sqlState = ((SQLException) ex).getSQLState();
+            return sqlState != null && sqlState.startsWith("0A");
+        }
+        return false;
+    }
+
+    /**
+     * Reads the value by {@code getObject(int, Class)}, if the driver does not support it,
+     * reads the value by the fallback reader, then converts it by the converter method of the value if any.
+     */
+    private static class TypedObjectReader implements ColumnReader<Object> {
+        private final Class<?> requiredType;
+        private final ColumnReader<?> fallbackReader;
+        @Nullable
+        private final Method fallbackConverter;
+
+        TypedObjectReader(Class<?> requiredType, ColumnReader<?> fallbackReader, @Nullable Method fallbackConverter) {
+            this.requiredType = requiredType;
+            this.fallbackReader = fallbackReader;
+            this.fallbackConverter = fallbackConverter;
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            if (isGetObjectSupported(rs, requiredType)) {
+                try {
+                    return GET_OBJECT_WITH_TYPE.invoke(rs, index, requiredType);
+                } catch (InvocationTargetException ex) {
+                    Throwable cause = ex.getTargetException();
+                    if (!isFeatureNotSupported(cause)) {
+                        if (cause instanceof SQLException) {
+                            throw (SQLException) cause;
+                        }
+                        throw new SQLException("Can't read the column " + index + " as " + requiredType.getName(), cause);
+                    }
+                    logger.warn("JDBC driver {} does not support JDBC 4.1 'getObject(int, Class)' method for {}, it will not be used for it any more: {}", rs.getClass().getName(), requiredType.getName(), cause.getMessage());
+                    setGetObjectUnsupported(rs, requiredType);
+                } catch (IllegalAccessException ex) {
+                    setGetObjectUnsupported(rs, requiredType);
+                }
+            }
+            Object value = fallbackReader.read(rs, index);
+            if (value != null && fallbackConverter != null) {
+                try {
+                    value = fallbackConverter.invoke(value);
+                } catch (Throwable ex) {
+                    throw new SQLException("Can't convert the column " + index + " to " + requiredType.getName(), ex);
+                }
+            }
+            return value;
+        }
+    }
+
+    private static class ReaderKey {
+        private final JdbcType jdbcType;
+        private final Class<?> requiredType;
+
+        ReaderKey(JdbcType jdbcType, Class<?> requiredType) {
+            this.jdbcType = jdbcType;
+            this.requiredType = requiredType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ReaderKey that = (ReaderKey) o;
+            return jdbcType == that.jdbcType && requiredType == that.requiredType;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (jdbcType == null ? 0 : jdbcType.hashCode()) + (requiredType == null ? 0 : requiredType.hashCode());
+        }
+    }
+}
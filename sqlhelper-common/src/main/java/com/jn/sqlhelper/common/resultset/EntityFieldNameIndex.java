@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.resultset;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.sqlhelper.common.symbolmapper.SqlSymbolMapper;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The column names of the fields of an entity class, they are indexed once per (class, symbol mapper):
+ * <pre>
+ * 1) the field name and the declared column names, case insensitive
+ * 2) the mapped symbols of them, case insensitive, e.g. 'user_id', 'USERID' are both 'userId' with the underline to camel mapper
+ * </pre>
+ * So a column is resolved with a map lookup, the fields are not scanned for every column of every result set.
+ */
+public class EntityFieldNameIndex {
+    private static final int MAX_INDEXES = 1024;
+    private static final ConcurrentMap<IndexKey, EntityFieldNameIndex> INDEXES = new ConcurrentHashMap<IndexKey, EntityFieldNameIndex>();
+
+    private final Map<String, EntityFieldInfo> fieldMap;
+    @Nullable
+    private final SqlSymbolMapper sqlSymbolMapper;
+    private final Map<String, EntityFieldInfo> columnIndex;
+    private final Map<String, EntityFieldInfo> symbolIndex;
+
+    private EntityFieldNameIndex(Map<String, EntityFieldInfo> fieldMap, @Nullable SqlSymbolMapper sqlSymbolMapper) {
+        this.fieldMap = fieldMap;
+        this.sqlSymbolMapper = sqlSymbolMapper;
+        Map<String, EntityFieldInfo> columnIndex = new HashMap<String, EntityFieldInfo>();
+        Map<String, EntityFieldInfo> symbolIndex = new HashMap<String, EntityFieldInfo>();
+        for (EntityFieldInfo field : fieldMap.values()) {
+            for (String columnName : field.getColumnNames()) {
+                putIfAbsent(columnIndex, lowerCase(columnName), field);
+                if (sqlSymbolMapper != null) {
+                    putIfAbsent(symbolIndex, lowerCase(sqlSymbolMapper.apply(columnName)), field);
+                }
+            }
+        }
+        this.columnIndex = Collections.unmodifiableMap(columnIndex);
+        this.symbolIndex = Collections.unmodifiableMap(symbolIndex);
+    }
+
+    /**
+     * @param targetClass     the entity class
+     * @param fieldMap        the fields of the entity class, it is not changed
+     * @param sqlSymbolMapper the mapper that guesses the field of a column, it should implement equals, hashCode
+     */
+    public static EntityFieldNameIndex of(@NonNull Class targetClass, @NonNull Map<String, EntityFieldInfo> fieldMap, @Nullable SqlSymbolMapper sqlSymbolMapper) {
+        IndexKey key = new IndexKey(targetClass, sqlSymbolMapper);
+        EntityFieldNameIndex index = INDEXES.get(key);
+        if (index == null || index.fieldMap != fieldMap) {
+            index = new EntityFieldNameIndex(fieldMap, sqlSymbolMapper);
+            if (INDEXES.size() < MAX_INDEXES) {
+                INDEXES.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the field of the column, null if no field links to it
+     */
+    @Nullable
+    public EntityFieldInfo findField(@NonNull String columnName) {
+        EntityFieldInfo field = fieldMap.get(columnName);
+        if (field != null) {
+            return field;
+        }
+        field = columnIndex.get(lowerCase(columnName));
+        if (field == null && sqlSymbolMapper != null) {
+            field = symbolIndex.get(lowerCase(sqlSymbolMapper.apply(columnName)));
+        }
+        return field;
+    }
+
+    private static void putIfAbsent(Map<String, EntityFieldInfo> index, String name, EntityFieldInfo field) {
+        if (!index.containsKey(name)) {
+            index.put(name, field);
+        }
+    }
+
+    private static String lowerCase(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static class IndexKey {
+        private final Class targetClass;
+        @Nullable
+        private final SqlSymbolMapper sqlSymbolMapper;
+
+        private IndexKey(Class targetClass, SqlSymbolMapper sqlSymbolMapper) {
+            this.targetClass = targetClass;
+            this.sqlSymbolMapper = sqlSymbolMapper;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey that = (IndexKey) o;
+            return targetClass == that.targetClass
+                    && (sqlSymbolMapper == null ? that.sqlSymbolMapper == null : sqlSymbolMapper.equals(that.sqlSymbolMapper));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * targetClass.hashCode() + (sqlSymbolMapper == null ? 0 : sqlSymbolMapper.hashCode());
+        }
+    }
+}
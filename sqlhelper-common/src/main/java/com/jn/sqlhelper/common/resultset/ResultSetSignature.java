@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.resultset;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.sqlhelper.common.ddl.model.internal.JdbcType;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * The shape of a result set: the name, the label, the jdbc type, the table of every column.
+ * The result sets that have the same signature are mapped by the same {@link RowMappingPlan}.
+ */
+public final class ResultSetSignature {
+    private final String[] columnNames;
+    private final String[] columnLabels;
+    private final JdbcType[] columnTypes;
+    private final String[] tableNames;
+    private final int hash;
+
+    private ResultSetSignature(String[] columnNames, String[] columnLabels, JdbcType[] columnTypes, String[] tableNames) {
+        this.columnNames = columnNames;
+        this.columnLabels = columnLabels;
+        this.columnTypes = columnTypes;
+        this.tableNames = tableNames;
+        int h = Arrays.hashCode(columnNames);
+        h = 31 * h + Arrays.hashCode(columnLabels);
+        h = 31 * h + Arrays.hashCode(columnTypes);
+        h = 31 * h + Arrays.hashCode(tableNames);
+        this.hash = h;
+    }
+
+    public static ResultSetSignature of(@NonNull ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        String[] columnLabels = new String[columnCount];
+        JdbcType[] columnTypes = new JdbcType[columnCount];
+        String[] tableNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int column = i + 1;
+            columnNames[i] = metaData.getColumnName(column);
+            columnLabels[i] = metaData.getColumnLabel(column);
+            columnTypes[i] = JdbcType.ofCode(metaData.getColumnType(column));
+            tableNames[i] = metaData.getTableName(column);
+        }
+        return new ResultSetSignature(columnNames, columnLabels, columnTypes, tableNames);
+    }
+
+    public static ResultSetSignature of(@NonNull ResultSetDescription description) {
+        int columnCount = description.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        String[] columnLabels = new String[columnCount];
+        JdbcType[] columnTypes = new JdbcType[columnCount];
+        String[] tableNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int column = i + 1;
+            columnNames[i] = description.getColumnName(column);
+            columnLabels[i] = description.getColumnLabel(column);
+            columnTypes[i] = description.getColumnType(column);
+            tableNames[i] = description.getTableName(column);
+        }
+        return new ResultSetSignature(columnNames, columnLabels, columnTypes, tableNames);
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * @param column the first column is 1, the second is 2, ...
+     */
+    public String getColumnName(int column) {
+        return columnNames[column - 1];
+    }
+
+    /**
+     * @param column the first column is 1, the second is 2, ...
+     */
+    public JdbcType getColumnType(int column) {
+        return columnTypes[column - 1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResultSetSignature)) {
+            return false;
+        }
+        ResultSetSignature that = (ResultSetSignature) o;
+        return hash == that.hash
+                && Arrays.equals(columnNames, that.columnNames)
+                && Arrays.equals(columnLabels, that.columnLabels)
+                && Arrays.equals(columnTypes, that.columnTypes)
+                && Arrays.equals(tableNames, that.tableNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(columnLabels);
+    }
+}
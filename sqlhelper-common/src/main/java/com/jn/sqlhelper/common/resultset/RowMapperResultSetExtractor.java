@@ -1,6 +1,10 @@
 package com.jn.sqlhelper.common.resultset;
 
 import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.reflect.Reflects;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -39,14 +43,21 @@ public class RowMapperResultSetExtractor<T> implements ResultSetExtractor<List<T
         int rowIndex = 0;
 
         if (expectedMaxRows > 0) {
-            ResultSetMetaData rsMetaData = rs.getMetaData();
-            ResultSetDescription resultSetDescription = new ResultSetDescription(rsMetaData);
-            while (rs.next() && results.size() < expectedMaxRows) {
-                if (rowIndex < offset) {
-                    rowIndex++;
-                    continue;
+            String mapperName = SqlHelperMetrics.isEnabled() ? Reflects.getSimpleClassName(this.mapper.getClass()) : null;
+            MetricsSample sample = SqlHelperMetrics.start(MetricNames.ROWS_MAPPING).tag(MetricNames.TAG_MAPPER, mapperName);
+            try {
+                ResultSetMetaData rsMetaData = rs.getMetaData();
+                ResultSetDescription resultSetDescription = RowMappingPlanCache.getInstance().getResultSetDescription(rsMetaData);
+                while (rs.next() && results.size() < expectedMaxRows) {
+                    if (rowIndex < offset) {
+                        rowIndex++;
+                        continue;
+                    }
+                    results.add(this.mapper.mapping(rs, rowIndex++, resultSetDescription));
                 }
-                results.add(this.mapper.mapping(rs, rowIndex++, resultSetDescription));
+            } finally {
+                sample.stop();
+                SqlHelperMetrics.increment(MetricNames.ROWS_MAPPED, results.size(), MetricNames.TAG_MAPPER, mapperName);
             }
         }
         return results;
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.resultset;
+
+/**
+ * The compiled column to field bindings of a (target type, result set signature), it is shared by all the
+ * row mappers of the target type by {@link RowMappingPlanCache}, so it is immutable.
+ */
+public class RowMappingPlan {
+    private final ResultSetSignature signature;
+    /**
+     * the field of a column, null if the column is ignored
+     */
+    private final EntityFieldInfo[] fields;
+    /**
+     * the reader of a column, a value that the typed reader fails to read is read by {@link ColumnReaders#OBJECT}
+     */
+    private final ColumnReader[] readers;
+
+    RowMappingPlan(ResultSetSignature signature, EntityFieldInfo[] fields, ColumnReader[] readers) {
+        this.signature = signature;
+        this.fields = fields;
+        this.readers = readers;
+    }
+
+    public ResultSetSignature getSignature() {
+        return signature;
+    }
+
+    int getColumnCount() {
+        return fields.length;
+    }
+
+    /**
+     * @param index the index of the column, starts from 0
+     */
+    EntityFieldInfo getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * @param index the index of the column, starts from 0
+     */
+    ColumnReader getReader(int index) {
+        return readers[index];
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.resultset;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The shared cache of the row mapping works, they are done once per result set shape, not once per query:
+ * <pre>
+ * 1) result set signature: the {@link ResultSetDescription}, it is not parsed from the metadata for every query
+ * 2) (target type, mapping options, result set signature): the {@link RowMappingPlan} of the bean row mappers
+ * </pre>
+ * It is bounded, the least recently used entries are evicted. The accesses are recorded with the cache name
+ * 'resultSetDescription' and 'rowMappingPlan'.
+ * <p>
+ * The plans of the target types (and the options) whose class loaders are not the class loader of this class or its ancestors
+ * are not cached, e.g. sqlhelper is in a shared library and the target types are in a web application,
+ * they would keep the class loader of the web application alive after it is undeployed.
+ * <p>
+ * The max capacity of the shared instance is the system property 'sqlhelper.rowMappingPlanCache.maxCapacity', default 1024.
+ */
+public class RowMappingPlanCache {
+    public static final int DEFAULT_MAX_CAPACITY = 1024;
+    private static final String CACHE_RESULT_SET_DESCRIPTION = "resultSetDescription";
+    private static final String CACHE_ROW_MAPPING_PLAN = "rowMappingPlan";
+    private static final RowMappingPlanCache INSTANCE = new RowMappingPlanCache(Integer.getInteger("sqlhelper.rowMappingPlanCache.maxCapacity", DEFAULT_MAX_CAPACITY));
+
+    public interface PlanFactory {
+        /**
+         * @param signature   the signature of the result set
+         * @param description the description of the result set
+         */
+        RowMappingPlan create(ResultSetSignature signature, ResultSetDescription description);
+    }
+
+    private final int maxCapacity;
+    private final ConcurrentMap<Object, Object> entries = new ConcurrentHashMap<Object, Object>();
+    /**
+     * the access order of the keys, the reads are recorded lossily, a contended read does not wait for the lock
+     */
+    private final LinkedHashMap<Object, Boolean> accessOrder = new LinkedHashMap<Object, Boolean>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static RowMappingPlanCache getInstance() {
+        return INSTANCE;
+    }
+
+    public RowMappingPlanCache(int maxCapacity) {
+        Preconditions.checkTrue(maxCapacity > 0, "the max capacity must be greater than 0");
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * @return the description of the result set, it is shared by the result sets that have the same signature
+     */
+    public ResultSetDescription getResultSetDescription(@NonNull ResultSetMetaData metaData) {
+        ResultSetSignature signature;
+        try {
+            signature = ResultSetSignature.of(metaData);
+        } catch (SQLException ex) {
+            // the metadata can't be read column by column, it is parsed as it is, every property has a default
+            return new ResultSetDescription(metaData);
+        }
+        ResultSetDescription description = (ResultSetDescription) get(signature, CACHE_RESULT_SET_DESCRIPTION);
+        if (description == null) {
+            description = new ResultSetDescription(metaData);
+            put(signature, description);
+        }
+        return description;
+    }
+
+    /**
+     * @param targetType  the type that a row is mapped to
+     * @param options     the options of the row mapper that change the plan, it must implement equals, hashCode
+     * @param description the description of the result set
+     * @param factory     creates the plan if it is not cached, if it throws an exception, nothing is cached
+     */
+    public RowMappingPlan getPlan(@NonNull Class targetType, @Nullable Object options, @NonNull ResultSetDescription description, @NonNull PlanFactory factory) {
+        ResultSetSignature signature = ResultSetSignature.of(description);
+        if (!isCacheSafe(targetType) || !isCacheSafeOptions(options)) {
+            return factory.create(signature, description);
+        }
+        PlanKey key = new PlanKey(targetType, options, signature);
+        RowMappingPlan plan = (RowMappingPlan) get(key, CACHE_ROW_MAPPING_PLAN);
+        if (plan == null) {
+            plan = factory.create(signature, description);
+            put(key, plan);
+        }
+        return plan;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            accessOrder.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isCacheSafeOptions(@Nullable Object options) {
+        if (options == null) {
+            return true;
+        }
+        if (options instanceof Collection) {
+            for (Object option : (Collection) options) {
+                if (!isCacheSafeOptions(option)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return isCacheSafe(options.getClass());
+    }
+
+    /**
+     * @return whether the class is loaded by the class loader of this class or its ancestors
+     */
+    private static boolean isCacheSafe(Class clazz) {
+        ClassLoader target = clazz.getClassLoader();
+        if (target == null) {
+            return true;
+        }
+        ClassLoader current = RowMappingPlanCache.class.getClassLoader();
+        while (current != null) {
+            if (current == target) {
+                return true;
+            }
+            current = current.getParent();
+        }
+        return false;
+    }
+
+    private Object get(Object key, String cacheName) {
+        Object value = entries.get(key);
+        boolean hit = value != null;
+        (hit ? hits : misses).incrementAndGet();
+        SqlHelperMetrics.recordCacheAccess(cacheName, hit);
+        if (hit && lock.tryLock()) {
+            try {
+                if (entries.get(key) == value) {
+                    accessOrder.get(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    private void put(Object key, Object value) {
+        lock.lock();
+        try {
+            entries.put(key, value);
+            accessOrder.put(key, Boolean.TRUE);
+            Iterator<Object> iter = accessOrder.keySet().iterator();
+            while (accessOrder.size() > maxCapacity && iter.hasNext()) {
+                Object eldest = iter.next();
+                iter.remove();
+                entries.remove(eldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class PlanKey {
+        private final Class targetType;
+        @Nullable
+        private final Object options;
+        private final ResultSetSignature signature;
+
+        private PlanKey(Class targetType, Object options, ResultSetSignature signature) {
+            this.targetType = targetType;
+            this.options = options;
+            this.signature = signature;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey that = (PlanKey) o;
+            return targetType == that.targetType
+                    && (options == null ? that.options == null : options.equals(that.options))
+                    && signature.equals(that.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = targetType.hashCode();
+            h = 31 * h + (options == null ? 0 : options.hashCode());
+            return 31 * h + signature.hashCode();
+        }
+    }
+}
@@ -17,18 +17,18 @@ package com.jn.sqlhelper.common.symbolmapper;
 import com.jn.langx.util.Chars;
 import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.Strings;
-import com.jn.langx.util.collection.Collects;
-
-import java.util.List;
 
 /**
  * {prefix}segment0{underline}segment1{underline}segment2{suffix}
  */
 public class CamelToUnderlineSymbolMapper implements SqlSymbolMapper {
 
-    private boolean uppercase = true;
-    private String prefix;
-    private String suffix;
+    private final boolean uppercase;
+    private final String prefix;
+    private final String suffix;
+    private final String casedPrefix;
+    private final String casedSuffix;
+    private final SymbolMemo memo = new SymbolMemo(SymbolMemo.DEFAULT_MAX_SIZE);
 
     public CamelToUnderlineSymbolMapper() {
         this(false);
@@ -50,52 +50,64 @@ public class CamelToUnderlineSymbolMapper implements SqlSymbolMapper {
         this.uppercase = uppercase;
         this.prefix = Strings.isEmpty(prefix) ? "" : prefix;
         this.suffix = Strings.isEmpty(suffix) ? "" : suffix;
+        this.casedPrefix = uppercase ? this.prefix.toUpperCase() : this.prefix.toLowerCase();
+        this.casedSuffix = uppercase ? this.suffix.toUpperCase() : this.suffix.toLowerCase();
     }
 
     @Override
     public String apply(String name) {
         Preconditions.checkNotEmpty(name);
-        // step1: split to segments
-        int startIndex = 0;
-        List<String> segments = Collects.emptyArrayList();
+        String symbol = memo.get(name);
+        if (symbol == null) {
+            symbol = toUnderline(name);
+            memo.put(name, symbol);
+        }
+        return symbol;
+    }
+
+    /**
+     * A segment starts with an upper case char or the first char after the underlines,
+     * the segments are joined with one underline, the leading and trailing underlines are dropped.
+     */
+    private String toUnderline(String name) {
+        int length = name.length();
+        final StringBuilder builder = new StringBuilder(casedPrefix.length() + length + 8 + casedSuffix.length());
+        builder.append(casedPrefix);
         boolean lastCharIsUnderline = false;
-        for (int i = 0; i < name.length(); i++) {
+        boolean hasSegment = false;
+        for (int i = 0; i < length; i++) {
             char c = name.charAt(i);
             if (c == '_') {
-                if (startIndex > -1 && i > 0) {
-                    segments.add(name.substring(startIndex, i));
-                }
                 lastCharIsUnderline = true;
-                startIndex = -1;
-            } else {
-                if (lastCharIsUnderline) {
-                    startIndex = i;
-                } else {
-                    if (Chars.isUpperCase(c)) {
-                        if (startIndex > -1 && i > 0) {
-                            segments.add(name.substring(startIndex, i));
-                        }
-                        startIndex = i;
-                    }
-                }
-                lastCharIsUnderline = false;
+                continue;
             }
+            if (lastCharIsUnderline ? hasSegment : (i > 0 && Chars.isUpperCase(c))) {
+                builder.append('_');
+            }
+            builder.append(uppercase ? Character.toUpperCase(c) : Character.toLowerCase(c));
+            hasSegment = true;
+            lastCharIsUnderline = false;
         }
-        if (startIndex > -1) {
-            segments.add(name.substring(startIndex));
-        }
+        builder.append(casedSuffix);
+        return builder.toString();
+    }
 
-        // step2: concat
-        final StringBuilder stringBuilder = new StringBuilder(name.length() + 20);
-        stringBuilder.append(prefix);
-        for (int i = 0; i < segments.size(); i++) {
-            if (i > 0) {
-                stringBuilder.append("_");
-            }
-            stringBuilder.append(segments.get(i));
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        stringBuilder.append(suffix);
+        if (!(o instanceof CamelToUnderlineSymbolMapper)) {
+            return false;
+        }
+        CamelToUnderlineSymbolMapper that = (CamelToUnderlineSymbolMapper) o;
+        return uppercase == that.uppercase && prefix.equals(that.prefix) && suffix.equals(that.suffix);
+    }
 
-        return uppercase ? stringBuilder.toString().toUpperCase() : stringBuilder.toString().toLowerCase();
+    @Override
+    public int hashCode() {
+        int h = uppercase ? 1 : 0;
+        h = 31 * h + prefix.hashCode();
+        return 31 * h + suffix.hashCode();
     }
 }
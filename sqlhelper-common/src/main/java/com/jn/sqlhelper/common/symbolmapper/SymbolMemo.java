@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.symbolmapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The mapped symbols of a symbol mapper. The names of the columns and the properties of an application are few,
+ * so it is bounded by a max size only: a name is not memoized if the memo is full.
+ */
+final class SymbolMemo {
+    static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final int maxSize;
+    private final ConcurrentMap<String, String> symbols = new ConcurrentHashMap<String, String>();
+
+    SymbolMemo(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    String get(String name) {
+        return symbols.get(name);
+    }
+
+    void put(String name, String symbol) {
+        if (symbols.size() < maxSize) {
+            symbols.put(name, symbol);
+        }
+    }
+}
@@ -4,28 +4,70 @@ import com.jn.langx.annotation.Nullable;
 import com.jn.langx.util.Emptys;
 import com.jn.langx.util.Strings;
 import com.jn.langx.util.collection.Pipeline;
-import com.jn.langx.util.function.Consumer;
 import com.jn.langx.util.function.Function;
 import com.jn.langx.util.function.Predicate;
 
 import java.util.StringTokenizer;
 
 public class UnderlineToCamelSymbolMapper implements SqlSymbolMapper {
+    /**
+     * the mapper has no state, the memo is shared by all the instances
+     */
+    private static final SymbolMemo MEMO = new SymbolMemo(SymbolMemo.DEFAULT_MAX_SIZE);
+
     @Override
     public String apply(String sqlSymbol) {
-        final StringBuilder builder = new StringBuilder();
-        Pipeline.<String>of(Strings.split(sqlSymbol, "_")).map(new Function<String, String>() {
-            @Override
-            public String apply(String input) {
-                return input.toLowerCase();
+        if (Emptys.isEmpty(sqlSymbol)) {
+            return "";
+        }
+        String symbol = MEMO.get(sqlSymbol);
+        if (symbol == null) {
+            symbol = toCamel(sqlSymbol);
+            MEMO.put(sqlSymbol, symbol);
+        }
+        return symbol;
+    }
+
+    /**
+     * the trimmed, not blank segments between the underlines are lower cased, then every segment but the first one
+     * starts with an upper case char, e.g. 'USER_ID' to 'userId'
+     */
+    private static String toCamel(String sqlSymbol) {
+        int length = sqlSymbol.length();
+        char[] chars = new char[length];
+        int count = 0;
+        int start = 0;
+        while (start < length) {
+            int end = sqlSymbol.indexOf('_', start);
+            if (end < 0) {
+                end = length;
             }
-        }).forEach(new Consumer<String>() {
-            @Override
-            public void accept(String s) {
-                builder.append(Strings.upperCase(s, 0, 1));
+            int segmentStart = start;
+            int segmentEnd = end;
+            while (segmentStart < segmentEnd && sqlSymbol.charAt(segmentStart) <= ' ') {
+                segmentStart++;
+            }
+            while (segmentEnd > segmentStart && sqlSymbol.charAt(segmentEnd - 1) <= ' ') {
+                segmentEnd--;
             }
-        });
-        return Strings.lowerCase(builder.toString(), 0, 1);
+            for (int i = segmentStart; i < segmentEnd; i++) {
+                char c = sqlSymbol.charAt(i);
+                chars[count] = i == segmentStart && count > 0 ? Character.toUpperCase(c) : Character.toLowerCase(c);
+                count++;
+            }
+            start = end + 1;
+        }
+        return new String(chars, 0, count);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UnderlineToCamelSymbolMapper;
+    }
+
+    @Override
+    public int hashCode() {
+        return UnderlineToCamelSymbolMapper.class.hashCode();
     }
 
     public static String[] split(@Nullable String string, @Nullable String separator) {
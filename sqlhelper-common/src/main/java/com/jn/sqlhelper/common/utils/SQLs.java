@@ -15,6 +15,7 @@
 package com.jn.sqlhelper.common.utils;
 
 import com.jn.langx.util.Strings;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalogRegistry;
 import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
 
 import java.sql.Connection;
@@ -60,7 +61,11 @@ public class SQLs {
     }
 
     public static String getTableFQN(DatabaseMetaData metaData, String catalog, String schema, String tableName) {
-        return getTableFQN(new DatabaseDescription(metaData), catalog, schema, tableName);
+        try {
+            return DatabaseCatalogRegistry.getInstance().getCapabilities(metaData).getTableFQN(catalog, schema, tableName);
+        } catch (SQLException ex) {
+            return getTableFQN(new DatabaseDescription(metaData), catalog, schema, tableName);
+        }
     }
 
     public static String getTableFQN(DatabaseDescription databaseDesc, String catalog, String schema, String tableName) {
@@ -165,7 +170,7 @@ public class SQLs {
 
     public static boolean isSupportsBatchUpdates(Connection conn) {
         try {
-            return new DatabaseDescription(conn.getMetaData()).supportsBatchUpdates();
+            return DatabaseCatalogRegistry.getInstance().getCapabilities(conn.getMetaData()).supportsBatchUpdates();
         } catch (SQLException ex) {
             return false;
         }
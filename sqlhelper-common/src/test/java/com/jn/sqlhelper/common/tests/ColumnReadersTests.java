@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.tests;
+
+import com.jn.sqlhelper.common.ddl.model.internal.JdbcType;
+import com.jn.sqlhelper.common.resultset.ColumnReader;
+import com.jn.sqlhelper.common.resultset.ColumnReaders;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ColumnReadersTests {
+    private static final UUID ID = UUID.randomUUID();
+
+    @Test
+    public void testCached() {
+        Assert.assertSame(ColumnReaders.get(JdbcType.OTHER, UUID.class), ColumnReaders.get(JdbcType.OTHER, UUID.class));
+        // the readers of the application types are not cached, they would keep the class loaders alive
+        Assert.assertNotSame(ColumnReaders.get(JdbcType.OTHER, ColumnReadersTests.class), ColumnReaders.get(JdbcType.OTHER, ColumnReadersTests.class));
+    }
+
+    @Test
+    public void testGetObjectUnsupportedPerDriver() throws SQLException {
+        ColumnReader<?> reader = ColumnReaders.get(JdbcType.OTHER, UUID.class);
+
+        AtomicInteger unsupportedCalls = new AtomicInteger();
+        ResultSet unsupported = newResultSet(new SQLFeatureNotSupportedException("getObject(int, Class)"), unsupportedCalls, ResultSet.class);
+        Assert.assertEquals(ID, reader.read(unsupported, 1));
+        Assert.assertEquals(ID, reader.read(unsupported, 1));
+        // it is not tried again for the driver
+        Assert.assertEquals(1, unsupportedCalls.get());
+
+        // another driver still uses it
+        AtomicInteger supportedCalls = new AtomicInteger();
+        ResultSet supported = newResultSet(null, supportedCalls, ResultSet.class, Serializable.class);
+        Assert.assertEquals(ID, reader.read(supported, 1));
+        Assert.assertEquals(ID, reader.read(supported, 1));
+        Assert.assertEquals(2, supportedCalls.get());
+    }
+
+    @Test
+    public void testOtherErrorsThrown() {
+        ColumnReader<?> reader = ColumnReaders.get(JdbcType.OTHER, UUID.class);
+        SQLException error = new SQLException("connection reset", "08S01");
+        AtomicInteger calls = new AtomicInteger();
+        ResultSet rs = newResultSet(error, calls, ResultSet.class, Cloneable.class);
+        for (int i = 0; i < 2; i++) {
+            try {
+                reader.read(rs, 1);
+                Assert.fail();
+            } catch (SQLException ex) {
+                Assert.assertSame(error, ex);
+            }
+        }
+        Assert.assertEquals(2, calls.get());
+    }
+
+    /**
+     * @param interfaces the interfaces of the proxy, the different interfaces make the different driver classes
+     */
+    private static ResultSet newResultSet(final SQLException getObjectError, final AtomicInteger getObjectCalls, Class... interfaces) {
+        return (ResultSet) Proxy.newProxyInstance(ColumnReadersTests.class.getClassLoader(), interfaces, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                if ("getObject".equals(method.getName())) {
+                    if (args.length == 2) {
+                        getObjectCalls.incrementAndGet();
+                        if (getObjectError != null) {
+                            throw getObjectError;
+                        }
+                    }
+                    return ID;
+                }
+                Class returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                return null;
+            }
+        });
+    }
+}
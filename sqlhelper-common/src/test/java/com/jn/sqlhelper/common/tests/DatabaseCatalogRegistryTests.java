@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.tests;
+
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCapabilities;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalog;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalogRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+
+public class DatabaseCatalogRegistryTests {
+
+    @Test
+    public void testCatalogsByIdentity() {
+        DatabaseCatalogRegistry registry = DatabaseCatalogRegistry.getInstance();
+        // the data sources are equal to each other
+        DataSource dataSource1 = newDataSource();
+        DataSource dataSource2 = newDataSource();
+        Assert.assertEquals(dataSource1, dataSource2);
+
+        DatabaseCatalog catalog1 = registry.getCatalog(dataSource1);
+        DatabaseCatalog catalog2 = registry.getCatalog(dataSource2);
+        Assert.assertNotSame(catalog1, catalog2);
+        Assert.assertSame(catalog1, registry.getCatalog(dataSource1));
+        Assert.assertSame(dataSource2, catalog2.getDataSource());
+
+        registry.unregister(dataSource1);
+        registry.unregister(dataSource2);
+        Assert.assertNull(registry.findCatalog(dataSource1));
+    }
+
+    @Test
+    public void testDataSourceNotKeptAlive() throws Exception {
+        DatabaseCatalogRegistry registry = DatabaseCatalogRegistry.getInstance();
+        DataSource dataSource = newDataSource();
+        DatabaseCatalog catalog = registry.getCatalog(dataSource);
+        WeakReference<DataSource> reference = new WeakReference<DataSource>(dataSource);
+        dataSource = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(reference.get());
+        Assert.assertNull(catalog.getDataSource());
+        Assert.assertFalse(registry.getCatalogs().contains(catalog));
+    }
+
+    @Test
+    public void testCapabilitiesByUrlAndDriver() throws Exception {
+        DatabaseCatalogRegistry registry = DatabaseCatalogRegistry.getInstance();
+        DatabaseCapabilities capabilities1 = registry.getCapabilities(newMetaData("jdbc:test://host/db", "driver-a", "\""));
+        DatabaseCapabilities capabilities2 = registry.getCapabilities(newMetaData("jdbc:test://host/db", "driver-a", "\""));
+        DatabaseCapabilities capabilities3 = registry.getCapabilities(newMetaData("jdbc:test://host/db", "driver-b", "`"));
+        Assert.assertSame(capabilities1, capabilities2);
+        Assert.assertNotSame(capabilities1, capabilities3);
+        Assert.assertEquals("`", capabilities3.getIdentifierQuoteString());
+    }
+
+    private static DataSource newDataSource() {
+        return (DataSource) Proxy.newProxyInstance(DatabaseCatalogRegistryTests.class.getClassLoader(), new Class[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("equals".equals(method.getName())) {
+                    return args[0] instanceof DataSource;
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return 1;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static DatabaseMetaData newMetaData(final String url, final String driver, final String quote) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(DatabaseCatalogRegistryTests.class.getClassLoader(), new Class[]{DatabaseMetaData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getURL".equals(name)) {
+                    return url;
+                }
+                if ("getDriverName".equals(name)) {
+                    return driver;
+                }
+                if ("getIdentifierQuoteString".equals(name)) {
+                    return quote;
+                }
+                Class<?> returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.tests;
+
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.common.annotation.Column;
+import com.jn.sqlhelper.common.annotation.PK;
+import com.jn.sqlhelper.common.annotation.Table;
+import com.jn.sqlhelper.common.er.DefaultEntityTableMappingParser;
+import com.jn.sqlhelper.common.er.EntityTableMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.Id;
+import javax.persistence.Transient;
+
+public class EntityTableMappingParserTests {
+
+    @Test
+    public void testAnnotationsAreRuntimeVisible() {
+        Assert.assertNotNull(UserRole.class.getAnnotation(Table.class));
+        Assert.assertNotNull(UserRole.class.getAnnotation(PK.class));
+    }
+
+    @Test
+    public void testParse() {
+        EntityTableMapping mapping = new DefaultEntityTableMappingParser().parse(UserRole.class);
+        Assert.assertEquals("t_user_role", mapping.getTable());
+        // the fields without @Column are mapped to the underscore names
+        Assert.assertEquals("user_id", mapping.getColumnMappings().get("userId"));
+        Assert.assertEquals("role_id", mapping.getColumnMappings().get("roleId"));
+        Assert.assertEquals("granted_by", mapping.getColumnMappings().get("grantor"));
+        // static, transient and @Transient fields are not columns
+        Assert.assertEquals(3, mapping.getColumnMappings().size());
+        // @PK takes precedence over the JPA @Id
+        Assert.assertEquals(Collects.asList("userId", "roleId"), mapping.getIdFields());
+    }
+
+    @Test
+    public void testIdFields() {
+        EntityTableMapping mapping = new DefaultEntityTableMappingParser().parse(Account.class);
+        // the simple class name is the default table name
+        Assert.assertEquals("Account", mapping.getTable());
+        Assert.assertEquals(Collects.asList("accountNo"), mapping.getIdFields());
+
+        mapping = new DefaultEntityTableMappingParser().parse(Tag.class);
+        Assert.assertEquals(Collects.asList("id"), mapping.getIdFields());
+    }
+
+    @Table("t_user_role")
+    @PK({"userId", "roleId"})
+    public static class UserRole {
+        public static final String TYPE = "user_role";
+        @Id
+        private long userId;
+        private long roleId;
+        @Column("granted_by")
+        private String grantor;
+        private transient String display;
+        @Transient
+        private String remark;
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(long userId) {
+            this.userId = userId;
+        }
+
+        public long getRoleId() {
+            return roleId;
+        }
+
+        public void setRoleId(long roleId) {
+            this.roleId = roleId;
+        }
+
+        public String getGrantor() {
+            return grantor;
+        }
+
+        public void setGrantor(String grantor) {
+            this.grantor = grantor;
+        }
+
+        public String getDisplay() {
+            return display;
+        }
+
+        public void setDisplay(String display) {
+            this.display = display;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+
+        public void setRemark(String remark) {
+            this.remark = remark;
+        }
+    }
+
+    public static class Account {
+        @Id
+        private String accountNo;
+        private String id;
+
+        public String getAccountNo() {
+            return accountNo;
+        }
+
+        public void setAccountNo(String accountNo) {
+            this.accountNo = accountNo;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+    }
+
+    public static class Tag {
+        private long id;
+        private String tagName;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getTagName() {
+            return tagName;
+        }
+
+        public void setTagName(String tagName) {
+            this.tagName = tagName;
+        }
+    }
+}
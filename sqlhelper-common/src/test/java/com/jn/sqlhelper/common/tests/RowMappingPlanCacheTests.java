@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.tests;
+
+import com.jn.sqlhelper.common.resultset.BeanRowMapper;
+import com.jn.sqlhelper.common.resultset.ResultSetDescription;
+import com.jn.sqlhelper.common.resultset.ResultSetSignature;
+import com.jn.sqlhelper.common.resultset.RowMappingPlan;
+import com.jn.sqlhelper.common.resultset.RowMappingPlanCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RowMappingPlanCacheTests {
+
+    @Test
+    public void testResultSetDescription() {
+        RowMappingPlanCache cache = new RowMappingPlanCache(1);
+        ResultSetDescription description = cache.getResultSetDescription(newMetaData("id", "name"));
+        Assert.assertEquals(2, description.getColumnCount());
+        Assert.assertEquals("name", description.getColumnName(2));
+        // the same columns, the same description
+        Assert.assertSame(description, cache.getResultSetDescription(newMetaData("id", "name")));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        // the least recently used one is evicted
+        Assert.assertNotSame(description, cache.getResultSetDescription(newMetaData("id", "age")));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotSame(description, cache.getResultSetDescription(newMetaData("id", "name")));
+    }
+
+    @Test
+    public void testClassLoaderNotKept() {
+        RowMappingPlanCache cache = new RowMappingPlanCache(10);
+        // the class of a child class loader, e.g. the class of a web application
+        Class childClass = Proxy.getProxyClass(new URLClassLoader(new URL[0], RowMappingPlanCacheTests.class.getClassLoader()), Runnable.class);
+        final AtomicInteger created = new AtomicInteger();
+        RowMappingPlanCache.PlanFactory factory = new RowMappingPlanCache.PlanFactory() {
+            @Override
+            public RowMappingPlan create(ResultSetSignature signature, ResultSetDescription description) {
+                created.incrementAndGet();
+                return null;
+            }
+        };
+        ResultSetDescription description = cache.getResultSetDescription(newMetaData("id"));
+        cache.getPlan(childClass, null, description, factory);
+        cache.getPlan(childClass, null, description, factory);
+        Assert.assertEquals(2, created.get());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testFallbackPerResultSet() {
+        ResultSetDescription description = new ResultSetDescription(newMetaData("id"));
+        BeanRowMapper<User> mapper = new BeanRowMapper<User>(User.class);
+        final AtomicInteger row = new AtomicInteger();
+        final AtomicInteger typedReads = new AtomicInteger();
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(RowMappingPlanCacheTests.class.getClassLoader(), new Class[]{ResultSet.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                String name = method.getName();
+                if (name.equals("getInt")) {
+                    typedReads.incrementAndGet();
+                    if (row.get() == 1) {
+                        throw new SQLException("the typed getter fails for the first row");
+                    }
+                    return row.get();
+                }
+                if (name.equals("getObject")) {
+                    return -row.get();
+                }
+                Class returnType = method.getReturnType();
+                return returnType == boolean.class ? false : null;
+            }
+        });
+        row.set(1);
+        Assert.assertEquals(Integer.valueOf(-1), mapper.mapping(rs, 0, description).getId());
+        // the later rows of the result set are read untyped, the typed getter is not tried again
+        row.set(2);
+        Assert.assertEquals(Integer.valueOf(-2), mapper.mapping(rs, 1, description).getId());
+        Assert.assertEquals(1, typedReads.get());
+
+        // the shared plan is not changed, the typed reader is used for another result set
+        ResultSetDescription description2 = new ResultSetDescription(newMetaData("id"));
+        Assert.assertEquals(Integer.valueOf(2), mapper.mapping(rs, 0, description2).getId());
+        Assert.assertEquals(2, typedReads.get());
+    }
+
+    public static class User {
+        private Integer id;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+    }
+
+    private static ResultSetMetaData newMetaData(final String... columns) {
+        return (ResultSetMetaData) Proxy.newProxyInstance(RowMappingPlanCacheTests.class.getClassLoader(), new Class[]{ResultSetMetaData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getColumnCount")) {
+                    return columns.length;
+                }
+                if (name.equals("getColumnName") || name.equals("getColumnLabel")) {
+                    return columns[(Integer) args[0] - 1];
+                }
+                if (name.equals("getColumnType")) {
+                    return Types.VARCHAR;
+                }
+                Class returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                return returnType == String.class ? "user" : null;
+            }
+        });
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.tests;
+
+import com.jn.sqlhelper.common.ddl.dump.AbstractTableGenerator;
+import com.jn.sqlhelper.common.ddl.model.*;
+import com.jn.sqlhelper.common.ddl.model.internal.BooleanFlag;
+import com.jn.sqlhelper.common.ddl.model.internal.JdbcType;
+import com.jn.sqlhelper.common.ddl.model.internal.TableType;
+import com.jn.sqlhelper.common.ddl.snapshot.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+
+public class SchemaSnapshotTests {
+
+    @Test
+    public void testReadWrite() throws Exception {
+        SchemaSnapshot snapshot = newSnapshot("db1", "schema1", newUserTable("schema1", 64, true));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SchemaSnapshots.write(snapshot, new DataOutputStream(bytes));
+        SchemaSnapshot loaded = SchemaSnapshots.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals("db1", loaded.getName());
+        Assert.assertEquals(1, loaded.size());
+        TableSnapshot table = loaded.getTable("USER");
+        Assert.assertEquals(snapshot.getTable("user").getHash(), table.getHash());
+        Assert.assertEquals(3, table.getTable().getColumns().size());
+        Assert.assertNotNull(table.getTable().getIndex("idx_user_name"));
+        // the hashes are computed again from the loaded model
+        Assert.assertEquals(table.getHash(), new TableSnapshot(table.getTable()).getHash());
+    }
+
+    @Test
+    public void testDiff() throws Exception {
+        SchemaSnapshot expected = newSnapshot("db1", "schema1", newUserTable("schema1", 64, true));
+        SchemaSnapshot same = newSnapshot("db2", "schema2", newUserTable("schema2", 64, true));
+        SchemaSnapshot changed = newSnapshot("db3", "schema3", newUserTable("schema3", 32, false));
+
+        SchemaDiffer differ = new SchemaDiffer();
+        SchemaDiff diff = differ.diff(expected, same);
+        Assert.assertTrue(diff.isEmpty());
+        Assert.assertEquals(1, diff.getUnchangedTables());
+
+        diff = differ.diff(expected, changed);
+        Assert.assertEquals(1, diff.getAlteredTables().size());
+        TableDiff tableDiff = diff.getAlteredTables().get(0);
+        Assert.assertEquals(1, tableDiff.getModifiedColumns().size());
+        Assert.assertEquals(1, tableDiff.getAddedIndexes().size());
+
+        String ddl = diff.generateDDL(new AbstractTableGenerator(new DatabaseDescription(newDatabaseMetaData())) {
+        });
+        System.out.println(ddl);
+        Assert.assertTrue(ddl.contains("ALTER TABLE user MODIFY name VARCHAR(64)"));
+        // the index column has no sort order
+        Assert.assertTrue(ddl.contains("CREATE INDEX idx_user_name ON user (name);"));
+    }
+
+    private static SchemaSnapshot newSnapshot(String name, String schema, Table table) {
+        SchemaSnapshot snapshot = new SchemaSnapshot();
+        snapshot.setName(name);
+        snapshot.setSchema(schema);
+        snapshot.addTable(new TableSnapshot(table));
+        return snapshot;
+    }
+
+    private static Table newUserTable(String schema, int nameLength, boolean withIndex) {
+        Table table = new Table();
+        table.setSchema(schema);
+        table.setName("user");
+        table.setTableType(TableType.TABLE);
+        table.addColumn(newColumn(table, "id", JdbcType.BIGINT, "BIGINT", 20, 1));
+        table.addColumn(newColumn(table, "name", JdbcType.VARCHAR, "VARCHAR", nameLength, 2));
+        table.addColumn(newColumn(table, "age", JdbcType.INTEGER, "INT", 11, 3));
+
+        PrimaryKeyColumn pk = new PrimaryKeyColumn();
+        pk.setTableName("user");
+        pk.setColumnName("id");
+        pk.setKeySeq(1);
+        table.addPKColumn(pk);
+
+        if (withIndex) {
+            Index index = new Index(null, schema, "user", "idx_user_name");
+            IndexColumn indexColumn = new IndexColumn();
+            indexColumn.setTableName("user");
+            indexColumn.setIndexName("idx_user_name");
+            indexColumn.setColumnName("name");
+            indexColumn.setOrdinalPosition(1);
+            indexColumn.setNonUnique(true);
+            index.addColumn(indexColumn);
+            table.addIndex(index);
+        }
+        return table;
+    }
+
+    private static Column newColumn(Table table, String name, JdbcType jdbcType, String typeName, int size, int position) {
+        Column column = new Column();
+        column.setSchema(table.getSchema());
+        column.setTableName(table.getName());
+        column.setName(name);
+        column.setJdbcType(jdbcType);
+        column.setTypeName(typeName);
+        column.setSize(size);
+        column.setCharOctetLength(size);
+        column.setOrdinalPosition(position);
+        column.setIsNullable(BooleanFlag.YES);
+        return column;
+    }
+
+    private static DatabaseMetaData newDatabaseMetaData() {
+        return (DatabaseMetaData) Proxy.newProxyInstance(SchemaSnapshotTests.class.getClassLoader(), new Class[]{DatabaseMetaData.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Class returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == String.class) {
+                    return ".";
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                return null;
+            }
+        });
+    }
+}
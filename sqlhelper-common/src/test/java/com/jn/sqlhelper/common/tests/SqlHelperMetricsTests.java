@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.common.tests;
+
+import com.jn.sqlhelper.common.metrics.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SqlHelperMetricsTests {
+
+    @Test
+    public void testRecord() {
+        final List<MetricsSample> stopped = new ArrayList<MetricsSample>();
+        final List<String> counters = new ArrayList<String>();
+        MetricsRecorder previous = SqlHelperMetrics.getRecorder();
+        SqlHelperMetrics.setRecorder(new NoopMetricsRecorder() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public void onStop(MetricsSample sample) {
+                stopped.add(sample);
+            }
+
+            @Override
+            public void increment(String name, long amount, String... tags) {
+                counters.add(name + ":" + amount + ":" + tags[3]);
+            }
+        });
+        try {
+            MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_PARSE).tag(MetricNames.TAG_TYPE, "test");
+            sample.stop();
+            sample.stop();
+            Assert.assertEquals(1, stopped.size());
+            Assert.assertTrue(stopped.get(0).getDuration() >= 0);
+            Assert.assertArrayEquals(new String[]{MetricNames.TAG_TYPE, "test"}, stopped.get(0).getTags());
+
+            SqlHelperMetrics.recordCacheAccess("countSql", true);
+            Assert.assertEquals(MetricNames.CACHE_ACCESS + ":1:hit", counters.get(0));
+        } finally {
+            SqlHelperMetrics.setRecorder(previous);
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        MetricsRecorder previous = SqlHelperMetrics.getRecorder();
+        SqlHelperMetrics.setRecorder(NoopMetricsRecorder.INSTANCE);
+        try {
+            Assert.assertSame(MetricsSample.NOOP, SqlHelperMetrics.start(MetricNames.SQL_PARSE));
+            Assert.assertSame(MetricsSample.NOOP, SqlHelperMetrics.startBatch("SIMPLE", 10));
+        } finally {
+            SqlHelperMetrics.setRecorder(previous);
+        }
+    }
+}
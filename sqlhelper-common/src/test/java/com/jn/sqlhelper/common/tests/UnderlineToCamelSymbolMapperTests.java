@@ -2,6 +2,7 @@ package com.jn.sqlhelper.common.tests;
 
 import com.jn.sqlhelper.common.symbolmapper.SqlSymbolMapper;
 import com.jn.sqlhelper.common.symbolmapper.UnderlineToCamelSymbolMapper;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class UnderlineToCamelSymbolMapperTests {
@@ -12,4 +13,16 @@ public class UnderlineToCamelSymbolMapperTests {
         System.out.println(m.apply("a_bbb_c"));
         System.out.println(m.apply("_BC_c"));
     }
+
+    @Test
+    public void testMapping() {
+        SqlSymbolMapper m = new UnderlineToCamelSymbolMapper();
+        Assert.assertEquals("aBC", m.apply("a_b_c"));
+        Assert.assertEquals("bcC", m.apply("_BC_c"));
+        Assert.assertEquals("userId", m.apply(" USER _ ID__"));
+        Assert.assertEquals("userid", m.apply("userId"));
+        // memoized
+        Assert.assertSame(m.apply("USER_NAME"), new UnderlineToCamelSymbolMapper().apply("USER_NAME"));
+        Assert.assertEquals("", m.apply(""));
+    }
 }
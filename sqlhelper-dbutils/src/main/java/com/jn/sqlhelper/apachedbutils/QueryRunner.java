@@ -19,12 +19,20 @@ import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.Strings;
 import com.jn.langx.util.collection.Collects;
 import com.jn.sqlhelper.apachedbutils.resultset.SelectCountResultSetHandler;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCapabilities;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalogRegistry;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.common.utils.SQLs;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorProvider;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
 import com.jn.sqlhelper.dialect.pagination.*;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouters;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryType;
 import com.jn.sqlhelper.dialect.parameter.ArrayBasedQueryParameters;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.StatementConfiguration;
@@ -130,11 +138,19 @@ public class QueryRunner extends org.apache.commons.dbutils.QueryRunner {
      * Configuration to use when preparing statements.
      */
     private StatementConfiguration stmtConfig;
+    private PagingQueryRouter pagingQueryRouter;
 
     public void setPaginationConfig(DbutilsPaginationProperties paginationConfig) {
         this.paginationConfig = paginationConfig;
     }
 
+    /**
+     * routes the count queries to the replicas
+     */
+    public void setPagingQueryRouter(PagingQueryRouter pagingQueryRouter) {
+        this.pagingQueryRouter = pagingQueryRouter;
+    }
+
     public void setInstrumentConfig(SQLInstrumentorConfig instrumentConfig) {
         if (instrumentConfig == null) {
             instrumentConfig = SQLInstrumentorConfig.DEFAULT;
@@ -407,11 +423,22 @@ public class QueryRunner extends org.apache.commons.dbutils.QueryRunner {
         }
 
         try {
-            if (instrumentor.beginIfSupportsLimit(conn.getMetaData())) {
+            DataSource dataSource = getDataSource();
+            DatabaseCapabilities capabilities = dataSource != null
+                    ? DatabaseCatalogRegistry.getInstance().getCatalog(dataSource).getCapabilities(conn)
+                    : DatabaseCatalogRegistry.getInstance().getCapabilities(conn.getMetaData());
+            if (instrumentor.beginIfSupportsLimit(capabilities)) {
                 boolean needQuery = true;
                 if (needCountInPagingRequest(request)) {
                     String countSql = instrumentor.countSql(sql, request.getCountColumn());
-                    int count = this.query(conn, false, countSql, new SelectCountResultSetHandler(), params);
+                    int count;
+                    MetricsSample countSample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "count").tag(MetricNames.TAG_FRAMEWORK, "dbutils");
+                    try {
+                        Integer routedCount = queryCountOnRoutedDataSource(conn, request, countSql, params);
+                        count = routedCount != null ? routedCount : this.query(conn, false, countSql, new SelectCountResultSetHandler(), params);
+                    } finally {
+                        countSample.stop();
+                    }
                     if (count <= 0) {
                         needQuery = false;
                     }
@@ -484,11 +511,17 @@ public class QueryRunner extends org.apache.commons.dbutils.QueryRunner {
                     PagedPreparedStatementSetter parameterSetter = new PagedPreparedStatementSetter(new DbutilsOriginalPreparedStatementSetter(params));
                     instrumentor.bindParameters(ps, parameterSetter, queryParameters, true);
                     // execute
-                    ResultSet resultSet = this.wrap(ps.executeQuery());
-                    items.addAll((List) rsh.handle(resultSet));
+                    MetricsSample querySample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "page").tag(MetricNames.TAG_FRAMEWORK, "dbutils");
+                    try {
+                        ResultSet resultSet = this.wrap(ps.executeQuery());
+                        items.addAll((List) rsh.handle(resultSet));
+                    } finally {
+                        querySample.stop();
+                    }
                 }
                 request.setPageNo(requestPageNo);
                 result.setPageNo(request.getPageNo());
+                SqlPaginations.peekNextPage(request, result);
                 rs = items;
             } else {
                 return this.query(conn, false, sql, rsh, params);
@@ -499,6 +532,23 @@ public class QueryRunner extends org.apache.commons.dbutils.QueryRunner {
         return (T) rs;
     }
 
+    /**
+     * @param conn the connection of the primary, the count query is not routed if it is in a write transaction
+     * @return the count, null if the count query is not routed, or it failed on the routed data source
+     */
+    private Integer queryCountOnRoutedDataSource(Connection conn, PagingRequest request, String countSql, Object... params) {
+        DataSource routedDataSource = PagingQueryRouters.route(pagingQueryRouter, PagingQueryType.COUNT, request, conn);
+        if (routedDataSource == null) {
+            return null;
+        }
+        try {
+            return this.query(routedDataSource.getConnection(), true, countSql, new SelectCountResultSetHandler(), params);
+        } catch (Throwable ex) {
+            pagingQueryRouter.onError(routedDataSource, PagingQueryType.COUNT, ex);
+            return null;
+        }
+    }
+
     private void invalidatePagingRequest(boolean force) {
         PagingRequest request = PAGING_CONTEXT.getPagingRequest();
         if (request != null) {
@@ -508,6 +558,9 @@ public class QueryRunner extends org.apache.commons.dbutils.QueryRunner {
     }
 
     private boolean needCountInPagingRequest(PagingRequest request) {
+        if (SqlPaginations.isPeekNextPageRequest(request)) {
+            return false;
+        }
         if (request.needCount() == null) {
             return paginationConfig.isCount();
         }
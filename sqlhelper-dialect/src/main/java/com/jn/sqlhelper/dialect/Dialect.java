@@ -16,8 +16,10 @@ package com.jn.sqlhelper.dialect;
 
 import com.jn.langx.annotation.NonNull;
 import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.internal.urlparser.UrlParser;
 import com.jn.sqlhelper.dialect.likeescaper.LikeEscaper;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 
 import java.sql.CallableStatement;
@@ -145,6 +147,33 @@ public interface Dialect extends LikeEscaper {
 
     boolean isSupportsBatchSql();
 
+    /**
+     * Whether the query plan of a select can be shown, see {@link #getQueryPlanExplainer()}
+     */
+    boolean isSupportsExplain();
+
+    /**
+     * @return the explainer that shows the query plan of a select, e.g. the original, the paged or the count statement
+     * that is produced by {@link com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor}, null if it is not supported
+     */
+    QueryPlanExplainer getQueryPlanExplainer();
+
+    /**
+     * @return the max count of the values in an IN list, a longer list should be split into chunks.
+     * It is also bounded by the max count of the bind parameters of a statement on some databases
+     */
+    int getMaxInListSize();
+
+    /**
+     * Whether the rows can be inserted or updated by a statement, see {@link #getUpsertRenderer()}
+     */
+    boolean isSupportsUpsert();
+
+    /**
+     * @return the renderer of the upsert statements, null if it is not supported
+     */
+    UpsertRenderer getUpsertRenderer();
+
     String generateTableDDL(@NonNull DatabaseDescription database, String catalog, String schema, @NonNull String tableName) throws SQLException;
 
     UrlParser getUrlParser();
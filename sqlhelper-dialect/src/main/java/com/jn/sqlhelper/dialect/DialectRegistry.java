@@ -24,9 +24,11 @@ import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.collection.Pipeline;
 import com.jn.langx.util.function.Functions;
 import com.jn.langx.util.function.Predicate;
+import com.jn.langx.util.function.Supplier0;
 import com.jn.langx.util.reflect.Reflects;
 import com.jn.langx.util.struct.Holder;
 import com.jn.sqlhelper.common.ddl.SQLSyntaxCompatTable;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCapabilities;
 import com.jn.sqlhelper.common.utils.Connections;
 import com.jn.sqlhelper.dialect.annotation.Driver;
 import com.jn.sqlhelper.dialect.annotation.SyntaxCompat;
@@ -494,43 +496,82 @@ public class DialectRegistry {
     }
 
     public Dialect getDialectByDatabaseMetadata(final DatabaseMetaData databaseMetaData) {
-        Dialect dialect = null;
-        if (databaseMetaData != null) {
-            String databaseIdString = databaseIdStringLowerCase(databaseMetaData);
-            try {
-                dialect = ((Holder<Dialect>) DialectRegistry.dbToDialectMap.get(databaseIdString)).get();
-            } catch (NullPointerException ex) {
-                // ignore
+        if (databaseMetaData == null) {
+            return null;
+        }
+        return getDialectByDatabaseIdString(databaseIdStringLowerCase(databaseMetaData), new Supplier0<String>() {
+            @Override
+            public String get() {
+                try {
+                    return databaseMetaData.getDatabaseProductVersion();
+                } catch (Throwable ex) {
+                    return null;
+                }
             }
-            if (dialect == null) {
-                Enumeration<String> keys = (Enumeration<String>) vendorDatabaseIdMappings.propertyNames();
-                while (keys.hasMoreElements()) {
-                    String key = keys.nextElement();
-                    if (databaseIdString.contains(key.toLowerCase())) {
-                        dialect = getDialectByName(vendorDatabaseIdMappings.getProperty(key));
-                        if (dialect != null) {
-                            dbToDialectMap.put(databaseIdString, new Holder<Dialect>(dialect));
-                            break;
-                        }
+        });
+    }
+
+    /**
+     * finds the dialect with the cached capabilities, without touching the {@link DatabaseMetaData}
+     */
+    public Dialect getDialectByDatabaseCapabilities(final DatabaseCapabilities capabilities) {
+        if (capabilities == null) {
+            return null;
+        }
+        String databaseIdString = capabilities.getDatabaseProductName();
+        if (Strings.isEmpty(databaseIdString) && capabilities.getDriverName() != null) {
+            String driverVersion = capabilities.getDriverVersion();
+            databaseIdString = capabilities.getDriverName().toLowerCase() + " version: " + (driverVersion == null ? "" : driverVersion.toLowerCase());
+        }
+        if (Strings.isEmpty(databaseIdString)) {
+            databaseIdString = capabilities.getUrl();
+        }
+        if (Strings.isEmpty(databaseIdString)) {
+            return null;
+        }
+        return getDialectByDatabaseIdString(databaseIdString.toLowerCase(), new Supplier0<String>() {
+            @Override
+            public String get() {
+                return capabilities.getDatabaseProductVersion();
+            }
+        });
+    }
+
+    private Dialect getDialectByDatabaseIdString(String databaseIdString, Supplier0<String> productVersionSupplier) {
+        Dialect dialect = null;
+        try {
+            dialect = ((Holder<Dialect>) DialectRegistry.dbToDialectMap.get(databaseIdString)).get();
+        } catch (NullPointerException ex) {
+            // ignore
+        }
+        if (dialect == null) {
+            Enumeration<String> keys = (Enumeration<String>) vendorDatabaseIdMappings.propertyNames();
+            while (keys.hasMoreElements()) {
+                String key = keys.nextElement();
+                if (databaseIdString.contains(key.toLowerCase())) {
+                    dialect = getDialectByName(vendorDatabaseIdMappings.getProperty(key));
+                    if (dialect != null) {
+                        dbToDialectMap.put(databaseIdString, new Holder<Dialect>(dialect));
+                        break;
                     }
                 }
             }
+        }
 
-            // sqlserver
-            if (dialect == null) {
-                if (Strings.containsAny(databaseIdString.toLowerCase(), "sql server") || Strings.containsAny(databaseIdString.toLowerCase(), "sqlserver")) {
-                    try {
-                        String productionVersion = databaseMetaData.getDatabaseProductVersion();
-                        String tmpDatabaseId = SQLServerDialect.guessDatabaseId(productionVersion);
-                        if (Emptys.isNotEmpty(tmpDatabaseId)) {
-                            dialect = getDialectByName(vendorDatabaseIdMappings.getProperty(tmpDatabaseId));
-                            if (dialect != null) {
-                                dbToDialectMap.put(databaseIdString, new Holder<Dialect>(dialect));
-                            }
+        // sqlserver
+        if (dialect == null) {
+            if (Strings.containsAny(databaseIdString.toLowerCase(), "sql server") || Strings.containsAny(databaseIdString.toLowerCase(), "sqlserver")) {
+                try {
+                    String productionVersion = productVersionSupplier.get();
+                    String tmpDatabaseId = SQLServerDialect.guessDatabaseId(productionVersion);
+                    if (Emptys.isNotEmpty(tmpDatabaseId)) {
+                        dialect = getDialectByName(vendorDatabaseIdMappings.getProperty(tmpDatabaseId));
+                        if (dialect != null) {
+                            dbToDialectMap.put(databaseIdString, new Holder<Dialect>(dialect));
                         }
-                    } catch (Throwable ex) {
-                        // ignore it
                     }
+                } catch (Throwable ex) {
+                    // ignore it
                 }
             }
         }
@@ -8,6 +8,10 @@ import java.util.Map;
 
 public class SqlRequestContext<R extends SqlRequest> extends BasedStringAccessor<String, Map<String, Object>> {
     private R request;
+    /**
+     * the dialect that used by current request, it is set by the instrumentor
+     */
+    private transient Dialect dialect;
 
     public SqlRequestContext() {
         setTarget(new HashMap<String, Object>());
@@ -38,6 +42,14 @@ public class SqlRequestContext<R extends SqlRequest> extends BasedStringAccessor
         getTarget().put(key, value);
     }
 
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    public void setDialect(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
     public boolean isPagingRequest() {
         return false;
     }
@@ -61,6 +73,7 @@ public class SqlRequestContext<R extends SqlRequest> extends BasedStringAccessor
             request.clear();
         }
         request = null;
+        dialect = null;
     }
 
 }
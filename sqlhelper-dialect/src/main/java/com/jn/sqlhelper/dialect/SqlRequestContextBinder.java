@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect;
+
+/**
+ * Binds the current {@link SqlRequestContext} to the execution unit (a thread, a virtual thread, a scope ...).
+ * <p>
+ * The default implementation is {@link ThreadLocalSqlRequestContextBinder}, you can replace it with
+ * {@link SqlRequestContextHolder#setBinder(SqlRequestContextBinder)}, e.g. a binder based on scoped values or on the
+ * reactive subscriber context.
+ */
+public interface SqlRequestContextBinder {
+    /**
+     * @return the bound context, null if nothing bound
+     */
+    SqlRequestContext get();
+
+    void bind(SqlRequestContext context);
+
+    void unbind();
+}
@@ -1,28 +1,55 @@
 package com.jn.sqlhelper.dialect;
 
+import com.jn.langx.annotation.NonNull;
 import com.jn.langx.util.Objects;
+import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.function.Consumer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class SqlRequestContextHolder {
-    private static final Logger logger = LoggerFactory.getLogger(SqlRequestContextHolder.class);
+    /**
+     * the thread local of the default binder
+     *
+     * @deprecated use {@link #get()} and {@link #bind(SqlRequestContext)}, it is not used if the binder is replaced
+     */
+    @Deprecated
     protected static final ThreadLocal<SqlRequestContext> variables = new ThreadLocal<SqlRequestContext>();
 
+    private static volatile SqlRequestContextBinder binder = new ThreadLocalSqlRequestContextBinder(variables);
+
     private static final SqlRequestContextHolder INSTANCE = new SqlRequestContextHolder();
 
     public static SqlRequestContextHolder getInstance() {
         return INSTANCE;
     }
 
+    public static SqlRequestContextBinder getBinder() {
+        return binder;
+    }
+
+    /**
+     * replace the default thread local binder, should be called at the application startup
+     */
+    public static void setBinder(@NonNull SqlRequestContextBinder newBinder) {
+        Preconditions.checkNotNull(newBinder);
+        binder = newBinder;
+    }
+
     public SqlRequestContext get() {
-        return variables.get();
+        return binder.get();
+    }
+
+    /**
+     * bind a context explicitly, the context can be passed from another thread
+     */
+    public void bind(SqlRequestContext context) {
+        binder.bind(context);
     }
 
     public boolean isOrderByRequest() {
         SqlRequestContext ctx = get();
         return Objects.isNotNull(ctx) && ctx.isOrderByRequest();
     }
+
     public void setSqlRequest(final SqlRequest request) {
         setContextContent(new Consumer<SqlRequestContext>() {
             @Override
@@ -32,29 +59,48 @@ public class SqlRequestContextHolder {
             }
         });
     }
-    private <X> void setContextContent(Consumer<SqlRequestContext> consumer) {
-        SqlRequestContext context = get();
-        try {
-            if (Objects.isNull(context)) {
-                context = SqlRequestContext.class.newInstance();
-                if (Objects.isNull(context)) {
-                    variables.remove();
-                }
+
+    public Dialect getDialect() {
+        SqlRequestContext ctx = get();
+        return Objects.isNull(ctx) ? null : ctx.getDialect();
+    }
+
+    public void setDialect(final Dialect dialect) {
+        setContextContent(new Consumer<SqlRequestContext>() {
+            @Override
+            public void accept(SqlRequestContext context) {
+                context.setDialect(dialect);
             }
-            if (Objects.isNotNull(context)) {
-                variables.set(context);
-                consumer.accept(context);
+        });
+    }
+
+    /**
+     * remove the dialect, the context will be unbound if it is used for the dialect only
+     */
+    public void removeDialect() {
+        SqlRequestContext ctx = get();
+        if (Objects.isNotNull(ctx)) {
+            ctx.setDialect(null);
+            if (Objects.isNull(ctx.getRequest())) {
+                binder.unbind();
             }
-        } catch (Throwable ex) {
-            logger.error(ex.getMessage(), ex);
         }
     }
 
-    public void clear(){
+    private void setContextContent(Consumer<SqlRequestContext> consumer) {
+        SqlRequestContext context = get();
+        if (Objects.isNull(context)) {
+            context = new SqlRequestContext();
+            binder.bind(context);
+        }
+        consumer.accept(context);
+    }
+
+    public void clear() {
         SqlRequestContext requestContext = get();
-        if(Objects.isNotNull(requestContext)){
+        if (Objects.isNotNull(requestContext)) {
             requestContext.clear();
         }
-        variables.remove();
+        binder.unbind();
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Explicit propagation of a {@link SqlRequestContext}.
+ * <p>
+ * The context will be bound only during the task execution, the previous binding will be restored after it.
+ * The propagated context is shared, not copied, so do not run two paging queries with the same context at the same time.
+ * <pre>
+ *     final SqlRequestContext context = SqlRequestContextHolder.getInstance().get();
+ *     CompletableFuture.supplyAsync(supplier, SqlRequestContexts.wrap(executor));
+ *     SqlRequestContexts.callWith(context, callable);
+ * </pre>
+ */
+public class SqlRequestContexts {
+    private SqlRequestContexts() {
+    }
+
+    public static <V> V callWith(@Nullable SqlRequestContext context, @NonNull Callable<V> task) throws Exception {
+        Preconditions.checkNotNull(task);
+        SqlRequestContextHolder holder = SqlRequestContextHolder.getInstance();
+        SqlRequestContext previous = holder.get();
+        holder.bind(context);
+        try {
+            return task.call();
+        } finally {
+            holder.bind(previous);
+        }
+    }
+
+    public static void runWith(@Nullable SqlRequestContext context, @NonNull Runnable task) {
+        Preconditions.checkNotNull(task);
+        SqlRequestContextHolder holder = SqlRequestContextHolder.getInstance();
+        SqlRequestContext previous = holder.get();
+        holder.bind(context);
+        try {
+            task.run();
+        } finally {
+            holder.bind(previous);
+        }
+    }
+
+    /**
+     * Captures the current context, and binds it when the returned task running
+     */
+    public static Runnable wrap(@NonNull final Runnable task) {
+        final SqlRequestContext context = SqlRequestContextHolder.getInstance().get();
+        return new Runnable() {
+            @Override
+            public void run() {
+                runWith(context, task);
+            }
+        };
+    }
+
+    /**
+     * Captures the current context, and binds it when the returned task running
+     */
+    public static <V> Callable<V> wrap(@NonNull final Callable<V> task) {
+        final SqlRequestContext context = SqlRequestContextHolder.getInstance().get();
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return callWith(context, task);
+            }
+        };
+    }
+
+    /**
+     * Every task submitted to the returned executor will run with the context of the submitter
+     */
+    public static Executor wrap(@NonNull final Executor executor) {
+        Preconditions.checkNotNull(executor);
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executor.execute(wrap(command));
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect;
+
+public class ThreadLocalSqlRequestContextBinder implements SqlRequestContextBinder {
+    private final ThreadLocal<SqlRequestContext> variables;
+
+    public ThreadLocalSqlRequestContextBinder() {
+        this(new ThreadLocal<SqlRequestContext>());
+    }
+
+    ThreadLocalSqlRequestContextBinder(ThreadLocal<SqlRequestContext> variables) {
+        this.variables = variables;
+    }
+
+    @Override
+    public SqlRequestContext get() {
+        return variables.get();
+    }
+
+    @Override
+    public void bind(SqlRequestContext context) {
+        if (context == null) {
+            variables.remove();
+        } else {
+            variables.set(context);
+        }
+    }
+
+    @Override
+    public void unbind() {
+        variables.remove();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class AbstractQueryPlanExplainer implements QueryPlanExplainer {
+
+    protected static <P> void setParameters(PreparedStatement statement, @Nullable PreparedStatementSetter<P> parametersSetter, @Nullable P parameters) throws SQLException {
+        if (parametersSetter != null) {
+            parametersSetter.setParameters(statement, 1, parameters);
+        }
+    }
+
+    protected static QueryPlan readPlan(String sql, boolean analyzed, ResultSet resultSet) throws SQLException {
+        List<String> columns = new ArrayList<String>();
+        List<String[]> rows = new ArrayList<String[]>();
+        readRows(resultSet, columns, rows);
+        return new QueryPlan(sql, analyzed, columns, rows);
+    }
+
+    /**
+     * reads the rows of the result sets of the statement, the columns are the columns of the first one
+     *
+     * @param skipResultSets the count of the result sets that are skipped, e.g. the rows of the query
+     */
+    protected static QueryPlan readPlan(String sql, boolean analyzed, Statement statement, boolean hasResultSet, int skipResultSets) throws SQLException {
+        List<String> columns = new ArrayList<String>();
+        List<String[]> rows = new ArrayList<String[]>();
+        int resultSetIndex = 0;
+        boolean hasMoreResults = hasResultSet;
+        while (hasMoreResults || statement.getUpdateCount() != -1) {
+            if (hasMoreResults) {
+                ResultSet resultSet = statement.getResultSet();
+                try {
+                    if (resultSetIndex >= skipResultSets) {
+                        readRows(resultSet, columns, rows);
+                    }
+                } finally {
+                    resultSet.close();
+                }
+                resultSetIndex++;
+            }
+            hasMoreResults = statement.getMoreResults();
+        }
+        return new QueryPlan(sql, analyzed, columns, rows);
+    }
+
+    private static void readRows(ResultSet resultSet, List<String> columns, List<String[]> rows) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        if (columns.isEmpty()) {
+            for (int i = 1; i <= columnCount; i++) {
+                columns.add(metaData.getColumnLabel(i));
+            }
+        }
+        while (resultSet.next()) {
+            String[] row = new String[columnCount];
+            for (int i = 1; i <= columnCount; i++) {
+                row[i - 1] = resultSet.getString(i);
+            }
+            rows.add(row);
+        }
+    }
+
+    /**
+     * reads all the rows of the query, they are dropped
+     */
+    protected static void drain(ResultSet resultSet) throws SQLException {
+        while (resultSet.next()) {
+            // the rows are fetched only
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * EXPLAIN ANALYZE is supported by MySQL 8.0.18+ only. The version of the server is checked before a query is analyzed:
+ * an older MySQL shows the estimated plan, a MariaDB server (it is connected by a mysql url also) is analyzed with
+ * {@link PrefixQueryPlanExplainer#MARIADB}.
+ */
+public class MySQLQueryPlanExplainer extends PrefixQueryPlanExplainer {
+    public static final MySQLQueryPlanExplainer INSTANCE = new MySQLQueryPlanExplainer();
+
+    public MySQLQueryPlanExplainer() {
+        super("EXPLAIN ", "EXPLAIN ANALYZE ");
+    }
+
+    @Override
+    public <P> QueryPlan explain(Connection connection, String sql, PreparedStatementSetter<P> parametersSetter, P parameters, boolean analyze) throws SQLException {
+        if (analyze) {
+            String version = connection.getMetaData().getDatabaseProductVersion();
+            if (isMariaDB(version)) {
+                return MARIADB.explain(connection, sql, parametersSetter, parameters, true);
+            }
+            analyze = isExplainAnalyzeSupported(version);
+        }
+        return super.explain(connection, sql, parametersSetter, parameters, analyze);
+    }
+
+    /**
+     * @param version the product version of the server, e.g. 5.5.5-10.4.12-MariaDB
+     */
+    public static boolean isMariaDB(String version) {
+        return version != null && version.toLowerCase().contains("mariadb");
+    }
+
+    /**
+     * @param version the product version of the MySQL server, e.g. 8.0.21-log
+     */
+    public static boolean isExplainAnalyzeSupported(String version) {
+        if (version == null) {
+            return false;
+        }
+        int[] numbers = new int[3];
+        int index = 0;
+        for (int i = 0; i < version.length() && index < numbers.length; i++) {
+            char c = version.charAt(i);
+            if (Character.isDigit(c)) {
+                numbers[index] = numbers[index] * 10 + (c - '0');
+            } else if (c == '.') {
+                index++;
+            } else {
+                break;
+            }
+        }
+        if (numbers[0] != 8) {
+            return numbers[0] > 8;
+        }
+        return numbers[1] > 0 || numbers[2] >= 18;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Oracle:
+ * <pre>
+ * explain: EXPLAIN PLAN SET STATEMENT_ID = 'id' FOR select ...
+ *          SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, 'id', 'TYPICAL'))
+ * analyze: select /*+ GATHER_PLAN_STATISTICS *&#47; ...
+ *          SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY_CURSOR(NULL, NULL, 'ALLSTATS LAST'))
+ * </pre>
+ * The rows of the PLAN_TABLE are deleted after they are displayed.
+ */
+public class OracleQueryPlanExplainer extends AbstractQueryPlanExplainer {
+    public static final OracleQueryPlanExplainer INSTANCE = new OracleQueryPlanExplainer();
+    private static final Pattern LEADING_SELECT = Pattern.compile("^\\s*select\\b", Pattern.CASE_INSENSITIVE);
+    private static final AtomicLong STATEMENT_ID_SEQUENCE = new AtomicLong();
+
+    @Override
+    public boolean isSupportsAnalyze() {
+        return true;
+    }
+
+    @Override
+    public <P> QueryPlan explain(Connection connection, String sql, PreparedStatementSetter<P> parametersSetter, P parameters, boolean analyze) throws SQLException {
+        return analyze ? analyze(connection, sql, parametersSetter, parameters) : explain(connection, sql, parametersSetter, parameters);
+    }
+
+    private <P> QueryPlan explain(Connection connection, String sql, PreparedStatementSetter<P> parametersSetter, P parameters) throws SQLException {
+        String statementId = "SQLHELPER_" + STATEMENT_ID_SEQUENCE.incrementAndGet();
+        PreparedStatement statement = null;
+        Statement planStatement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement("EXPLAIN PLAN SET STATEMENT_ID = '" + statementId + "' FOR " + sql);
+            // the parameters are not used by the plan, but the driver requires them
+            setParameters(statement, parametersSetter, parameters);
+            statement.execute();
+            planStatement = connection.createStatement();
+            resultSet = planStatement.executeQuery("SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, '" + statementId + "', 'TYPICAL'))");
+            return readPlan(sql, false, resultSet);
+        } finally {
+            IOs.close(resultSet);
+            IOs.close(statement);
+            if (planStatement != null) {
+                try {
+                    planStatement.executeUpdate("DELETE FROM PLAN_TABLE WHERE STATEMENT_ID = '" + statementId + "'");
+                } catch (SQLException ex) {
+                    // the plan table is a temporary table since 10g, the rows are dropped with the session at last
+                }
+                IOs.close(planStatement);
+            }
+        }
+    }
+
+    private <P> QueryPlan analyze(Connection connection, String sql, PreparedStatementSetter<P> parametersSetter, P parameters) throws SQLException {
+        PreparedStatement statement = null;
+        Statement planStatement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(withGatherPlanStatistics(sql));
+            setParameters(statement, parametersSetter, parameters);
+            resultSet = statement.executeQuery();
+            drain(resultSet);
+            IOs.close(resultSet);
+            // the last cursor of the session is the query
+            planStatement = connection.createStatement();
+            resultSet = planStatement.executeQuery("SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY_CURSOR(NULL, NULL, 'ALLSTATS LAST'))");
+            return readPlan(sql, true, resultSet);
+        } finally {
+            IOs.close(resultSet);
+            IOs.close(statement);
+            IOs.close(planStatement);
+        }
+    }
+
+    /**
+     * the actual rows of the plan steps are collected with the hint, a query that starts with WITH is not hinted
+     */
+    private static String withGatherPlanStatistics(String sql) {
+        Matcher matcher = LEADING_SELECT.matcher(sql);
+        if (!matcher.find()) {
+            return sql;
+        }
+        return sql.substring(0, matcher.end()) + " /*+ GATHER_PLAN_STATISTICS */" + sql.substring(matcher.end());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The plan is the result of the query that is prefixed with the EXPLAIN keyword:
+ * <pre>
+ * MySQL:      EXPLAIN select ...      EXPLAIN ANALYZE select ... (8.0.18+), see {@link MySQLQueryPlanExplainer}
+ * MariaDB:    EXPLAIN select ...      ANALYZE select ... (10.1+)
+ * PostgreSQL: EXPLAIN select ...      EXPLAIN (ANALYZE, BUFFERS) select ...
+ * H2:         EXPLAIN select ...      EXPLAIN ANALYZE select ...
+ * </pre>
+ */
+public class PrefixQueryPlanExplainer extends AbstractQueryPlanExplainer {
+    public static final PrefixQueryPlanExplainer MARIADB = new PrefixQueryPlanExplainer("EXPLAIN ", "ANALYZE ");
+    public static final PrefixQueryPlanExplainer POSTGRESQL = new PrefixQueryPlanExplainer("EXPLAIN ", "EXPLAIN (ANALYZE, BUFFERS) ");
+    public static final PrefixQueryPlanExplainer H2 = new PrefixQueryPlanExplainer("EXPLAIN ", "EXPLAIN ANALYZE ");
+
+    private final String explainPrefix;
+    @Nullable
+    private final String analyzePrefix;
+
+    /**
+     * @param explainPrefix the prefix that shows the estimated plan
+     * @param analyzePrefix the prefix that executes the query and shows the actual plan, null if it is not supported
+     */
+    public PrefixQueryPlanExplainer(String explainPrefix, @Nullable String analyzePrefix) {
+        this.explainPrefix = explainPrefix;
+        this.analyzePrefix = analyzePrefix;
+    }
+
+    @Override
+    public boolean isSupportsAnalyze() {
+        return analyzePrefix != null;
+    }
+
+    public String getExplainSql(String sql, boolean analyze) {
+        return (analyze && isSupportsAnalyze() ? analyzePrefix : explainPrefix) + sql;
+    }
+
+    @Override
+    public <P> QueryPlan explain(Connection connection, String sql, PreparedStatementSetter<P> parametersSetter, P parameters, boolean analyze) throws SQLException {
+        boolean analyzed = analyze && isSupportsAnalyze();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(getExplainSql(sql, analyzed));
+            setParameters(statement, parametersSetter, parameters);
+            resultSet = statement.executeQuery();
+            return readPlan(sql, analyzed, resultSet);
+        } finally {
+            IOs.close(resultSet);
+            IOs.close(statement);
+        }
+    }
+}
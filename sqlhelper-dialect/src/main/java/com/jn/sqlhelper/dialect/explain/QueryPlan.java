@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.langx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows of the query plan of a statement, they are in the format of the database.
+ */
+public class QueryPlan {
+    private final String sql;
+    private final boolean analyzed;
+    private final List<String> columns;
+    private final List<String[]> rows;
+
+    public QueryPlan(@NonNull String sql, boolean analyzed, @NonNull List<String> columns, @NonNull List<String[]> rows) {
+        this.sql = sql;
+        this.analyzed = analyzed;
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * @return the statement that is explained
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return true if the statement is executed, the plan has the actual rows and times
+     */
+    public boolean isAnalyzed() {
+        return analyzed;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<String[]> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the plan as text, the header line is the column names, the values of a row are separated by ' | '
+     */
+    public String getText() {
+        StringBuilder builder = new StringBuilder(256);
+        appendLine(builder, columns.toArray(new String[columns.size()]));
+        for (String[] row : rows) {
+            builder.append("\n");
+            appendLine(builder, row);
+        }
+        return builder.toString();
+    }
+
+    private static void appendLine(StringBuilder builder, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            builder.append(i > 0 ? " | " : "").append(values[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Shows the query plan of a select with the EXPLAIN of a database, see {@link com.jn.sqlhelper.dialect.Dialect#getQueryPlanExplainer()}.
+ * The connection is borrowed only, it is not closed, and the session settings that are changed are restored.
+ */
+public interface QueryPlanExplainer {
+    /**
+     * Whether the query can be executed to show the actual rows and times of the plan
+     */
+    boolean isSupportsAnalyze();
+
+    /**
+     * @param connection       the connection of the database
+     * @param sql              a select statement, e.g. the original, the paged or the count statement,
+     *                         it must not change the data if it is analyzed, because it is executed
+     * @param parametersSetter binds the parameters of the statement from the index 1, null if it has no parameters
+     * @param parameters       the parameters of the statement
+     * @param analyze          execute the statement to show the actual rows and times,
+     *                         it is ignored if it is not supported
+     * @return the query plan
+     */
+    <P> QueryPlan explain(@NonNull Connection connection, @NonNull String sql, @Nullable PreparedStatementSetter<P> parametersSetter, @Nullable P parameters, boolean analyze) throws SQLException;
+}
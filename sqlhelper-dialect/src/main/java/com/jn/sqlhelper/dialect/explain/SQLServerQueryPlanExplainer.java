@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.explain;
+
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQL Server, the plan is shown by a session option, the option is turned off at last:
+ * <pre>
+ * explain: SET SHOWPLAN_TEXT ON, the query is compiled but not executed, the plan rows are returned instead
+ * analyze: SET STATISTICS PROFILE ON, the query is executed, the plan rows follow the rows of the query
+ * </pre>
+ */
+public class SQLServerQueryPlanExplainer extends AbstractQueryPlanExplainer {
+    public static final SQLServerQueryPlanExplainer INSTANCE = new SQLServerQueryPlanExplainer();
+
+    @Override
+    public boolean isSupportsAnalyze() {
+        return true;
+    }
+
+    @Override
+    public <P> QueryPlan explain(Connection connection, String sql, PreparedStatementSetter<P> parametersSetter, P parameters, boolean analyze) throws SQLException {
+        String option = analyze ? "STATISTICS PROFILE" : "SHOWPLAN_TEXT";
+        Statement optionStatement = connection.createStatement();
+        PreparedStatement statement = null;
+        try {
+            // it must be the only statement of the batch
+            optionStatement.execute("SET " + option + " ON");
+            statement = connection.prepareStatement(sql);
+            setParameters(statement, parametersSetter, parameters);
+            boolean hasResultSet = statement.execute();
+            // SHOWPLAN_TEXT: the text of the statement, the plan; STATISTICS PROFILE: the rows of the query, the plan
+            return readPlan(sql, analyze, statement, hasResultSet, 1);
+        } finally {
+            IOs.close(statement);
+            try {
+                optionStatement.execute("SET " + option + " OFF");
+            } finally {
+                IOs.close(optionStatement);
+            }
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.inlist;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A sql whose parameter IN lists, e.g. 'id IN (?, ?, ?)', are rewritten:
+ * <pre>
+ * 1) padding: a list is padded to the next power of two by repeating its last parameter,
+ *    so the lists of 5, 6, 7, 8 values have the same sql text and share the statement caches
+ * 2) splitting: a list that is longer than the max size of the database (e.g. 1000 of Oracle) is split into
+ *    '(id IN (...) OR id IN (...))', or '(id NOT IN (...) AND id NOT IN (...))',
+ *    it is split only if the left operand is a column
+ * </pre>
+ * Only the lists of '?' parameters are rewritten, the quoted strings and the comments are skipped.
+ * The parameters of the rewritten sql are the original parameters, use {@link #bindParameters(List)} to get them.
+ */
+public class InListSql {
+    /**
+     * used if the dialect is unknown, it is the limit of Oracle
+     */
+    public static final int DEFAULT_MAX_IN_LIST_SIZE = 1000;
+    private static final Set<String> KEYWORDS_BEFORE_OPERAND = new HashSet<String>(Arrays.asList("WHERE", "AND", "OR", "ON", "HAVING", "WHEN", "THEN", "ELSE", "NOT", "SELECT"));
+
+    private final String sql;
+    private final boolean changed;
+    private final int originalParameterCount;
+    /**
+     * the 0-based index of the original parameter that every parameter of the sql is bound
+     */
+    @Nullable
+    private final int[] parameterIndexes;
+
+    private InListSql(String sql, boolean changed, int originalParameterCount, int[] parameterIndexes) {
+        this.sql = sql;
+        this.changed = changed;
+        this.originalParameterCount = originalParameterCount;
+        this.parameterIndexes = parameterIndexes;
+    }
+
+    /**
+     * @param sql           the sql
+     * @param maxInListSize the max count of the values of an IN list, see {@link com.jn.sqlhelper.dialect.Dialect#getMaxInListSize()}
+     */
+    public static InListSql of(@NonNull String sql, int maxInListSize) {
+        Preconditions.checkNotNull(sql);
+        Preconditions.checkTrue(maxInListSize > 0, "the max size of an in list must be greater than 0");
+        return new Rewriter(sql, maxInListSize).rewrite();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the count of the '?' parameters of the original sql
+     */
+    public int getOriginalParameterCount() {
+        return originalParameterCount;
+    }
+
+    /**
+     * @return the count of the '?' parameters of the rewritten sql
+     */
+    public int getParameterCount() {
+        return changed ? parameterIndexes.length : originalParameterCount;
+    }
+
+    /**
+     * @return the 0-based index of the original parameter that the i-th parameter of the sql will be bound
+     */
+    public int getParameterIndex(int i) {
+        return changed ? parameterIndexes[i] : i;
+    }
+
+    /**
+     * @param parameters the parameters of the original sql
+     * @return the parameters of the rewritten sql
+     */
+    public List<Object> bindParameters(@Nullable List<?> parameters) {
+        if (!changed) {
+            return parameters == null ? new ArrayList<Object>() : new ArrayList<Object>(parameters);
+        }
+        Preconditions.checkTrue(parameters != null && parameters.size() == originalParameterCount, "the count of the parameters is not the count of the '?' of the sql");
+        List<Object> result = new ArrayList<Object>(parameterIndexes.length);
+        for (int parameterIndex : parameterIndexes) {
+            result.add(parameters.get(parameterIndex));
+        }
+        return result;
+    }
+
+    private static class Rewriter {
+        private final String sql;
+        private final int maxInListSize;
+        private final StringBuilder builder;
+        private int[] parameterIndexes = new int[16];
+        private int parameterCount = 0;
+        private int originalParameterCount = 0;
+        private boolean changed = false;
+        /**
+         * the sql before it is appended to the builder as it is
+         */
+        private int verbatimStart = 0;
+
+        private Rewriter(String sql, int maxInListSize) {
+            this.sql = sql;
+            this.maxInListSize = maxInListSize;
+            this.builder = new StringBuilder(sql.length() + 16);
+        }
+
+        private InListSql rewrite() {
+            int length = sql.length();
+            int i = 0;
+            while (i < length) {
+                char c = sql.charAt(i);
+                if (c == '\'' || c == '"' || c == '`') {
+                    i = skipQuoted(i, c);
+                    continue;
+                }
+                if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                    int end = sql.indexOf('\n', i);
+                    i = end < 0 ? length : end;
+                    continue;
+                }
+                if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                    int end = sql.indexOf("*/", i + 2);
+                    i = end < 0 ? length : end + 2;
+                    continue;
+                }
+                if (c == '?') {
+                    addParameter(originalParameterCount);
+                    originalParameterCount++;
+                    i++;
+                    continue;
+                }
+                if ((c == 'i' || c == 'I') && isKeyword(i, "IN")) {
+                    i = rewriteInList(i);
+                    continue;
+                }
+                i++;
+            }
+            if (!changed) {
+                return new InListSql(sql, false, originalParameterCount, null);
+            }
+            builder.append(sql, verbatimStart, length);
+            int[] indexes = new int[parameterCount];
+            System.arraycopy(parameterIndexes, 0, indexes, 0, parameterCount);
+            return new InListSql(builder.toString(), true, originalParameterCount, indexes);
+        }
+
+        /**
+         * @param inStart the start of the 'IN' keyword
+         * @return the index to continue
+         */
+        private int rewriteInList(int inStart) {
+            int i = skipWhitespaces(inStart + 2);
+            if (i >= sql.length() || sql.charAt(i) != '(') {
+                return inStart + 2;
+            }
+            int listStart = i;
+            // a list of '?' only
+            int count = 0;
+            i = skipWhitespaces(i + 1);
+            while (i < sql.length() && sql.charAt(i) == '?') {
+                count++;
+                i = skipWhitespaces(i + 1);
+                if (i >= sql.length() || sql.charAt(i) != ',') {
+                    break;
+                }
+                i = skipWhitespaces(i + 1);
+                if (i >= sql.length() || sql.charAt(i) != '?') {
+                    return inStart + 2;
+                }
+            }
+            if (count == 0 || i >= sql.length() || sql.charAt(i) != ')') {
+                return inStart + 2;
+            }
+            int listEnd = i + 1;
+            int firstParameter = originalParameterCount;
+            originalParameterCount += count;
+
+            if (count <= maxInListSize) {
+                int bucket = bucketSize(count);
+                if (bucket == count) {
+                    addParameters(firstParameter, count, count);
+                    return listEnd;
+                }
+                builder.append(sql, verbatimStart, listStart);
+                appendInList(firstParameter, count, bucket);
+                verbatimStart = listEnd;
+                changed = true;
+                return listEnd;
+            }
+
+            // split it
+            int operatorStart = inStart;
+            boolean not = false;
+            int beforeIn = skipWhitespacesBackward(inStart);
+            if (beforeIn >= 3 && isKeyword(beforeIn - 3, "NOT")) {
+                not = true;
+                operatorStart = beforeIn - 3;
+            }
+            int operandEnd = skipWhitespacesBackward(operatorStart);
+            int operandStart = findColumnStart(operandEnd);
+            if (operandStart < 0 || operandStart < verbatimStart || !isOperandBoundary(operandStart)) {
+                addParameters(firstParameter, count, count);
+                return listEnd;
+            }
+            String operand = sql.substring(operandStart, operandEnd);
+            builder.append(sql, verbatimStart, operandStart);
+            builder.append('(');
+            int offset = 0;
+            while (offset < count) {
+                if (offset > 0) {
+                    builder.append(not ? " AND " : " OR ");
+                }
+                int chunk = Math.min(maxInListSize, count - offset);
+                builder.append(operand).append(not ? " NOT IN " : " IN ");
+                appendInList(firstParameter + offset, chunk, bucketSize(chunk));
+                offset += chunk;
+            }
+            builder.append(')');
+            verbatimStart = listEnd;
+            changed = true;
+            return listEnd;
+        }
+
+        private void appendInList(int firstParameter, int count, int size) {
+            builder.append('(');
+            for (int j = 0; j < size; j++) {
+                builder.append(j == 0 ? "?" : ", ?");
+            }
+            builder.append(')');
+            addParameters(firstParameter, count, size);
+        }
+
+        /**
+         * @return the next power of two, but at most the max size
+         */
+        private int bucketSize(int count) {
+            int size = 1;
+            while (size < count) {
+                size <<= 1;
+            }
+            return Math.min(size, maxInListSize);
+        }
+
+        private void addParameters(int firstParameter, int count, int size) {
+            for (int j = 0; j < size; j++) {
+                addParameter(firstParameter + Math.min(j, count - 1));
+            }
+        }
+
+        private void addParameter(int originalIndex) {
+            if (parameterCount == parameterIndexes.length) {
+                int[] newIndexes = new int[parameterIndexes.length * 2];
+                System.arraycopy(parameterIndexes, 0, newIndexes, 0, parameterCount);
+                parameterIndexes = newIndexes;
+            }
+            parameterIndexes[parameterCount++] = originalIndex;
+        }
+
+        /**
+         * a column: name, table.name, "quoted name", `quoted name`, [quoted name]
+         *
+         * @param end the end (exclusive) of the operand
+         * @return the start of the column, -1 if the operand is not a column
+         */
+        private int findColumnStart(int end) {
+            int i = end;
+            boolean expectName = true;
+            while (i > 0) {
+                char c = sql.charAt(i - 1);
+                if (expectName) {
+                    if (c == '"' || c == '`' || c == ']') {
+                        char open = c == ']' ? '[' : c;
+                        int start = sql.lastIndexOf(open, i - 2);
+                        if (start < 0) {
+                            return -1;
+                        }
+                        i = start;
+                    } else if (isIdentifierPart(c)) {
+                        while (i > 0 && isIdentifierPart(sql.charAt(i - 1))) {
+                            i--;
+                        }
+                    } else {
+                        return -1;
+                    }
+                    expectName = false;
+                } else if (c == '.') {
+                    i--;
+                    expectName = true;
+                } else {
+                    break;
+                }
+            }
+            if (expectName || i == end || Character.isDigit(sql.charAt(i))) {
+                return -1;
+            }
+            return i;
+        }
+
+        /**
+         * The operand must not be a part of an expression, e.g. 'a + b IN (...)' is '(a + b) IN (...)'
+         */
+        private boolean isOperandBoundary(int operandStart) {
+            int i = skipWhitespacesBackward(operandStart);
+            if (i == 0) {
+                return true;
+            }
+            char c = sql.charAt(i - 1);
+            if (c == '(' || c == ',') {
+                return true;
+            }
+            int wordStart = i;
+            while (wordStart > 0 && isIdentifierPart(sql.charAt(wordStart - 1))) {
+                wordStart--;
+            }
+            return wordStart < i && KEYWORDS_BEFORE_OPERAND.contains(sql.substring(wordStart, i).toUpperCase());
+        }
+
+        private boolean isKeyword(int start, String keyword) {
+            int end = start + keyword.length();
+            if (end > sql.length() || !sql.regionMatches(true, start, keyword, 0, keyword.length())) {
+                return false;
+            }
+            boolean startBoundary = start == 0 || !isIdentifierPart(sql.charAt(start - 1));
+            boolean endBoundary = end == sql.length() || !isIdentifierPart(sql.charAt(end));
+            return startBoundary && endBoundary;
+        }
+
+        private int skipQuoted(int start, char quote) {
+            int i = start + 1;
+            while (i < sql.length()) {
+                if (sql.charAt(i) == quote) {
+                    // a doubled quote is an escaped quote
+                    if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                        i += 2;
+                        continue;
+                    }
+                    return i + 1;
+                }
+                i++;
+            }
+            return sql.length();
+        }
+
+        private int skipWhitespaces(int i) {
+            while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * @return the end (exclusive) of the text before the whitespaces that end at the index
+         */
+        private int skipWhitespacesBackward(int i) {
+            while (i > 0 && Character.isWhitespace(sql.charAt(i - 1))) {
+                i--;
+            }
+            return i;
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+        }
+    }
+}
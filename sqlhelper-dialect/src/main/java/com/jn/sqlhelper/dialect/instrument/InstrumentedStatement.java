@@ -1,15 +1,31 @@
 package com.jn.sqlhelper.dialect.instrument;
 
+import com.jn.sqlhelper.dialect.inlist.InListSql;
 import com.jn.sqlhelper.dialect.orderby.OrderBy;
 import com.jn.sqlhelper.dialect.sqlparser.SqlStatementWrapper;
 import com.jn.sqlhelper.dialect.tenant.Tenant;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InstrumentedStatement implements SqlStatementWrapper {
     private String originalSql;
     private Map<TransformConfig, String> instrumentedSqlMap = new HashMap<TransformConfig, String>();
+    /**
+     * key: the tenant column and the count of the tenant values, the values are not a part of the key,
+     * they are bound or inlined later, see {@link TenantSql}
+     */
+    private Map<String, TenantSql> tenantSqlMap = new ConcurrentHashMap<String, TenantSql>();
+    /**
+     * key: the max size of an in list of the dialect
+     */
+    private Map<Integer, InListSql> inListSqlMap = new ConcurrentHashMap<Integer, InListSql>();
+    /**
+     * key: the count column
+     */
+    private Map<String, String> countSqlMap = new ConcurrentHashMap<String, String>();
     private boolean changed = false;
 
     @Override
@@ -42,16 +58,12 @@ public class InstrumentedStatement implements SqlStatementWrapper {
         this.changed = changed;
     }
 
-    public void setCountSql(String countSql) {
-        TransformConfig config = new TransformConfig();
-        config.setCount(true);
-        instrumentedSqlMap.put(config, countSql);
+    public void setCountSql(String countColumn, String countSql) {
+        countSqlMap.put(countColumn, countSql);
     }
 
-    public String getCountSql() {
-        TransformConfig config = new TransformConfig();
-        config.setCount(true);
-        return instrumentedSqlMap.get(config);
+    public String getCountSql(String countColumn) {
+        return countSqlMap.get(countColumn);
     }
 
     public void setLimitSql(String dialect, String limitSql, boolean hasOffset) {
@@ -111,4 +123,24 @@ public class InstrumentedStatement implements SqlStatementWrapper {
         return this.instrumentedSqlMap.get(config);
     }
 
+    public TenantSql getTenantSql(Tenant tenant) {
+        return this.tenantSqlMap.get(tenantSqlKey(tenant));
+    }
+
+    public void setTenantSql(Tenant tenant, TenantSql tenantSql) {
+        this.tenantSqlMap.put(tenantSqlKey(tenant), tenantSql);
+    }
+
+    private static String tenantSqlKey(Tenant tenant) {
+        return tenant.getCatalog() + "." + tenant.getSchema() + "." + tenant.getTable() + "." + tenant.getColumn()
+                + "|" + tenant.getSymbol() + "|" + tenant.isNot() + "|" + tenant.getValueCount();
+    }
+
+    public InListSql getInListSql(int maxInListSize) {
+        return this.inListSqlMap.get(maxInListSize);
+    }
+
+    public void setInListSql(int maxInListSize, InListSql inListSql) {
+        this.inListSqlMap.put(maxInListSize, inListSql);
+    }
 }
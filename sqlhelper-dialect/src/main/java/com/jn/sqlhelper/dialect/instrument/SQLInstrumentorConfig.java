@@ -31,6 +31,15 @@ public class SQLInstrumentorConfig {
     private String subqueryPagingEndFlag = "[PAGING_END]";
     private String instrumentation = "jsqlparser";
     private boolean escapeLikeParameter = false;
+    /**
+     * pad the parameter IN lists to the power of two sizes, split the lists that exceed the max size of the database
+     */
+    private boolean rewriteInList = false;
+    /**
+     * generate the count sql with the AST of the instrumentation: count(*) instead of the select list, without the
+     * ORDER BY and the LEFT JOINs that can't change the count, the statement is parsed, so enable the cache also
+     */
+    private boolean optimizeCountSql = false;
 
     public int getCacheInitialCapacity() {
         return cacheInitialCapacity;
@@ -131,4 +140,20 @@ public class SQLInstrumentorConfig {
     public void setEscapeLikeParameter(boolean escapeLikeParameter) {
         this.escapeLikeParameter = escapeLikeParameter;
     }
+
+    public boolean isOptimizeCountSql() {
+        return optimizeCountSql;
+    }
+
+    public void setOptimizeCountSql(boolean optimizeCountSql) {
+        this.optimizeCountSql = optimizeCountSql;
+    }
+
+    public boolean isRewriteInList() {
+        return rewriteInList;
+    }
+
+    public void setRewriteInList(boolean rewriteInList) {
+        this.rewriteInList = rewriteInList;
+    }
 }
@@ -28,16 +28,20 @@ import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.collection.Pipeline;
 import com.jn.langx.util.function.Consumer;
 import com.jn.langx.util.function.Predicate;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCapabilities;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.dialect.Dialect;
 import com.jn.sqlhelper.dialect.DialectRegistry;
 import com.jn.sqlhelper.dialect.SQLDialectException;
-import com.jn.sqlhelper.dialect.expression.SQLExpression;
+import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
 import com.jn.sqlhelper.dialect.expression.builder.SQLSymbolExpressionBuilderRegistry;
 import com.jn.sqlhelper.dialect.expression.columnevaluation.BuiltinColumnEvaluationExpressionSupplier;
 import com.jn.sqlhelper.dialect.expression.columnevaluation.ColumnEvaluationExpressionSupplier;
+import com.jn.sqlhelper.dialect.inlist.InListSql;
 import com.jn.sqlhelper.dialect.instrument.orderby.DefaultOrderByTransformer;
 import com.jn.sqlhelper.dialect.instrument.orderby.OrderByTransformer;
-import com.jn.sqlhelper.dialect.instrument.where.WhereTransformConfig;
 import com.jn.sqlhelper.dialect.internal.limit.LimitHelper;
 import com.jn.sqlhelper.dialect.orderby.OrderBy;
 import com.jn.sqlhelper.dialect.pagination.PagedPreparedParameterSetter;
@@ -46,6 +50,7 @@ import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.sqlparser.SqlStatementWrapper;
 import com.jn.sqlhelper.dialect.sqlparser.StringSqlStatementWrapper;
 import com.jn.sqlhelper.dialect.tenant.Tenant;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,8 +61,9 @@ import java.util.Map;
 
 public class SQLStatementInstrumentor implements Initializable {
     private static final Logger logger = LoggerFactory.getLogger(SQLStatementInstrumentor.class);
-    private static final ThreadLocal<Dialect> DIALECT_HOLDER = new ThreadLocal<Dialect>();
     private final static List<String> keywordsNotAfterOrderBy = Collects.asList("select", "?", "union", "from", "where", "and", "or", "between", "in", "case");
+    private static final String CACHE_INSTRUMENTED_SQL = "instrumentedSql";
+    private static final String CACHE_COUNT_SQL = "countSql";
     @NonNull
     private SQLInstrumentorConfig config;
     private DialectRegistry dialectRegistry;
@@ -154,19 +160,53 @@ public class SQLStatementInstrumentor implements Initializable {
         return this.beginIfSupportsLimit(dialect);
     }
 
+    /**
+     * @param capabilities the cached capabilities of the database, e.g. from the {@link com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalog}
+     */
+    public boolean beginIfSupportsLimit(final DatabaseCapabilities capabilities) {
+        final Dialect dialect = this.getDialect(capabilities);
+        return this.beginIfSupportsLimit(dialect);
+    }
+
+    /**
+     * the dialect will be bound to the current {@link com.jn.sqlhelper.dialect.SqlRequestContext},
+     * call the {@link #finish()} to remove it.
+     */
     private boolean beginIfSupportsLimit(final Dialect dialect) {
         if (dialect == null) {
             return false;
         }
         final boolean supports = dialect.isSupportsLimit();
         if (supports) {
-            SQLStatementInstrumentor.DIALECT_HOLDER.set(dialect);
+            SqlRequestContextHolder.getInstance().setDialect(dialect);
         }
         return supports;
     }
 
+    /**
+     * find a dialect that supports limit, it will not bind the dialect to the current request context,
+     * so it is suitable for the case that the dialect will be passed explicitly.
+     *
+     * @return null if the dialect is not found or it not supports limit
+     */
+    public Dialect getLimitDialect(final String databaseId) {
+        Dialect dialect = this.dialectRegistry.getDialectByName(databaseId);
+        return dialect != null && dialect.isSupportsLimit() ? dialect : null;
+    }
+
+    /**
+     * find a dialect that supports limit, it will not bind the dialect to the current request context,
+     * so it is suitable for the case that the dialect will be passed explicitly.
+     *
+     * @return null if the dialect is not found or it not supports limit
+     */
+    public Dialect getLimitDialect(final DatabaseMetaData databaseMetaData) {
+        Dialect dialect = getDialect(databaseMetaData);
+        return dialect != null && dialect.isSupportsLimit() ? dialect : null;
+    }
+
     public Dialect getCurrentDialect() {
-        return SQLStatementInstrumentor.DIALECT_HOLDER.get();
+        return SqlRequestContextHolder.getInstance().getDialect();
     }
 
     private Dialect getDialect(final Statement statement) {
@@ -183,6 +223,25 @@ public class SQLStatementInstrumentor implements Initializable {
     }
 
     public Dialect getDialect(@Nullable DatabaseMetaData databaseMetaData) {
+        Dialect dialect = getConfiguredDialect();
+        if (dialect == null && databaseMetaData != null) {
+            dialect = this.dialectRegistry.getDialectByDatabaseMetadata(databaseMetaData);
+        }
+        return dialect;
+    }
+
+    public Dialect getDialect(@Nullable DatabaseCapabilities capabilities) {
+        Dialect dialect = getConfiguredDialect();
+        if (dialect == null && capabilities != null) {
+            dialect = this.dialectRegistry.getDialectByDatabaseCapabilities(capabilities);
+        }
+        return dialect;
+    }
+
+    /**
+     * @return the dialect of the current request context, or the configured dialect
+     */
+    private Dialect getConfiguredDialect() {
         Dialect dialect = this.getCurrentDialect();
         if (dialect != null) {
             return dialect;
@@ -194,9 +253,6 @@ public class SQLStatementInstrumentor implements Initializable {
         if (dialect == null && this.config.getDialectClassName() != null) {
             dialect = this.dialectRegistry.getDialectByClassName(this.config.getDialectClassName());
         }
-        if (dialect == null && databaseMetaData != null) {
-            dialect = this.dialectRegistry.getDialectByDatabaseMetadata(databaseMetaData);
-        }
         return dialect;
     }
 
@@ -210,11 +266,17 @@ public class SQLStatementInstrumentor implements Initializable {
             String originalSql = sql;
             if (this.config.isCacheInstrumentedSql()) {
                 sql = getInstrumentedStatement(originalSql).getLimitSql(dialect.getDatabaseId(), selection.hasOffset());
+                SqlHelperMetrics.recordCacheAccess(CACHE_INSTRUMENTED_SQL, sql != null);
                 if (sql != null) {
                     return sql;
                 }
             }
-            sql = dialect.getLimitSql(originalSql, selection);
+            MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_TRANSFORM).tag(MetricNames.TAG_TYPE, "limit");
+            try {
+                sql = dialect.getLimitSql(originalSql, selection);
+            } finally {
+                sample.stop();
+            }
             if (this.config.isCacheInstrumentedSql()) {
                 getInstrumentedStatement(originalSql).setLimitSql(dialect.getDatabaseId(), sql, selection.hasOffset());
             }
@@ -225,6 +287,7 @@ public class SQLStatementInstrumentor implements Initializable {
     public String instrumentOrderBySql(String sql, OrderBy orderBy) {
         if (this.config.isCacheInstrumentedSql()) {
             String orderBySql = getInstrumentedStatement(sql).getOrderBySql(orderBy);
+            SqlHelperMetrics.recordCacheAccess(CACHE_INSTRUMENTED_SQL, orderBySql != null);
             if (orderBySql != null) {
                 return orderBySql;
             }
@@ -233,7 +296,12 @@ public class SQLStatementInstrumentor implements Initializable {
             SqlStatementWrapper sqlStatementWrapper = parseSql(sql);
             TransformConfig transformConfig = new TransformConfig();
             transformConfig.setOrderBy(orderBy);
-            orderByTransformer.transform(sqlStatementWrapper, transformConfig);
+            MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_TRANSFORM).tag(MetricNames.TAG_TYPE, "orderBy");
+            try {
+                orderByTransformer.transform(sqlStatementWrapper, transformConfig);
+            } finally {
+                sample.stop();
+            }
             String sql2 = sqlStatementWrapper.getSql();
             if (sql2 != null) {
                 if (this.config.isCacheInstrumentedSql()) {
@@ -248,10 +316,14 @@ public class SQLStatementInstrumentor implements Initializable {
     }
 
     private SqlStatementWrapper parseSql(String sql) {
+        MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_PARSE);
         try {
             return instrumentation.getSqlParser().parse(sql);
         } catch (Throwable ex) {
+            sample.error(ex);
             logger.error("error occur when parse the sql with jsqlparser: {}", sql);
+        } finally {
+            sample.stop();
         }
 
         StringSqlStatementWrapper sqlStatementWrapper = new StringSqlStatementWrapper();
@@ -278,64 +350,165 @@ public class SQLStatementInstrumentor implements Initializable {
         return sql;
     }
 
+    /**
+     * Injects the tenant into the sql, the tenant values are '?' parameters, they must be bound with the parameters of
+     * the original sql, use {@link #instrumentTenant(String, Tenant)} and {@link TenantSql#bindParameters(List, List)}
+     * to get all the parameters.
+     *
+     * @see #instrumentTenant(String, Tenant)
+     */
     public String instrumentTenantSql(String sql, Tenant tenant) {
+        return instrumentTenant(sql, tenant).getSql();
+    }
+
+    /**
+     * Injects the tenant into the sql: the tenant column of an insert, the tenant predicates of every table reference
+     * in selects (include joins, sub queries, CTEs), updates, deletes.
+     * <p>
+     * The tenant values are bound as parameters, so the instrumented sql is cached per (sql, tenant column, count of tenant values),
+     * use {@link TenantSql#bindParameters(List, List)} to get the parameters of the instrumented sql.
+     */
+    public TenantSql instrumentTenant(String sql, Tenant tenant) {
         if (tenant == null) {
-            return sql;
+            return TenantSql.of(sql);
         }
 
-
         try {
-            WhereTransformConfig whereTransformConfig = new WhereTransformConfig();
-            whereTransformConfig.setInstrumentSubSelect(false);
-            whereTransformConfig.setPosition(InjectPosition.FIRST);
-            SQLExpression sqlExpression = columnEvaluationExpressionSupplier.get(tenant);
-            whereTransformConfig.setExpression(sqlExpression);
-
-            TransformConfig transformConfig = new TransformConfig();
-            transformConfig.setWhereInstrumentConfigs(Collects.asList(whereTransformConfig));
-
             if (this.config.isCacheInstrumentedSql()) {
-                String tenantSql = getInstrumentedStatement(sql).getInstrumentedSql(transformConfig);
+                TenantSql tenantSql = getInstrumentedStatement(sql).getTenantSql(tenant);
+                SqlHelperMetrics.recordCacheAccess(CACHE_INSTRUMENTED_SQL, tenantSql != null);
                 if (tenantSql != null) {
                     return tenantSql;
                 }
             }
 
+            TransformConfig transformConfig = new TransformConfig();
+            transformConfig.setMultiTenant(true);
+            transformConfig.setTenant(tenant);
+
             SqlStatementWrapper statementWrapper = parseSql(sql);
-            instrumentation.getWhereTransformer().transform(statementWrapper, transformConfig);
+            MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_TRANSFORM).tag(MetricNames.TAG_TYPE, "tenant");
+            try {
+                instrumentation.getWhereTransformer().transform(statementWrapper, transformConfig);
+            } finally {
+                sample.stop();
+            }
             String newSql = statementWrapper.getSql();
             if (newSql != null) {
+                TenantSql tenantSql = TenantSql.of(newSql);
                 if (this.config.isCacheInstrumentedSql()) {
-                    getInstrumentedStatement(sql).setInstrumentedSql(transformConfig, newSql);
+                    getInstrumentedStatement(sql).setTenantSql(tenant, tenantSql);
                 }
-                return newSql;
+                return tenantSql;
             }
         } catch (Throwable ex) {
             logger.warn(ex.getMessage(), ex);
         }
-        return sql;
+        return TenantSql.of(sql);
+    }
+
+    /**
+     * Pads the parameter IN lists of the sql to the power of two sizes, splits the lists that exceed
+     * {@link Dialect#getMaxInListSize()}. It is a token level rewrite, the sql is not parsed.
+     * <p>
+     * use {@link InListSql#bindParameters(List)} to get the parameters of the instrumented sql.
+     */
+    public InListSql instrumentInList(String sql, @Nullable Dialect dialect) {
+        int maxInListSize = dialect == null ? InListSql.DEFAULT_MAX_IN_LIST_SIZE : dialect.getMaxInListSize();
+        if (this.config.isCacheInstrumentedSql()) {
+            InListSql inListSql = getInstrumentedStatement(sql).getInListSql(maxInListSize);
+            SqlHelperMetrics.recordCacheAccess(CACHE_INSTRUMENTED_SQL, inListSql != null);
+            if (inListSql != null) {
+                return inListSql;
+            }
+        }
+        MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_TRANSFORM).tag(MetricNames.TAG_TYPE, "inList");
+        InListSql inListSql;
+        try {
+            inListSql = InListSql.of(sql, maxInListSize);
+        } finally {
+            sample.stop();
+        }
+        if (this.config.isCacheInstrumentedSql()) {
+            getInstrumentedStatement(sql).setInListSql(maxInListSize, inListSql);
+        }
+        return inListSql;
     }
 
     public void finish() {
-        DIALECT_HOLDER.remove();
+        SqlRequestContextHolder.getInstance().removeDialect();
     }
 
     public String countSql(String originalSql) {
         return countSql(originalSql, null);
     }
 
+    /**
+     * Generates the count statement of the select. If {@link SQLInstrumentorConfig#isOptimizeCountSql()} is enabled,
+     * and the rows are counted by count(*), it is generated by the {@link com.jn.sqlhelper.dialect.instrument.count.CountTransformer}
+     * of the instrumentation, else the select is wrapped: select count(1) from (...) tmp_count.
+     * <p>
+     * The count statement is cached per (original sql, count column).
+     */
     public String countSql(String originalSql, String countColumn) {
         if (Strings.isBlank(countColumn)) {
             countColumn = "1";
         }
         InstrumentedStatement instrumentedSql = getInstrumentedStatement(originalSql);
         if (instrumentedSql != null) {
-            String countSql = instrumentedSql.getCountSql();
+            String countSql = instrumentedSql.getCountSql(countColumn);
+            SqlHelperMetrics.recordCacheAccess(CACHE_COUNT_SQL, countSql != null);
             if (countSql != null) {
                 return countSql;
             }
         }
+        MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_COUNT_BUILD);
+        String countSql;
+        try {
+            countSql = optimizeCountSql(originalSql, countColumn);
+            if (countSql == null) {
+                countSql = buildCountSql(originalSql, countColumn);
+            }
+        } finally {
+            sample.stop();
+        }
+        if (instrumentedSql != null) {
+            instrumentedSql.setCountSql(countColumn, countSql);
+        }
+        return countSql;
+    }
+
+    /**
+     * @return the count statement that is transformed from the AST of the select, null if it can't be transformed
+     */
+    private String optimizeCountSql(String originalSql, String countColumn) {
+        if (!this.config.isOptimizeCountSql() || !("1".equals(countColumn) || "*".equals(countColumn))
+                || instrumentation == null || instrumentation.getCountTransformer() == null) {
+            return null;
+        }
+        SqlStatementWrapper statementWrapper;
+        try {
+            statementWrapper = instrumentation.getSqlParser().parse(originalSql);
+        } catch (Throwable ex) {
+            logger.debug("Can't parse the sql, the count sql is generated by wrapping it: {}", originalSql);
+            return null;
+        }
+        TransformConfig transformConfig = new TransformConfig();
+        transformConfig.setCount(true);
+        MetricsSample sample = SqlHelperMetrics.start(MetricNames.SQL_TRANSFORM).tag(MetricNames.TAG_TYPE, "count");
+        try {
+            instrumentation.getCountTransformer().transform(statementWrapper, transformConfig);
+        } catch (Throwable ex) {
+            sample.error(ex);
+            logger.warn(ex.getMessage(), ex);
+            return null;
+        } finally {
+            sample.stop();
+        }
+        return statementWrapper.isChanged() ? statementWrapper.getSql() : null;
+    }
 
+    private String buildCountSql(String originalSql, String countColumn) {
         // do count
         boolean sliceOrderBy = false;
         final String lowerSql = originalSql.toLowerCase();
@@ -381,13 +554,7 @@ public class SQLStatementInstrumentor implements Initializable {
         if (sliceOrderBy) {
             originalSql = originalSql.substring(0, orderIndex).trim();
         }
-        String countSql = "select count(" + countColumn + ") from (" + originalSql + ") tmp_count";
-
-        // cache it
-        if (this.config.isCacheInstrumentedSql()) {
-            getInstrumentedStatement(originalSql).setCountSql(countSql);
-        }
-        return countSql;
+        return "select count(" + countColumn + ") from (" + originalSql + ") tmp_count";
     }
 
 
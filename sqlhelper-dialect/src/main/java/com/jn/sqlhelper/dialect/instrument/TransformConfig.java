@@ -179,6 +179,14 @@ public class TransformConfig implements Serializable {
         this.whereInstrumentConfigs = configs;
     }
 
+    public boolean isMultiTenant() {
+        return isMultiTenant;
+    }
+
+    public void setMultiTenant(boolean multiTenant) {
+        isMultiTenant = multiTenant;
+    }
+
     public Tenant getTenant() {
         return tenant;
     }
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.instrument.count;
+
+import com.jn.sqlhelper.dialect.instrument.ClauseTransformer;
+
+/**
+ * Transforms a select into the statement that counts its rows without the wrapper
+ * 'select count(1) from (...) tmp_count'. The wrapper is required if the rows can't be counted by the select itself,
+ * e.g. DISTINCT, GROUP BY, UNION, LIMIT, the statement is not changed then, see {@link com.jn.sqlhelper.dialect.sqlparser.SqlStatementWrapper#isChanged()}.
+ * <p>
+ * The placeholders of the select are kept in the same order, so the parameters of the select are the parameters of the count statement.
+ */
+public interface CountTransformer<Statement> extends ClauseTransformer<Statement> {
+}
@@ -35,8 +35,10 @@ import com.jn.sqlhelper.dialect.internal.limit.LimitHandler;
 import com.jn.sqlhelper.dialect.internal.urlparser.CommonUrlParser;
 import com.jn.sqlhelper.dialect.internal.urlparser.NoopUrlParser;
 import com.jn.sqlhelper.dialect.internal.urlparser.UrlParser;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.likeescaper.LikeEscaper;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 import java.sql.CallableStatement;
 import java.sql.Driver;
@@ -275,6 +277,32 @@ public abstract class AbstractDialect<T extends AbstractDialect> implements Dial
         return delegate == null || delegate.isSupportsBatchSql();
     }
 
+    @Override
+    public boolean isSupportsExplain() {
+        return getQueryPlanExplainer() != null;
+    }
+
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return delegate == null ? null : delegate.getQueryPlanExplainer();
+    }
+
+    @Override
+    public int getMaxInListSize() {
+        // default is 1000, it is the limit of oracle, and it is safe for the most databases
+        return delegate == null ? 1000 : delegate.getMaxInListSize();
+    }
+
+    @Override
+    public boolean isSupportsUpsert() {
+        return getUpsertRenderer() != null;
+    }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return delegate == null ? null : delegate.getUpsertRenderer();
+    }
+
     @Override
     public List<Character> getLikeKeyChars() {
         return getRealDialect().likeEscaper.getLikeKeyChars();
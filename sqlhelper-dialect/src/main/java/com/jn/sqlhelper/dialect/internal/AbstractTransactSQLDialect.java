@@ -25,4 +25,12 @@ public abstract class AbstractTransactSQLDialect extends AbstractDialect {
             throws SQLException {
         return col;
     }
+
+    /**
+     * a statement has at most 2100 parameters on SQL Server, some are kept for the other conditions
+     */
+    @Override
+    public int getMaxInListSize() {
+        return 2000;
+    }
 }
@@ -18,6 +18,8 @@ package com.jn.sqlhelper.dialect.internal;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.internal.limit.AbstractLimitHandler;
 import com.jn.sqlhelper.dialect.internal.limit.LimitHelper;
+import com.jn.sqlhelper.dialect.upsert.MergeUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 import java.sql.CallableStatement;
 import java.sql.SQLException;
@@ -73,4 +75,9 @@ public class DB2Dialect extends AbstractDialect {
             throws SQLException {
         return col;
     }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return MergeUpsertRenderer.INSTANCE;
+    }
 }
@@ -15,8 +15,12 @@
 
 package com.jn.sqlhelper.dialect.internal;
 
+import com.jn.sqlhelper.dialect.explain.PrefixQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.likeescaper.BackslashStyleEscaper;
 import com.jn.sqlhelper.dialect.internal.limit.LimitOffsetLimitHandler;
+import com.jn.sqlhelper.dialect.upsert.H2MergeUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 
 public class H2Dialect extends AbstractDialect {
@@ -41,4 +45,14 @@ public class H2Dialect extends AbstractDialect {
     public boolean isBindLimitParametersInReverseOrder() {
         return true;
     }
+
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return PrefixQueryPlanExplainer.H2;
+    }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return H2MergeUpsertRenderer.INSTANCE;
+    }
 }
@@ -15,6 +15,8 @@
 
 package com.jn.sqlhelper.dialect.internal;
 
+import com.jn.sqlhelper.dialect.explain.PrefixQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.internal.urlparser.MariaDBUrlParser;
 
 public class MariaDBDialect extends MySQLDialect {
@@ -22,4 +24,12 @@ public class MariaDBDialect extends MySQLDialect {
         super();
         setUrlParser(new MariaDBUrlParser());
     }
+
+    /**
+     * MariaDB has no EXPLAIN ANALYZE of MySQL, the query is analyzed by ANALYZE select ...
+     */
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return PrefixQueryPlanExplainer.MARIADB;
+    }
 }
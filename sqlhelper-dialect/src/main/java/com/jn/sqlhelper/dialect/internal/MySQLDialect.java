@@ -15,9 +15,13 @@
 
 package com.jn.sqlhelper.dialect.internal;
 
+import com.jn.sqlhelper.dialect.explain.MySQLQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.likeescaper.BackslashStyleEscaper;
 import com.jn.sqlhelper.dialect.internal.limit.LimitCommaLimitHandler;
 import com.jn.sqlhelper.dialect.internal.urlparser.MySqlUrlParser;
+import com.jn.sqlhelper.dialect.upsert.OnDuplicateKeyUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 import java.sql.CallableStatement;
 import java.sql.SQLException;
@@ -65,4 +69,14 @@ public class MySQLDialect extends AbstractDialect {
     public boolean isSupportsBatchSql() {
         return true;
     }
+
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return MySQLQueryPlanExplainer.INSTANCE;
+    }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return OnDuplicateKeyUpsertRenderer.INSTANCE;
+    }
 }
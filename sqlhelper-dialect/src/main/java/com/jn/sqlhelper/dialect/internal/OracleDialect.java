@@ -18,12 +18,16 @@ package com.jn.sqlhelper.dialect.internal;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.SQLDialectException;
 import com.jn.sqlhelper.dialect.annotation.Driver;
+import com.jn.sqlhelper.dialect.explain.OracleQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.likeescaper.SlashStyleEscaper;
 import com.jn.sqlhelper.dialect.likeescaper.BackslashStyleEscaper;
 import com.jn.sqlhelper.dialect.internal.limit.AbstractLimitHandler;
 import com.jn.sqlhelper.dialect.internal.limit.LimitHelper;
 import com.jn.sqlhelper.dialect.internal.limit.OracleXLimitHandler;
 import com.jn.sqlhelper.dialect.internal.urlparser.OracleUrlParser;
+import com.jn.sqlhelper.dialect.upsert.OracleMergeUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +74,21 @@ public class OracleDialect extends AbstractDialect {
         setDelegate(new Oracle9Dialect());
     }
 
+    @Override
+    public int getMaxInListSize() {
+        return PARAM_LIST_SIZE_LIMIT;
+    }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return OracleMergeUpsertRenderer.INSTANCE;
+    }
+
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return OracleQueryPlanExplainer.INSTANCE;
+    }
+
     class OracleBaseDialect extends AbstractDialect {
         OracleBaseDialect() {
             OracleDialect.this.setLikeEscaper(BackslashStyleEscaper.NON_DEFAULT_INSTANCE);
@@ -15,9 +15,13 @@
 
 package com.jn.sqlhelper.dialect.internal;
 
+import com.jn.sqlhelper.dialect.explain.PrefixQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
 import com.jn.sqlhelper.dialect.likeescaper.BackslashStyleEscaper;
 import com.jn.sqlhelper.dialect.internal.limit.LimitOffsetLimitHandler;
 import com.jn.sqlhelper.dialect.internal.urlparser.PostgreSQLUrlParser;
+import com.jn.sqlhelper.dialect.upsert.OnConflictUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 import java.sql.CallableStatement;
 import java.sql.SQLException;
@@ -55,4 +59,14 @@ public class PostgreSQLDialect extends AbstractDialect {
         statement.registerOutParameter(col++, 1111);
         return col;
     }
+
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return PrefixQueryPlanExplainer.POSTGRESQL;
+    }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return OnConflictUpsertRenderer.INSTANCE;
+    }
 }
@@ -18,11 +18,15 @@ package com.jn.sqlhelper.dialect.internal;
 import com.jn.langx.annotation.Name;
 import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.Strings;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.SQLServerQueryPlanExplainer;
 import com.jn.sqlhelper.dialect.internal.limit.OffsetFetchFirstOnlyLimitHandler;
 import com.jn.sqlhelper.dialect.internal.limit.SQLServer2005LimitHandler;
 import com.jn.sqlhelper.dialect.internal.limit.TopLimitHandler;
 import com.jn.sqlhelper.dialect.internal.urlparser.SqlServerUrlParser;
 import com.jn.sqlhelper.dialect.likeescaper.BackslashStyleEscaper;
+import com.jn.sqlhelper.dialect.upsert.MergeUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 /**
  * SQLServer 版本说明
@@ -104,6 +108,11 @@ public class SQLServerDialect extends AbstractTransactSQLDialect {
         return false;
     }
 
+    @Override
+    public QueryPlanExplainer getQueryPlanExplainer() {
+        return SQLServerQueryPlanExplainer.INSTANCE;
+    }
+
     @Name("sqlserver2000")
     public static class SQLServer2000Dialect extends AbstractTransactSQLDialect {
         public SQLServer2000Dialect() {
@@ -208,6 +217,11 @@ public class SQLServerDialect extends AbstractTransactSQLDialect {
         public char getAfterQuote() {
             return ']';
         }
+
+        @Override
+        public UpsertRenderer getUpsertRenderer() {
+            return MergeUpsertRenderer.SEMICOLON_TERMINATED_INSTANCE;
+        }
     }
 
     @Name("sqlserver2012")
@@ -15,6 +15,8 @@
 package com.jn.sqlhelper.dialect.internal;
 
 import com.jn.sqlhelper.dialect.internal.limit.LimitOffsetLimitHandler;
+import com.jn.sqlhelper.dialect.upsert.OnDuplicateKeyUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
 
 /**
  * https://pingcap.com/docs/dev/reference/sql/statements/select/
@@ -46,4 +48,9 @@ public class TiDBDialect extends AbstractDialect {
     public boolean isBindLimitParametersInReverseOrder() {
         return true;
     }
+
+    @Override
+    public UpsertRenderer getUpsertRenderer() {
+        return OnDuplicateKeyUpsertRenderer.INSTANCE;
+    }
 }
@@ -25,6 +25,13 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
      */
     private Boolean count = null;
 
+    /**
+     * 是否只探测有没有下一页：查询 pageSize + 1 条记录，多出的一条不返回，不执行 select count()
+     *
+     * @see PagingResult#hasNext()
+     */
+    private boolean peekNextPage = false;
+
     /**
      * select count(countColumn)
      */
@@ -35,6 +42,13 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
      */
     private Boolean cacheCount = null;
 
+    /**
+     * 分页结果要不要缓存, null 时采用全局配置
+     *
+     * @see com.jn.sqlhelper.dialect.pagination.cache.PageResultCache
+     */
+    private Boolean cacheResult = null;
+
     // begin 1
     private int pageNo = 1;
     // pageSize < 0, the limit is Integer.MAX
@@ -68,6 +82,13 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
      */
     private String subqueryPagingEndFlag;
 
+    /**
+     * 是否为只读查询，只读的分页查询可以被路由到从库
+     *
+     * @see com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter
+     */
+    private boolean readOnly = false;
+
 
     /**
      * Nothing to do, will not do query, the result is empty list
@@ -138,6 +159,19 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
         return this;
     }
 
+    public boolean isPeekNextPage() {
+        return peekNextPage;
+    }
+
+    /**
+     * Queries the page with pageSize + 1 rows instead of a count, the extra row tells whether has the next page.
+     * The total of the result is -1.
+     */
+    public PagingRequest<C, E> peekNextPage(boolean peekNextPage) {
+        this.peekNextPage = peekNextPage;
+        return this;
+    }
+
     public PagingResult<E> getResult() {
         return this.result;
     }
@@ -182,6 +216,15 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
         return this;
     }
 
+    public Boolean getCacheResult() {
+        return cacheResult;
+    }
+
+    public PagingRequest<C, E> setCacheResult(Boolean cacheResult) {
+        this.cacheResult = cacheResult;
+        return this;
+    }
+
     public PagingRequest<C, E> setCtx(PagingRequestContext ctx) {
         return (PagingRequest) setContext(ctx);
     }
@@ -238,12 +281,23 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
         return subqueryPaging(true).setSubqueryPagingStartFlag(subQueryPagingStartFlag).setSubqueryPagingEndFlag(subQueryPagingEndFlag);
     }
 
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public PagingRequest<C, E> setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "PagingRequest{" +
                 "count=" + count +
+                ", peekNextPage=" + peekNextPage +
                 ", countColumn='" + countColumn + '\'' +
                 ", cacheCount=" + cacheCount +
+                ", cacheResult=" + cacheResult +
                 ", pageNo=" + pageNo +
                 ", pageSize=" + pageSize +
                 ", useLastPageIfPageOut=" + useLastPageIfPageOut +
@@ -252,6 +306,7 @@ public class PagingRequest<C, E> extends SelectRequest<PagingRequest<C, E>, Pagi
                 ", isSubQueryPaging=" + isSubQueryPaging +
                 ", subqueryPagingStartFlag='" + subqueryPagingStartFlag + '\'' +
                 ", subqueryPagingEndFlag='" + subqueryPagingEndFlag + '\'' +
+                ", readOnly=" + readOnly +
                 ", dialect='" + getDialect() + '\'' +
                 '}';
     }
@@ -36,6 +36,10 @@ public class PagingRequestBasedRowSelectionBuilder implements RowSelectionBuilde
                 limit = Integer.MAX_VALUE;
             } else {
                 offset = pageNo > 0 ? (pageNo - 1) * request.getPageSize() : 0;
+                if (SqlPaginations.isPeekNextPageRequest(request) && limit < Integer.MAX_VALUE) {
+                    // the extra row tells whether has the next page
+                    limit = limit + 1;
+                }
             }
             rowSelection.setLimit(limit);
             if (offset - 1 + rowSelection.getLimit() > Integer.MAX_VALUE) {
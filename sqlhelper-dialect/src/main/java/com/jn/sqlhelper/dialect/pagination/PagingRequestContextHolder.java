@@ -19,12 +19,8 @@ import com.jn.langx.util.Objects;
 import com.jn.langx.util.function.Consumer;
 import com.jn.sqlhelper.dialect.SqlRequestContext;
 import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class PagingRequestContextHolder extends SqlRequestContextHolder {
-    private static final Logger logger = LoggerFactory.getLogger(PagingRequestContextHolder.class);
-
     private static final PagingRequestContextHolder INSTANCE = new PagingRequestContextHolder();
 
     private PagingRequestContextHolder() {
@@ -34,15 +30,6 @@ public class PagingRequestContextHolder extends SqlRequestContextHolder {
         return INSTANCE;
     }
 
-    private PagingRequestContext newOne() {
-        try {
-            return PagingRequestContext.class.newInstance();
-        } catch (Throwable ex) {
-            logger.error(ex.getMessage(), ex);
-        }
-        return null;
-    }
-
     public void setPagingRequest(final PagingRequest request) {
         setContextContent(new Consumer<PagingRequestContext>() {
             @Override
@@ -62,22 +49,22 @@ public class PagingRequestContextHolder extends SqlRequestContextHolder {
         });
     }
 
-    private <X> void setContextContent(Consumer<PagingRequestContext> consumer) {
+    private void setContextContent(Consumer<PagingRequestContext> consumer) {
         PagingRequestContext context = get();
         if (Objects.isNull(context)) {
-            context = newOne();
-            if (Objects.isNull(context)) {
-                variables.remove();
+            context = new PagingRequestContext();
+            SqlRequestContext previous = super.get();
+            if (Objects.isNotNull(previous)) {
+                context.setDialect(previous.getDialect());
             }
+            bind(context);
         }
-        if (Objects.isNotNull(context)) {
-            variables.set(context);
-            consumer.accept(context);
-        }
+        consumer.accept(context);
     }
 
+    @Override
     public PagingRequestContext get() {
-        SqlRequestContext context = variables.get();
+        SqlRequestContext context = super.get();
         if (Objects.isNotNull(context) && context.isPagingRequest()) {
             return (PagingRequestContext) context;
         }
@@ -85,7 +72,7 @@ public class PagingRequestContextHolder extends SqlRequestContextHolder {
     }
 
     public void set(PagingRequestContext ctx) {
-        variables.set(ctx);
+        bind(ctx);
     }
 
     public PagingRequest getPagingRequest() {
@@ -105,7 +92,7 @@ public class PagingRequestContextHolder extends SqlRequestContextHolder {
     }
 
     public void remove() {
-        variables.remove();
+        getBinder().unbind();
     }
 
     public boolean isPagingRequest() {
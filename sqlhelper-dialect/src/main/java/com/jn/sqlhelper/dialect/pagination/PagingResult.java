@@ -21,6 +21,12 @@ public class PagingResult<E> {
     private int pageNo;
     private int pageSize;
     private long total;
+    /**
+     * whether has the next page, it is set by a peek next page request, null if it is unknown
+     *
+     * @see PagingRequest#isPeekNextPage()
+     */
+    private Boolean hasNext;
     private List<E> items;
 
     public int getPageNo() {
@@ -50,6 +56,26 @@ public class PagingResult<E> {
         return this;
     }
 
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public PagingResult<E> setHasNext(Boolean hasNext) {
+        this.hasNext = hasNext;
+        return this;
+    }
+
+    /**
+     * @return whether has the next page, it is computed with the total if the request is not a peek next page request
+     */
+    public boolean hasNext() {
+        if (this.hasNext != null) {
+            return this.hasNext;
+        }
+        int maxPage = getMaxPage();
+        return maxPage > 0 && this.pageNo < maxPage;
+    }
+
     public List<E> getItems() {
         return this.items;
     }
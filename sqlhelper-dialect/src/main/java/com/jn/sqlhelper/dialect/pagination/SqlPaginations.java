@@ -23,6 +23,8 @@ import com.jn.langx.util.Strings;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.SqlRequests;
 
+import java.util.List;
+
 @SuppressWarnings({"all"})
 public class SqlPaginations extends SqlRequests {
 
@@ -70,6 +72,34 @@ public class SqlPaginations extends SqlRequests {
         return request.isSubqueryPaging();
     }
 
+    /**
+     * A peek next page request queries pageSize + 1 rows without a count. It is not supported by the subquery paging,
+     * the rows of the subquery are not the rows of the page.
+     */
+    public static boolean isPeekNextPageRequest(@Nullable PagingRequest request) {
+        if (Objects.isNull(request)) {
+            return false;
+        }
+        return request.isPeekNextPage() && request.getPageSize() > 0 && !request.isSubqueryPaging();
+    }
+
+    /**
+     * Removes the extra row of a peek next page request from the items of the result, and sets the hasNext of the result.
+     * The items must be modifiable.
+     */
+    public static void peekNextPage(@Nullable PagingRequest request, @NonNull PagingResult result) {
+        if (!isPeekNextPageRequest(request)) {
+            return;
+        }
+        List items = result.getItems();
+        int pageSize = request.getPageSize();
+        boolean hasNext = items != null && items.size() > pageSize;
+        if (hasNext) {
+            items.subList(pageSize, items.size()).clear();
+        }
+        result.setHasNext(hasNext);
+    }
+
     public static boolean isValidSubQueryPagination(@Nullable PagingRequest request, @NonNull SQLStatementInstrumentor instrumentor) {
         if (!isSubqueryPagingRequest(request)) {
             return false;
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.cache;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Objects;
+import com.jn.langx.util.Preconditions;
+
+/**
+ * The key of a cached page: (statement, bound parameters, order by, page no, page size, peek next page, count, tenant).
+ * A page of a peek next page request (pageSize + 1 rows, without the total) or a page without the count
+ * is not served to a request that counts.
+ * <p>
+ * The parameters must implement the {@code equals}, {@code hashCode} by value, e.g. a list of the values,
+ * or the mybatis {@code CacheKey}. The hash code is computed once.
+ */
+public class PageCacheKey {
+    @NonNull
+    private final String statement;
+    @Nullable
+    private final Object parameters;
+    @Nullable
+    private final String orderBy;
+    private final int pageNo;
+    private final int pageSize;
+    private final boolean peekNextPage;
+    private final boolean count;
+    @Nullable
+    private final Object tenant;
+    private final int hash;
+
+    public PageCacheKey(@NonNull String statement, @Nullable Object parameters, @Nullable String orderBy, int pageNo, int pageSize, boolean peekNextPage, boolean count, @Nullable Object tenant) {
+        Preconditions.checkNotNull(statement);
+        this.statement = statement;
+        this.parameters = parameters;
+        this.orderBy = orderBy;
+        this.pageNo = pageNo;
+        this.pageSize = pageSize;
+        this.peekNextPage = peekNextPage;
+        this.count = count;
+        this.tenant = tenant;
+        int h = statement.hashCode();
+        h = 31 * h + (parameters == null ? 0 : parameters.hashCode());
+        h = 31 * h + (orderBy == null ? 0 : orderBy.hashCode());
+        h = 31 * h + pageNo;
+        h = 31 * h + pageSize;
+        h = 31 * h + (peekNextPage ? 1 : 0);
+        h = 31 * h + (count ? 1 : 0);
+        h = 31 * h + (tenant == null ? 0 : tenant.hashCode());
+        this.hash = h;
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public Object getParameters() {
+        return parameters;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public int getPageNo() {
+        return pageNo;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public boolean isPeekNextPage() {
+        return peekNextPage;
+    }
+
+    public boolean isCount() {
+        return count;
+    }
+
+    public Object getTenant() {
+        return tenant;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PageCacheKey that = (PageCacheKey) o;
+        return hash == that.hash
+                && pageNo == that.pageNo
+                && pageSize == that.pageSize
+                && peekNextPage == that.peekNextPage
+                && count == that.count
+                && statement.equals(that.statement)
+                && Objects.equals(orderBy, that.orderBy)
+                && Objects.equals(parameters, that.parameters)
+                && Objects.equals(tenant, that.tenant);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "PageCacheKey{" +
+                "statement='" + statement + '\'' +
+                ", parameters=" + parameters +
+                ", orderBy='" + orderBy + '\'' +
+                ", pageNo=" + pageNo +
+                ", pageSize=" + pageSize +
+                ", peekNextPage=" + peekNextPage +
+                ", count=" + count +
+                ", tenant=" + tenant +
+                '}';
+    }
+}
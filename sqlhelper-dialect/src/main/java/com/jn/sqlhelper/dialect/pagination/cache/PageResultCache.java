@@ -0,0 +1,434 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.cache;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.collection.ConcurrentReferenceHashMap;
+import com.jn.langx.util.function.Supplier0;
+import com.jn.langx.util.reflect.reference.ReferenceType;
+import com.jn.sqlhelper.dialect.orderby.OrderBy;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+import com.jn.sqlhelper.dialect.pagination.SqlPaginations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the pages (the rows and the total) of the paging queries, and invalidates them by the writes of the tables:
+ * <pre>
+ * 1) every table has a version, it is increased by {@link #invalidate(String)} when a write of the table is seen,
+ *    a write whose tables are unknown increases the global epoch, it invalidates all the pages
+ * 2) {@link #beginLoad(PageCacheKey, String)} takes the versions of the tables that the query reads before it is executed,
+ *    the page is stored with them, and it is a miss if any of them is changed. So a page that is loaded
+ *    concurrently with a write will not be served after the write
+ * 3) the pages are evicted by the W-TinyLFU policy, bounded by the count and the serialized bytes
+ * </pre>
+ * The invalidation is process local and by the table names of the sql, the writes of the other nodes, the writes through
+ * the views are not seen, the pages are served until they expire (see {@link PageResultCacheConfig}). A write is seen when it is executed, the pages that are loaded before the write
+ * transaction ends (the old rows by the other transactions, the uncommitted rows by the transaction itself) are cached
+ * with the new versions, so the writes of a transaction are recorded by {@link #invalidate(Object, String)}, and
+ * the tables are invalidated again by {@link #endTransaction(Object)} when the transaction is committed or rolled back.
+ */
+public class PageResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(PageResultCache.class);
+
+    private final PageResultCacheConfig config;
+    private final ConcurrentMap<PageCacheKey, CachedPage> pages = new ConcurrentHashMap<PageCacheKey, CachedPage>();
+    private final WindowTinyLfuPolicy<PageCacheKey> policy;
+    private final ReentrantLock policyLock = new ReentrantLock();
+    /**
+     * key: the table name in lower case
+     */
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong epoch = new AtomicLong();
+    /**
+     * the writes of the transactions that are not ended yet,
+     * key: the transaction, e.g. the mybatis executor, it is weakly referenced by identity
+     */
+    private final ConcurrentMap<Object, PendingWrites> pendingWrites = new ConcurrentReferenceHashMap<Object, PendingWrites>(16, 0.75f, 16, ReferenceType.WEAK, ReferenceType.STRONG, EnumSet.of(ConcurrentReferenceHashMap.Option.IDENTITY_COMPARISONS));
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * supplies the current tenant, it is a part of the key
+     */
+    @Nullable
+    private Supplier0<Object> tenantSupplier;
+
+    public PageResultCache(@NonNull PageResultCacheConfig config) {
+        Preconditions.checkNotNull(config);
+        this.config = config;
+        this.policy = new WindowTinyLfuPolicy<PageCacheKey>(config.getMaxEntries(), config.isSerialized() ? config.getMaxWeightInBytes() : 0);
+    }
+
+    public PageResultCacheConfig getConfig() {
+        return config;
+    }
+
+    public void setTenantSupplier(Supplier0<Object> tenantSupplier) {
+        this.tenantSupplier = tenantSupplier;
+    }
+
+    public boolean isCacheable(@NonNull PagingRequest request) {
+        Boolean cacheResult = request.getCacheResult();
+        return cacheResult == null ? config.isCacheByDefault() : cacheResult;
+    }
+
+    /**
+     * @param count whether the total is queried for the request, it is decided by the request and the pagination config
+     */
+    public PageCacheKey newKey(@NonNull String statement, @Nullable Object parameters, @NonNull PagingRequest request, boolean count) {
+        OrderBy orderBy = request.getOrderBy();
+        Object tenant = tenantSupplier == null ? null : tenantSupplier.get();
+        return new PageCacheKey(statement, parameters, orderBy == null || !orderBy.isValid() ? null : orderBy.toString(), request.getPageNo(), request.getPageSize(), SqlPaginations.isPeekNextPageRequest(request), count, tenant);
+    }
+
+    /**
+     * Fills the result with the cached page.
+     *
+     * @return whether it is a hit
+     */
+    public boolean fill(@NonNull PageCacheKey key, @NonNull PagingResult result) {
+        CachedPage page = pages.get(key);
+        if (page != null && !isValid(page)) {
+            remove(key, page);
+            page = null;
+        }
+        if (page == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+        List items = page.getItems();
+        if (items == null) {
+            remove(key, page);
+            misses.incrementAndGet();
+            return false;
+        }
+        // the reads are recorded lossily, a contended read does not wait for the lock
+        if (policyLock.tryLock()) {
+            try {
+                if (pages.get(key) == page) {
+                    policy.recordAccess(key);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        hits.incrementAndGet();
+        result.getItems().addAll(items);
+        result.setTotal(page.total);
+        result.setHasNext(page.hasNext);
+        result.setPageNo(page.pageNo);
+        return true;
+    }
+
+    /**
+     * Takes the versions of the tables that the query reads, before the query is executed.
+     *
+     * @return null if the tables are unknown, the page can't be cached
+     */
+    @Nullable
+    public PageLoad beginLoad(@NonNull PageCacheKey key, String sql) {
+        Set<String> tables = SqlTableNames.find(sql);
+        if (tables.isEmpty()) {
+            return null;
+        }
+        String[] names = tables.toArray(new String[tables.size()]);
+        long[] versions = new long[names.length];
+        long currentEpoch = epoch.get();
+        for (int i = 0; i < names.length; i++) {
+            versions[i] = tableVersion(names[i]).get();
+        }
+        return new PageLoad(key, currentEpoch, names, versions);
+    }
+
+    public void put(@NonNull PageLoad load, @NonNull PagingResult result) {
+        List items = new ArrayList(result.getItems());
+        Object value;
+        long weight = 1;
+        if (config.isSerialized()) {
+            byte[] bytes = serialize(items);
+            if (bytes == null) {
+                return;
+            }
+            value = bytes;
+            weight = bytes.length;
+        } else {
+            value = Collections.unmodifiableList(items);
+        }
+        CachedPage page = new CachedPage(value, result.getTotal(), result.getHasNext(), result.getPageNo(), load, System.currentTimeMillis());
+        if (!isValid(page)) {
+            // a write is seen when the query is executing
+            return;
+        }
+        policyLock.lock();
+        try {
+            pages.put(load.key, page);
+            List<PageCacheKey> evicted = policy.add(load.key, weight);
+            for (PageCacheKey key : evicted) {
+                pages.remove(key);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Invalidates the pages that read the tables that the sql writes.
+     */
+    public void invalidate(String sql) {
+        Set<String> tables = SqlTableNames.find(sql);
+        if (tables.isEmpty()) {
+            invalidateAll();
+        } else {
+            invalidateTables(tables);
+        }
+    }
+
+    /**
+     * Invalidates the pages that read the tables that the sql writes, and records the tables,
+     * they are invalidated again by {@link #endTransaction(Object)}.
+     *
+     * @param transaction the transaction that the sql is executed in, e.g. the mybatis executor
+     */
+    public void invalidate(@NonNull Object transaction, String sql) {
+        Set<String> tables = SqlTableNames.find(sql);
+        if (tables.isEmpty()) {
+            invalidateAll(transaction);
+            return;
+        }
+        invalidateTables(tables);
+        getPendingWrites(transaction).addTables(tables);
+    }
+
+    /**
+     * Invalidates all the pages, and invalidates them again by {@link #endTransaction(Object)}.
+     */
+    public void invalidateAll(@NonNull Object transaction) {
+        invalidateAll();
+        getPendingWrites(transaction).all = true;
+    }
+
+    /**
+     * Invalidates the tables that the transaction wrote again, it is called when the transaction is committed or rolled back.
+     */
+    public void endTransaction(@NonNull Object transaction) {
+        PendingWrites writes = pendingWrites.remove(transaction);
+        if (writes == null) {
+            return;
+        }
+        if (writes.all) {
+            invalidateAll();
+        } else {
+            invalidateTables(new ArrayList<String>(writes.tables));
+        }
+    }
+
+    private PendingWrites getPendingWrites(Object transaction) {
+        Preconditions.checkNotNull(transaction);
+        PendingWrites writes = pendingWrites.get(transaction);
+        if (writes == null) {
+            PendingWrites newWrites = new PendingWrites();
+            writes = pendingWrites.putIfAbsent(transaction, newWrites);
+            if (writes == null) {
+                writes = newWrites;
+            }
+        }
+        return writes;
+    }
+
+    public void invalidateTables(Collection<String> tables) {
+        for (String table : tables) {
+            tableVersion(table.toLowerCase(Locale.ROOT)).incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        policyLock.lock();
+        try {
+            for (PageCacheKey key : pages.keySet()) {
+                policy.remove(key);
+            }
+            pages.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private AtomicLong tableVersion(String table) {
+        AtomicLong version = tableVersions.get(table);
+        if (version == null) {
+            AtomicLong newVersion = new AtomicLong();
+            version = tableVersions.putIfAbsent(table, newVersion);
+            if (version == null) {
+                version = newVersion;
+            }
+        }
+        return version;
+    }
+
+    private boolean isValid(CachedPage page) {
+        int expireAfterWriteInSeconds = config.getExpireAfterWriteInSeconds();
+        if (expireAfterWriteInSeconds > 0 && System.currentTimeMillis() - page.createTime > expireAfterWriteInSeconds * 1000L) {
+            return false;
+        }
+        PageLoad load = page.load;
+        if (load.epoch != epoch.get()) {
+            return false;
+        }
+        for (int i = 0; i < load.tables.length; i++) {
+            if (tableVersion(load.tables[i]).get() != load.versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remove(PageCacheKey key, CachedPage page) {
+        policyLock.lock();
+        try {
+            if (pages.remove(key, page)) {
+                policy.remove(key);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private static byte[] serialize(List items) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream output = new ObjectOutputStream(bytes);
+            output.writeObject(items);
+            output.close();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            logger.debug("The page can't be cached, the rows are not serializable: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private static List deserialize(byte[] bytes) {
+        try {
+            ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                    if (classLoader != null) {
+                        try {
+                            return Class.forName(desc.getName(), false, classLoader);
+                        } catch (ClassNotFoundException ex) {
+                            // use the default class loader
+                        }
+                    }
+                    return super.resolveClass(desc);
+                }
+            };
+            try {
+                return (List) input.readObject();
+            } finally {
+                input.close();
+            }
+        } catch (Exception ex) {
+            logger.warn("The cached page can't be read: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The versions of the tables that a query reads, they are taken before the query is executed.
+     */
+    public static class PageLoad {
+        private final PageCacheKey key;
+        private final long epoch;
+        private final String[] tables;
+        private final long[] versions;
+
+        private PageLoad(PageCacheKey key, long epoch, String[] tables, long[] versions) {
+            this.key = key;
+            this.epoch = epoch;
+            this.tables = tables;
+            this.versions = versions;
+        }
+
+        public PageCacheKey getKey() {
+            return key;
+        }
+
+        public List<String> getTables() {
+            return Collections.unmodifiableList(Arrays.asList(tables));
+        }
+    }
+
+    private static class PendingWrites {
+        /**
+         * the table names in lower case
+         */
+        private final Set<String> tables = Collections.synchronizedSet(new HashSet<String>());
+        private volatile boolean all = false;
+
+        private void addTables(Collection<String> names) {
+            for (String name : names) {
+                tables.add(name.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static class CachedPage {
+        /**
+         * an unmodifiable list, or the serialized bytes
+         */
+        private final Object value;
+        private final long total;
+        private final Boolean hasNext;
+        private final int pageNo;
+        private final PageLoad load;
+        private final long createTime;
+
+        private CachedPage(Object value, long total, Boolean hasNext, int pageNo, PageLoad load, long createTime) {
+            this.value = value;
+            this.total = total;
+            this.hasNext = hasNext;
+            this.pageNo = pageNo;
+            this.load = load;
+            this.createTime = createTime;
+        }
+
+        private List getItems() {
+            return value instanceof byte[] ? deserialize((byte[]) value) : (List) value;
+        }
+    }
+}
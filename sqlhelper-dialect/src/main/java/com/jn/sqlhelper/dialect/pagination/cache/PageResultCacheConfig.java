@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.cache;
+
+import com.jn.easyjson.core.JSONBuilderProvider;
+
+/**
+ * The config of the {@link PageResultCache}.
+ * <p>
+ * The invalidation is process local and by the table names that are found in the sql of the writes, so the writes
+ * of the other nodes, the writes through the views, the triggers or the other tables' names (synonyms, procedures)
+ * are not seen, the pages of them are served until they expire after {@code expireAfterWriteInSeconds} (300s by default).
+ * Enable the cache only for the queries that can accept that.
+ */
+public class PageResultCacheConfig {
+    private boolean enabled = false;
+    /**
+     * cache the pages of the requests that do not specify {@code PagingRequest#setCacheResult(Boolean)}
+     */
+    private boolean cacheByDefault = false;
+    private int maxEntries = 1000;
+    /**
+     * the max total bytes of the serialized pages, it works only if {@code serialized} is true.
+     * less than or equals 0: unlimited
+     */
+    private long maxWeightInBytes = 64 * 1024 * 1024;
+    /**
+     * less than or equals 0: never expire, the pages are invalidated by the writes only
+     */
+    private int expireAfterWriteInSeconds = 300;
+    /**
+     * store the pages as the serialized bytes, the rows must be {@link java.io.Serializable}, the pages of the other rows
+     * are not cached. So a hit returns new row objects, and the memory of the cache can be bounded by bytes.
+     * <p>
+     * false: the cached row objects are shared by all the callers, so the rows must be immutable,
+     * a caller that modifies a row modifies the cached page of the other callers
+     */
+    private boolean serialized = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isCacheByDefault() {
+        return cacheByDefault;
+    }
+
+    public void setCacheByDefault(boolean cacheByDefault) {
+        this.cacheByDefault = cacheByDefault;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxWeightInBytes() {
+        return maxWeightInBytes;
+    }
+
+    public void setMaxWeightInBytes(long maxWeightInBytes) {
+        this.maxWeightInBytes = maxWeightInBytes;
+    }
+
+    public int getExpireAfterWriteInSeconds() {
+        return expireAfterWriteInSeconds;
+    }
+
+    public void setExpireAfterWriteInSeconds(int expireAfterWriteInSeconds) {
+        this.expireAfterWriteInSeconds = expireAfterWriteInSeconds;
+    }
+
+    public boolean isSerialized() {
+        return serialized;
+    }
+
+    public void setSerialized(boolean serialized) {
+        this.serialized = serialized;
+    }
+
+    @Override
+    public String toString() {
+        return JSONBuilderProvider.create().serializeNulls(true).build().toJson(this);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.cache;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.util.Strings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the tables that a sql reads or writes, with a light tokenizer instead of a full parser:
+ * <pre>
+ * 1) the table references after FROM, JOIN, UPDATE, INTO, USING, TABLE, a comma separated FROM list is supported
+ * 2) the subqueries are scanned also, the string literals and the comments are skipped
+ * 3) the catalog, schema qualifiers and the quotes are removed, the names are in lower case
+ * </pre>
+ * The result may contain the names of the common table expressions, it is harmless for the cache invalidation.
+ */
+public class SqlTableNames {
+    private static final Set<String> TABLE_KEYWORDS = new HashSet<String>();
+    /**
+     * the keywords that end a table reference list
+     */
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<String>();
+
+    static {
+        Collections.addAll(TABLE_KEYWORDS, "from", "join", "update", "into", "using", "table");
+        Collections.addAll(CLAUSE_KEYWORDS, "where", "group", "having", "order", "limit", "offset", "fetch", "union", "intersect",
+                "except", "minus", "on", "set", "values", "select", "inner", "left", "right", "full", "outer", "cross",
+                "join", "natural", "lateral", "for", "window", "returning", "using", "when", "with", "start", "connect");
+    }
+
+    private SqlTableNames() {
+    }
+
+    /**
+     * @return the table names, empty if no table is found
+     */
+    @NonNull
+    public static Set<String> find(String sql) {
+        if (Strings.isBlank(sql)) {
+            return Collections.emptySet();
+        }
+        List<String> tokens = tokenize(sql);
+        Set<String> tables = new TreeSet<String>();
+        int i = 0;
+        while (i < tokens.size()) {
+            String token = tokens.get(i);
+            i++;
+            if (!TABLE_KEYWORDS.contains(token)) {
+                continue;
+            }
+            boolean listAllowed = "from".equals(token) || "update".equals(token);
+            while (i < tokens.size()) {
+                String name = tokens.get(i);
+                if ("(".equals(name) || CLAUSE_KEYWORDS.contains(name) || isPunctuation(name)) {
+                    // a subquery, a function call or an empty reference
+                    break;
+                }
+                // the qualified name: a.b.c
+                i++;
+                while (i + 1 < tokens.size() && ".".equals(tokens.get(i))) {
+                    name = tokens.get(i + 1);
+                    i += 2;
+                }
+                if (i < tokens.size() && "(".equals(tokens.get(i))) {
+                    // a table function, or the column list of INSERT INTO t(a, b)
+                    if (!"into".equals(token)) {
+                        break;
+                    }
+                }
+                tables.add(unquote(name));
+                if (!listAllowed) {
+                    break;
+                }
+                // skip the alias
+                if (i < tokens.size() && "as".equals(tokens.get(i))) {
+                    i++;
+                }
+                if (i < tokens.size() && !isPunctuation(tokens.get(i)) && !CLAUSE_KEYWORDS.contains(tokens.get(i))) {
+                    i++;
+                }
+                if (i < tokens.size() && ",".equals(tokens.get(i))) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static boolean isPunctuation(String token) {
+        return token.length() == 1 && !Character.isLetterOrDigit(token.charAt(0)) && token.charAt(0) != '_'
+                && token.charAt(0) != '"' && token.charAt(0) != '`' && token.charAt(0) != '[';
+    }
+
+    private static String unquote(String name) {
+        if (name.length() >= 2) {
+            char first = name.charAt(0);
+            if (first == '"' || first == '`' || first == '[') {
+                return name.substring(1, name.length() - 1).toLowerCase(Locale.ROOT);
+            }
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * the keywords and the unquoted identifiers are in lower case, the string literals and the comments are dropped
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<String>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+            } else if (c == '"' || c == '`' || c == '[') {
+                char close = c == '[' ? ']' : c;
+                int end = sql.indexOf(close, i + 1);
+                end = end < 0 ? length - 1 : end;
+                tokens.add(sql.substring(i, end + 1));
+                i = end + 1;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@') {
+                int start = i;
+                while (i < length) {
+                    char ch = sql.charAt(i);
+                    if (Character.isLetterOrDigit(ch) || ch == '_' || ch == '$' || ch == '#' || ch == '@') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(sql.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The W-TinyLFU eviction policy, it keeps the order of the keys only, the values are kept by the cache:
+ * <pre>
+ * 1) a new key enters the window LRU (1% of the capacity), so a burst of new keys does not flush the popular ones
+ * 2) the keys that leave the window are the candidates of the main SLRU (probation 20%, protected 80%),
+ *    a key in the probation segment is promoted to the protected segment when it is accessed again
+ * 3) when the cache is full, a candidate is admitted only if its estimated frequency ({@link FrequencySketch})
+ *    is greater than the frequency of the victim, the head of the probation segment
+ * </pre>
+ * The capacity is bounded by the count of the keys, and by the total weight if {@code maxWeight > 0}.
+ * <p>
+ * It is not thread safe, the caller must hold the lock.
+ */
+class WindowTinyLfuPolicy<K> {
+    private final FrequencySketch sketch;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final int maxWindow;
+    private final int maxProtected;
+    /**
+     * key: the key, value: the weight. the head is the least recently used
+     */
+    private final LinkedHashMap<K, Long> window = new LinkedHashMap<K, Long>();
+    private final LinkedHashMap<K, Long> probation = new LinkedHashMap<K, Long>();
+    private final LinkedHashMap<K, Long> protectedSegment = new LinkedHashMap<K, Long>();
+    private long weight;
+
+    WindowTinyLfuPolicy(int maxEntries, long maxWeight) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxWeight = maxWeight;
+        this.maxWindow = Math.max(1, this.maxEntries / 100);
+        this.maxProtected = (int) ((this.maxEntries - this.maxWindow) * 0.8);
+        this.sketch = new FrequencySketch(this.maxEntries);
+    }
+
+    void recordAccess(K key) {
+        sketch.increment(key);
+        Long w = window.remove(key);
+        if (w != null) {
+            window.put(key, w);
+            return;
+        }
+        w = probation.remove(key);
+        if (w != null) {
+            protectedSegment.put(key, w);
+            while (protectedSegment.size() > maxProtected && !protectedSegment.isEmpty()) {
+                K demoted = first(protectedSegment);
+                probation.put(demoted, protectedSegment.remove(demoted));
+            }
+            return;
+        }
+        w = protectedSegment.remove(key);
+        if (w != null) {
+            protectedSegment.put(key, w);
+        }
+    }
+
+    /**
+     * @return the evicted keys, the added key itself may be evicted if it is not admitted
+     */
+    List<K> add(K key, long keyWeight) {
+        remove(key);
+        sketch.increment(key);
+        window.put(key, keyWeight);
+        weight += keyWeight;
+        return evict();
+    }
+
+    void remove(K key) {
+        Long w = window.remove(key);
+        if (w == null) {
+            w = probation.remove(key);
+        }
+        if (w == null) {
+            w = protectedSegment.remove(key);
+        }
+        if (w != null) {
+            weight -= w;
+        }
+    }
+
+    int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    long weight() {
+        return weight;
+    }
+
+    private boolean isOverflow() {
+        return size() > maxEntries || (maxWeight > 0 && weight > maxWeight);
+    }
+
+    private List<K> evict() {
+        LinkedList<K> candidates = new LinkedList<K>();
+        while (window.size() > maxWindow) {
+            K candidate = first(window);
+            probation.put(candidate, window.remove(candidate));
+            candidates.add(candidate);
+        }
+        List<K> evicted = new ArrayList<K>();
+        while (isOverflow()) {
+            K victim;
+            if (!candidates.isEmpty()) {
+                K candidate = candidates.getLast();
+                K head = first(probation);
+                if (head.equals(candidate) || sketch.frequency(candidate) > sketch.frequency(head)) {
+                    victim = head;
+                } else {
+                    victim = candidate;
+                }
+                candidates.remove(victim);
+            } else if (!probation.isEmpty()) {
+                victim = first(probation);
+            } else if (!protectedSegment.isEmpty()) {
+                victim = first(protectedSegment);
+            } else {
+                victim = first(window);
+            }
+            remove(victim);
+            evicted.add(victim);
+        }
+        return evicted;
+    }
+
+    private static <K> K first(LinkedHashMap<K, Long> segment) {
+        return segment.keySet().iterator().next();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.routing;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes the queries of a paging request to another data source, e.g. a read replica.
+ * <p>
+ * The count queries are read only and can tolerate a little staleness, so they are the first candidates.
+ * The page queries should be routed only if the request is {@link PagingRequest#isReadOnly()}.
+ *
+ * @see ReplicaPagingQueryRouter
+ */
+public interface PagingQueryRouter {
+    /**
+     * @return the data source that the query will be executed on, null if the query will be executed on the primary
+     */
+    @Nullable
+    DataSource route(PagingQueryType queryType, PagingRequest request);
+
+    /**
+     * Called when the query failed on a routed data source, then the query will be executed on the primary again
+     */
+    void onError(DataSource dataSource, PagingQueryType queryType, Throwable ex);
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.jn.sqlhelper.dialect.pagination.routing;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class PagingQueryRouters {
+    private PagingQueryRouters() {
+    }
+
+    /**
+     * @param connection the connection of the primary that the query would be executed on
+     * @return the data source that the query will be executed on, null if the query will be executed on the primary:
+     * the router is null, or the connection is in a write transaction, the replicas can't see the changes of the transaction
+     */
+    @Nullable
+    public static DataSource route(@Nullable PagingQueryRouter router, PagingQueryType queryType, PagingRequest request, @Nullable Connection connection) {
+        if (router == null || (connection != null && isInWriteTransaction(connection))) {
+            return null;
+        }
+        return router.route(queryType, request);
+    }
+
+    public static boolean isInWriteTransaction(Connection connection) {
+        try {
+            return !connection.getAutoCommit() && !connection.isReadOnly();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.routing;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes the count queries (and the page queries of the read only requests, if enabled) to the replicas, round robin.
+ * <pre>
+ * 1) a replica whose lag is unknown or greater than {@code maxLagInMillis} is skipped, the lags are measured by the
+ *    {@link ReplicationLagProbe} every {@code lagCheckIntervalInMillis} in a background thread, never on the query path.
+ *    The thread is started by the first routing, stop it with {@link #shutdown()}
+ * 2) a replica that failed a query is skipped for {@code failureBackoffInMillis}
+ * 3) the query is executed on the primary if there is no available replica
+ * </pre>
+ * The callers keep the queries on the primary in a write transaction, see {@link PagingQueryRouters#route(PagingQueryRouter, PagingQueryType, PagingRequest, java.sql.Connection)}.
+ */
+public class ReplicaPagingQueryRouter implements PagingQueryRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaPagingQueryRouter.class);
+
+    private final List<Replica> replicas = new CopyOnWriteArrayList<Replica>();
+    private final AtomicInteger next = new AtomicInteger();
+    /**
+     * route the page queries of the read only requests also
+     */
+    private boolean routePageQueries = false;
+    @Nullable
+    private ReplicationLagProbe lagProbe;
+    /**
+     * it is used only if the lag probe is specified
+     */
+    private long maxLagInMillis = 5000;
+    private long lagCheckIntervalInMillis = 1000;
+    private long failureBackoffInMillis = 30000;
+    private volatile ScheduledExecutorService lagChecker;
+
+    public ReplicaPagingQueryRouter() {
+    }
+
+    public ReplicaPagingQueryRouter(List<DataSource> replicas) {
+        if (replicas != null) {
+            for (DataSource replica : replicas) {
+                addReplica(replica);
+            }
+        }
+    }
+
+    public void addReplica(@NonNull DataSource replica) {
+        Preconditions.checkNotNull(replica);
+        replicas.add(new Replica(replica));
+    }
+
+    public void setRoutePageQueries(boolean routePageQueries) {
+        this.routePageQueries = routePageQueries;
+    }
+
+    public void setLagProbe(ReplicationLagProbe lagProbe) {
+        this.lagProbe = lagProbe;
+    }
+
+    public void setMaxLagInMillis(long maxLagInMillis) {
+        this.maxLagInMillis = maxLagInMillis;
+    }
+
+    public void setLagCheckIntervalInMillis(long lagCheckIntervalInMillis) {
+        this.lagCheckIntervalInMillis = lagCheckIntervalInMillis;
+    }
+
+    public void setFailureBackoffInMillis(long failureBackoffInMillis) {
+        this.failureBackoffInMillis = failureBackoffInMillis;
+    }
+
+    @Override
+    public DataSource route(PagingQueryType queryType, PagingRequest request) {
+        if (queryType == PagingQueryType.PAGE && (!routePageQueries || request == null || !request.isReadOnly())) {
+            return null;
+        }
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        if (lagProbe != null && lagChecker == null) {
+            startup();
+        }
+        int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (isAvailable(replica, now)) {
+                return replica.dataSource;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAvailable(Replica replica, long now) {
+        if (replica.unavailableUntil > now) {
+            return false;
+        }
+        if (lagProbe == null) {
+            return true;
+        }
+        long lag = replica.lagInMillis;
+        return lag >= 0 && lag <= maxLagInMillis;
+    }
+
+    /**
+     * starts the background lag checking if a lag probe is specified, it is called by the first routing
+     */
+    public synchronized void startup() {
+        if (lagProbe == null || lagChecker != null) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-replication-lag-checker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkLags();
+            }
+        }, 0, Math.max(1, lagCheckIntervalInMillis), TimeUnit.MILLISECONDS);
+        lagChecker = scheduler;
+    }
+
+    public synchronized void shutdown() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+            lagChecker = null;
+        }
+    }
+
+    /**
+     * measures the lags of all the replicas in the current thread
+     */
+    public void checkLags() {
+        ReplicationLagProbe probe = lagProbe;
+        if (probe == null) {
+            return;
+        }
+        for (Replica replica : replicas) {
+            try {
+                replica.lagInMillis = probe.getLagInMillis(replica.dataSource);
+            } catch (Throwable ex) {
+                logger.warn("Can't get the replication lag of the replica {}: {}", replica.dataSource, ex.getMessage());
+                replica.lagInMillis = -1;
+            }
+        }
+    }
+
+    @Override
+    public void onError(DataSource dataSource, PagingQueryType queryType, Throwable ex) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource) {
+                replica.unavailableUntil = System.currentTimeMillis() + failureBackoffInMillis;
+                logger.warn("The {} query failed on the replica {}, it will be skipped in {} ms: {}", queryType, dataSource, failureBackoffInMillis, ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static class Replica {
+        private final DataSource dataSource;
+        /**
+         * -1: unknown, it is not measured yet or the probe failed
+         */
+        private volatile long lagInMillis = -1;
+        private volatile long unavailableUntil = 0;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
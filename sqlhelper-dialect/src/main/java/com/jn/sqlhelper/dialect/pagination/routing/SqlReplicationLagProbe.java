@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.routing;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Strings;
+import com.jn.langx.util.io.IOs;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Reads the lag in seconds with a sql that is executed on the replica.
+ */
+public class SqlReplicationLagProbe implements ReplicationLagProbe {
+    @NonNull
+    private final String sql;
+    /**
+     * the column of the lag, the first column will be used if it is not specified
+     */
+    @Nullable
+    private final String lagColumn;
+
+    public SqlReplicationLagProbe(String sql) {
+        this(sql, null);
+    }
+
+    public SqlReplicationLagProbe(String sql, String lagColumn) {
+        Preconditions.checkNotEmpty(sql);
+        this.sql = sql;
+        this.lagColumn = lagColumn;
+    }
+
+    public static SqlReplicationLagProbe mysql() {
+        return new SqlReplicationLagProbe("SHOW SLAVE STATUS", "Seconds_Behind_Master");
+    }
+
+    public static SqlReplicationLagProbe postgresql() {
+        return new SqlReplicationLagProbe("SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END");
+    }
+
+    @Override
+    public long getLagInMillis(DataSource replica) throws SQLException {
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = replica.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sql);
+            if (!resultSet.next()) {
+                return -1;
+            }
+            Object lag = Strings.isBlank(lagColumn) ? resultSet.getObject(1) : resultSet.getObject(lagColumn);
+            if (lag == null) {
+                return -1;
+            }
+            double seconds = lag instanceof Number ? ((Number) lag).doubleValue() : Double.parseDouble(lag.toString());
+            return (long) (seconds * 1000);
+        } finally {
+            IOs.close(resultSet);
+            IOs.close(statement);
+            IOs.close(connection);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SqlReplicationLagProbe{sql='" + sql + "', lagColumn='" + lagColumn + "'}";
+    }
+}
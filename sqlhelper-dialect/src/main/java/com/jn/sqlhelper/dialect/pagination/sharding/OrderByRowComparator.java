@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.sharding;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.sqlhelper.dialect.orderby.OrderBy;
+import com.jn.sqlhelper.dialect.orderby.OrderByItem;
+import com.jn.sqlhelper.dialect.orderby.OrderByType;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the mapped rows with an {@link OrderBy}, the same way as the database sorts them.
+ * <p>
+ * A row is a {@link Map} (the key is the column), or a bean whose field name equals the column ignoring the case and
+ * the underscores. The null values are the smallest. The comparator of an {@link OrderByItem} is used if specified.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class OrderByRowComparator<E> implements Comparator<E> {
+    private final OrderByItem[] items;
+    private final String[] columns;
+    private volatile RowFields rowFields;
+
+    public OrderByRowComparator(@NonNull OrderBy orderBy) {
+        Preconditions.checkNotNull(orderBy);
+        List<OrderByItem> itemList = new ArrayList<OrderByItem>();
+        for (OrderByItem item : orderBy) {
+            itemList.add(item);
+        }
+        this.items = itemList.toArray(new OrderByItem[0]);
+        this.columns = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            columns[i] = ShardedPaginations.unqualified(items[i].getExpression());
+        }
+    }
+
+    @Override
+    public int compare(E row1, E row2) {
+        for (int i = 0; i < items.length; i++) {
+            int delta = compareValue(items[i], getValue(row1, i), getValue(row2, i));
+            if (delta != 0) {
+                return items[i].getType() == OrderByType.DESC ? -delta : delta;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareValue(OrderByItem item, Object value1, Object value2) {
+        if (item.getComparator() != null) {
+            return item.getComparator().compare(value1, value2);
+        }
+        if (value1 == value2) {
+            return 0;
+        }
+        if (value1 == null) {
+            return -1;
+        }
+        if (value2 == null) {
+            return 1;
+        }
+        return ((Comparable) value1).compareTo(value2);
+    }
+
+    /**
+     * @return the order by values of the row
+     */
+    public Object[] getKey(E row) {
+        Object[] key = new Object[items.length];
+        for (int i = 0; i < items.length; i++) {
+            key[i] = getValue(row, i);
+        }
+        return key;
+    }
+
+    private Object getValue(E row, int index) {
+        if (row instanceof Map) {
+            Map map = (Map) row;
+            Object value = map.get(columns[index]);
+            return value == null ? map.get(items[index].getExpression()) : value;
+        }
+        Field field = getFields(row.getClass())[index];
+        if (field == null) {
+            throw new IllegalArgumentException("Can't find a field for the order by column " + columns[index] + " in the class " + row.getClass().getName());
+        }
+        try {
+            return field.get(row);
+        } catch (IllegalAccessException ex) {
+            throw Throwables.wrapAsRuntimeException(ex);
+        }
+    }
+
+    private Field[] getFields(Class clazz) {
+        RowFields current = this.rowFields;
+        if (current == null || current.rowClass != clazz) {
+            Field[] fields = new Field[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                fields[i] = findField(clazz, columns[i]);
+            }
+            current = new RowFields(clazz, fields);
+            this.rowFields = current;
+        }
+        return current.fields;
+    }
+
+    private static class RowFields {
+        private final Class rowClass;
+        private final Field[] fields;
+
+        private RowFields(Class rowClass, Field[] fields) {
+            this.rowClass = rowClass;
+            this.fields = fields;
+        }
+    }
+
+    private static Field findField(Class clazz, String column) {
+        String name = normalize(column);
+        while (clazz != null && clazz != Object.class) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (normalize(field.getName()).equals(name)) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.sharding;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.dialect.orderby.OrderBy;
+import com.jn.sqlhelper.dialect.orderby.OrderByItem;
+import com.jn.sqlhelper.dialect.orderby.OrderByType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class ShardedPaginations {
+    private static final String KEYSET_TABLE_ALIAS = "sharded_page_";
+
+    private ShardedPaginations() {
+    }
+
+    /**
+     * k-way merges the sorted rows of the shards, then skips the offset rows and takes the limit rows.
+     * If the comparator is null, the rows are concatenated in the order of the shards.
+     *
+     * @param limit a negative value means no limit
+     */
+    public static <E> List<E> merge(List<List<E>> shardRows, @Nullable final Comparator<E> comparator, long offset, int limit) {
+        List<E> rows = new ArrayList<E>(limit >= 0 ? limit : 16);
+        if (limit == 0) {
+            return rows;
+        }
+        long skipped = 0;
+        if (comparator == null) {
+            for (List<E> shard : shardRows) {
+                for (E row : shard) {
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        rows.add(row);
+                        if (rows.size() == limit) {
+                            return rows;
+                        }
+                    }
+                }
+            }
+            return rows;
+        }
+
+        PriorityQueue<ShardHead<E>> heads = new PriorityQueue<ShardHead<E>>(Math.max(1, shardRows.size()), new Comparator<ShardHead<E>>() {
+            @Override
+            public int compare(ShardHead<E> head1, ShardHead<E> head2) {
+                int delta = comparator.compare(head1.current(), head2.current());
+                return delta != 0 ? delta : head1.shard - head2.shard;
+            }
+        });
+        for (int i = 0; i < shardRows.size(); i++) {
+            List<E> shard = shardRows.get(i);
+            if (shard != null && !shard.isEmpty()) {
+                heads.add(new ShardHead<E>(i, shard));
+            }
+        }
+        while (!heads.isEmpty()) {
+            ShardHead<E> head = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                rows.add(head.current());
+                if (rows.size() == limit) {
+                    return rows;
+                }
+            }
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Wraps the sql as a derived table, and selects the rows after the cursor:
+     * <pre>
+     * SELECT * FROM (sql) sharded_page_ WHERE (c1 > ?) OR (c1 = ? AND c2 &lt; ?) ...
+     * </pre>
+     * The order by columns must be the columns of the sql result, and they must identify a row uniquely.
+     */
+    public static String keysetSql(String sql, OrderBy orderBy) {
+        List<OrderByItem> items = toList(orderBy);
+        StringBuilder builder = new StringBuilder(sql.length() + 64 + items.size() * 32);
+        builder.append("SELECT * FROM (").append(sql).append(") ").append(KEYSET_TABLE_ALIAS).append(" WHERE ");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                builder.append(" OR ");
+            }
+            builder.append("(");
+            for (int j = 0; j < i; j++) {
+                builder.append(unqualified(items.get(j).getExpression())).append(" = ? AND ");
+            }
+            OrderByItem item = items.get(i);
+            builder.append(unqualified(item.getExpression())).append(item.getType() == OrderByType.DESC ? " < ?" : " > ?");
+            builder.append(")");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the parameters of the {@link #keysetSql(String, OrderBy)}: the sql parameters, then the cursor values
+     */
+    public static Object[] keysetParameters(@Nullable Object[] parameters, Object[] cursor) {
+        int parameterCount = parameters == null ? 0 : parameters.length;
+        Object[] keysetParameters = new Object[parameterCount + cursor.length * (cursor.length + 1) / 2];
+        if (parameterCount > 0) {
+            System.arraycopy(parameters, 0, keysetParameters, 0, parameterCount);
+        }
+        int index = parameterCount;
+        for (int i = 0; i < cursor.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                Preconditions.checkNotNull(cursor[j], "the cursor value can't be null");
+                keysetParameters[index++] = cursor[j];
+            }
+        }
+        return keysetParameters;
+    }
+
+    /**
+     * @return the order by whose columns are not qualified by a table, for the wrapped sql
+     */
+    public static OrderBy unqualified(OrderBy orderBy) {
+        OrderBy result = new OrderBy();
+        for (OrderByItem item : orderBy) {
+            OrderByItem newItem = new OrderByItem(unqualified(item.getExpression()), item.getType());
+            newItem.setComparator(item.getComparator());
+            result.add(newItem);
+        }
+        return result;
+    }
+
+    static String unqualified(String expression) {
+        String column = expression.trim();
+        int index = column.lastIndexOf('.');
+        return index < 0 ? column : column.substring(index + 1);
+    }
+
+    private static List<OrderByItem> toList(OrderBy orderBy) {
+        List<OrderByItem> items = new ArrayList<OrderByItem>();
+        for (OrderByItem item : orderBy) {
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static class ShardHead<E> {
+        private final int shard;
+        private final List<E> rows;
+        private int index = 0;
+
+        private ShardHead(int shard, List<E> rows) {
+            this.shard = shard;
+            this.rows = rows;
+        }
+
+        private E current() {
+            return rows.get(index);
+        }
+
+        private boolean advance() {
+            index++;
+            return index < rows.size();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.sharding;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Emptys;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalogRegistry;
+import com.jn.sqlhelper.common.resultset.RowMapper;
+import com.jn.sqlhelper.common.resultset.RowMapperResultSetExtractor;
+import com.jn.sqlhelper.common.resultset.SelectCountResultSetExtractor;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.dialect.orderby.OrderBy;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import com.jn.sqlhelper.dialect.pagination.SqlPaginations;
+import com.jn.sqlhelper.dialect.parameter.ArrayBasedParameterSetter;
+import com.jn.sqlhelper.dialect.parameter.ArrayBasedQueryParameters;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Pages a query over N shards, the shards are the identical schemas in different data sources.
+ * <pre>
+ * 1) the count query and the limited query ({@code LIMIT offset + pageSize}) are executed concurrently on every shard
+ * 2) the sorted rows of the shards are k-way merged with the {@link OrderBy}, then the global page is taken
+ * 3) the total is the sum of the shard counts
+ * </pre>
+ * A deep page costs {@code offset + pageSize} rows per shard, so the sequential reading should use
+ * {@link #queryAfter(String, Object[], PagingRequest, Object[], RowMapper)} with the cursor of the previous page:
+ * every shard returns {@code pageSize} rows after the cursor only.
+ * A {@link PagingRequest#isPeekNextPage()} request runs no count query, every shard returns one more row instead,
+ * it tells whether has the next page, with or without the cursor.
+ * <p>
+ * The order by columns must be in the select list, and the rows are compared in java the same way as the database does,
+ * e.g. the collation of the strings should be binary.
+ */
+public class ShardedPagingExecutor {
+    @NonNull
+    private final List<DataSource> shards;
+    @NonNull
+    private final SQLStatementInstrumentor instrumentor;
+    @NonNull
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    /**
+     * whether executes the count query if the request does not specify it
+     */
+    private boolean count = true;
+
+    public ShardedPagingExecutor(List<DataSource> shards, SQLStatementInstrumentor instrumentor) {
+        this(shards, instrumentor, null);
+    }
+
+    /**
+     * @param executor the executor that runs the shard queries, a cached thread pool is created if it is null
+     */
+    public ShardedPagingExecutor(List<DataSource> shards, SQLStatementInstrumentor instrumentor, @Nullable ExecutorService executor) {
+        Preconditions.checkTrue(Emptys.isNotEmpty(shards), "the shards is required");
+        Preconditions.checkNotNull(instrumentor);
+        this.shards = Collections.unmodifiableList(new ArrayList<DataSource>(shards));
+        this.instrumentor = instrumentor;
+        this.ownExecutor = executor == null;
+        this.executor = executor != null ? executor : Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sqlhelper-sharded-paging");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void setCount(boolean count) {
+        this.count = count;
+    }
+
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    /**
+     * Queries the page {@code request.getPageNo()}, every shard returns {@code offset + pageSize} rows at most.
+     *
+     * @param parameters the parameters of the sql
+     */
+    public <E> ShardedPagingResult<E> query(String sql, @Nullable Object[] parameters, PagingRequest request, RowMapper<E> rowMapper) throws SQLException {
+        Preconditions.checkNotNull(sql);
+        Preconditions.checkNotNull(request);
+        Preconditions.checkNotNull(rowMapper);
+        ShardedPagingResult<E> result = newResult(request);
+        if (request.isEmptyRequest()) {
+            return result;
+        }
+        OrderBy orderBy = request.needOrderBy() ? request.getOrderBy() : null;
+        long offset = 0;
+        int limit = -1;
+        if (!request.isGetAllRequest()) {
+            offset = Math.max(0, (long) (request.getPageNo() - 1) * request.getPageSize());
+            limit = (int) Math.min(Integer.MAX_VALUE, offset + getFetchedPageSize(request));
+        }
+        String countSql = needCount(request) ? instrumentor.countSql(sql, request.getCountColumn()) : null;
+        return execute(sql, parameters, orderBy, countSql, parameters, offset, limit, request, rowMapper, result);
+    }
+
+    /**
+     * Queries the {@code request.getPageSize()} rows after the cursor, the page number of the request is ignored.
+     *
+     * @param cursor the {@link ShardedPagingResult#getCursor()} of the previous page, null for the first page
+     */
+    public <E> ShardedPagingResult<E> queryAfter(String sql, @Nullable Object[] parameters, PagingRequest request, @Nullable Object[] cursor, RowMapper<E> rowMapper) throws SQLException {
+        Preconditions.checkNotNull(sql);
+        Preconditions.checkNotNull(request);
+        Preconditions.checkNotNull(rowMapper);
+        Preconditions.checkTrue(request.needOrderBy(), "the keyset paging requires an order by");
+        Preconditions.checkTrue(request.getPageSize() > 0, "the keyset paging requires a positive page size");
+        ShardedPagingResult<E> result = newResult(request);
+        String countSql = needCount(request) ? instrumentor.countSql(sql, request.getCountColumn()) : null;
+        int pageSize = getFetchedPageSize(request);
+        if (cursor == null) {
+            return execute(sql, parameters, request.getOrderBy(), countSql, parameters, 0, pageSize, request, rowMapper, result);
+        }
+        String keysetSql = ShardedPaginations.keysetSql(sql, request.getOrderBy());
+        Object[] keysetParameters = ShardedPaginations.keysetParameters(parameters, cursor);
+        OrderBy orderBy = ShardedPaginations.unqualified(request.getOrderBy());
+        return execute(keysetSql, keysetParameters, orderBy, countSql, parameters, 0, pageSize, request, rowMapper, result);
+    }
+
+    private boolean needCount(PagingRequest request) {
+        if (SqlPaginations.isPeekNextPageRequest(request)) {
+            return false;
+        }
+        return request.needCount() == null ? count : request.needCount();
+    }
+
+    /**
+     * @return the page size, plus the extra row of a peek next page request
+     */
+    private static int getFetchedPageSize(PagingRequest request) {
+        return SqlPaginations.isPeekNextPageRequest(request) ? request.getPageSize() + 1 : request.getPageSize();
+    }
+
+    private <E> ShardedPagingResult<E> newResult(PagingRequest request) {
+        ShardedPagingResult<E> result = new ShardedPagingResult<E>();
+        result.setPageNo(request.getPageNo());
+        result.setPageSize(request.getPageSize());
+        result.setItems(new ArrayList<E>());
+        return result;
+    }
+
+    private <E> ShardedPagingResult<E> execute(final String sql, final Object[] parameters, final OrderBy orderBy,
+                                               final String countSql, final Object[] countParameters,
+                                               long offset, final int limit, PagingRequest request,
+                                               final RowMapper<E> rowMapper, ShardedPagingResult<E> result) throws SQLException {
+        List<Future<Integer>> countFutures = new ArrayList<Future<Integer>>(shards.size());
+        List<Future<List<E>>> rowsFutures = new ArrayList<Future<List<E>>>(shards.size());
+        try {
+            for (final DataSource shard : shards) {
+                if (countSql != null) {
+                    countFutures.add(executor.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws Exception {
+                            return countShard(shard, countSql, countParameters);
+                        }
+                    }));
+                }
+                rowsFutures.add(executor.submit(new Callable<List<E>>() {
+                    @Override
+                    public List<E> call() throws Exception {
+                        return queryShard(shard, sql, parameters, orderBy, limit, rowMapper);
+                    }
+                }));
+            }
+
+            long total = 0;
+            for (Future<Integer> countFuture : countFutures) {
+                total += getResult(countFuture);
+            }
+            List<List<E>> shardRows = new ArrayList<List<E>>(shards.size());
+            for (Future<List<E>> rowsFuture : rowsFutures) {
+                shardRows.add(getResult(rowsFuture));
+            }
+
+            OrderByRowComparator<E> comparator = orderBy != null && orderBy.isValid() ? new OrderByRowComparator<E>(orderBy) : null;
+            List<E> items = ShardedPaginations.merge(shardRows, comparator, offset, limit < 0 ? -1 : getFetchedPageSize(request));
+            result.setItems(items);
+            result.setTotal(countSql != null ? total : -1);
+            // the cursor is the last row of the page, not the peeked row
+            SqlPaginations.peekNextPage(request, result);
+            if (comparator != null && !items.isEmpty()) {
+                result.setCursor(comparator.getKey(items.get(items.size() - 1)));
+            }
+            return result;
+        } finally {
+            cancel(countFutures);
+            cancel(rowsFutures);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw Throwables.wrapAsRuntimeException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw Throwables.wrapAsRuntimeException(cause);
+        }
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private int countShard(DataSource shard, String countSql, Object[] parameters) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = shard.getConnection();
+            statement = connection.prepareStatement(countSql);
+            setParameters(statement, parameters);
+            resultSet = statement.executeQuery();
+            return SelectCountResultSetExtractor.INSTANCE.extract(resultSet);
+        } finally {
+            IOs.close(resultSet);
+            IOs.close(statement);
+            IOs.close(connection);
+        }
+    }
+
+    /**
+     * @param limit a negative value means no limit
+     */
+    private <E> List<E> queryShard(DataSource shard, String sql, Object[] parameters, OrderBy orderBy, int limit, RowMapper<E> rowMapper) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = shard.getConnection();
+            Dialect dialect = instrumentor.getDialect(DatabaseCatalogRegistry.getInstance().getCatalog(shard).getCapabilities(connection));
+            boolean validOrderBy = orderBy != null && orderBy.isValid();
+            String shardSql = sql;
+            RowSelection rowSelection = null;
+            if (limit >= 0 && dialect != null && dialect.isSupportsLimit()) {
+                rowSelection = new RowSelection();
+                rowSelection.setOffset(0L);
+                rowSelection.setLimit(limit);
+                shardSql = validOrderBy ? instrumentor.instrumentOrderByLimitSql(sql, orderBy, dialect, rowSelection) : instrumentor.instrumentLimitSql(dialect, sql, rowSelection);
+            } else if (validOrderBy) {
+                shardSql = instrumentor.instrumentOrderBySql(sql, orderBy);
+            }
+
+            statement = connection.prepareStatement(shardSql);
+            if (rowSelection != null) {
+                ArrayBasedQueryParameters queryParameters = new ArrayBasedQueryParameters();
+                queryParameters.setCallable(false);
+                queryParameters.setRowSelection(rowSelection);
+                queryParameters.setParameters(parameters == null ? new Object[0] : parameters, 0, 0);
+                instrumentor.bindParameters(dialect, statement, new ArrayBasedParameterSetter(), queryParameters, true);
+            } else {
+                setParameters(statement, parameters);
+            }
+            resultSet = statement.executeQuery();
+            // the limit is applied here also, if the dialect can't limit the sql
+            return new RowMapperResultSetExtractor<E>(rowMapper, limit >= 0 ? limit : Integer.MAX_VALUE).extract(resultSet);
+        } finally {
+            IOs.close(resultSet);
+            IOs.close(statement);
+            IOs.close(connection);
+        }
+    }
+
+    private static void setParameters(PreparedStatement statement, Object[] parameters) throws SQLException {
+        if (parameters != null) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+        }
+    }
+
+    /**
+     * shutdowns the thread pool if it is created by this executor
+     */
+    public void shutdown() {
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.pagination.sharding;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+
+/**
+ * The global page of a sharded paging query.
+ */
+public class ShardedPagingResult<E> extends PagingResult<E> {
+    /**
+     * the order by values of the last item, it is used to query the next page with
+     * {@link ShardedPagingExecutor#queryAfter}
+     */
+    @Nullable
+    private Object[] cursor;
+
+    @Nullable
+    public Object[] getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(Object[] cursor) {
+        this.cursor = cursor;
+    }
+}
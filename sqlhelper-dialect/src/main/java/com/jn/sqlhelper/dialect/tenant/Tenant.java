@@ -1,5 +1,7 @@
 package com.jn.sqlhelper.dialect.tenant;
 
+import com.jn.langx.util.Objects;
+import com.jn.langx.util.hash.HashCodeBuilder;
 import com.jn.sqlhelper.dialect.expression.columnevaluation.ColumnEvaluation;
 
 /**
@@ -7,4 +9,38 @@ import com.jn.sqlhelper.dialect.expression.columnevaluation.ColumnEvaluation;
  */
 public class Tenant extends ColumnEvaluation {
 
+    public int getValueCount() {
+        return Objects.length(getValues());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Tenant that = (Tenant) o;
+        return isNot() == that.isNot()
+                && Objects.equals(getValues(), that.getValues())
+                && getSymbol() == that.getSymbol()
+                && Objects.equals(getCatalog(), that.getCatalog())
+                && Objects.equals(getSchema(), that.getSchema())
+                && Objects.equals(getTable(), that.getTable())
+                && Objects.equals(getColumn(), that.getColumn());
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .with(getCatalog())
+                .with(getSchema())
+                .with(getTable())
+                .with(getColumn())
+                .with(getSymbol())
+                .with(isNot())
+                .with(getValues())
+                .build();
+    }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.tenant;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tenant instrumented sql. The tenant values are bound as JDBC parameters ('?'), this class records where they are.
+ * <p>
+ * A sql parser marks every injected tenant parameter with a named parameter: ':sqlhelper_tenant_{valueIndex}',
+ * {@link #of(String)} replaces the markers with '?' and records the parameter indexes.
+ * <p>
+ * The tenant values are always bound with {@link #bindParameters(List, List)}, they are never inlined as literals,
+ * so the sql is shared by all the tenants and can't be injected by a tenant value.
+ */
+public class TenantSql {
+    public static final String PARAMETER_NAME_PREFIX = "sqlhelper_tenant_";
+    private static final String PARAMETER_MARKER_PREFIX = ":" + PARAMETER_NAME_PREFIX;
+    private static final int[] EMPTY = new int[0];
+
+    private final String sql;
+    /**
+     * the 0-based indexes of the tenant parameters in all the '?' parameters
+     */
+    private final int[] parameterIndexes;
+    /**
+     * the 0-based indexes of the tenant values, one per tenant parameter
+     */
+    private final int[] valueIndexes;
+    /**
+     * the offsets of the tenant parameters in the sql
+     */
+    private final int[] offsets;
+
+    private TenantSql(String sql, int[] parameterIndexes, int[] valueIndexes, int[] offsets) {
+        this.sql = sql;
+        this.parameterIndexes = parameterIndexes;
+        this.valueIndexes = valueIndexes;
+        this.offsets = offsets;
+    }
+
+    public static TenantSql of(@NonNull String markedSql) {
+        Preconditions.checkNotNull(markedSql);
+        if (!markedSql.contains(PARAMETER_MARKER_PREFIX)) {
+            return new TenantSql(markedSql, EMPTY, EMPTY, EMPTY);
+        }
+        StringBuilder builder = new StringBuilder(markedSql.length());
+        List<int[]> tenantParameters = new ArrayList<int[]>();
+        int parameterIndex = 0;
+        int length = markedSql.length();
+        int i = 0;
+        while (i < length) {
+            char c = markedSql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = skipQuoted(markedSql, i, c);
+                builder.append(markedSql, i, end);
+                i = end;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && markedSql.charAt(i + 1) == '-') {
+                int end = markedSql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                builder.append(markedSql, i, end);
+                i = end;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && markedSql.charAt(i + 1) == '*') {
+                int end = markedSql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                builder.append(markedSql, i, end);
+                i = end;
+                continue;
+            }
+            if (c == '?') {
+                parameterIndex++;
+            } else if (c == ':' && markedSql.startsWith(PARAMETER_MARKER_PREFIX, i)) {
+                int start = i + PARAMETER_MARKER_PREFIX.length();
+                int end = start;
+                while (end < length && Character.isDigit(markedSql.charAt(end))) {
+                    end++;
+                }
+                if (end > start) {
+                    tenantParameters.add(new int[]{parameterIndex, Integer.parseInt(markedSql.substring(start, end)), builder.length()});
+                    parameterIndex++;
+                    builder.append('?');
+                    i = end;
+                    continue;
+                }
+            }
+            builder.append(c);
+            i++;
+        }
+
+        int[] parameterIndexes = new int[tenantParameters.size()];
+        int[] valueIndexes = new int[tenantParameters.size()];
+        int[] offsets = new int[tenantParameters.size()];
+        for (int j = 0; j < parameterIndexes.length; j++) {
+            parameterIndexes[j] = tenantParameters.get(j)[0];
+            valueIndexes[j] = tenantParameters.get(j)[1];
+            offsets[j] = tenantParameters.get(j)[2];
+        }
+        return new TenantSql(builder.toString(), parameterIndexes, valueIndexes, offsets);
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                // a doubled quote is an escaped quote
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public boolean isInstrumented() {
+        return parameterIndexes.length > 0;
+    }
+
+    public int getParameterCount() {
+        return parameterIndexes.length;
+    }
+
+    /**
+     * @return the 0-based index of the i-th tenant parameter in all the parameters of the sql
+     */
+    public int getParameterIndex(int i) {
+        return parameterIndexes[i];
+    }
+
+    /**
+     * @return the 0-based index of the tenant value that the i-th tenant parameter will be bound
+     */
+    public int getValueIndex(int i) {
+        return valueIndexes[i];
+    }
+
+    /**
+     * Weaves the tenant values into the original parameters, the result can be bound to the tenant sql in order.
+     *
+     * @param parameters   the parameters of the original sql
+     * @param tenantValues the tenant values
+     */
+    public List<Object> bindParameters(@Nullable List<?> parameters, @NonNull List<?> tenantValues) {
+        int originalCount = parameters == null ? 0 : parameters.size();
+        List<Object> result = new ArrayList<Object>(originalCount + parameterIndexes.length);
+        int tenantParameter = 0;
+        int originalParameter = 0;
+        int total = originalCount + parameterIndexes.length;
+        for (int index = 0; index < total; index++) {
+            if (tenantParameter < parameterIndexes.length && parameterIndexes[tenantParameter] == index) {
+                result.add(tenantValues.get(valueIndexes[tenantParameter]));
+                tenantParameter++;
+            } else {
+                result.add(parameters.get(originalParameter));
+                originalParameter++;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import com.jn.langx.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class AbstractUpsertRenderer implements UpsertRenderer {
+
+    @Override
+    public String render(String table, List<String> columns, List<String> keyColumns, int rows) {
+        Preconditions.checkNotEmpty(columns);
+        Preconditions.checkNotEmpty(keyColumns);
+        Preconditions.checkTrue(rows > 0, "the rows should be greater than 0");
+        return doRender(table, columns, keyColumns, getUpdateColumns(columns, keyColumns), rows);
+    }
+
+    /**
+     * @param updateColumns the columns that are not in the key, it may be empty
+     */
+    protected abstract String doRender(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows);
+
+    @Override
+    public int[] getInsertedAndUpdatedRows(int rows, int rowsAffected) {
+        return null;
+    }
+
+    protected static List<String> getUpdateColumns(List<String> columns, List<String> keyColumns) {
+        List<String> updateColumns = new ArrayList<String>(columns.size());
+        for (String column : columns) {
+            if (!keyColumns.contains(column)) {
+                updateColumns.add(column);
+            }
+        }
+        return updateColumns;
+    }
+
+    protected static StringBuilder appendColumns(StringBuilder sql, List<String> columns, String prefix) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(prefix).append(columns.get(i));
+        }
+        return sql;
+    }
+
+    /**
+     * (?, ?), (?, ?) ...
+     */
+    protected static StringBuilder appendValues(StringBuilder sql, int columns, int rows) {
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append("(");
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("?");
+            }
+            sql.append(")");
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import java.util.List;
+
+/**
+ * H2:
+ * <pre>
+ * MERGE INTO t (c1, c2) KEY (c1) VALUES (?, ?), (?, ?)
+ * </pre>
+ */
+public class H2MergeUpsertRenderer extends AbstractUpsertRenderer {
+    public static final H2MergeUpsertRenderer INSTANCE = new H2MergeUpsertRenderer();
+
+    @Override
+    protected String doRender(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows) {
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(table).append(" (");
+        appendColumns(sql, columns, "").append(") KEY (");
+        appendColumns(sql, keyColumns, "").append(") VALUES ");
+        return appendValues(sql, columns.size(), rows).toString();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import java.util.List;
+
+/**
+ * The SQL:2003 MERGE, the rows are a VALUES table (SQL Server 2008+, DB2):
+ * <pre>
+ * MERGE INTO t USING (VALUES (?, ?), (?, ?)) AS s (c1, c2) ON (t.c1 = s.c1)
+ * WHEN MATCHED THEN UPDATE SET c2 = s.c2
+ * WHEN NOT MATCHED THEN INSERT (c1, c2) VALUES (s.c1, s.c2)
+ * </pre>
+ * The update count is the count of the rows, the inserted rows and the updated rows are not exposed.
+ */
+public class MergeUpsertRenderer extends AbstractUpsertRenderer {
+    public static final MergeUpsertRenderer INSTANCE = new MergeUpsertRenderer(null);
+    /**
+     * SQL Server requires a MERGE is terminated by a semicolon
+     */
+    public static final MergeUpsertRenderer SEMICOLON_TERMINATED_INSTANCE = new MergeUpsertRenderer(";");
+
+    protected static final String TARGET_ALIAS = "t";
+    protected static final String SOURCE_ALIAS = "s";
+
+    private final String terminator;
+
+    protected MergeUpsertRenderer(String terminator) {
+        this.terminator = terminator;
+    }
+
+    @Override
+    protected String doRender(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows) {
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(table).append(" ").append(TARGET_ALIAS).append(" USING (");
+        appendSource(sql, columns, rows);
+        sql.append(" ON (");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            if (i > 0) {
+                sql.append(" AND ");
+            }
+            String column = keyColumns.get(i);
+            sql.append(TARGET_ALIAS).append(".").append(column).append(" = ").append(SOURCE_ALIAS).append(".").append(column);
+        }
+        sql.append(")");
+        if (!updateColumns.isEmpty()) {
+            sql.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i = 0; i < updateColumns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                String column = updateColumns.get(i);
+                sql.append(column).append(" = ").append(SOURCE_ALIAS).append(".").append(column);
+            }
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (");
+        appendColumns(sql, columns, "").append(") VALUES (");
+        appendColumns(sql, columns, SOURCE_ALIAS + ".").append(")");
+        if (terminator != null) {
+            sql.append(terminator);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Appends the rows and the alias of them: VALUES (?, ?), (?, ?)) AS s (c1, c2)
+     */
+    protected void appendSource(StringBuilder sql, List<String> columns, int rows) {
+        sql.append("VALUES ");
+        appendValues(sql, columns.size(), rows);
+        sql.append(") AS ").append(SOURCE_ALIAS).append(" (");
+        appendColumns(sql, columns, "").append(")");
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import java.util.List;
+
+/**
+ * PostgreSQL 9.5+:
+ * <pre>
+ * INSERT INTO t (c1, c2) VALUES (?, ?), (?, ?) ON CONFLICT (c1) DO UPDATE SET c2 = EXCLUDED.c2
+ * </pre>
+ * The update count is the count of the rows, the inserted rows and the updated rows are not exposed.
+ */
+public class OnConflictUpsertRenderer extends AbstractUpsertRenderer {
+    public static final OnConflictUpsertRenderer INSTANCE = new OnConflictUpsertRenderer();
+
+    @Override
+    protected String doRender(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        appendColumns(sql, columns, "").append(") VALUES ");
+        appendValues(sql, columns.size(), rows);
+        sql.append(" ON CONFLICT (");
+        appendColumns(sql, keyColumns, "").append(")");
+        if (updateColumns.isEmpty()) {
+            return sql.append(" DO NOTHING").toString();
+        }
+        sql.append(" DO UPDATE SET ");
+        for (int i = 0; i < updateColumns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            String column = updateColumns.get(i);
+            sql.append(column).append(" = EXCLUDED.").append(column);
+        }
+        return sql.toString();
+    }
+}
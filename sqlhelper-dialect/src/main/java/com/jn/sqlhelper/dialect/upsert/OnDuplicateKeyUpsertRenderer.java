@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import java.util.List;
+
+/**
+ * MySQL, MariaDB, TiDB:
+ * <pre>
+ * INSERT INTO t (c1, c2) VALUES (?, ?), (?, ?) ON DUPLICATE KEY UPDATE c2 = VALUES(c2)
+ * </pre>
+ * The update count is 1 for an inserted row, 2 for an updated row, and 0 for a row that is not changed
+ * (1 if the connection uses the CLIENT_FOUND_ROWS flag).
+ */
+public class OnDuplicateKeyUpsertRenderer extends AbstractUpsertRenderer {
+    public static final OnDuplicateKeyUpsertRenderer INSTANCE = new OnDuplicateKeyUpsertRenderer();
+
+    @Override
+    protected String doRender(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        appendColumns(sql, columns, "").append(") VALUES ");
+        appendValues(sql, columns.size(), rows);
+        sql.append(" ON DUPLICATE KEY UPDATE ");
+        if (updateColumns.isEmpty()) {
+            // nothing to update, a no-op assignment keeps the existed row
+            String key = keyColumns.get(0);
+            return sql.append(key).append(" = ").append(key).toString();
+        }
+        for (int i = 0; i < updateColumns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            String column = updateColumns.get(i);
+            sql.append(column).append(" = VALUES(").append(column).append(")");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * MySQL counts an inserted row as 1, an updated row as 2, and an unchanged row as 0,
+     * or as 1 if the connection sets the CLIENT_FOUND_ROWS flag (e.g. useAffectedRows=false of Connector/J).
+     * A count is returned only if it is the same for all the (inserted, updated, unchanged) splits of the rows
+     * that make the update count in both the modes, else it is -1.
+     */
+    @Override
+    public int[] getInsertedAndUpdatedRows(int rows, int rowsAffected) {
+        int minInserted = Integer.MAX_VALUE;
+        int maxInserted = -1;
+        int minUpdated = Integer.MAX_VALUE;
+        int maxUpdated = -1;
+        // unchanged rows count 0: rowsAffected = inserted + 2 * updated
+        int lowUpdated = Math.max(0, rowsAffected - rows);
+        int highUpdated = rowsAffected / 2;
+        if (lowUpdated <= highUpdated) {
+            minUpdated = lowUpdated;
+            maxUpdated = highUpdated;
+            minInserted = rowsAffected - 2 * highUpdated;
+            maxInserted = rowsAffected - 2 * lowUpdated;
+        }
+        // CLIENT_FOUND_ROWS, unchanged rows count 1: rowsAffected = rows + updated
+        int updated = rowsAffected - rows;
+        if (updated >= 0 && updated <= rows) {
+            minUpdated = Math.min(minUpdated, updated);
+            maxUpdated = Math.max(maxUpdated, updated);
+            minInserted = 0;
+            maxInserted = Math.max(maxInserted, rows - updated);
+        }
+        return new int[]{
+                minInserted == maxInserted ? minInserted : -1,
+                minUpdated == maxUpdated ? minUpdated : -1
+        };
+    }
+}
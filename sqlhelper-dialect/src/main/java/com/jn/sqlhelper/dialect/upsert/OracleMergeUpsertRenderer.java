@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import java.util.List;
+
+/**
+ * Oracle has no VALUES table, the rows are selected from dual:
+ * <pre>
+ * MERGE INTO t USING (SELECT ? c1, ? c2 FROM dual UNION ALL SELECT ?, ? FROM dual) s ON (t.c1 = s.c1)
+ * WHEN MATCHED THEN UPDATE SET c2 = s.c2
+ * WHEN NOT MATCHED THEN INSERT (c1, c2) VALUES (s.c1, s.c2)
+ * </pre>
+ */
+public class OracleMergeUpsertRenderer extends MergeUpsertRenderer {
+    public static final OracleMergeUpsertRenderer INSTANCE = new OracleMergeUpsertRenderer();
+
+    public OracleMergeUpsertRenderer() {
+        super(null);
+    }
+
+    @Override
+    protected void appendSource(StringBuilder sql, List<String> columns, int rows) {
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT ");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("?");
+                if (row == 0) {
+                    sql.append(" ").append(columns.get(i));
+                }
+            }
+            sql.append(" FROM dual");
+        }
+        sql.append(") ").append(SOURCE_ALIAS);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.dialect.upsert;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Renders a statement that inserts the rows, or updates them if the rows of the same key exist.
+ */
+public interface UpsertRenderer {
+    /**
+     * @param table      the table, it is quoted already if it is required
+     * @param columns    the columns of a row, they are quoted already if it is required
+     * @param keyColumns the columns of the primary key or a unique key, they are in the columns also
+     * @param rows       the count of the rows, the placeholders are row by row, in the order of the columns
+     * @return the statement
+     */
+    String render(@NonNull String table, @NonNull List<String> columns, @NonNull List<String> keyColumns, int rows);
+
+    /**
+     * @param rows         the count of the rows of a statement
+     * @param rowsAffected the update count of the statement
+     * @return {inserted rows, updated rows}, a count is -1 if it can't be told from the update count,
+     * null if the database does not expose them
+     */
+    @Nullable
+    int[] getInsertedAndUpdatedRows(int rows, int rowsAffected);
+}
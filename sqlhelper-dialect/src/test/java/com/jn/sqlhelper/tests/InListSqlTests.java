@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.inlist.InListSql;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class InListSqlTests {
+
+    @Test
+    public void testPadding() {
+        InListSql inListSql = InListSql.of("select * from user where id in (?, ?, ?) and name = ?", 1000);
+        Assert.assertTrue(inListSql.isChanged());
+        Assert.assertEquals("select * from user where id in (?, ?, ?, ?) and name = ?", inListSql.getSql());
+        List<Object> parameters = inListSql.bindParameters(Arrays.<Object>asList(1, 2, 3, "a"));
+        Assert.assertEquals(Arrays.<Object>asList(1, 2, 3, 3, "a"), parameters);
+
+        // the lists of 5, 6, 7, 8 values have the same sql
+        Assert.assertEquals(InListSql.of("select * from user where id in (?,?,?,?,?)", 1000).getSql(),
+                InListSql.of("select * from user where id in (?, ?, ?, ?, ?, ?, ?)", 1000).getSql());
+
+        // a power of two list is not changed
+        Assert.assertFalse(InListSql.of("select * from user where id in (?, ?)", 1000).isChanged());
+    }
+
+    @Test
+    public void testSplit() {
+        InListSql inListSql = InListSql.of("select * from user u where u.id in (?, ?, ?, ?, ?) and name = ?", 2);
+        Assert.assertEquals("select * from user u where (u.id IN (?, ?) OR u.id IN (?, ?) OR u.id IN (?)) and name = ?", inListSql.getSql());
+        Assert.assertEquals(Arrays.<Object>asList(1, 2, 3, 4, 5, "a"), inListSql.bindParameters(Arrays.<Object>asList(1, 2, 3, 4, 5, "a")));
+
+        inListSql = InListSql.of("delete from user where id not in (?, ?, ?)", 2);
+        Assert.assertEquals("delete from user where (id NOT IN (?, ?) AND id NOT IN (?))", inListSql.getSql());
+
+        // the operand is an expression, it is not split
+        inListSql = InListSql.of("select * from user where age + 1 in (?, ?, ?)", 2);
+        Assert.assertEquals("select * from user where age + 1 in (?, ?, ?)", inListSql.getSql());
+    }
+
+    @Test
+    public void testSkipped() {
+        Assert.assertFalse(InListSql.of("select * from user where name = 'in (?, ?, ?)' -- in (?, ?, ?)", 1000).isChanged());
+        Assert.assertFalse(InListSql.of("select * from user where id in (?, 1, ?)", 1000).isChanged());
+        Assert.assertFalse(InListSql.of("select * from user where id in (select id from role where name = ?)", 1000).isChanged());
+
+        InListSql inListSql = InListSql.of("select * from user where name = ? and id in (?, ?, ?)", 1000);
+        Assert.assertEquals(4, inListSql.getOriginalParameterCount());
+        Assert.assertEquals(Arrays.<Object>asList("a", 1, 2, 3, 3), inListSql.bindParameters(Arrays.<Object>asList("a", 1, 2, 3)));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+import com.jn.sqlhelper.dialect.pagination.cache.PageCacheKey;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCache;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCacheConfig;
+import com.jn.sqlhelper.dialect.pagination.cache.SqlTableNames;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+public class PageResultCacheTests {
+    private static final String SQL = "select u.* from user u left join dept d on u.dept_id = d.id where u.name like ?";
+
+    @Test
+    public void testTableNames() {
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList("user", "dept")), SqlTableNames.find(SQL));
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList("a", "b", "c")), SqlTableNames.find("SELECT * FROM db.A x, `b` AS y WHERE x.id IN (SELECT id FROM c WHERE name = 'from d')"));
+        Assert.assertEquals(Collections.singleton("user"), SqlTableNames.find("insert into user(id, name) values (?, ?)"));
+        Assert.assertEquals(Collections.singleton("user"), SqlTableNames.find("UPDATE \"USER\" SET name = ? WHERE id = ?"));
+        Assert.assertEquals(Collections.singleton("user"), SqlTableNames.find("delete from user -- from dept\n where id = ?"));
+        Assert.assertTrue(SqlTableNames.find("select 1").isEmpty());
+    }
+
+    @Test
+    public void testInvalidation() {
+        PageResultCache cache = newCache(100, false);
+        PagingRequest request = new PagingRequest().limit(1, 2);
+        PageCacheKey key = cache.newKey(SQL, Arrays.asList("a%"), request, true);
+
+        Assert.assertFalse(cache.fill(key, newResult()));
+        PageResultCache.PageLoad load = cache.beginLoad(key, SQL);
+        cache.put(load, newResult("u1", "u2"));
+
+        PagingResult result = newResult();
+        Assert.assertTrue(cache.fill(key, result));
+        Assert.assertEquals(Arrays.asList("u1", "u2"), result.getItems());
+        Assert.assertEquals(10, result.getTotal());
+
+        // a write of another table
+        cache.invalidate("update role set name = ?");
+        Assert.assertTrue(cache.fill(key, newResult()));
+
+        cache.invalidate("update dept set name = ?");
+        Assert.assertFalse(cache.fill(key, newResult()));
+        Assert.assertEquals(0, cache.size());
+
+        // a write when the query is executing, the page is not cached
+        load = cache.beginLoad(key, SQL);
+        cache.invalidate("delete from user where id = ?");
+        cache.put(load, newResult("u1"));
+        Assert.assertFalse(cache.fill(key, newResult()));
+    }
+
+    @Test
+    public void testTransactionInvalidation() {
+        PageResultCache cache = newCache(100, false);
+        PagingRequest request = new PagingRequest().limit(1, 2);
+        PageCacheKey key = cache.newKey(SQL, Arrays.asList("a%"), request, true);
+        Object transaction = new Object();
+
+        cache.invalidate(transaction, "update user set name = ? where id = ?");
+        // a page that is loaded before the transaction is committed
+        cache.put(cache.beginLoad(key, SQL), newResult("u1"));
+        Assert.assertTrue(cache.fill(key, newResult()));
+        cache.endTransaction(transaction);
+        Assert.assertFalse(cache.fill(key, newResult()));
+
+        // the transaction is ended once
+        cache.put(cache.beginLoad(key, SQL), newResult("u1"));
+        cache.endTransaction(transaction);
+        Assert.assertTrue(cache.fill(key, newResult()));
+
+        cache.invalidateAll(transaction);
+        cache.put(cache.beginLoad(key, SQL), newResult("u1"));
+        cache.endTransaction(transaction);
+        Assert.assertFalse(cache.fill(key, newResult()));
+    }
+
+    @Test
+    public void testPeekAndCountKeyed() {
+        PageResultCache cache = newCache(100, false);
+        PagingRequest peekRequest = new PagingRequest().limit(1, 2).peekNextPage(true);
+        PageCacheKey peekKey = cache.newKey(SQL, Arrays.asList("a%"), peekRequest, false);
+        PagingResult peekResult = newResult("u1", "u2");
+        peekResult.setTotal(-1);
+        cache.put(cache.beginLoad(peekKey, SQL), peekResult);
+        Assert.assertTrue(cache.fill(peekKey, newResult()));
+
+        // the page of the peek request has no total, it is not served to a counting request
+        PagingRequest request = new PagingRequest().limit(1, 2);
+        Assert.assertFalse(cache.fill(cache.newKey(SQL, Arrays.asList("a%"), request, true), newResult()));
+        // nor to a request that does not count, its rows are not peeked
+        PageCacheKey noCountKey = cache.newKey(SQL, Arrays.asList("a%"), request, false);
+        Assert.assertFalse(cache.fill(noCountKey, newResult()));
+        Assert.assertFalse(noCountKey.equals(peekKey));
+    }
+
+    @Test
+    public void testSerializedAndBounded() {
+        PageResultCache cache = newCache(10, true);
+        PagingRequest request = new PagingRequest().limit(1, 2);
+        PageCacheKey hot = cache.newKey(SQL, Arrays.asList("hot"), request, true);
+        cache.put(cache.beginLoad(hot, SQL), newResult("h1"));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(cache.fill(hot, newResult()));
+        }
+        for (int i = 0; i < 100; i++) {
+            PageCacheKey key = cache.newKey(SQL, Arrays.asList("cold" + i), request, true);
+            cache.put(cache.beginLoad(key, SQL), newResult("c" + i));
+        }
+        Assert.assertTrue(cache.size() <= 10);
+        // the frequently read page is not evicted by the one-hit pages
+        PagingResult result = newResult();
+        Assert.assertTrue(cache.fill(hot, result));
+        Assert.assertEquals(Arrays.asList("h1"), result.getItems());
+    }
+
+    private static PageResultCache newCache(int maxEntries, boolean serialized) {
+        PageResultCacheConfig config = new PageResultCacheConfig();
+        config.setEnabled(true);
+        config.setMaxEntries(maxEntries);
+        config.setSerialized(serialized);
+        return new PageResultCache(config);
+    }
+
+    private static PagingResult newResult(String... items) {
+        PagingResult result = new PagingResult();
+        List list = new ArrayList(Arrays.asList(items));
+        result.setItems(list);
+        result.setTotal(10);
+        result.setPageNo(1);
+        result.setPageSize(2);
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouters;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryType;
+import com.jn.sqlhelper.dialect.pagination.routing.ReplicaPagingQueryRouter;
+import com.jn.sqlhelper.dialect.pagination.routing.ReplicationLagProbe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class PagingQueryRouterTests {
+
+    @Test
+    public void testRoute() {
+        DataSource replica1 = newDataSource();
+        DataSource replica2 = newDataSource();
+        ReplicaPagingQueryRouter router = new ReplicaPagingQueryRouter();
+        router.addReplica(replica1);
+        router.addReplica(replica2);
+
+        PagingRequest request = new PagingRequest().limit(1, 10);
+        DataSource first = router.route(PagingQueryType.COUNT, request);
+        DataSource second = router.route(PagingQueryType.COUNT, request);
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(second);
+        Assert.assertNotSame(first, second);
+
+        // the page queries are not routed by default
+        Assert.assertNull(router.route(PagingQueryType.PAGE, request.setReadOnly(true)));
+        router.setRoutePageQueries(true);
+        Assert.assertNull(router.route(PagingQueryType.PAGE, request.setReadOnly(false)));
+        Assert.assertNotNull(router.route(PagingQueryType.PAGE, request.setReadOnly(true)));
+
+        // a failed replica is skipped
+        router.onError(replica1, PagingQueryType.COUNT, new SQLException("connection refused"));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertSame(replica2, router.route(PagingQueryType.COUNT, request));
+        }
+        router.onError(replica2, PagingQueryType.COUNT, new SQLException("connection refused"));
+        Assert.assertNull(router.route(PagingQueryType.COUNT, request));
+    }
+
+    @Test
+    public void testLagAwareRoute() {
+        final DataSource lagged = newDataSource();
+        DataSource synced = newDataSource();
+        final Set<Thread> probeThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        ReplicaPagingQueryRouter router = new ReplicaPagingQueryRouter();
+        router.addReplica(lagged);
+        router.addReplica(synced);
+        router.setMaxLagInMillis(1000);
+        router.setLagCheckIntervalInMillis(60000);
+        router.setLagProbe(new ReplicationLagProbe() {
+            @Override
+            public long getLagInMillis(DataSource replica) {
+                probeThreads.add(Thread.currentThread());
+                return replica == lagged ? 60000 : 10;
+            }
+        });
+        PagingRequest request = new PagingRequest().limit(1, 10);
+        try {
+            // the lags are measured in the background, never on the query path
+            DataSource routed = router.route(PagingQueryType.COUNT, request);
+            Assert.assertTrue(routed == null || routed == synced);
+            Assert.assertFalse(probeThreads.contains(Thread.currentThread()));
+
+            router.checkLags();
+            for (int i = 0; i < 4; i++) {
+                Assert.assertSame(synced, router.route(PagingQueryType.COUNT, request));
+            }
+        } finally {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteTransactionNotRouted() {
+        ReplicaPagingQueryRouter router = new ReplicaPagingQueryRouter();
+        router.addReplica(newDataSource());
+        PagingRequest request = new PagingRequest().limit(1, 10);
+
+        Assert.assertNull(PagingQueryRouters.route(null, PagingQueryType.COUNT, request, newConnection(true, false)));
+        Assert.assertNull(PagingQueryRouters.route(router, PagingQueryType.COUNT, request, newConnection(false, false)));
+        Assert.assertNotNull(PagingQueryRouters.route(router, PagingQueryType.COUNT, request, newConnection(false, true)));
+        Assert.assertNotNull(PagingQueryRouters.route(router, PagingQueryType.COUNT, request, newConnection(true, false)));
+        Assert.assertNotNull(PagingQueryRouters.route(router, PagingQueryType.COUNT, request, null));
+    }
+
+    private static Connection newConnection(final boolean autoCommit, final boolean readOnly) {
+        return (Connection) Proxy.newProxyInstance(PagingQueryRouterTests.class.getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getAutoCommit".equals(method.getName())) {
+                    return autoCommit;
+                }
+                if ("isReadOnly".equals(method.getName())) {
+                    return readOnly;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static DataSource newDataSource() {
+        return (DataSource) Proxy.newProxyInstance(PagingQueryRouterTests.class.getClassLoader(), new Class[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("toString".equals(method.getName())) {
+                    return "DataSource@" + System.identityHashCode(proxy);
+                }
+                return null;
+            }
+        });
+    }
+}
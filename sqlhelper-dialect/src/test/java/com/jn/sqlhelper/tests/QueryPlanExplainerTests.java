@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.explain.MySQLQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.PrefixQueryPlanExplainer;
+import com.jn.sqlhelper.dialect.explain.QueryPlan;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
+import com.jn.sqlhelper.dialect.internal.MariaDBDialect;
+import com.jn.sqlhelper.dialect.internal.MySQLDialect;
+import com.jn.sqlhelper.dialect.internal.OracleDialect;
+import com.jn.sqlhelper.dialect.internal.SQLServerDialect;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class QueryPlanExplainerTests {
+
+    @Test
+    public void testExplainSql() {
+        String sql = "select * from user where id = ?";
+        Assert.assertEquals("EXPLAIN select * from user where id = ?", MySQLQueryPlanExplainer.INSTANCE.getExplainSql(sql, false));
+        Assert.assertEquals("EXPLAIN ANALYZE select * from user where id = ?", MySQLQueryPlanExplainer.INSTANCE.getExplainSql(sql, true));
+        Assert.assertEquals("ANALYZE select * from user where id = ?", PrefixQueryPlanExplainer.MARIADB.getExplainSql(sql, true));
+        Assert.assertEquals("EXPLAIN (ANALYZE, BUFFERS) select * from user where id = ?", PrefixQueryPlanExplainer.POSTGRESQL.getExplainSql(sql, true));
+        // the analyze is ignored if it is not supported
+        Assert.assertEquals("EXPLAIN select 1", new PrefixQueryPlanExplainer("EXPLAIN ", null).getExplainSql("select 1", true));
+    }
+
+    @Test
+    public void testDialects() {
+        Assert.assertSame(MySQLQueryPlanExplainer.INSTANCE, new MySQLDialect().getQueryPlanExplainer());
+        Assert.assertSame(PrefixQueryPlanExplainer.MARIADB, new MariaDBDialect().getQueryPlanExplainer());
+        QueryPlanExplainer oracle = new OracleDialect().getQueryPlanExplainer();
+        Assert.assertNotNull(oracle);
+        Assert.assertTrue(oracle.isSupportsAnalyze());
+        Assert.assertTrue(new SQLServerDialect().isSupportsExplain());
+    }
+
+    @Test
+    public void testMySQLVersions() {
+        Assert.assertTrue(MySQLQueryPlanExplainer.isExplainAnalyzeSupported("8.0.18"));
+        Assert.assertTrue(MySQLQueryPlanExplainer.isExplainAnalyzeSupported("8.0.21-log"));
+        Assert.assertTrue(MySQLQueryPlanExplainer.isExplainAnalyzeSupported("8.1.0"));
+        Assert.assertFalse(MySQLQueryPlanExplainer.isExplainAnalyzeSupported("8.0.17"));
+        Assert.assertFalse(MySQLQueryPlanExplainer.isExplainAnalyzeSupported("5.7.30-log"));
+        Assert.assertTrue(MySQLQueryPlanExplainer.isMariaDB("5.5.5-10.4.12-MariaDB"));
+        Assert.assertFalse(MySQLQueryPlanExplainer.isMariaDB("8.0.21"));
+    }
+
+    @Test
+    public void testPlanText() {
+        QueryPlan plan = new QueryPlan("select * from user", false, Arrays.asList("id", "type", "key"),
+                Collections.singletonList(new String[]{"1", "ref", "idx_user_name"}));
+        Assert.assertEquals("id | type | key\n1 | ref | idx_user_name", plan.getText());
+    }
+}
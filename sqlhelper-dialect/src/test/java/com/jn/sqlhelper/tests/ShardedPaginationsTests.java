@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.orderby.OrderBy;
+import com.jn.sqlhelper.dialect.pagination.sharding.OrderByRowComparator;
+import com.jn.sqlhelper.dialect.pagination.sharding.ShardedPaginations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class ShardedPaginationsTests {
+
+    @Test
+    public void testMerge() {
+        OrderBy orderBy = new OrderBy();
+        orderBy.addDesc("t.age");
+        orderBy.addAsc("id");
+        OrderByRowComparator<Map<String, Object>> comparator = new OrderByRowComparator<Map<String, Object>>(orderBy);
+
+        List<List<Map<String, Object>>> shards = new ArrayList<List<Map<String, Object>>>();
+        shards.add(Arrays.asList(row(1, 30), row(4, 20), row(7, 10)));
+        shards.add(Arrays.asList(row(2, 30), row(5, 20)));
+        shards.add(Arrays.asList(row(3, 25), row(6, 20), row(8, 5)));
+
+        List<Map<String, Object>> page = ShardedPaginations.merge(shards, comparator, 2, 3);
+        Assert.assertEquals(Arrays.asList(3, 4, 5), ids(page));
+        Assert.assertArrayEquals(new Object[]{20, 5}, comparator.getKey(page.get(2)));
+
+        List<Map<String, Object>> all = ShardedPaginations.merge(shards, comparator, 0, -1);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), ids(all));
+
+        // without an order by, the shards are concatenated
+        Assert.assertEquals(Arrays.asList(7, 2), ids(ShardedPaginations.merge(shards, null, 2, 2)));
+    }
+
+    @Test
+    public void testKeysetSql() {
+        OrderBy orderBy = new OrderBy();
+        orderBy.addDesc("t.age");
+        orderBy.addAsc("id");
+        String sql = ShardedPaginations.keysetSql("select * from user t where t.name like ?", orderBy);
+        Assert.assertEquals("SELECT * FROM (select * from user t where t.name like ?) sharded_page_ WHERE (age < ?) OR (age = ? AND id > ?)", sql);
+        Object[] parameters = ShardedPaginations.keysetParameters(new Object[]{"a%"}, new Object[]{20, 5});
+        Assert.assertArrayEquals(new Object[]{"a%", 20, 20, 5}, parameters);
+    }
+
+    private static Map<String, Object> row(int id, int age) {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", id);
+        row.put("age", age);
+        return row;
+    }
+
+    private static List<Integer> ids(List<Map<String, Object>> rows) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Map<String, Object> row : rows) {
+            ids.add((Integer) row.get("id"));
+        }
+        return ids;
+    }
+}
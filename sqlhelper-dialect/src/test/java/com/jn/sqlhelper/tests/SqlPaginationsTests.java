@@ -20,9 +20,16 @@ import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.collection.Pipeline;
 import com.jn.langx.util.function.Predicate;
 import com.jn.sqlhelper.dialect.instrument.InstrumentedStatement;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestBasedRowSelectionBuilder;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.pagination.SqlPaginations;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SqlPaginationsTests {
@@ -55,6 +62,38 @@ public class SqlPaginationsTests {
         System.out.println(StringTemplates.formatWithPlaceholder("before:{}, end: {}", before, after));
     }
 
+    @Test
+    public void testPeekNextPage() {
+        PagingRequest<Object, Integer> request = new PagingRequest<Object, Integer>().limit(3, 2).peekNextPage(true);
+        RowSelection selection = new PagingRequestBasedRowSelectionBuilder().build(request);
+        Assert.assertEquals(4L, selection.getOffset().longValue());
+        Assert.assertEquals(3, selection.getLimit().intValue());
+
+        PagingResult<Integer> result = new PagingResult<Integer>();
+        result.setPageNo(3).setPageSize(2).setTotal(-1);
+        result.setItems(new ArrayList<Integer>(Arrays.asList(5, 6, 7)));
+        SqlPaginations.peekNextPage(request, result);
+        Assert.assertEquals(Arrays.asList(5, 6), result.getItems());
+        Assert.assertTrue(result.hasNext());
+
+        result.setItems(new ArrayList<Integer>(Arrays.asList(5, 6)));
+        SqlPaginations.peekNextPage(request, result);
+        Assert.assertEquals(2, result.getItems().size());
+        Assert.assertFalse(result.hasNext());
+
+        // the subquery paging can't peek
+        request.subqueryPaging(true);
+        Assert.assertFalse(SqlPaginations.isPeekNextPageRequest(request));
+        Assert.assertEquals(2, new PagingRequestBasedRowSelectionBuilder().build(request).getLimit().intValue());
+
+        // computed with the total if it is not peeked
+        PagingResult<Integer> counted = new PagingResult<Integer>();
+        counted.setPageNo(2).setPageSize(10).setTotal(25);
+        Assert.assertTrue(counted.hasNext());
+        counted.setPageNo(3);
+        Assert.assertFalse(counted.hasNext());
+    }
+
     @Test
     public void testGetCountSql(){
         System.out.println(countSql("select * from table where 1=1 order by a ", ""));
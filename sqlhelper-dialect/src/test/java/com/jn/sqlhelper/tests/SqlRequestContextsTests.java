@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.SqlRequestContext;
+import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
+import com.jn.sqlhelper.dialect.SqlRequestContexts;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContextHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SqlRequestContextsTests {
+
+    @Test
+    public void testPropagation() throws Exception {
+        PagingRequest request = new PagingRequest().limit(1, 10);
+        PagingRequestContextHolder.getContext().setPagingRequest(request);
+        final SqlRequestContext context = SqlRequestContextHolder.getInstance().get();
+        Assert.assertNotNull(context);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SqlRequestContext> unbound = executor.submit(new Callable<SqlRequestContext>() {
+                @Override
+                public SqlRequestContext call() {
+                    return SqlRequestContextHolder.getInstance().get();
+                }
+            });
+            Assert.assertNull(unbound.get());
+
+            Future<SqlRequestContext> propagated = executor.submit(SqlRequestContexts.wrap(new Callable<SqlRequestContext>() {
+                @Override
+                public SqlRequestContext call() {
+                    return SqlRequestContextHolder.getInstance().get();
+                }
+            }));
+            Assert.assertSame(context, propagated.get());
+
+            // the binding is restored after the task
+            Assert.assertNull(executor.submit(new Callable<SqlRequestContext>() {
+                @Override
+                public SqlRequestContext call() {
+                    return SqlRequestContextHolder.getInstance().get();
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+            PagingRequestContextHolder.getContext().clear();
+        }
+        Assert.assertNull(SqlRequestContextHolder.getInstance().get());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TenantSqlTests {
+
+    @Test
+    public void testResolveMarkers() {
+        TenantSql tenantSql = TenantSql.of("SELECT * FROM (SELECT * FROM b WHERE b.tenant_id = :sqlhelper_tenant_0 AND b.x = ?) t " +
+                "WHERE t.tenant_id IN (:sqlhelper_tenant_0, :sqlhelper_tenant_1) AND t.name = ':sqlhelper_tenant_0' AND t.y = ?");
+        Assert.assertEquals("SELECT * FROM (SELECT * FROM b WHERE b.tenant_id = ? AND b.x = ?) t " +
+                "WHERE t.tenant_id IN (?, ?) AND t.name = ':sqlhelper_tenant_0' AND t.y = ?", tenantSql.getSql());
+        Assert.assertEquals(3, tenantSql.getParameterCount());
+
+        List<Object> parameters = tenantSql.bindParameters(Collects.<Object>asList("x", "y"), Collects.<Object>asList("t1", "t2"));
+        Assert.assertEquals(Collects.<Object>asList("t1", "x", "t1", "t2", "y"), parameters);
+    }
+
+    @Test
+    public void testNoMarkers() {
+        TenantSql tenantSql = TenantSql.of("select 1 from dual where a = ?");
+        Assert.assertFalse(tenantSql.isInstrumented());
+        Assert.assertEquals("select 1 from dual where a = ?", tenantSql.getSql());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.jn.sqlhelper.tests;
+
+import com.jn.sqlhelper.dialect.upsert.H2MergeUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.MergeUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.OnConflictUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.OnDuplicateKeyUpsertRenderer;
+import com.jn.sqlhelper.dialect.upsert.OracleMergeUpsertRenderer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class UpsertRendererTests {
+    private static final List<String> COLUMNS = Arrays.asList("id", "name");
+    private static final List<String> KEYS = Collections.singletonList("id");
+
+    @Test
+    public void testRender() {
+        Assert.assertEquals("INSERT INTO user (id, name) VALUES (?, ?), (?, ?) ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name",
+                OnConflictUpsertRenderer.INSTANCE.render("user", COLUMNS, KEYS, 2));
+        Assert.assertEquals("INSERT INTO user (id, name) VALUES (?, ?), (?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name)",
+                OnDuplicateKeyUpsertRenderer.INSTANCE.render("user", COLUMNS, KEYS, 2));
+        Assert.assertEquals("MERGE INTO user t USING (VALUES (?, ?), (?, ?)) AS s (id, name) ON (t.id = s.id) WHEN MATCHED THEN UPDATE SET name = s.name WHEN NOT MATCHED THEN INSERT (id, name) VALUES (s.id, s.name);",
+                MergeUpsertRenderer.SEMICOLON_TERMINATED_INSTANCE.render("user", COLUMNS, KEYS, 2));
+        Assert.assertEquals("MERGE INTO user t USING (SELECT ? id, ? name FROM dual UNION ALL SELECT ?, ? FROM dual) s ON (t.id = s.id) WHEN MATCHED THEN UPDATE SET name = s.name WHEN NOT MATCHED THEN INSERT (id, name) VALUES (s.id, s.name)",
+                OracleMergeUpsertRenderer.INSTANCE.render("user", COLUMNS, KEYS, 2));
+        Assert.assertEquals("MERGE INTO user (id, name) KEY (id) VALUES (?, ?), (?, ?)",
+                H2MergeUpsertRenderer.INSTANCE.render("user", COLUMNS, KEYS, 2));
+        // only the key columns
+        Assert.assertEquals("INSERT INTO user (id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+                OnConflictUpsertRenderer.INSTANCE.render("user", KEYS, KEYS, 1));
+    }
+
+    @Test
+    public void testCounts() {
+        // all updated, none changed
+        Assert.assertArrayEquals(new int[]{0, 4}, OnDuplicateKeyUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(4, 8));
+        Assert.assertArrayEquals(new int[]{0, 0}, OnDuplicateKeyUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(4, 0));
+        Assert.assertArrayEquals(new int[]{0, 1}, OnDuplicateKeyUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(1, 2));
+        // 3 inserted, 1 updated, or 1 inserted, 2 updated, 1 unchanged
+        Assert.assertArrayEquals(new int[]{-1, -1}, OnDuplicateKeyUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(4, 5));
+        Assert.assertArrayEquals(new int[]{-1, -1}, OnDuplicateKeyUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(4, 3));
+        // inserted, or unchanged with CLIENT_FOUND_ROWS
+        Assert.assertArrayEquals(new int[]{-1, 0}, OnDuplicateKeyUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(1, 1));
+        Assert.assertNull(OnConflictUpsertRenderer.INSTANCE.getInsertedAndUpdatedRows(4, 4));
+    }
+}
@@ -40,10 +40,10 @@ public class EBeanCommonSqlLimiter implements SqlLimiter {
     @Override
     public SqlLimitResponse limit(SqlLimitRequest request) {
         String databaseId = findDatabaseId(request.getDbPlatform());
-        if (databaseId == null || !instrumentor.beginIfSupportsLimit(databaseId)) {
+        Dialect dialect = databaseId == null ? null : instrumentor.getLimitDialect(databaseId);
+        if (dialect == null) {
             return ebeanDefaultSqlLimiter.limit(request);
         }
-        Dialect dialect = DialectRegistry.getInstance().getDialectByName(databaseId);
         dialect.setUseLimitInVariableMode(false);
         String dbSql = request.getDbSql();
 
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jfinal;
+
+import com.jfinal.plugin.activerecord.DbPro;
+import com.jfinal.plugin.activerecord.Record;
+import com.jfinal.plugin.activerecord.dialect.Dialect;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+import com.jn.sqlhelper.dialect.pagination.SqlPaginations;
+import com.jn.sqlhelper.jfinal.dialect.JFinalCommonDialect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The paging queries that jFinal's {@code Db.paginate} can't do, it always executes the count query.
+ */
+public class JFinalPaginations {
+    private JFinalPaginations() {
+    }
+
+    /**
+     * Queries a page without the count query: pageSize + 1 rows are queried, the extra row is dropped,
+     * and {@link PagingResult#hasNext()} tells whether has the next page. The total of the result is -1.
+     *
+     * @param db      the db, its dialect must be a {@link JFinalCommonDialect}
+     * @param findSql the complete select
+     */
+    public static PagingResult<Record> peekNextPage(DbPro db, int pageNumber, int pageSize, String findSql, Object... paras) {
+        Dialect dialect = db.getConfig().getDialect();
+        Preconditions.checkTrue(dialect instanceof JFinalCommonDialect, "the peek next page query requires the JFinalCommonDialect");
+        Preconditions.checkTrue(pageSize > 0, "the page size must be greater than 0");
+        PagingRequest<Object, Record> request = new PagingRequest<Object, Record>().limit(pageNumber, pageSize).peekNextPage(true);
+
+        String sql = ((JFinalCommonDialect) dialect).forPeekNextPage(request.getPageNo(), pageSize, new StringBuilder(findSql));
+        List<Record> items = new ArrayList<Record>(db.find(sql, paras));
+
+        PagingResult<Record> result = new PagingResult<Record>();
+        result.setPageNo(request.getPageNo());
+        result.setPageSize(pageSize);
+        result.setTotal(-1);
+        result.setItems(items);
+        SqlPaginations.peekNextPage(request, result);
+        return result;
+    }
+}
@@ -10,6 +10,8 @@ import com.jn.sqlhelper.common.ddl.SQLSyntaxCompatTable;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.internal.OracleDialect;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContext;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContextHolder;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.parameter.ArrayBasedParameterSetter;
 import com.jn.sqlhelper.dialect.parameter.ArrayBasedQueryParameters;
@@ -26,7 +28,6 @@ public class JFinalCommonDialect extends Dialect {
 
     protected String databaseId;
     private SQLStatementInstrumentor instrumentor;
-    private ThreadLocal<RowSelection> pagingRequestHolder = new ThreadLocal<RowSelection>();
 
     public JFinalCommonDialect(String databaseId) {
         this.databaseId = databaseId.toLowerCase();
@@ -37,9 +38,7 @@ public class JFinalCommonDialect extends Dialect {
             this.instrumentor.setConfig(config);
         }
         this.instrumentor.init();
-        if (instrumentor.beginIfSupportsLimit(databaseId)) {
-            delegate = instrumentor.getCurrentDialect();
-        }
+        delegate = instrumentor.getLimitDialect(databaseId);
     }
 
 
@@ -59,12 +58,27 @@ public class JFinalCommonDialect extends Dialect {
 
     @Override
     public String forPaginate(int pageNumber, int pageSize, StringBuilder findSql) {
+        return forPaginate(pageNumber, pageSize, pageSize, findSql);
+    }
+
+    /**
+     * The sql of a peek next page query: pageSize + 1 rows of the page, the extra row tells whether has the next page,
+     * no count query is required.
+     *
+     * @see com.jn.sqlhelper.jfinal.JFinalPaginations#peekNextPage(com.jfinal.plugin.activerecord.DbPro, int, int, String, Object...)
+     */
+    public String forPeekNextPage(int pageNumber, int pageSize, StringBuilder findSql) {
+        return forPaginate(pageNumber, pageSize, pageSize + 1, findSql);
+    }
+
+    private String forPaginate(int pageNumber, int pageSize, int limit, StringBuilder findSql) {
         RowSelection rowSelection = new RowSelection();
         rowSelection.setOffset(pageNumber <= 0 ? 0L : (pageNumber - 1) * pageSize);
-        rowSelection.setLimit(pageSize);
-        if (instrumentor.beginIfSupportsLimit(databaseId)) {
-            pagingRequestHolder.set(rowSelection);
-            return instrumentor.instrumentLimitSql(findSql.toString(), rowSelection);
+        rowSelection.setLimit(limit);
+        if (delegate != null) {
+            // pass the row selection to the fillStatement()
+            PagingRequestContextHolder.getContext().setRowSelection(rowSelection);
+            return instrumentor.instrumentLimitSql(delegate, findSql.toString(), rowSelection);
         } else {
             return findSql.toString();
         }
@@ -77,17 +91,32 @@ public class JFinalCommonDialect extends Dialect {
 
     @Override
     public void fillStatement(PreparedStatement pst, Object... paras) throws SQLException {
-        RowSelection rowSelection = pagingRequestHolder.get();
+        RowSelection rowSelection = takeRowSelection();
         if (rowSelection != null) {
-            pagingRequestHolder.remove();
             ArrayBasedQueryParameters queryParameters = new ArrayBasedQueryParameters();
             queryParameters.setRowSelection(rowSelection);
-            instrumentor.bindParameters(pst, new ArrayBasedParameterSetter(), queryParameters, true);
+            queryParameters.setParameters(paras == null ? new Object[0] : paras, 0, 0);
+            instrumentor.bindParameters(delegate, pst, new ArrayBasedParameterSetter(), queryParameters, true);
         } else {
             super.fillStatement(pst, paras);
         }
     }
 
+    private RowSelection takeRowSelection() {
+        PagingRequestContextHolder holder = PagingRequestContextHolder.getContext();
+        PagingRequestContext context = holder.get();
+        if (context == null) {
+            return null;
+        }
+        RowSelection rowSelection = context.getRowSelection();
+        if (context.getRequest() == null) {
+            holder.remove();
+        } else {
+            context.setRowSelection(null);
+        }
+        return rowSelection;
+    }
+
     @Override
     public boolean isOracle() {
         return delegate == null ? "oracle".equals(databaseId) : delegate instanceof OracleDialect;
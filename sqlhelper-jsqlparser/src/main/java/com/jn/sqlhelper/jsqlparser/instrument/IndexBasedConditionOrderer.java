@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jsqlparser.instrument;
+
+import com.jn.sqlhelper.common.ddl.catalog.TableIndexCatalogRegistry;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.IndexColumn;
+import com.jn.sqlhelper.jsqlparser.utils.JSqlParsers;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.IsNullExpression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the {@link com.jn.sqlhelper.dialect.instrument.InjectPosition#BEST} position:
+ * <pre>
+ * 1) split the where and the injected condition into the conjuncts (the top level AND operands)
+ * 2) choose the index of the table whose leading columns are covered by the most conjuncts,
+ *    the matching stops at the first column that is not compared with an equality (=, in, is null)
+ * 3) the conjuncts on the chosen index columns come first, in the index column order,
+ *    the others keep their original order, the where first
+ * </pre>
+ * If the table has no index metadata in {@link TableIndexCatalogRegistry}, or no index is matched,
+ * the condition is appended to the end of the where, just like {@link com.jn.sqlhelper.dialect.instrument.InjectPosition#LAST}.
+ * <p>
+ * Some optimizers (e.g. older MySQL, Oracle RBO) choose the access path by the predicate order,
+ * it is useless but harmless for the cost based optimizers.
+ */
+public class IndexBasedConditionOrderer {
+    private final TableIndexCatalogRegistry registry;
+
+    public IndexBasedConditionOrderer() {
+        this(TableIndexCatalogRegistry.getInstance());
+    }
+
+    public IndexBasedConditionOrderer(TableIndexCatalogRegistry registry) {
+        this.registry = registry;
+    }
+
+    public boolean hasIndexes(Table table) {
+        return table != null && !getIndexes(table).isEmpty();
+    }
+
+    /**
+     * @return the indexes of the table, the catalog and the schema of the table name are used if it is qualified
+     */
+    private List<Index> getIndexes(Table table) {
+        return registry.getIndexes(JSqlParsers.getCatalogName(table), table.getSchemaName(), table.getName());
+    }
+
+    public Expression inject(Table table, Expression where, Expression condition) {
+        if (where == null) {
+            return condition;
+        }
+        List<Index> indexes = table == null ? null : getIndexes(table);
+        if (indexes == null || indexes.isEmpty()) {
+            return and(where, condition);
+        }
+
+        List<Expression> conjuncts = new ArrayList<Expression>();
+        split(where, conjuncts);
+        split(condition, conjuncts);
+        List<String> columns = new ArrayList<String>(conjuncts.size());
+        for (Expression conjunct : conjuncts) {
+            columns.add(getColumnName(table, conjunct));
+        }
+
+        List<Integer> bestMatched = null;
+        Index bestIndex = null;
+        for (Index index : indexes) {
+            List<Integer> matched = match(index, conjuncts, columns);
+            if (matched.isEmpty()) {
+                continue;
+            }
+            if (bestMatched == null
+                    || matched.size() > bestMatched.size()
+                    || (matched.size() == bestMatched.size() && isUnique(index) && !isUnique(bestIndex))) {
+                bestMatched = matched;
+                bestIndex = index;
+            }
+        }
+        if (bestMatched == null) {
+            return and(where, condition);
+        }
+
+        List<Expression> ordered = new ArrayList<Expression>(conjuncts.size());
+        for (Integer i : bestMatched) {
+            ordered.add(conjuncts.get(i));
+        }
+        for (int i = 0; i < conjuncts.size(); i++) {
+            if (!bestMatched.contains(i)) {
+                ordered.add(conjuncts.get(i));
+            }
+        }
+        Expression result = null;
+        for (Expression conjunct : ordered) {
+            result = result == null ? conjunct : and(result, conjunct);
+        }
+        return result;
+    }
+
+    /**
+     * @return the indexes of the conjuncts that match the leading columns of the index, in the index column order
+     */
+    private static List<Integer> match(Index index, List<Expression> conjuncts, List<String> columns) {
+        List<Integer> matched = new ArrayList<Integer>();
+        for (IndexColumn indexColumn : index.getColumns()) {
+            String columnName = indexColumn.getColumnName();
+            int found = -1;
+            boolean equality = false;
+            for (int i = 0; i < columns.size(); i++) {
+                if (columnName != null && columnName.equalsIgnoreCase(columns.get(i)) && !matched.contains(i)) {
+                    boolean isEquality = isEquality(conjuncts.get(i));
+                    if (found == -1 || (isEquality && !equality)) {
+                        found = i;
+                        equality = isEquality;
+                    }
+                }
+            }
+            if (found == -1) {
+                break;
+            }
+            matched.add(found);
+            if (!equality) {
+                break;
+            }
+        }
+        return matched;
+    }
+
+    private static boolean isUnique(Index index) {
+        return !index.getColumns().isEmpty() && !index.getColumns().iterator().next().isNonUnique();
+    }
+
+    private static boolean isEquality(Expression expression) {
+        // NOT a = b is parsed as a NotExpression
+        return expression instanceof EqualsTo
+                || (expression instanceof InExpression && !((InExpression) expression).isNot())
+                || (expression instanceof IsNullExpression && !((IsNullExpression) expression).isNot());
+    }
+
+    private static void split(Expression expression, List<Expression> conjuncts) {
+        if (expression instanceof AndExpression) {
+            split(((AndExpression) expression).getLeftExpression(), conjuncts);
+            split(((AndExpression) expression).getRightExpression(), conjuncts);
+        } else {
+            conjuncts.add(expression);
+        }
+    }
+
+    /**
+     * @return the column name if the conjunct compares a column of the table, else null
+     */
+    private static String getColumnName(Table table, Expression conjunct) {
+        Expression left = null;
+        if (conjunct instanceof BinaryExpression && !(conjunct instanceof OrExpression)) {
+            left = ((BinaryExpression) conjunct).getLeftExpression();
+        } else if (conjunct instanceof InExpression) {
+            left = ((InExpression) conjunct).getLeftExpression();
+        } else if (conjunct instanceof IsNullExpression) {
+            left = ((IsNullExpression) conjunct).getLeftExpression();
+        } else if (conjunct instanceof Between) {
+            left = ((Between) conjunct).getLeftExpression();
+        }
+        if (!(left instanceof Column)) {
+            return null;
+        }
+        Column column = (Column) left;
+        Table owner = column.getTable();
+        if (owner != null && owner.getName() != null) {
+            String qualifier = owner.getName();
+            boolean sameTable = qualifier.equalsIgnoreCase(table.getName())
+                    || (table.getAlias() != null && qualifier.equalsIgnoreCase(table.getAlias().getName()));
+            if (!sameTable) {
+                return null;
+            }
+        }
+        return column.getColumnName();
+    }
+
+    static Expression and(Expression left, Expression right) {
+        if (left instanceof OrExpression) {
+            left = new Parenthesis(left);
+        }
+        if (right instanceof OrExpression) {
+            right = new Parenthesis(right);
+        }
+        return new AndExpression(left, right);
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jsqlparser.instrument;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.util.Emptys;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.common.ddl.catalog.TableIndexCatalogRegistry;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.IndexColumn;
+import com.jn.sqlhelper.dialect.instrument.AbstractClauseTransformer;
+import com.jn.sqlhelper.dialect.instrument.TransformConfig;
+import com.jn.sqlhelper.dialect.instrument.count.CountTransformer;
+import com.jn.sqlhelper.dialect.sqlparser.SqlStatementWrapper;
+import com.jn.sqlhelper.jsqlparser.utils.JSqlParsers;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Transforms a plain select into the count statement by its AST:
+ * <pre>
+ * 1) the select list is replaced with count(*)
+ * 2) the ORDER BY is removed, also the ORDER BY of the derived tables and the CTEs that has no LIMIT
+ * 3) a LEFT JOIN is removed if it can't change the count: the ON binds all the columns of a unique index of the joined table
+ *    with equalities, and the joined table is not referenced anywhere else. The indexes are found in {@link TableIndexCatalogRegistry}
+ *    by the qualified table name, the partial unique indexes are ignored
+ * </pre>
+ * The statement is not changed if the rows can't be counted by the select itself (DISTINCT, GROUP BY, HAVING, UNION,
+ * LIMIT, aggregate functions in the select list), or if a placeholder would be removed.
+ */
+public class JSqlParserCountTransformer extends AbstractClauseTransformer<Statement> implements CountTransformer<Statement> {
+    private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<String>(Collects.asList(
+            "count", "sum", "avg", "min", "max",
+            "group_concat", "string_agg", "listagg", "array_agg", "json_agg", "jsonb_agg", "json_arrayagg", "json_objectagg", "xmlagg", "wm_concat",
+            "stddev", "stddev_pop", "stddev_samp", "variance", "var_pop", "var_samp",
+            "bool_and", "bool_or", "bit_and", "bit_or", "bit_xor", "every", "median",
+            "percentile_cont", "percentile_disc", "collect", "checksum_agg", "count_big", "grouping", "grouping_id"
+    ));
+
+    private final TableIndexCatalogRegistry registry;
+
+    public JSqlParserCountTransformer() {
+        this(TableIndexCatalogRegistry.getInstance());
+    }
+
+    public JSqlParserCountTransformer(TableIndexCatalogRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public SqlStatementWrapper<Statement> transform(@NonNull SqlStatementWrapper<Statement> sw, @NonNull TransformConfig config) {
+        Preconditions.checkNotNull(sw);
+        Statement statement = sw.get();
+        if (!(statement instanceof Select)) {
+            return sw;
+        }
+        Select select = (Select) statement;
+        if (!(select.getSelectBody() instanceof PlainSelect)) {
+            return sw;
+        }
+        PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
+        if (!isCountable(plainSelect)) {
+            return sw;
+        }
+        String originalSql = sw.getOriginalSql() == null ? select.toString() : sw.getOriginalSql();
+        int placeholders = countPlaceholders(originalSql);
+
+        Function count = new Function();
+        count.setName("count");
+        count.setAllColumns(true);
+        List<SelectItem> selectItems = new ArrayList<SelectItem>();
+        selectItems.add(new SelectExpressionItem(count));
+        plainSelect.setSelectItems(selectItems);
+        plainSelect.setOrderByElements(null);
+
+        if (Emptys.isNotEmpty(select.getWithItemsList())) {
+            for (WithItem withItem : select.getWithItemsList()) {
+                removeOrderBy(withItem.getSelectBody());
+            }
+        }
+        removeOrderBy(plainSelect.getFromItem());
+        if (Emptys.isNotEmpty(plainSelect.getJoins())) {
+            for (Join join : plainSelect.getJoins()) {
+                removeOrderBy(join.getRightItem());
+            }
+            removeJoins(plainSelect);
+        }
+
+        // the parameters of the select are bound to the count statement
+        if (countPlaceholders(select.toString()) == placeholders) {
+            sw.setChanged(true);
+        }
+        return sw;
+    }
+
+    private static boolean isCountable(PlainSelect plainSelect) {
+        if (plainSelect.getDistinct() != null
+                || plainSelect.getGroupBy() != null
+                || plainSelect.getHaving() != null
+                || plainSelect.getIntoTables() != null
+                || plainSelect.isForUpdate()
+                || hasLimit(plainSelect)) {
+            return false;
+        }
+        if (Emptys.isNotEmpty(plainSelect.getOrderByElements()) && PlainSelect.orderByToString(plainSelect.getOrderByElements()).contains("?")) {
+            return false;
+        }
+        for (SelectItem selectItem : plainSelect.getSelectItems()) {
+            if (selectItem.toString().contains("?")) {
+                return false;
+            }
+            if (selectItem instanceof SelectExpressionItem) {
+                AggregateFinder finder = new AggregateFinder();
+                ((SelectExpressionItem) selectItem).getExpression().accept(finder);
+                if (finder.found) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasLimit(PlainSelect plainSelect) {
+        return plainSelect.getLimit() != null
+                || plainSelect.getOffset() != null
+                || plainSelect.getFetch() != null
+                || plainSelect.getTop() != null
+                || plainSelect.getFirst() != null
+                || plainSelect.getSkip() != null;
+    }
+
+    private static void removeOrderBy(Object selectOrFromItem) {
+        SelectBody selectBody = null;
+        if (selectOrFromItem instanceof SubSelect) {
+            selectBody = ((SubSelect) selectOrFromItem).getSelectBody();
+        } else if (selectOrFromItem instanceof SelectBody) {
+            selectBody = (SelectBody) selectOrFromItem;
+        }
+        if (selectBody instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) selectBody;
+            if (!hasLimit(plainSelect)
+                    && Emptys.isNotEmpty(plainSelect.getOrderByElements())
+                    && !PlainSelect.orderByToString(plainSelect.getOrderByElements()).contains("?")) {
+                plainSelect.setOrderByElements(null);
+            }
+        }
+    }
+
+    /**
+     * removes the joins from the last one, a join becomes removable if the joins that reference it are removed
+     */
+    private void removeJoins(PlainSelect plainSelect) {
+        if (plainSelect.getOracleHierarchical() != null) {
+            return;
+        }
+        List<Join> joins = plainSelect.getJoins();
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            if (isRemovable(plainSelect, joins.get(i))) {
+                joins.remove(i);
+            }
+        }
+        if (joins.isEmpty()) {
+            plainSelect.setJoins(null);
+        }
+    }
+
+    private boolean isRemovable(PlainSelect plainSelect, Join join) {
+        if (!join.isLeft() || join.isNatural() || join.isCross() || join.isSimple() || join.isSemi()
+                || Emptys.isNotEmpty(join.getUsingColumns())
+                || join.getOnExpression() == null
+                || !(join.getRightItem() instanceof Table)) {
+            return false;
+        }
+        Expression on = join.getOnExpression();
+        if (on.toString().contains("?")) {
+            return false;
+        }
+        Table table = (Table) join.getRightItem();
+        String qualifier = table.getAlias() != null ? table.getAlias().getName() : table.getName();
+        if (Emptys.isEmpty(qualifier)) {
+            return false;
+        }
+        Pattern reference = Pattern.compile("(^|[^\\w$])[\"`\\[]?" + Pattern.quote(unquote(qualifier)) + "[\"`\\]]?\\s*\\.", Pattern.CASE_INSENSITIVE);
+
+        // the joined table is not referenced by the others, the other columns are qualified
+        List<Expression> others = new ArrayList<Expression>();
+        if (plainSelect.getWhere() != null) {
+            others.add(plainSelect.getWhere());
+        }
+        if (reference.matcher(plainSelect.getFromItem().toString()).find()) {
+            return false;
+        }
+        for (Join other : plainSelect.getJoins()) {
+            if (other == join) {
+                continue;
+            }
+            if (Emptys.isNotEmpty(other.getUsingColumns()) || reference.matcher(other.toString()).find()) {
+                return false;
+            }
+            if (other.getOnExpression() != null) {
+                others.add(other.getOnExpression());
+            }
+        }
+        for (Expression expression : others) {
+            if (reference.matcher(expression.toString()).find()) {
+                return false;
+            }
+            UnqualifiedColumnFinder finder = new UnqualifiedColumnFinder();
+            expression.accept(finder);
+            if (finder.found) {
+                return false;
+            }
+        }
+
+        // the joined row is unique
+        Set<String> boundColumns = new HashSet<String>();
+        List<Expression> conjuncts = new ArrayList<Expression>();
+        split(on, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            if (conjunct instanceof EqualsTo) {
+                EqualsTo equalsTo = (EqualsTo) conjunct;
+                String column = getBoundColumn(equalsTo.getLeftExpression(), equalsTo.getRightExpression(), qualifier, reference);
+                if (column == null) {
+                    column = getBoundColumn(equalsTo.getRightExpression(), equalsTo.getLeftExpression(), qualifier, reference);
+                }
+                if (column != null) {
+                    boundColumns.add(column);
+                }
+            }
+        }
+        if (boundColumns.isEmpty()) {
+            return false;
+        }
+        // a same-named table in another schema must not be matched, its name is ambiguous if it is not qualified
+        for (Index index : registry.getIndexes(JSqlParsers.getCatalogName(table), table.getSchemaName(), table.getName())) {
+            if (isUnique(index) && isBound(index, boundColumns)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the lower case column name if the column is a column of the joined table and the value does not reference it, else null
+     */
+    private static String getBoundColumn(Expression column, Expression value, String qualifier, Pattern reference) {
+        if (!(column instanceof Column)) {
+            return null;
+        }
+        Table owner = ((Column) column).getTable();
+        if (owner == null || owner.getName() == null || !unquote(owner.getName()).equalsIgnoreCase(unquote(qualifier))) {
+            return null;
+        }
+        if (reference.matcher(value.toString()).find()) {
+            return null;
+        }
+        return unquote(((Column) column).getColumnName()).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * a partial (filtered) unique index doesn't make the rows unique
+     */
+    private static boolean isUnique(Index index) {
+        if (index.getColumns().isEmpty()) {
+            return false;
+        }
+        for (IndexColumn indexColumn : index.getColumns()) {
+            if (indexColumn.isNonUnique() || Emptys.isNotEmpty(indexColumn.getFilterCondition())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBound(Index index, Set<String> boundColumns) {
+        for (IndexColumn indexColumn : index.getColumns()) {
+            String columnName = indexColumn.getColumnName();
+            if (columnName == null || !boundColumns.contains(columnName.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void split(Expression expression, List<Expression> conjuncts) {
+        if (expression instanceof AndExpression) {
+            split(((AndExpression) expression).getLeftExpression(), conjuncts);
+            split(((AndExpression) expression).getRightExpression(), conjuncts);
+        } else if (expression instanceof Parenthesis) {
+            split(((Parenthesis) expression).getExpression(), conjuncts);
+        } else {
+            conjuncts.add(expression);
+        }
+    }
+
+    private static String unquote(String identifier) {
+        if (identifier.length() > 1) {
+            char first = identifier.charAt(0);
+            char last = identifier.charAt(identifier.length() - 1);
+            if ((first == '"' && last == '"') || (first == '`' && last == '`') || (first == '[' && last == ']')) {
+                return identifier.substring(1, identifier.length() - 1);
+            }
+        }
+        return identifier;
+    }
+
+    /**
+     * @return the count of the '?' that are not in the string literals and the quoted identifiers
+     */
+    static int countPlaceholders(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * finds the aggregate functions, the sub queries are not visited
+     */
+    private static class AggregateFinder extends ExpressionVisitorAdapter {
+        private boolean found = false;
+
+        @Override
+        public void visit(Function function) {
+            if (function.getName() != null && AGGREGATE_FUNCTIONS.contains(function.getName().toLowerCase(Locale.ROOT))) {
+                found = true;
+            }
+            super.visit(function);
+        }
+    }
+
+    /**
+     * finds the columns without a table qualifier, they may be the columns of the joined table.
+     * A sub query is treated as an unqualified column, it may be correlated with the joined table
+     */
+    private static class UnqualifiedColumnFinder extends ExpressionVisitorAdapter {
+        private boolean found = false;
+
+        @Override
+        public void visit(Column column) {
+            if (column.getTable() == null || Emptys.isEmpty(column.getTable().getName())) {
+                found = true;
+            }
+        }
+
+        @Override
+        public void visit(SubSelect subSelect) {
+            found = true;
+        }
+    }
+}
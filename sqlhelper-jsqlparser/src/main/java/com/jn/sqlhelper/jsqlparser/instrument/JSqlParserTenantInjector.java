@@ -0,0 +1,476 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jsqlparser.instrument;
+
+import com.jn.langx.util.Emptys;
+import com.jn.sqlhelper.common.er.EntityTableRegistry;
+import com.jn.sqlhelper.dialect.expression.ExpressionSymbol;
+import com.jn.sqlhelper.dialect.tenant.Tenant;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.JdbcNamedParameter;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.ItemsList;
+import net.sf.jsqlparser.expression.operators.relational.MultiExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.*;
+import net.sf.jsqlparser.statement.update.Update;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Injects the tenant into a parsed statement in one pass:
+ * <pre>
+ * 1) select: a tenant predicate for every table reference, include the joins, the sub queries and the CTEs.
+ *    the predicate of a table that can be null extended by an outer join is injected into the ON clause,
+ *    or the table is replaced with a tenant filtered derived table, else the predicate is injected into the WHERE clause.
+ * 2) insert: the tenant column and value, for the INSERT ... SELECT, the select is instrumented also.
+ * 3) update, delete: a tenant predicate for the target tables, the FROM and JOIN tables of an update, and the sub queries.
+ * </pre>
+ * <p>
+ * The tenant values are injected as named parameters ':sqlhelper_tenant_{valueIndex}', see {@link TenantSql}.
+ * <p>
+ * Which tables will be instrumented:
+ * 1) if the tenant has a table, only the table
+ * 2) if any entity with a tenant column has been registered in {@link EntityTableRegistry}, only the registered tables,
+ * and the tenant column of the table will be used
+ * 3) else all the tables
+ * <p>
+ * An injector is stateful, use it for one statement only.
+ */
+public class JSqlParserTenantInjector {
+    private final Tenant tenant;
+    private final EntityTableRegistry registry;
+    private final IndexBasedConditionOrderer conditionOrderer;
+    /**
+     * the names of the CTEs which are visible in the current select, they have been instrumented already
+     */
+    private Set<String> cteNames = new HashSet<String>();
+    private final ExpressionVisitorAdapter subSelectVisitor = new ExpressionVisitorAdapter() {
+        @Override
+        public void visit(SubSelect subSelect) {
+            injectSubSelect(subSelect);
+        }
+    };
+
+    public JSqlParserTenantInjector(Tenant tenant) {
+        this(tenant, new IndexBasedConditionOrderer());
+    }
+
+    public JSqlParserTenantInjector(Tenant tenant, IndexBasedConditionOrderer conditionOrderer) {
+        this(tenant, EntityTableRegistry.getInstance(), conditionOrderer);
+    }
+
+    public JSqlParserTenantInjector(Tenant tenant, EntityTableRegistry registry, IndexBasedConditionOrderer conditionOrderer) {
+        this.tenant = tenant;
+        this.registry = registry;
+        this.conditionOrderer = conditionOrderer;
+    }
+
+    public void inject(Select select) {
+        injectSelect(select.getWithItemsList(), select.getSelectBody());
+    }
+
+    public void inject(Insert insert) {
+        if (insert.getSelect() != null) {
+            inject(insert.getSelect());
+        } else if (insert.getItemsList() instanceof SubSelect) {
+            injectSubSelect((SubSelect) insert.getItemsList());
+        }
+
+        // only a single tenant value can be inserted
+        if (tenant.getValueCount() != 1 || Emptys.isEmpty(insert.getColumns())) {
+            return;
+        }
+        String tenantColumn = getTenantColumn(insert.getTable());
+        if (tenantColumn == null) {
+            return;
+        }
+        for (Column column : insert.getColumns()) {
+            if (tenantColumn.equalsIgnoreCase(column.getColumnName())) {
+                return;
+            }
+        }
+
+        insert.getColumns().add(new Column(tenantColumn));
+        if (insert.getSelect() != null) {
+            addSelectItem(insert.getSelect().getSelectBody());
+        } else {
+            ItemsList itemsList = insert.getItemsList();
+            if (itemsList instanceof SubSelect) {
+                addSelectItem(((SubSelect) itemsList).getSelectBody());
+            } else if (itemsList instanceof MultiExpressionList) {
+                for (ExpressionList row : ((MultiExpressionList) itemsList).getExprList()) {
+                    row.getExpressions().add(newParameter(0));
+                }
+            } else if (itemsList instanceof ExpressionList) {
+                ((ExpressionList) itemsList).getExpressions().add(newParameter(0));
+            }
+        }
+    }
+
+    public void inject(Update update) {
+        if (update.isUseSelect() && update.getSelect() != null) {
+            inject(update.getSelect());
+        }
+        if (update.getExpressions() != null) {
+            for (Expression expression : update.getExpressions()) {
+                injectSubSelects(expression);
+            }
+        }
+        injectSubSelects(update.getWhere());
+
+        List<Table> tables = new ArrayList<Table>();
+        if (update.getTables() != null) {
+            tables.addAll(update.getTables());
+        }
+        // UPDATE ... FROM ... JOIN ...
+        update.setFromItem(injectFromClause(update.getFromItem(), update.getJoins(), tables));
+        boolean qualified = tables.size() > 1 || Emptys.isNotEmpty(update.getJoins()) || update.getFromItem() != null;
+        update.setWhere(inject(tables, predicates(tables, qualified), update.getWhere()));
+    }
+
+    public void inject(Delete delete) {
+        injectSubSelects(delete.getWhere());
+        if (delete.getTable() == null) {
+            return;
+        }
+        List<Table> tables = new ArrayList<Table>();
+        tables.add(delete.getTable());
+        boolean qualified = Emptys.isNotEmpty(delete.getJoins());
+        delete.setWhere(inject(tables, predicates(tables, qualified), delete.getWhere()));
+    }
+
+    private void injectSubSelect(SubSelect subSelect) {
+        injectSelect(subSelect.getWithItemsList(), subSelect.getSelectBody());
+    }
+
+    private void injectSubSelects(Expression expression) {
+        if (expression != null) {
+            expression.accept(subSelectVisitor);
+        }
+    }
+
+    private void injectSelect(List<WithItem> withItems, SelectBody selectBody) {
+        if (Emptys.isEmpty(withItems)) {
+            injectSelectBody(selectBody);
+            return;
+        }
+        Set<String> outerCteNames = cteNames;
+        cteNames = new HashSet<String>(outerCteNames);
+        try {
+            for (WithItem withItem : withItems) {
+                injectSelectBody(withItem.getSelectBody());
+                cteNames.add(withItem.getName().toLowerCase());
+            }
+            injectSelectBody(selectBody);
+        } finally {
+            cteNames = outerCteNames;
+        }
+    }
+
+    private void injectSelectBody(SelectBody selectBody) {
+        if (selectBody instanceof PlainSelect) {
+            injectPlainSelect((PlainSelect) selectBody);
+        } else if (selectBody instanceof SetOperationList) {
+            for (SelectBody body : ((SetOperationList) selectBody).getSelects()) {
+                injectSelectBody(body);
+            }
+        } else if (selectBody instanceof WithItem) {
+            injectSelectBody(((WithItem) selectBody).getSelectBody());
+        }
+    }
+
+    private void injectPlainSelect(PlainSelect plainSelect) {
+        if (plainSelect.getSelectItems() != null) {
+            for (SelectItem selectItem : plainSelect.getSelectItems()) {
+                if (selectItem instanceof SelectExpressionItem) {
+                    injectSubSelects(((SelectExpressionItem) selectItem).getExpression());
+                }
+            }
+        }
+        injectSubSelects(plainSelect.getWhere());
+        injectSubSelects(plainSelect.getHaving());
+
+        List<Join> joins = plainSelect.getJoins();
+        boolean qualified = Emptys.isNotEmpty(joins);
+
+        List<Table> whereTables = new ArrayList<Table>();
+        plainSelect.setFromItem(injectFromClause(plainSelect.getFromItem(), joins, whereTables));
+        plainSelect.setWhere(inject(whereTables, predicates(whereTables, qualified), plainSelect.getWhere()));
+    }
+
+    /**
+     * Injects the tenant predicates of the FROM item and the joins. A predicate of a table that can be null extended
+     * is never injected into the WHERE clause, it would drop the null extended rows:
+     * <pre>
+     * 1) INNER, CROSS join: the predicates of both sides are injected into the WHERE clause
+     * 2) LEFT join: the predicate of the right table is injected into the ON clause
+     * 3) RIGHT join: the predicates of the left tables are injected into the ON clause,
+     *    the predicate of the right table is injected into the WHERE clause
+     * 4) FULL join, or an outer join without an ON clause: the tables are replaced with the tenant filtered derived tables,
+     *    e.g. (SELECT * FROM b WHERE tenant_id = ?) b
+     * </pre>
+     *
+     * @param whereTables the tables whose predicates will be injected into the WHERE clause
+     * @return the FROM item, it is replaced if it is filtered by a derived table
+     */
+    private FromItem injectFromClause(FromItem fromItem, List<Join> joins, List<Table> whereTables) {
+        List<Table> fromTables = new ArrayList<Table>();
+        injectFromItem(fromItem, fromTables);
+        // the items whose predicates are not injected yet, a null join is the FROM item
+        List<Join> pendingJoins = new ArrayList<Join>();
+        List<Table> pendingTables = new ArrayList<Table>(fromTables);
+        boolean fromItemPending = true;
+        if (joins != null) {
+            for (Join join : joins) {
+                List<Table> joinTables = new ArrayList<Table>();
+                injectFromItem(join.getRightItem(), joinTables);
+                injectSubSelects(join.getOnExpression());
+                boolean outer = join.isLeft() || join.isRight() || join.isFull() || join.isOuter();
+                if (!outer) {
+                    pendingJoins.add(join);
+                    pendingTables.addAll(joinTables);
+                } else if (join.isRight() && !join.isFull()) {
+                    // the left rows are kept by the ON clause only, the right rows are kept whatever the ON clause is
+                    Expression leftPredicates = predicates(pendingTables, true);
+                    if (leftPredicates != null && join.getOnExpression() != null) {
+                        join.setOnExpression(and(leftPredicates, join.getOnExpression()));
+                    } else if (leftPredicates != null) {
+                        fromItem = filterPendingItems(fromItem, fromItemPending, pendingJoins);
+                    }
+                    fromItemPending = false;
+                    pendingJoins.clear();
+                    pendingJoins.add(join);
+                    pendingTables = joinTables;
+                } else if (join.isFull()) {
+                    fromItem = filterPendingItems(fromItem, fromItemPending, pendingJoins);
+                    fromItemPending = false;
+                    pendingJoins.clear();
+                    pendingTables = new ArrayList<Table>();
+                    join.setRightItem(filter(join.getRightItem()));
+                } else if (join.getOnExpression() != null) {
+                    join.setOnExpression(and(predicates(joinTables, true), join.getOnExpression()));
+                } else {
+                    // LEFT JOIN ... USING (...)
+                    join.setRightItem(filter(join.getRightItem()));
+                }
+            }
+        }
+        whereTables.addAll(pendingTables);
+        return fromItem;
+    }
+
+    /**
+     * @return the FROM item, it is filtered if it is pending
+     */
+    private FromItem filterPendingItems(FromItem fromItem, boolean fromItemPending, List<Join> pendingJoins) {
+        for (Join join : pendingJoins) {
+            join.setRightItem(filter(join.getRightItem()));
+        }
+        return fromItemPending ? filter(fromItem) : fromItem;
+    }
+
+    /**
+     * Replaces a tenant table with a tenant filtered derived table, the tables of a sub join are replaced one by one.
+     * The sub selects have been instrumented already.
+     */
+    private FromItem filter(FromItem fromItem) {
+        if (fromItem instanceof Table) {
+            Table table = (Table) fromItem;
+            if (table.getSchemaName() == null && cteNames.contains(table.getName().toLowerCase())) {
+                return table;
+            }
+            Table source = new Table(table.getName());
+            if (table.getSchemaName() != null) {
+                source.setSchemaName(table.getSchemaName());
+            }
+            if (table.getDatabase() != null && Emptys.isNotEmpty(table.getDatabase().getDatabaseName())) {
+                source.setDatabase(table.getDatabase());
+            }
+            List<Table> sources = new ArrayList<Table>();
+            sources.add(source);
+            Expression predicate = predicates(sources, false);
+            if (predicate == null) {
+                return table;
+            }
+            List<SelectItem> selectItems = new ArrayList<SelectItem>();
+            selectItems.add(new AllColumns());
+            PlainSelect plainSelect = new PlainSelect();
+            plainSelect.setSelectItems(selectItems);
+            plainSelect.setFromItem(source);
+            plainSelect.setWhere(predicate);
+            SubSelect subSelect = new SubSelect();
+            subSelect.setSelectBody(plainSelect);
+            subSelect.setAlias(table.getAlias() != null ? table.getAlias() : new Alias(table.getName(), false));
+            return subSelect;
+        }
+        if (fromItem instanceof SubJoin) {
+            SubJoin subJoin = (SubJoin) fromItem;
+            subJoin.setLeft(filter(subJoin.getLeft()));
+            if (subJoin.getJoinList() != null) {
+                for (Join join : subJoin.getJoinList()) {
+                    join.setRightItem(filter(join.getRightItem()));
+                }
+            }
+        }
+        return fromItem;
+    }
+
+    private void injectFromItem(FromItem fromItem, List<Table> tables) {
+        if (fromItem == null) {
+            return;
+        }
+        if (fromItem instanceof Table) {
+            Table table = (Table) fromItem;
+            if (table.getSchemaName() == null && cteNames.contains(table.getName().toLowerCase())) {
+                // a CTE has been instrumented already
+                return;
+            }
+            tables.add(table);
+        } else if (fromItem instanceof SubSelect) {
+            SubSelect subSelect = (SubSelect) fromItem;
+            injectSelect(subSelect.getWithItemsList(), subSelect.getSelectBody());
+        } else if (fromItem instanceof LateralSubSelect) {
+            SubSelect subSelect = ((LateralSubSelect) fromItem).getSubSelect();
+            if (subSelect != null) {
+                injectSelect(subSelect.getWithItemsList(), subSelect.getSelectBody());
+            }
+        } else if (fromItem instanceof SubJoin) {
+            SubJoin subJoin = (SubJoin) fromItem;
+            injectFromItem(subJoin.getLeft(), tables);
+            if (subJoin.getJoinList() != null) {
+                for (Join join : subJoin.getJoinList()) {
+                    injectFromItem(join.getRightItem(), tables);
+                }
+            }
+        }
+    }
+
+    private void addSelectItem(SelectBody selectBody) {
+        if (selectBody instanceof PlainSelect) {
+            ((PlainSelect) selectBody).getSelectItems().add(new SelectExpressionItem(newParameter(0)));
+        } else if (selectBody instanceof SetOperationList) {
+            for (SelectBody body : ((SetOperationList) selectBody).getSelects()) {
+                addSelectItem(body);
+            }
+        }
+    }
+
+    private Expression predicates(List<Table> tables, boolean qualified) {
+        Expression result = null;
+        for (Table table : tables) {
+            String tenantColumn = getTenantColumn(table);
+            if (tenantColumn == null) {
+                continue;
+            }
+            Column column;
+            if (table.getAlias() != null) {
+                column = new Column(new Table(table.getAlias().getName()), tenantColumn);
+            } else if (qualified) {
+                column = new Column(table, tenantColumn);
+            } else {
+                column = new Column(tenantColumn);
+            }
+            Expression predicate = newPredicate(column);
+            result = result == null ? predicate : new AndExpression(result, predicate);
+        }
+        return result;
+    }
+
+    /**
+     * a single value: column = ? or column != ?
+     * multiple values: column in (?, ?) or column not in (?, ?)
+     */
+    private Expression newPredicate(Column column) {
+        int valueCount = tenant.getValueCount();
+        boolean not = tenant.isNot() || tenant.getSymbol() == ExpressionSymbol.NE;
+        if (valueCount <= 1 && tenant.getSymbol() != ExpressionSymbol.IN) {
+            if (not) {
+                NotEqualsTo notEqualsTo = new NotEqualsTo();
+                notEqualsTo.setLeftExpression(column);
+                notEqualsTo.setRightExpression(newParameter(0));
+                return notEqualsTo;
+            }
+            EqualsTo equalsTo = new EqualsTo();
+            equalsTo.setLeftExpression(column);
+            equalsTo.setRightExpression(newParameter(0));
+            return equalsTo;
+        }
+        List<Expression> parameters = new ArrayList<Expression>(valueCount);
+        for (int i = 0; i < Math.max(1, valueCount); i++) {
+            parameters.add(newParameter(i));
+        }
+        InExpression inExpression = new InExpression(column, new ExpressionList(parameters));
+        inExpression.setNot(not);
+        return inExpression;
+    }
+
+    private static JdbcNamedParameter newParameter(int valueIndex) {
+        return new JdbcNamedParameter(TenantSql.PARAMETER_NAME_PREFIX + valueIndex);
+    }
+
+    private String getTenantColumn(Table table) {
+        if (table == null || table.getName() == null) {
+            return null;
+        }
+        String tableName = table.getName();
+        if (Emptys.isNotEmpty(tenant.getTable())) {
+            return tenant.getTable().equalsIgnoreCase(tableName) ? tenant.getColumn() : null;
+        }
+        if (registry != null && registry.hasTenantTables()) {
+            return registry.getTenantColumn(tableName);
+        }
+        return tenant.getColumn();
+    }
+
+    /**
+     * The tenant predicate of a single table is ordered by the table indexes if the index metadata is available,
+     * else it is injected at the first.
+     */
+    private Expression inject(List<Table> tables, Expression tenantExpression, Expression where) {
+        if (tenantExpression != null && where != null && tables.size() == 1 && conditionOrderer != null && conditionOrderer.hasIndexes(tables.get(0))) {
+            return conditionOrderer.inject(tables.get(0), where, tenantExpression);
+        }
+        return and(tenantExpression, where);
+    }
+
+    private static Expression and(Expression tenantExpression, Expression where) {
+        if (tenantExpression == null) {
+            return where;
+        }
+        if (where == null) {
+            return tenantExpression;
+        }
+        if (where instanceof OrExpression) {
+            where = new Parenthesis(where);
+        }
+        return new AndExpression(tenantExpression, where);
+    }
+}
@@ -16,11 +16,7 @@ import com.jn.sqlhelper.dialect.tenant.Tenant;
 import com.jn.sqlhelper.jsqlparser.expression.ExpressionConverters;
 import com.jn.sqlhelper.jsqlparser.utils.JSqlParsers;
 import net.sf.jsqlparser.expression.Expression;
-import net.sf.jsqlparser.expression.StringValue;
-import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
-import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
-import net.sf.jsqlparser.expression.operators.relational.ItemsList;
-import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.delete.Delete;
 import net.sf.jsqlparser.statement.insert.Insert;
@@ -31,6 +27,7 @@ import net.sf.jsqlparser.statement.update.Update;
 import java.util.List;
 
 public class JSqlParserWhereTransformer extends AbstractClauseTransformer<Statement> implements WhereTransformer<Statement> {
+    private final IndexBasedConditionOrderer conditionOrderer = new IndexBasedConditionOrderer();
 
     @Override
     public void init() throws InitializationException {
@@ -44,23 +41,28 @@ public class JSqlParserWhereTransformer extends AbstractClauseTransformer<Statem
         }
         Statement statement = statementWrapper.get();
         List<WhereTransformConfig> expressionConfigs = config.getWhereInstrumentConfigs();
-        if (Emptys.isEmpty(statement) || Emptys.isEmpty(expressionConfigs)) {
+        Tenant tenant = config.getTenant();
+        if (Emptys.isEmpty(statement) || (Emptys.isEmpty(expressionConfigs) && tenant == null)) {
             return statementWrapper;
         }
         if (!JSqlParsers.isDML(statement)) {
             return statementWrapper;
         }
 
-        if (Reflects.isSubClassOrEquals(Select.class, statement.getClass())) {
-            transform((Select) statement, false, expressionConfigs);
-        } else if (Reflects.isSubClassOrEquals(Update.class, statement.getClass())) {
-            transform((Update) statement, expressionConfigs);
-        } else if (Reflects.isSubClassOrEquals(Delete.class, statement.getClass())) {
-            transform((Delete) statement, expressionConfigs);
-        } else if (Reflects.isSubClassOrEquals(Insert.class, statement.getClass())) {
-            transform((Insert) statement, config.getTenant());
+        if (Emptys.isNotEmpty(expressionConfigs)) {
+            if (Reflects.isSubClassOrEquals(Select.class, statement.getClass())) {
+                transform((Select) statement, false, expressionConfigs);
+            } else if (Reflects.isSubClassOrEquals(Update.class, statement.getClass())) {
+                transform((Update) statement, expressionConfigs);
+            } else if (Reflects.isSubClassOrEquals(Delete.class, statement.getClass())) {
+                transform((Delete) statement, expressionConfigs);
+            }
         }
 
+        if (tenant != null) {
+            transform(statement, tenant);
+        }
+        statementWrapper.setChanged(true);
         return statementWrapper;
     }
 
@@ -78,25 +80,9 @@ public class JSqlParserWhereTransformer extends AbstractClauseTransformer<Statem
         }, new Consumer<WhereTransformConfig>() {
             @Override
             public void accept(WhereTransformConfig config) {
-                Expression where = plainSelect.getWhere();
                 Expression expression = ExpressionConverters.toJSqlParserExpression(config.getExpression());
-
-                if (where == null) {
-                    plainSelect.setWhere(expression);
-                } else {
-                    InjectPosition position = config.getPosition();
-                    switch (position) {
-                        case FIRST:
-                            plainSelect.setWhere(new AndExpression(expression, where));
-                            break;
-                        case LAST:
-                            plainSelect.setWhere(new AndExpression(where, expression));
-                            break;
-                        case BEST:
-                            // TODO compute the best position based on the index
-                            break;
-                    }
-                }
+                Table table = plainSelect.getFromItem() instanceof Table ? (Table) plainSelect.getFromItem() : null;
+                plainSelect.setWhere(inject(table, plainSelect.getWhere(), expression, config.getPosition()));
             }
         });
     }
@@ -113,24 +99,9 @@ public class JSqlParserWhereTransformer extends AbstractClauseTransformer<Statem
         }, new Consumer<WhereTransformConfig>() {
             @Override
             public void accept(WhereTransformConfig config) {
-                Expression where = update.getWhere();
                 Expression expression = ExpressionConverters.toJSqlParserExpression(config.getExpression());
-                if (where == null) {
-                    update.setWhere(expression);
-                } else {
-                    InjectPosition position = config.getPosition();
-                    switch (position) {
-                        case FIRST:
-                            update.setWhere(new AndExpression(expression, where));
-                            break;
-                        case LAST:
-                            update.setWhere(new AndExpression(where, expression));
-                            break;
-                        case BEST:
-                            // TODO compute the best position based on the index
-                            break;
-                    }
-                }
+                Table table = Emptys.isEmpty(update.getTables()) ? null : update.getTables().get(0);
+                update.setWhere(inject(table, update.getWhere(), expression, config.getPosition()));
             }
         });
 
@@ -146,37 +117,37 @@ public class JSqlParserWhereTransformer extends AbstractClauseTransformer<Statem
         }, new Consumer<WhereTransformConfig>() {
             @Override
             public void accept(WhereTransformConfig config) {
-                Expression where = delete.getWhere();
                 Expression expression = ExpressionConverters.toJSqlParserExpression(config.getExpression());
-
-                if (where == null) {
-                    delete.setWhere(expression);
-                } else {
-                    InjectPosition position = config.getPosition();
-                    switch (position) {
-                        case FIRST:
-                            delete.setWhere(new AndExpression(expression, where));
-                            break;
-                        case LAST:
-                            delete.setWhere(new AndExpression(where, expression));
-                            break;
-                        case BEST:
-                            // TODO compute the best position based on the index
-                            break;
-                    }
-                }
+                delete.setWhere(inject(delete.getTable(), delete.getWhere(), expression, config.getPosition()));
             }
         });
     }
-    private void transform(final Insert insert, Tenant tenant) {
-        /*
-        insert.getColumns().add(new Column(tenant.getTenantColumn()));
-        if (insert.getItemsList() != null) {
-            ItemsList itemsList = insert.getItemsList();
-            if (itemsList instanceof ExpressionList) {
-                ((ExpressionList) insert.getItemsList()).getExpressions().add(new StringValue(tenant.getSingleTenantValues()));
-            }
+
+    private Expression inject(Table table, Expression where, Expression expression, InjectPosition position) {
+        if (where == null) {
+            return expression;
+        }
+        switch (position) {
+            case FIRST:
+                return IndexBasedConditionOrderer.and(expression, where);
+            case BEST:
+                return conditionOrderer.inject(table, where, expression);
+            case LAST:
+            default:
+                return IndexBasedConditionOrderer.and(where, expression);
+        }
+    }
+
+    private void transform(Statement statement, Tenant tenant) {
+        JSqlParserTenantInjector injector = new JSqlParserTenantInjector(tenant, conditionOrderer);
+        if (Reflects.isSubClassOrEquals(Select.class, statement.getClass())) {
+            injector.inject((Select) statement);
+        } else if (Reflects.isSubClassOrEquals(Update.class, statement.getClass())) {
+            injector.inject((Update) statement);
+        } else if (Reflects.isSubClassOrEquals(Delete.class, statement.getClass())) {
+            injector.inject((Delete) statement);
+        } else if (Reflects.isSubClassOrEquals(Insert.class, statement.getClass())) {
+            injector.inject((Insert) statement);
         }
-         */
     }
 }
@@ -18,6 +18,8 @@ import com.jn.langx.util.Emptys;
 import com.jn.langx.util.collection.Collects;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Database;
+import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.*;
 import net.sf.jsqlparser.statement.alter.Alter;
 import net.sf.jsqlparser.statement.comment.Comment;
@@ -116,6 +118,14 @@ public class JSqlParsers {
 
     }
 
+    /**
+     * @return the catalog (database) of the table, null if the table name is not qualified with it
+     */
+    public static String getCatalogName(Table table) {
+        Database database = table.getDatabase();
+        return database == null ? null : database.getDatabaseName();
+    }
+
     public static boolean columnEquals(Column column1, Column column2) {
         if (column1 == null && column2 == null) {
             return true;
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jsqlparser.tests;
+
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.ddl.catalog.TableIndexCatalog;
+import com.jn.sqlhelper.common.ddl.catalog.TableIndexCatalogRegistry;
+import com.jn.sqlhelper.jsqlparser.instrument.IndexBasedConditionOrderer;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+public class IndexBasedConditionOrdererTests {
+    private static TableIndexCatalog catalog;
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:condition_orderer;DB_CLOSE_DELAY=-1");
+        // keeps the in-memory database
+        connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE SCHEMA s1");
+        statement.execute("CREATE SCHEMA s2");
+        // the same-named tables have different indexes
+        statement.execute("CREATE TABLE s1.orders (tenant_id INT, status INT, code VARCHAR(16))");
+        statement.execute("CREATE INDEX idx_orders_tenant_status ON s1.orders (tenant_id, status)");
+        statement.execute("CREATE TABLE s2.orders (tenant_id INT, status INT, code VARCHAR(16))");
+        statement.execute("CREATE INDEX idx_orders_code ON s2.orders (code)");
+        IOs.close(statement);
+
+        catalog = new TableIndexCatalog(dataSource);
+        catalog.refresh();
+        TableIndexCatalogRegistry.getInstance().register(catalog);
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TableIndexCatalogRegistry.getInstance().unregister(catalog);
+        IOs.close(connection);
+    }
+
+    @Test
+    public void testOrderByIndex() throws Exception {
+        IndexBasedConditionOrderer orderer = new IndexBasedConditionOrderer();
+        Assert.assertEquals("tenant_id = 2 AND status = 1 AND code = 'x'", inject(orderer, "s1.orders"));
+        Assert.assertEquals("code = 'x' AND status = 1 AND tenant_id = 2", inject(orderer, "s2.orders"));
+        // NOT code = 'x' is not an equality of the code
+        Assert.assertEquals("status = 1 AND NOT code = 'x' AND tenant_id = 2",
+                inject(orderer, "s2.orders", "status = 1 and not code = 'x'"));
+    }
+
+    @Test
+    public void testAmbiguousTable() throws Exception {
+        IndexBasedConditionOrderer orderer = new IndexBasedConditionOrderer();
+        // the table of the unqualified name is unknown, the condition is appended
+        Assert.assertFalse(orderer.hasIndexes(new Table("orders")));
+        Assert.assertEquals("status = 1 AND code = 'x' AND tenant_id = 2", inject(orderer, "orders"));
+    }
+
+    private static String inject(IndexBasedConditionOrderer orderer, String table) throws Exception {
+        return inject(orderer, table, "status = 1 and code = 'x'");
+    }
+
+    private static String inject(IndexBasedConditionOrderer orderer, String table, String where) throws Exception {
+        PlainSelect select = (PlainSelect) ((Select) CCJSqlParserUtil.parse("select * from " + table + " where " + where)).getSelectBody();
+        Expression condition = CCJSqlParserUtil.parseCondExpression("tenant_id = 2");
+        return orderer.inject((Table) select.getFromItem(), select.getWhere(), condition).toString();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jsqlparser.tests;
+
+import com.jn.langx.util.io.IOs;
+import com.jn.sqlhelper.common.ddl.catalog.TableIndexCatalog;
+import com.jn.sqlhelper.common.ddl.catalog.TableIndexCatalogRegistry;
+import com.jn.sqlhelper.common.ddl.dump.DatabaseLoader;
+import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
+import com.jn.sqlhelper.common.ddl.model.Index;
+import com.jn.sqlhelper.common.ddl.model.IndexColumn;
+import com.jn.sqlhelper.common.ddl.model.Table;
+import com.jn.sqlhelper.dialect.instrument.TransformConfig;
+import com.jn.sqlhelper.jsqlparser.instrument.JSqlParserCountTransformer;
+import com.jn.sqlhelper.jsqlparser.sqlparser.JSqlParser;
+import com.jn.sqlhelper.jsqlparser.sqlparser.JSqlParserStatementWrapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+public class JSqlParserCountTransformerTests {
+    private static TableIndexCatalog catalog;
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:count_transformer;DB_CLOSE_DELAY=-1");
+        // keeps the in-memory database
+        connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE SCHEMA s1");
+        statement.execute("CREATE SCHEMA s2");
+        statement.execute("CREATE TABLE s1.orders (id INT PRIMARY KEY, customer_id INT, tag_id INT, amount INT)");
+        statement.execute("CREATE TABLE s1.customer (id INT PRIMARY KEY, name VARCHAR(32))");
+        // the same-named table has no unique index
+        statement.execute("CREATE TABLE s2.customer (id INT, name VARCHAR(32))");
+        statement.execute("CREATE TABLE s1.tag (id INT, code VARCHAR(32))");
+        statement.execute("CREATE UNIQUE INDEX uk_tag_id ON s1.tag (id)");
+        IOs.close(statement);
+
+        catalog = new TableIndexCatalog(dataSource);
+        catalog.setDatabaseLoader(new DatabaseLoader() {
+            @Override
+            public List<Table> loadTables(DatabaseDescription databaseDescription, String catalogNamePattern, String schemaNamePattern, String tableNamePattern, boolean isLoadColumns, boolean isLoadPks, boolean isLoadIndexes, boolean isLoadFks) throws SQLException {
+                // the primary keys of H2 have a column that is not mapped, the unique indexes of them are loaded
+                List<Table> tables = super.loadTables(databaseDescription, catalogNamePattern, schemaNamePattern, tableNamePattern, isLoadColumns, false, isLoadIndexes, isLoadFks);
+                // H2 has no partial index, the unique index of the tags is a partial index: WHERE deleted = 0
+                for (Table table : tables) {
+                    if ("TAG".equalsIgnoreCase(table.getName())) {
+                        for (Index index : table.getIndexMap().values()) {
+                            for (IndexColumn indexColumn : index.getColumns()) {
+                                indexColumn.setFilterCondition("deleted = 0");
+                            }
+                        }
+                    }
+                }
+                return tables;
+            }
+        });
+        catalog.refresh();
+        TableIndexCatalogRegistry.getInstance().register(catalog);
+    }
+
+    @AfterClass
+    public static void teardown() {
+        TableIndexCatalogRegistry.getInstance().unregister(catalog);
+        IOs.close(connection);
+    }
+
+    @Test
+    public void testRemoveJoins() {
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o WHERE o.amount > ?",
+                count("select o.id, c.name from s1.orders o left join s1.customer c on o.customer_id = c.id where o.amount > ? order by o.id"));
+        // the ORDER BY of a derived table without LIMIT is removed
+        Assert.assertEquals("SELECT count(*) FROM (SELECT id FROM s1.orders) t",
+                count("select t.id from (select id from s1.orders order by id) t"));
+    }
+
+    @Test
+    public void testKeepJoins() {
+        // the joined row may be not unique
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o LEFT JOIN s2.customer c ON o.customer_id = c.id",
+                count("select o.id from s1.orders o left join s2.customer c on o.customer_id = c.id"));
+        // the unqualified table name matches the tables of two schemas
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o LEFT JOIN customer c ON o.customer_id = c.id",
+                count("select o.id from s1.orders o left join customer c on o.customer_id = c.id"));
+        // a partial unique index
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o LEFT JOIN s1.tag t ON o.tag_id = t.id",
+                count("select o.id from s1.orders o left join s1.tag t on o.tag_id = t.id"));
+        // the joined table is referenced by the WHERE
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o LEFT JOIN s1.customer c ON o.customer_id = c.id WHERE c.name = ?",
+                count("select o.id from s1.orders o left join s1.customer c on o.customer_id = c.id where c.name = ?"));
+        // an unqualified column may be a column of the joined table
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o LEFT JOIN s1.customer c ON o.customer_id = c.id WHERE name = ?",
+                count("select o.id from s1.orders o left join s1.customer c on o.customer_id = c.id where name = ?"));
+        // the parameter of the join would be removed
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o LEFT JOIN s1.customer c ON o.customer_id = c.id AND c.name = ?",
+                count("select o.id from s1.orders o left join s1.customer c on o.customer_id = c.id and c.name = ?"));
+        // an inner join filters the rows
+        Assert.assertEquals("SELECT count(*) FROM s1.orders o JOIN s1.customer c ON o.customer_id = c.id",
+                count("select o.id from s1.orders o join s1.customer c on o.customer_id = c.id"));
+    }
+
+    @Test
+    public void testUnchanged() {
+        assertUnchanged("select distinct o.customer_id from s1.orders o");
+        assertUnchanged("select o.customer_id, sum(o.amount) from s1.orders o group by o.customer_id");
+        assertUnchanged("select max(o.amount) from s1.orders o");
+        assertUnchanged("select o.id from s1.orders o union select c.id from s1.customer c");
+        assertUnchanged("select o.id from s1.orders o limit 10");
+        // the parameter of the select list would be removed
+        assertUnchanged("select o.id, ? from s1.orders o where o.amount > ?");
+    }
+
+    private static void assertUnchanged(String sql) {
+        JSqlParserStatementWrapper wrapper = new JSqlParser().parse(sql);
+        new JSqlParserCountTransformer().transform(wrapper, new TransformConfig());
+        Assert.assertFalse(sql, wrapper.isChanged());
+    }
+
+    private static String count(String sql) {
+        JSqlParserStatementWrapper wrapper = new JSqlParser().parse(sql);
+        new JSqlParserCountTransformer().transform(wrapper, new TransformConfig());
+        Assert.assertTrue(sql, wrapper.isChanged());
+        return wrapper.getSql();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.jsqlparser.tests;
+
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.dialect.tenant.Tenant;
+import com.jn.sqlhelper.dialect.tenant.TenantBuilder;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
+import com.jn.sqlhelper.jsqlparser.instrument.JSqlParserTenantInjector;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.update.Update;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JSqlParserTenantInjectorTests {
+
+    @Test
+    public void testJoins() throws Exception {
+        Assert.assertEquals("SELECT * FROM a JOIN b ON a.id = b.aid WHERE a.tenant_id = ? AND b.tenant_id = ? AND a.x = 1",
+                inject("select * from a join b on a.id = b.aid where a.x = 1"));
+        // the rows of b are kept by the LEFT JOIN
+        Assert.assertEquals("SELECT * FROM a LEFT JOIN b ON b.tenant_id = ? AND a.id = b.aid WHERE a.tenant_id = ?",
+                inject("select * from a left join b on a.id = b.aid"));
+        // the rows of b are kept by the RIGHT JOIN, the rows of a are filtered by the ON clause, the null extended rows are kept
+        Assert.assertEquals("SELECT * FROM a RIGHT JOIN b ON a.tenant_id = ? AND a.id = b.aid WHERE b.tenant_id = ?",
+                inject("select * from a right join b on a.id = b.aid"));
+        Assert.assertEquals("SELECT * FROM a JOIN c ON a.id = c.aid RIGHT JOIN b ON a.tenant_id = ? AND c.tenant_id = ? AND a.id = b.aid WHERE b.tenant_id = ?",
+                inject("select * from a join c on a.id = c.aid right join b on a.id = b.aid"));
+        // both sides of a FULL JOIN are kept, they are filtered before they are joined
+        Assert.assertEquals("SELECT * FROM (SELECT * FROM a WHERE tenant_id = ?) a FULL JOIN (SELECT * FROM b WHERE tenant_id = ?) x ON a.id = x.aid",
+                inject("select * from a full join b x on a.id = x.aid"));
+        Assert.assertEquals("SELECT * FROM (SELECT * FROM a WHERE tenant_id = ?) a FULL JOIN (SELECT * FROM b WHERE tenant_id = ?) b ON a.id = b.aid JOIN c ON b.id = c.bid WHERE c.tenant_id = ?",
+                inject("select * from a full join b on a.id = b.aid join c on b.id = c.bid"));
+        // a LEFT JOIN without an ON clause
+        Assert.assertEquals("SELECT * FROM a LEFT JOIN (SELECT * FROM b WHERE tenant_id = ?) b USING (id) WHERE a.tenant_id = ?",
+                inject("select * from a left join b using (id)"));
+    }
+
+    @Test
+    public void testSubQueriesAndCTEs() throws Exception {
+        Assert.assertEquals("WITH t AS (SELECT * FROM b WHERE tenant_id = ?) SELECT * FROM t WHERE t.id IN (SELECT aid FROM c WHERE tenant_id = ?)",
+                inject("with t as (select * from b) select * from t where t.id in (select aid from c)"));
+    }
+
+    @Test
+    public void testInsert() throws Exception {
+        Assert.assertEquals("INSERT INTO a (id, name, tenant_id) VALUES (?, ?, ?)",
+                inject("insert into a (id, name) values (?, ?)"));
+        Assert.assertEquals("INSERT INTO a (id, tenant_id) SELECT id, ? FROM b WHERE tenant_id = ?",
+                inject("insert into a (id) select id from b"));
+    }
+
+    @Test
+    public void testUpdateAndDelete() throws Exception {
+        Assert.assertEquals("UPDATE a SET x = 1 WHERE tenant_id = ? AND id = ?",
+                inject("update a set x = 1 where id = ?"));
+        Assert.assertEquals("UPDATE a SET x = b.x FROM b JOIN c ON b.id = c.bid WHERE a.tenant_id = ? AND b.tenant_id = ? AND c.tenant_id = ? AND a.id = b.id",
+                inject("update a set x = b.x from b join c on b.id = c.bid where a.id = b.id"));
+        Assert.assertEquals("DELETE FROM a WHERE tenant_id = ? AND id = ?",
+                inject("delete from a where id = ?"));
+    }
+
+    @Test
+    public void testInstrumentTenantSql() {
+        SQLStatementInstrumentor instrumentor = new SQLStatementInstrumentor();
+        instrumentor.setConfig(new SQLInstrumentorConfig());
+        instrumentor.init();
+
+        String sql = "select * from a left join b on a.id = b.aid where a.name = ?";
+        // the tenant values are bound parameters, the sql is shared by the tenants of the same column
+        Assert.assertEquals("SELECT * FROM a LEFT JOIN b ON b.tenant_id = ? AND a.id = b.aid WHERE a.tenant_id = ? AND a.name = ?",
+                instrumentor.instrumentTenantSql(sql, newTenant("o'1")));
+        Assert.assertEquals("SELECT * FROM a LEFT JOIN b ON b.tenant_id = ? AND a.id = b.aid WHERE a.tenant_id = ? AND a.name = ?",
+                instrumentor.instrumentTenantSql(sql, newTenant(2)));
+
+        TenantSql tenantSql = instrumentor.instrumentTenant(sql, newTenant("o'1"));
+        Assert.assertEquals(tenantSql.getSql(), instrumentor.instrumentTenant(sql, newTenant(2)).getSql());
+        Assert.assertEquals(Collects.<Object>asList(2, 2, "x"), tenantSql.bindParameters(Collects.<Object>asList("x"), Collects.<Object>asList(2)));
+
+        Assert.assertNotEquals(newTenant(1), newTenant(2));
+        Assert.assertEquals(newTenant(1), newTenant(1));
+    }
+
+    private static Tenant newTenant(Object value) {
+        return new TenantBuilder().column("tenant_id").values(Collects.asList(value)).build();
+    }
+
+    private static String inject(String sql) throws Exception {
+        JSqlParserTenantInjector injector = new JSqlParserTenantInjector(newTenant(1), null, null);
+        Statement statement = CCJSqlParserUtil.parse(sql);
+        if (statement instanceof Select) {
+            injector.inject((Select) statement);
+        } else if (statement instanceof Insert) {
+            injector.inject((Insert) statement);
+        } else if (statement instanceof Update) {
+            injector.inject((Update) statement);
+        } else if (statement instanceof Delete) {
+            injector.inject((Delete) statement);
+        }
+        return TenantSql.of(statement.toString()).getSql();
+    }
+}
@@ -1,6 +1,8 @@
 package com.jn.sqlhelper.mango;
 
-import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContext;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
 import org.jfaster.mango.binding.BoundSql;
 import org.jfaster.mango.jdbc.JdbcTemplate;
 import org.jfaster.mango.jdbc.ResultSetExtractor;
@@ -12,6 +14,8 @@ import org.jfaster.mango.util.logging.InternalLoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class CustomMangoJdbcTemplate extends JdbcTemplate {
@@ -25,13 +29,23 @@ public class CustomMangoJdbcTemplate extends JdbcTemplate {
         String sql = boundSql.getSql();
         try {
             ps = conn.prepareStatement(sql);
-            setValues(ps, boundSql);
+            PagingRequestContext pagingContext = MangoPagingContext.takeRowSelection();
+            setValues(ps, boundSql, pagingContext);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Executing \"{}\" {}", sql, boundSql.getArgs());
             }
 
             rs = ps.executeQuery();
+            PagingRequest request = pagingContext == null ? null : pagingContext.getRequest();
+            if (request != null && request.isPeekNextPage() && request.getResult() != null) {
+                PagingResult result = request.getResult();
+                T rows = rse.extractData(NextPagePeekingResultSet.wrap(rs, request.getPageSize(), result));
+                if (rows instanceof Collection) {
+                    result.setItems(new ArrayList((Collection) rows));
+                }
+                return rows;
+            }
             return rse.extractData(rs);
         } catch (SQLException e) {
             closeResultSet(rs);
@@ -50,14 +64,13 @@ public class CustomMangoJdbcTemplate extends JdbcTemplate {
         }
     }
 
-    private void setValues(PreparedStatement ps, BoundSql boundSql) throws SQLException {
-        RowSelection rowSelection = MangoPagingContext.pagingRequest.get();
-        if (rowSelection != null) {
-            MangoPagingContext.pagingRequest.remove();
+    private void setValues(PreparedStatement ps, BoundSql boundSql, PagingRequestContext pagingContext) throws SQLException {
+        if (pagingContext != null) {
             MangoQueryParameters queryParameters = new MangoQueryParameters();
-            queryParameters.setRowSelection(rowSelection);
+            queryParameters.setRowSelection(pagingContext.getRowSelection());
             queryParameters.setParameters(boundSql);
-            MangoPagingContext.instrumentor.bindParameters(ps, new MangoPrepareStatementSetter(), queryParameters, true);
+            pagingContext.setRowSelection(null);
+            MangoPagingContext.instrumentor.bindParameters(pagingContext.getDialect(), ps, new MangoPrepareStatementSetter(), queryParameters, true);
         } else {
             setValues0(ps, boundSql);
         }
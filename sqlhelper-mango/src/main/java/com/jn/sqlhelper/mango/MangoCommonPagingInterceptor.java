@@ -1,5 +1,12 @@
 package com.jn.sqlhelper.mango;
 
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContextHolder;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import org.jfaster.mango.binding.BoundSql;
 import org.jfaster.mango.interceptor.Parameter;
@@ -24,7 +31,8 @@ public class MangoCommonPagingInterceptor extends QueryInterceptor {
         } catch (Throwable ex) {
             return;
         }
-        if (!MangoPagingContext.instrumentor.beginIfSupportsLimit(databaseMetaData)) {
+        Dialect dialect = MangoPagingContext.instrumentor.getLimitDialect(databaseMetaData);
+        if (dialect == null) {
             return;
         }
         Page page = findPageRequest(parameters);
@@ -41,21 +49,40 @@ public class MangoCommonPagingInterceptor extends QueryInterceptor {
             throw new PageException("pageSize need >= 0, but pageSize is " + pageSize);
         }
 
-        if (page.isFetchTotal()) {
+        // a peek next page request of the current thread: pageSize + 1 rows without the count,
+        // see the PagingResult#hasNext() of the request
+        PagingRequest request = PagingRequestContextHolder.getContext().getPagingRequest();
+        boolean peekNextPage = request != null && request.isPeekNextPage() && pageSize > 0;
+        if (peekNextPage) {
+            request.limit(pageNum, pageSize);
+            PagingResult result = new PagingResult();
+            result.setPageNo(pageNum);
+            result.setPageSize(pageSize);
+            result.setTotal(-1);
+            request.setResult(result);
+        }
+
+        if (page.isFetchTotal() && !peekNextPage) {
             String countSql = MangoPagingContext.instrumentor.countSql(boundSql.getSql());
             BoundSql countBoundSql = boundSql.copy();
             countBoundSql.setSql(countSql);
             SingleColumnRowMapper<Integer> mapper = new SingleColumnRowMapper<Integer>(int.class);
-            int total = getJdbcOperations().queryForObject(dataSource, countBoundSql, mapper);
+            int total;
+            MetricsSample countSample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "count").tag(MetricNames.TAG_FRAMEWORK, "mango");
+            try {
+                total = getJdbcOperations().queryForObject(dataSource, countBoundSql, mapper);
+            } finally {
+                countSample.stop();
+            }
             page.setTotal(total);
         }
 
         long offset = pageNum <= 0 ? 0L : (pageNum - 1) * pageSize;
         RowSelection rowSelection = new RowSelection();
-        rowSelection.setLimit(pageSize);
+        rowSelection.setLimit(peekNextPage ? pageSize + 1 : pageSize);
         rowSelection.setOffset(offset);
-        boundSql.setSql(MangoPagingContext.instrumentor.instrumentLimitSql(boundSql.getSql(), rowSelection));
-        MangoPagingContext.pagingRequest.set(rowSelection);
+        boundSql.setSql(MangoPagingContext.instrumentor.instrumentLimitSql(dialect, boundSql.getSql(), rowSelection));
+        MangoPagingContext.setRowSelection(dialect, rowSelection);
     }
 
     private Page findPageRequest(List<Parameter> parameters) {
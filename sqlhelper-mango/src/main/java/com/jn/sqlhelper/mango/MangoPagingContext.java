@@ -1,9 +1,45 @@
 package com.jn.sqlhelper.mango;
 
-import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import com.jn.langx.util.Objects;
+import com.jn.sqlhelper.dialect.Dialect;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContext;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContextHolder;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
 
+/**
+ * The row selection and the dialect are passed from the {@link MangoCommonPagingInterceptor} to the
+ * {@link CustomMangoJdbcTemplate} with the current {@link PagingRequestContext}
+ */
 public class MangoPagingContext {
+    /**
+     * @deprecated the row selection is passed with the {@link PagingRequestContext} now, this is not read any more
+     */
+    @Deprecated
     public static final ThreadLocal<RowSelection> pagingRequest = new ThreadLocal<RowSelection>();
     public static final SQLStatementInstrumentor instrumentor = new SQLStatementInstrumentor();
+
+    private MangoPagingContext() {
+    }
+
+    static void setRowSelection(Dialect dialect, RowSelection rowSelection) {
+        PagingRequestContextHolder holder = PagingRequestContextHolder.getContext();
+        holder.setRowSelection(rowSelection);
+        holder.get().setDialect(dialect);
+    }
+
+    /**
+     * get and remove the row selection
+     */
+    static PagingRequestContext takeRowSelection() {
+        PagingRequestContextHolder holder = PagingRequestContextHolder.getContext();
+        PagingRequestContext context = holder.get();
+        if (Objects.isNull(context) || Objects.isNull(context.getRowSelection())) {
+            return null;
+        }
+        if (Objects.isNull(context.getRequest())) {
+            holder.remove();
+        }
+        return context;
+    }
 }
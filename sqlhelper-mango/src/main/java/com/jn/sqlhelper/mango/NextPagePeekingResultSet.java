@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mango;
+
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+/**
+ * Hides the extra row of a peek next page query from the mango result set extractors, the extractors are not
+ * replaceable. The result has the next page if the extra row is found.
+ */
+class NextPagePeekingResultSet {
+    private NextPagePeekingResultSet() {
+    }
+
+    static ResultSet wrap(final ResultSet resultSet, final int pageSize, final PagingResult result) {
+        return (ResultSet) Proxy.newProxyInstance(NextPagePeekingResultSet.class.getClassLoader(), new Class[]{ResultSet.class}, new InvocationHandler() {
+            private int rows = 0;
+            private boolean peeked = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("next".equals(method.getName()) && (args == null || args.length == 0)) {
+                    if (peeked) {
+                        return false;
+                    }
+                    if (rows == pageSize) {
+                        peeked = true;
+                        result.setHasNext(resultSet.next());
+                        return false;
+                    }
+                    boolean hasRow = resultSet.next();
+                    if (hasRow) {
+                        rows++;
+                    } else {
+                        peeked = true;
+                        result.setHasNext(false);
+                    }
+                    return hasRow;
+                }
+                try {
+                    return method.invoke(resultSet, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getTargetException();
+                }
+            }
+        });
+    }
+}
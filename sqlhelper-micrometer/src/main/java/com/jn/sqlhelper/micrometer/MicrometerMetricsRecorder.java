@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.micrometer;
+
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsRecorder;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the sqlhelper metrics into a {@link MeterRegistry}, the {@link Metrics#globalRegistry} by default.
+ * <p>
+ * It is found with the {@link java.util.ServiceLoader} when the sqlhelper-micrometer.jar is in the classpath,
+ * or set it with {@link com.jn.sqlhelper.common.metrics.SqlHelperMetrics#setRecorder(MetricsRecorder)} to use another registry.
+ */
+public class MicrometerMetricsRecorder implements MetricsRecorder {
+    private final MeterRegistry registry;
+    private volatile boolean enabled = true;
+
+    public MicrometerMetricsRecorder() {
+        this(Metrics.globalRegistry);
+    }
+
+    public MicrometerMetricsRecorder(MeterRegistry registry) {
+        Preconditions.checkNotNull(registry);
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onStart(MetricsSample sample) {
+    }
+
+    @Override
+    public void onStop(MetricsSample sample) {
+        Tags tags = toTags(sample.getTags());
+        if (sample.getError() != null) {
+            tags = tags.and(MetricNames.TAG_ERROR, sample.getError().getClass().getSimpleName());
+        }
+        Timer.builder(sample.getName())
+                .tags(tags)
+                .register(registry)
+                .record(sample.getDuration(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void increment(String name, long amount, String... tags) {
+        registry.counter(name, toTags(tags)).increment(amount);
+    }
+
+    @Override
+    public void record(String name, double amount, String... tags) {
+        DistributionSummary.builder(name)
+                .tags(toTags(tags))
+                .register(registry)
+                .record(amount);
+    }
+
+    /**
+     * the null values are replaced with "none", micrometer does not accept them
+     */
+    private static Tags toTags(String... keyValues) {
+        if (keyValues == null || keyValues.length == 0) {
+            return Tags.empty();
+        }
+        Tags tags = Tags.empty();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            String value = keyValues[i + 1];
+            tags = tags.and(keyValues[i], value == null ? "none" : value);
+        }
+        return tags;
+    }
+}
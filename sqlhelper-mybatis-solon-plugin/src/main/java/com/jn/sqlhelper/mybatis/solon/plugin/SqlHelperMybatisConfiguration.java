@@ -53,6 +53,8 @@ public class SqlHelperMybatisConfiguration implements XEventListener<Configurati
 
         SqlHelperMybatisPlugin plugin = new SqlHelperMybatisPlugin();
         plugin.setPaginationConfig(sqlHelperMybatisProperties.getPagination());
+        plugin.setSlowQueryConfig(sqlHelperMybatisProperties.getSlowQuery());
+        plugin.setPageResultCacheConfig(sqlHelperMybatisProperties.getPageResultCache());
         plugin.setInstrumentorConfig(sqlHelperMybatisProperties.getInstrumentor());
         plugin.init();
 
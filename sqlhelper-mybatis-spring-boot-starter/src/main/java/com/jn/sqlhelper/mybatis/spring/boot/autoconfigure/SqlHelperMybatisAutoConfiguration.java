@@ -16,6 +16,7 @@ package com.jn.sqlhelper.mybatis.spring.boot.autoconfigure;
 
 import com.jn.langx.util.reflect.Reflects;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
 import com.jn.sqlhelper.mybatis.MybatisUtils;
 import com.jn.sqlhelper.mybatis.plugins.CustomScriptLanguageDriver;
 import com.jn.sqlhelper.mybatis.plugins.SqlHelperMybatisPlugin;
@@ -70,6 +71,13 @@ public class SqlHelperMybatisAutoConfiguration implements ConfigurationCustomize
         this.sqlHelperMybatisProperties = sqlHelperMybatisProperties;
     }
 
+    private PagingQueryRouter pagingQueryRouter;
+
+    @Autowired(required = false)
+    public void setPagingQueryRouter(PagingQueryRouter pagingQueryRouter) {
+        this.pagingQueryRouter = pagingQueryRouter;
+    }
+
     @Override
     public void customize(Configuration configuration) {
         logger.info("Start to customize mybatis configuration with mybatis-spring-boot-autoconfigure");
@@ -77,6 +85,9 @@ public class SqlHelperMybatisAutoConfiguration implements ConfigurationCustomize
 
         SqlHelperMybatisPlugin plugin = new SqlHelperMybatisPlugin();
         plugin.setPaginationConfig(sqlHelperMybatisProperties.getPagination());
+        plugin.setSlowQueryConfig(sqlHelperMybatisProperties.getSlowQuery());
+        plugin.setPageResultCacheConfig(sqlHelperMybatisProperties.getPageResultCache());
+        plugin.setPagingQueryRouter(pagingQueryRouter);
         plugin.setInstrumentorConfig(sqlHelperMybatisProperties.getInstrumentor());
         plugin.init();
 
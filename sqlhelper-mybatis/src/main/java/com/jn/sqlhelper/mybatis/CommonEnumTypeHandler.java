@@ -1,7 +1,9 @@
 package com.jn.sqlhelper.mybatis;
 
+import com.jn.langx.annotation.NonNull;
 import com.jn.langx.annotation.Nullable;
-import com.jn.langx.util.enums.Enums;
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.enums.base.CommonEnum;
 import com.jn.langx.util.reflect.Reflects;
 import org.apache.ibatis.type.BaseTypeHandler;
@@ -13,12 +15,24 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 /**
- * Just for any enum what implements the {@link CommonEnum} interface
+ * Just for any enum what implements the {@link CommonEnum} interface.
+ * <p>
+ * The column is the {@link CommonEnum#getCode()} by default, or the {@link CommonEnum#getName()} if {@code nameAsCode} is true.
+ * The constants are looked up in the tables those are built once per type handler.
+ * <p>
+ * MyBatis creates the type handler with the enum class only, register an instance to use the name or another
+ * unknown code strategy:
+ * <pre>
+ *     configuration.getTypeHandlerRegistry().register(Gender.class, new CommonEnumTypeHandler&lt;Gender&gt;(Gender.class, true, UnknownCodeStrategy.FAIL));
+ * </pre>
  *
  * @param <E>
  */
 public class CommonEnumTypeHandler<E extends Enum<E> & CommonEnum> extends BaseTypeHandler<E> {
     private Class<E> enumType;
+    private EnumCodeIndex<E> index;
+    private boolean nameAsCode = false;
+    private UnknownCodeStrategy unknownCodeStrategy = UnknownCodeStrategy.NULL;
 
     public CommonEnumTypeHandler() {
     }
@@ -27,34 +41,121 @@ public class CommonEnumTypeHandler<E extends Enum<E> & CommonEnum> extends BaseT
         setEnumType(enumType);
     }
 
+    /**
+     * @param nameAsCode          the column is the {@link CommonEnum#getName()}
+     * @param unknownCodeStrategy how to handle a code that no constant has, {@link UnknownCodeStrategy#NULL} if it is null
+     */
+    public CommonEnumTypeHandler(@NonNull Class<E> enumType, boolean nameAsCode, @Nullable UnknownCodeStrategy unknownCodeStrategy) {
+        Preconditions.checkNotNull(enumType);
+        setEnumType(enumType);
+        setNameAsCode(nameAsCode);
+        setUnknownCodeStrategy(unknownCodeStrategy);
+    }
+
     public void setEnumType(Class<E> enumType) {
         if (enumType != null) {
             if (Reflects.isSubClassOrEquals(Enum.class, enumType)) {
                 this.enumType = enumType;
+                this.index = new EnumCodeIndex<E>(enumType);
             }
         }
     }
 
+    public boolean isNameAsCode() {
+        return nameAsCode;
+    }
+
+    public void setNameAsCode(boolean nameAsCode) {
+        this.nameAsCode = nameAsCode;
+    }
+
+    public UnknownCodeStrategy getUnknownCodeStrategy() {
+        return unknownCodeStrategy;
+    }
+
+    public void setUnknownCodeStrategy(UnknownCodeStrategy unknownCodeStrategy) {
+        if (unknownCodeStrategy != null) {
+            this.unknownCodeStrategy = unknownCodeStrategy;
+        }
+    }
+
     @Override
     public void setNonNullParameter(PreparedStatement ps, int i, E parameter, JdbcType jdbcType) throws SQLException {
-        ps.setInt(i, parameter.getCode());
+        if (nameAsCode) {
+            ps.setString(i, parameter.getName());
+        } else {
+            ps.setInt(i, parameter.getCode());
+        }
     }
 
     @Override
     public E getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        if (nameAsCode) {
+            return ofName(rs.getString(columnName));
+        }
         int code = rs.getInt(columnName);
-        return Enums.ofCode(enumType, code);
+        return rs.wasNull() ? null : ofCode(code);
     }
 
     @Override
     public E getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        if (nameAsCode) {
+            return ofName(rs.getString(columnIndex));
+        }
         int code = rs.getInt(columnIndex);
-        return Enums.ofCode(enumType, code);
+        return rs.wasNull() ? null : ofCode(code);
     }
 
     @Override
     public E getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        if (nameAsCode) {
+            return ofName(cs.getString(columnIndex));
+        }
         int code = cs.getInt(columnIndex);
-        return Enums.ofCode(enumType, code);
+        return cs.wasNull() ? null : ofCode(code);
+    }
+
+    private E ofCode(int code) {
+        E constant = getIndex().ofCode(code);
+        if (constant == null) {
+            onUnknownCode(code);
+        }
+        return constant;
+    }
+
+    private E ofName(String name) {
+        if (name == null) {
+            return null;
+        }
+        E constant = getIndex().ofName(name);
+        if (constant == null) {
+            onUnknownCode(name);
+        }
+        return constant;
+    }
+
+    private EnumCodeIndex<E> getIndex() {
+        Preconditions.checkNotNull(index, "the enum type is not set");
+        return index;
+    }
+
+    private void onUnknownCode(Object code) {
+        if (unknownCodeStrategy == UnknownCodeStrategy.FAIL) {
+            throw new IllegalArgumentException(StringTemplates.formatWithPlaceholder("Unknown code {} of the enum {}", code, enumType.getName()));
+        }
+    }
+
+    /**
+     * How to handle a code that no constant has
+     */
+    public enum UnknownCodeStrategy {
+        /**
+         * the value is null, the same as a SQL NULL
+         */
+        NULL,
+        /**
+         * throw an {@link IllegalArgumentException}
+         */
+        FAIL
     }
 }
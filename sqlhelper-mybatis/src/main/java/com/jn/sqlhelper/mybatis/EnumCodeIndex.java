@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.enums.base.CommonEnum;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The lookup tables of the constants of a {@link CommonEnum} class, they are built once per enum class:
+ * <pre>
+ * 1) code: a dense array indexed by (code - min code) if the codes are compact,
+ *    else an open-addressing int map with linear probing
+ * 2) name: a perfect hash table, every name has its own slot, so a lookup is one hash and one equals
+ * </pre>
+ * If two constants have the same code (or name), the first one is used, the same as {@code Enums.ofCode}.
+ * <p>
+ * The index is held by the {@link CommonEnumTypeHandler} of the enum class, it is not cached statically,
+ * so it doesn't keep the class loader of the enum class.
+ */
+class EnumCodeIndex<E extends Enum<E> & CommonEnum> {
+    /**
+     * the dense array is used if its length is at most max(64, 4 * the count of the codes)
+     */
+    private static final int DENSE_MIN_LENGTH = 64;
+    private static final int DENSE_MAX_FILL_FACTOR = 4;
+    private static final int PERFECT_HASH_MAX_SEEDS = 256;
+
+    private final Class<E> enumType;
+
+    private final int minCode;
+    @Nullable
+    private final E[] denseTable;
+    /**
+     * open-addressing int map, used if the codes are sparse
+     */
+    @Nullable
+    private final int[] sparseCodes;
+    @Nullable
+    private final E[] sparseTable;
+    private final int sparseMask;
+
+    /**
+     * the perfect hash table of the names
+     */
+    @Nullable
+    private final String[] nameKeys;
+    @Nullable
+    private final E[] nameTable;
+    private final int nameSeed;
+    private final int nameMask;
+    /**
+     * used only if no seed makes a perfect hash, e.g. two names that have the same hash code
+     */
+    @Nullable
+    private final Map<String, E> nameMap;
+
+    @SuppressWarnings("unchecked")
+    EnumCodeIndex(@NonNull Class<E> enumType) {
+        Preconditions.checkNotNull(enumType);
+        this.enumType = enumType;
+        E[] constants = enumType.getEnumConstants();
+
+        Map<Integer, E> codes = new LinkedHashMap<Integer, E>();
+        Map<String, E> names = new LinkedHashMap<String, E>();
+        for (E constant : constants) {
+            if (!codes.containsKey(constant.getCode())) {
+                codes.put(constant.getCode(), constant);
+            }
+            String name = constant.getName();
+            if (name != null && !names.containsKey(name)) {
+                names.put(name, constant);
+            }
+        }
+
+        // the codes
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (Integer code : codes.keySet()) {
+            min = Math.min(min, code);
+            max = Math.max(max, code);
+        }
+        long range = codes.isEmpty() ? 0 : (long) max - min + 1;
+        if (range <= Math.max(DENSE_MIN_LENGTH, (long) DENSE_MAX_FILL_FACTOR * codes.size())) {
+            this.minCode = codes.isEmpty() ? 0 : min;
+            this.denseTable = (E[]) new Enum[(int) range];
+            for (Map.Entry<Integer, E> entry : codes.entrySet()) {
+                denseTable[entry.getKey() - minCode] = entry.getValue();
+            }
+            this.sparseCodes = null;
+            this.sparseTable = null;
+            this.sparseMask = 0;
+        } else {
+            this.minCode = 0;
+            this.denseTable = null;
+            int capacity = tableSizeFor(codes.size() * 2);
+            this.sparseCodes = new int[capacity];
+            this.sparseTable = (E[]) new Enum[capacity];
+            this.sparseMask = capacity - 1;
+            for (Map.Entry<Integer, E> entry : codes.entrySet()) {
+                int slot = mix(entry.getKey()) & sparseMask;
+                while (sparseTable[slot] != null) {
+                    slot = (slot + 1) & sparseMask;
+                }
+                sparseCodes[slot] = entry.getKey();
+                sparseTable[slot] = entry.getValue();
+            }
+        }
+
+        // the names
+        String[] keys = names.keySet().toArray(new String[names.size()]);
+        int[] hashes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = keys[i].hashCode();
+        }
+        int foundSeed = 0;
+        int foundSize = 0;
+        int minSize = tableSizeFor(Math.max(keys.length, 1));
+        for (int size = minSize; foundSize == 0 && size <= minSize * 8; size <<= 1) {
+            for (int i = 0; i < PERFECT_HASH_MAX_SEEDS; i++) {
+                int seed = 0x9E3779B9 * (2 * i + 1);
+                if (isPerfect(hashes, seed, size - 1, new boolean[size])) {
+                    foundSeed = seed;
+                    foundSize = size;
+                    break;
+                }
+            }
+        }
+        if (foundSize > 0) {
+            this.nameSeed = foundSeed;
+            this.nameMask = foundSize - 1;
+            this.nameKeys = new String[foundSize];
+            this.nameTable = (E[]) new Enum[foundSize];
+            for (int i = 0; i < keys.length; i++) {
+                int slot = nameSlot(hashes[i], nameSeed, nameMask);
+                nameKeys[slot] = keys[i];
+                nameTable[slot] = names.get(keys[i]);
+            }
+            this.nameMap = null;
+        } else {
+            this.nameSeed = 0;
+            this.nameMask = 0;
+            this.nameKeys = null;
+            this.nameTable = null;
+            this.nameMap = new HashMap<String, E>(names);
+        }
+    }
+
+    Class<E> getEnumType() {
+        return enumType;
+    }
+
+    /**
+     * @return null if no constant has the code
+     */
+    @Nullable
+    E ofCode(int code) {
+        if (denseTable != null) {
+            long offset = (long) code - minCode;
+            return offset >= 0 && offset < denseTable.length ? denseTable[(int) offset] : null;
+        }
+        int slot = mix(code) & sparseMask;
+        E constant;
+        while ((constant = sparseTable[slot]) != null) {
+            if (sparseCodes[slot] == code) {
+                return constant;
+            }
+            slot = (slot + 1) & sparseMask;
+        }
+        return null;
+    }
+
+    /**
+     * @return null if no constant has the name
+     */
+    @Nullable
+    E ofName(@NonNull String name) {
+        if (nameMap != null) {
+            return nameMap.get(name);
+        }
+        int slot = nameSlot(name.hashCode(), nameSeed, nameMask);
+        return name.equals(nameKeys[slot]) ? nameTable[slot] : null;
+    }
+
+    private static boolean isPerfect(int[] hashes, int seed, int mask, boolean[] used) {
+        for (int hash : hashes) {
+            int slot = nameSlot(hash, seed, mask);
+            if (used[slot]) {
+                return false;
+            }
+            used[slot] = true;
+        }
+        return true;
+    }
+
+    private static int nameSlot(int hash, int seed, int mask) {
+        int h = hash * seed;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int mix(int code) {
+        int h = code * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int count) {
+        int size = 1;
+        while (size < count) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
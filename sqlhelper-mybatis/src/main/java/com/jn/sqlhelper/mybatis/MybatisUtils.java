@@ -17,11 +17,13 @@ package com.jn.sqlhelper.mybatis;
 import com.jn.langx.annotation.NonNull;
 import com.jn.langx.annotation.Nullable;
 import com.jn.langx.util.Emptys;
+import com.jn.langx.util.Strings;
 import com.jn.sqlhelper.dialect.Dialect;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.SqlRequest;
 import com.jn.sqlhelper.dialect.SqlRequestContext;
 import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.session.Configuration;
@@ -32,6 +34,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 public class MybatisUtils {
@@ -110,7 +115,11 @@ public class MybatisUtils {
     }
 
     public static BoundSql rebuildBoundSql(String newSql, Configuration configuration, BoundSql boundSql) {
-        BoundSql newBoundSql = new BoundSql(configuration, newSql, boundSql.getParameterMappings(), boundSql.getParameterObject());
+        return rebuildBoundSql(newSql, boundSql.getParameterMappings(), configuration, boundSql);
+    }
+
+    public static BoundSql rebuildBoundSql(String newSql, List<ParameterMapping> parameterMappings, Configuration configuration, BoundSql boundSql) {
+        BoundSql newBoundSql = new BoundSql(configuration, newSql, parameterMappings, boundSql.getParameterObject());
         final Map<String, Object> additionalParameters = BoundSqls.getAdditionalParameter(boundSql);
         for (Map.Entry<String, Object> entry : additionalParameters.entrySet()) {
             newBoundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
@@ -118,6 +127,63 @@ public class MybatisUtils {
         return newBoundSql;
     }
 
+    /**
+     * Rebuilds the bound sql with the tenant instrumented sql, the tenant values are bound as the additional parameters
+     * '{@value TenantSql#PARAMETER_NAME_PREFIX}{valueIndex}', their parameter mappings are inserted at the tenant parameters.
+     *
+     * @param tenantSql    the tenant instrumented sql of the bound sql
+     * @param tenantValues the tenant values
+     */
+    public static BoundSql rebuildTenantBoundSql(@NonNull TenantSql tenantSql, @NonNull List<?> tenantValues, Configuration configuration, BoundSql boundSql) {
+        if (!tenantSql.isInstrumented()) {
+            return rebuildBoundSql(tenantSql.getSql(), configuration, boundSql);
+        }
+        List<ParameterMapping> tenantMappings = new ArrayList<ParameterMapping>();
+        for (int i = 0; i < tenantValues.size(); i++) {
+            tenantMappings.add(new ParameterMapping.Builder(configuration, TenantSql.PARAMETER_NAME_PREFIX + i, Object.class).build());
+        }
+        List<ParameterMapping> parameterMappings = (List) tenantSql.bindParameters(boundSql.getParameterMappings(), tenantMappings);
+        BoundSql newBoundSql = rebuildBoundSql(tenantSql.getSql(), parameterMappings, configuration, boundSql);
+        for (int i = 0; i < tenantValues.size(); i++) {
+            newBoundSql.setAdditionalParameter(TenantSql.PARAMETER_NAME_PREFIX + i, tenantValues.get(i));
+        }
+        return newBoundSql;
+    }
+
+    /**
+     * Copies the statement, but its sql is the bound sql, it is used to execute an update with a rebuilt bound sql,
+     * since {@link Executor#update(MappedStatement, Object)} has no bound sql argument.
+     */
+    public static MappedStatement newBoundStatement(@NonNull MappedStatement ms, @NonNull final BoundSql boundSql) {
+        SqlSource sqlSource = new SqlSource() {
+            @Override
+            public BoundSql getBoundSql(Object parameterObject) {
+                return boundSql;
+            }
+        };
+        MappedStatement.Builder builder = new MappedStatement.Builder(ms.getConfiguration(), ms.getId(), sqlSource, ms.getSqlCommandType());
+        builder.resource(ms.getResource());
+        builder.databaseId(ms.getDatabaseId());
+        builder.lang(ms.getLang());
+        builder.fetchSize(ms.getFetchSize());
+        builder.statementType(ms.getStatementType());
+        builder.keyGenerator(ms.getKeyGenerator());
+        if (Emptys.isNotEmpty(ms.getKeyProperties())) {
+            builder.keyProperty(Strings.join(",", Arrays.asList(ms.getKeyProperties())));
+        }
+        if (Emptys.isNotEmpty(ms.getKeyColumns())) {
+            builder.keyColumn(Strings.join(",", Arrays.asList(ms.getKeyColumns())));
+        }
+        builder.timeout(ms.getTimeout());
+        builder.parameterMap(ms.getParameterMap());
+        builder.resultMaps(ms.getResultMaps());
+        builder.resultSetType(ms.getResultSetType());
+        builder.cache(ms.getCache());
+        builder.flushCacheRequired(ms.isFlushCacheRequired());
+        builder.useCache(ms.isUseCache());
+        return builder.build();
+    }
+
     public static String getSql(BoundSql boundSql) {
         return boundSql.getSql();
     }
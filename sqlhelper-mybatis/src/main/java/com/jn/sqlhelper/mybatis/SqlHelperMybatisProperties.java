@@ -15,12 +15,16 @@
 package com.jn.sqlhelper.mybatis;
 
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCacheConfig;
 import com.jn.sqlhelper.mybatis.plugins.pagination.PaginationConfig;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryConfig;
 
 public class SqlHelperMybatisProperties {
 
     private SQLInstrumentorConfig instrumentor = new SQLInstrumentorConfig();
     private PaginationConfig pagination = new PaginationConfig();
+    private SlowQueryConfig slowQuery = new SlowQueryConfig();
+    private PageResultCacheConfig pageResultCache = new PageResultCacheConfig();
 
     public SQLInstrumentorConfig getInstrumentor() {
         return instrumentor;
@@ -38,11 +42,29 @@ public class SqlHelperMybatisProperties {
         this.pagination = pagination;
     }
 
+    public SlowQueryConfig getSlowQuery() {
+        return slowQuery;
+    }
+
+    public void setSlowQuery(SlowQueryConfig slowQuery) {
+        this.slowQuery = slowQuery;
+    }
+
+    public PageResultCacheConfig getPageResultCache() {
+        return pageResultCache;
+    }
+
+    public void setPageResultCache(PageResultCacheConfig pageResultCache) {
+        this.pageResultCache = pageResultCache;
+    }
+
     @Override
     public String toString() {
         return "SqlHelperMybatisProperties{" +
                 "instrumentor=" + instrumentor +
                 ", pagination=" + pagination +
+                ", slowQuery=" + slowQuery +
+                ", pageResultCache=" + pageResultCache +
                 '}';
     }
 }
@@ -17,6 +17,8 @@ package com.jn.sqlhelper.mybatis.batch;
 import com.jn.langx.util.Preconditions;
 import com.jn.sqlhelper.common.batch.BatchMode;
 import com.jn.sqlhelper.common.batch.BatchResult;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import org.apache.ibatis.session.SqlSession;
 
 import java.sql.SQLException;
@@ -30,6 +32,7 @@ public class BatchSqlBatchUpdater<E> extends MybatisBatchUpdater<E> {
         Preconditions.checkArgument(statement.getBatchMode() == BatchMode.BATCH_SQL);
         Preconditions.checkNotNull(sessionFactory);
 
+        MetricsSample sample = SqlHelperMetrics.startBatch(BatchMode.BATCH_SQL.name(), beans.size());
         SqlSession session = sessionFactory.openSession(true);
         BatchResult<E> result = new BatchResult<E>();
         result.setParameters(beans);
@@ -41,6 +44,7 @@ public class BatchSqlBatchUpdater<E> extends MybatisBatchUpdater<E> {
             result.addThrowable(ex);
         } finally {
             session.close();
+            sample.stop();
         }
         return result;
     }
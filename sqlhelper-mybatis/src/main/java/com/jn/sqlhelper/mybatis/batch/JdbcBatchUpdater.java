@@ -18,7 +18,10 @@ import com.jn.easyjson.core.JSONBuilderProvider;
 import com.jn.langx.util.Preconditions;
 import com.jn.sqlhelper.common.batch.BatchMode;
 import com.jn.sqlhelper.common.batch.BatchResult;
-import com.jn.sqlhelper.common.ddl.model.DatabaseDescription;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCapabilities;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalogRegistry;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.slf4j.Logger;
@@ -39,11 +42,13 @@ public class JdbcBatchUpdater<E> extends MybatisBatchUpdater<E> {
 
         SqlSession session = sessionFactory.openSession(ExecutorType.BATCH);
         Connection connection = session.getConnection();
-        DatabaseDescription databaseDescription = new DatabaseDescription(connection.getMetaData());
-        if (!databaseDescription.supportsBatchUpdates()) {
+        DatabaseCapabilities capabilities = DatabaseCatalogRegistry.getInstance().getCatalog(sessionFactory.getConfiguration().getEnvironment().getDataSource()).getCapabilities(connection);
+        if (!capabilities.supportsBatchUpdates()) {
             logger.warn("The database is not supports jdbc update");
+            session.close();
             throw new UnsupportedOperationException("batch update");
         }
+        MetricsSample sample = SqlHelperMetrics.startBatch(BatchMode.JDBC_BATCH.name(), entities.size());
         BatchResult<E> result = new BatchResult<E>();
         result.setParameters(entities);
         result.setStatement(statement);
@@ -79,6 +84,7 @@ public class JdbcBatchUpdater<E> extends MybatisBatchUpdater<E> {
             affectedRows = 0;
         } finally {
             session.close();
+            sample.stop();
         }
         result.setRowsAffected(affectedRows);
         return result;
@@ -18,6 +18,8 @@ import com.jn.easyjson.core.JSONBuilderProvider;
 import com.jn.langx.util.Preconditions;
 import com.jn.sqlhelper.common.batch.BatchResult;
 import com.jn.sqlhelper.common.batch.BatchMode;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import org.apache.ibatis.session.SqlSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +35,7 @@ public class SimpleBatchUpdater<E> extends MybatisBatchUpdater<E> {
         Preconditions.checkNotNull(sessionFactory);
         Preconditions.checkNotNull(statement);
         Preconditions.checkArgument(statement.getBatchMode() == BatchMode.SIMPLE);
+        MetricsSample sample = SqlHelperMetrics.startBatch(BatchMode.SIMPLE.name(), entities.size());
         SqlSession session = sessionFactory.openSession(true);
 
         BatchResult<E> result = new BatchResult<E>();
@@ -70,6 +73,7 @@ public class SimpleBatchUpdater<E> extends MybatisBatchUpdater<E> {
             result.addThrowable(ex);
         } finally {
             session.close();
+            sample.stop();
         }
 
         result.setRowsAffected(affectedRows);
@@ -0,0 +1,607 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.mvc.repository;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Emptys;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.collection.Collects;
+import com.jn.langx.util.reflect.Reflects;
+import com.jn.sqlhelper.common.er.EntityTableMapping;
+import com.jn.sqlhelper.common.er.EntityTableRegistry;
+import com.jn.sqlhelper.common.utils.AnsiSqlKeywords;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.*;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.scripting.xmltags.*;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.*;
+
+/**
+ * The statements of an entity class, they are generated from the {@link EntityTableMapping} and registered into the
+ * mybatis {@link Configuration} when it is constructed, so they go through the mybatis plugins (pagination, instrumentation ...)
+ * like the statements of a mapper. The configuration is not thread safe, so construct it when the configuration
+ * is built, before the statements of the configuration are executed, the same as a mapper.
+ * <pre>
+ * 1) the binding plan of a statement is a list of {@link ParameterMapping}s of the entity properties,
+ *    the type handlers are resolved when it is generated
+ * 2) the rows are mapped by a {@link ResultMap} of the columns of the entity
+ * 3) the select / delete by ids statements have an IN list, the lengths of the lists are rounded up to a power of 2,
+ *    so a few statements are generated for an entity class
+ * 4) the upsert statements are rendered by the {@link UpsertRenderer} of the dialect, the rows of them are a power of 2
+ * 5) the select by example statements are dynamic, a condition is added for every not null property of the example
+ * </pre>
+ */
+public class EntityStatements {
+    private static final String NAMESPACE_SUFFIX = "._sqlhelper_repository";
+
+    public static final String INSERT = "insert";
+    public static final String UPDATE_BY_ID = "updateById";
+    public static final String DELETE_BY_ID = "deleteById";
+    public static final String SELECT_BY_ID = "selectById";
+    public static final String SELECT_ALL = "selectAll";
+    public static final String SELECT_COUNT = "selectCount";
+    public static final String SELECT_BY_EXAMPLE = "selectByExample";
+    public static final String SELECT_COUNT_BY_EXAMPLE = "selectCountByExample";
+    /**
+     * the max rows of an upsert statement
+     */
+    private static final int MAX_UPSERT_ROWS = 256;
+
+    private final Configuration configuration;
+    private final Class entityClass;
+    private final Dialect dialect;
+    private final String namespace;
+    private final String table;
+    /**
+     * the fields that are mapped to the columns, in the order of the entity class
+     */
+    private final List<String> fields;
+    private final Map<String, String> columns;
+    private final List<String> idFields;
+    private final ResultMap resultMap;
+    /**
+     * key: statement name, value: statement id, it is not changed after the construction
+     */
+    private final Map<String, String> statements = new HashMap<String, String>();
+
+    public EntityStatements(@NonNull Configuration configuration, @NonNull Class entityClass, @NonNull Dialect dialect) {
+        Preconditions.checkNotNull(configuration);
+        Preconditions.checkNotNull(entityClass);
+        Preconditions.checkNotNull(dialect);
+        this.configuration = configuration;
+        this.entityClass = entityClass;
+        this.dialect = dialect;
+        this.namespace = Reflects.getFQNClassName(entityClass) + NAMESPACE_SUFFIX;
+
+        EntityTableMapping mapping = EntityTableRegistry.getInstance().getEntityTableMapping(entityClass);
+        Reflector reflector = configuration.getReflectorFactory().findForClass(entityClass);
+        this.table = quote(mapping.getTable());
+        this.fields = Collects.emptyArrayList();
+        this.columns = new HashMap<String, String>();
+        for (Map.Entry<String, String> entry : mapping.getColumnMappings().entrySet()) {
+            String field = entry.getKey();
+            if (Emptys.isNotEmpty(entry.getValue()) && reflector.hasGetter(field) && reflector.hasSetter(field)) {
+                fields.add(field);
+                columns.put(field, quote(entry.getValue()));
+            }
+        }
+        Preconditions.checkTrue(!fields.isEmpty(), StringTemplates.formatWithPlaceholder("No column is mapped in the class {}", Reflects.getFQNClassName(entityClass)));
+        this.idFields = Collects.emptyArrayList();
+        for (String idField : mapping.getIdFields()) {
+            if (columns.containsKey(idField)) {
+                idFields.add(idField);
+            }
+        }
+        this.resultMap = buildResultMap(reflector);
+        registerStatements();
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public Class getEntityClass() {
+        return entityClass;
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    public boolean hasId() {
+        return !idFields.isEmpty();
+    }
+
+    /**
+     * @return whether the id is a single column, only the ids of a single column can be in an IN list
+     */
+    public boolean isSingleId() {
+        return idFields.size() == 1;
+    }
+
+    public String getIdField() {
+        checkId();
+        return idFields.get(0);
+    }
+
+    /**
+     * @return the values of the id properties of the entity, null if any of them is null
+     */
+    @Nullable
+    public List<Object> getIdValues(@NonNull Object entity) {
+        checkId();
+        MetaObject metaObject = configuration.newMetaObject(entity);
+        List<Object> values = new ArrayList<Object>(idFields.size());
+        for (String idField : idFields) {
+            Object value = metaObject.getValue(idField);
+            if (value == null) {
+                return null;
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    public List<String> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * @return the quoted column
+     */
+    public String getColumn(String field) {
+        return columns.get(field);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String insert() {
+        return statementId(INSERT);
+    }
+
+    public String updateById() {
+        checkId();
+        Preconditions.checkTrue(fields.size() > idFields.size(), StringTemplates.formatWithPlaceholder("No column to update in the class {}", Reflects.getFQNClassName(entityClass)));
+        return statementId(UPDATE_BY_ID);
+    }
+
+    /**
+     * The parameter is an id, or an entity (or a composite id) that has the id properties
+     */
+    public String deleteById() {
+        checkId();
+        return statementId(DELETE_BY_ID);
+    }
+
+    /**
+     * The parameter is an id, or an entity (or a composite id) that has the id properties
+     */
+    public String selectById() {
+        checkId();
+        return statementId(SELECT_BY_ID);
+    }
+
+    public String selectAll() {
+        return statementId(SELECT_ALL);
+    }
+
+    public String selectCount() {
+        return statementId(SELECT_COUNT);
+    }
+
+    /**
+     * @param size the length of the IN list, it should be a value of {@link #getInListSize(int)}
+     * @return the statement, its parameter is a map: {"id0": id, "id1": id, ...}
+     */
+    public String selectByIds(int size) {
+        checkSingleId();
+        return statementId("selectByIds_" + size);
+    }
+
+    /**
+     * @param size the length of the IN list, it should be a value of {@link #getInListSize(int)}
+     * @return the statement, its parameter is a map: {"id0": id, "id1": id, ...}
+     */
+    public String deleteByIds(int size) {
+        checkSingleId();
+        return statementId("deleteByIds_" + size);
+    }
+
+    public boolean isSupportsUpsert() {
+        return hasId() && dialect.isSupportsUpsert();
+    }
+
+    /**
+     * @param rows the rows of the statement, it should be a value of {@link #getUpsertRows(int)}
+     * @return the statement, its parameter is a map: {"e0": entity, "e1": entity, ...}
+     */
+    public String upsert(int rows) {
+        checkId();
+        getUpsertRenderer();
+        return statementId("upsert_" + rows);
+    }
+
+    public UpsertRenderer getUpsertRenderer() {
+        UpsertRenderer renderer = dialect.getUpsertRenderer();
+        Preconditions.checkNotNull(renderer, StringTemplates.formatWithPlaceholder("The upsert is not supported by the dialect {}", dialect.getDatabaseId()));
+        return renderer;
+    }
+
+    /**
+     * The rows of an upsert statement are a power of 2, so a few statements are generated. They are bounded by
+     * {@link #getMaxInListSize()} as the count of the bind parameters also.
+     *
+     * @param count the count of the rows to upsert
+     * @return the rows of the next statement
+     */
+    public int getUpsertRows(int count) {
+        int max = Math.min(MAX_UPSERT_ROWS, Math.max(1, getMaxInListSize() / fields.size()));
+        int rows = 1;
+        while (rows * 2 <= count && rows * 2 <= max) {
+            rows <<= 1;
+        }
+        return rows;
+    }
+
+    public Map<String, Object> newEntitiesParameter(List<?> entities) {
+        Map<String, Object> parameter = new HashMap<String, Object>();
+        for (int i = 0; i < entities.size(); i++) {
+            parameter.put("e" + i, entities.get(i));
+        }
+        return parameter;
+    }
+
+    /**
+     * @return the statement, its parameter is the example, the not null properties of it are the conditions
+     */
+    public String selectByExample() {
+        return statementId(SELECT_BY_EXAMPLE);
+    }
+
+    /**
+     * @return the statement, its parameter is the example, the not null properties of it are the conditions
+     */
+    public String selectCountByExample() {
+        return statementId(SELECT_COUNT_BY_EXAMPLE);
+    }
+
+    /**
+     * @return the max count of the ids of a select / delete by ids statement
+     */
+    public int getMaxInListSize() {
+        return Math.max(1, dialect.getMaxInListSize());
+    }
+
+    /**
+     * Rounds the count of the ids up to a power of 2, bounded by {@link #getMaxInListSize()}.
+     * The list is padded with the last id, so the statements are reused by the lists of different lengths
+     */
+    public int getInListSize(int count) {
+        int max = getMaxInListSize();
+        int size = 1;
+        while (size < count && size < max) {
+            size <<= 1;
+        }
+        return Math.min(size, max);
+    }
+
+    /**
+     * @param ids  the ids of a chunk, its size is at most {@link #getMaxInListSize()}
+     * @param size the IN list size of the chunk
+     */
+    public Map<String, Object> newIdsParameter(List<?> ids, int size) {
+        Map<String, Object> parameter = new HashMap<String, Object>();
+        for (int i = 0; i < size; i++) {
+            parameter.put("id" + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+        return parameter;
+    }
+
+    private String selectClause() {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns.get(fields.get(i)));
+        }
+        return sql.append(" FROM ").append(table).toString();
+    }
+
+    private String idCondition(List<ParameterMapping> parameterMappings) {
+        StringBuilder sql = new StringBuilder(" WHERE ");
+        for (int i = 0; i < idFields.size(); i++) {
+            String idField = idFields.get(i);
+            if (i > 0) {
+                sql.append(" AND ");
+            }
+            sql.append(columns.get(idField)).append(" = ?");
+            parameterMappings.add(parameterMapping(idField));
+        }
+        return sql.toString();
+    }
+
+    private String idInCondition(int size, List<ParameterMapping> parameterMappings) {
+        String idField = idFields.get(0);
+        Class idType = getPropertyType(idField);
+        StringBuilder sql = new StringBuilder(" WHERE ").append(columns.get(idField)).append(" IN (");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("?");
+            parameterMappings.add(new ParameterMapping.Builder(configuration, "id" + i, idType).build());
+        }
+        return sql.append(")").toString();
+    }
+
+    private ParameterMapping parameterMapping(String field) {
+        return new ParameterMapping.Builder(configuration, field, getPropertyType(field)).build();
+    }
+
+    private Class getPropertyType(String field) {
+        Class type = configuration.getReflectorFactory().findForClass(entityClass).getGetterType(field);
+        // the unknown type handler resolves the type handler of a value when it is bound
+        return configuration.getTypeHandlerRegistry().hasTypeHandler(type) ? type : Object.class;
+    }
+
+    private ResultMap buildResultMap(Reflector reflector) {
+        String id = namespace + ".resultMap";
+        synchronized (configuration) {
+            if (configuration.hasResultMap(id)) {
+                return configuration.getResultMap(id);
+            }
+            List<ResultMapping> resultMappings = Collects.emptyArrayList();
+            for (String field : fields) {
+                ResultMapping.Builder builder = new ResultMapping.Builder(configuration, field, unquote(columns.get(field)), reflector.getSetterType(field));
+                if (idFields.contains(field)) {
+                    builder.flags(Collects.newArrayList(ResultFlag.ID));
+                }
+                resultMappings.add(builder.build());
+            }
+            ResultMap resultMap = new ResultMap.Builder(configuration, id, entityClass, resultMappings, false).build();
+            configuration.addResultMap(resultMap);
+            return resultMap;
+        }
+    }
+
+    /**
+     * Registers all the statements, the lengths of the IN lists and the rows of the upserts are the powers of 2 that are
+     * less than the max, and the max
+     */
+    private void registerStatements() {
+        synchronized (configuration) {
+            register(INSERT, SqlCommandType.INSERT, new StatementBuilder() {
+                @Override
+                public String build(List<ParameterMapping> parameterMappings) {
+                    StringBuilder columnList = new StringBuilder();
+                    StringBuilder valueList = new StringBuilder();
+                    for (String field : fields) {
+                        if (columnList.length() > 0) {
+                            columnList.append(", ");
+                            valueList.append(", ");
+                        }
+                        columnList.append(columns.get(field));
+                        valueList.append("?");
+                        parameterMappings.add(parameterMapping(field));
+                    }
+                    return "INSERT INTO " + table + " (" + columnList + ") VALUES (" + valueList + ")";
+                }
+            });
+            register(SELECT_ALL, SqlCommandType.SELECT, new StatementBuilder() {
+                @Override
+                public String build(List<ParameterMapping> parameterMappings) {
+                    return selectClause();
+                }
+            });
+            register(SELECT_COUNT, SqlCommandType.SELECT, new StatementBuilder() {
+                @Override
+                public String build(List<ParameterMapping> parameterMappings) {
+                    return "SELECT count(*) FROM " + table;
+                }
+            });
+            register(SELECT_BY_EXAMPLE, SqlCommandType.SELECT, byExampleSqlSource(selectClause()));
+            register(SELECT_COUNT_BY_EXAMPLE, SqlCommandType.SELECT, byExampleSqlSource("SELECT count(*) FROM " + table));
+            if (!hasId()) {
+                return;
+            }
+            registerIdStatements();
+            if (isSingleId()) {
+                int max = getMaxInListSize();
+                for (int size = 1; ; size = Math.min(size << 1, max)) {
+                    registerIdsStatements(size);
+                    if (size == max) {
+                        break;
+                    }
+                }
+            }
+            if (isSupportsUpsert()) {
+                int max = getUpsertRows(Integer.MAX_VALUE);
+                for (int rows = 1; rows <= max; rows <<= 1) {
+                    registerUpsert(rows);
+                }
+            }
+        }
+    }
+
+    private void registerIdStatements() {
+        boolean hasNonIdField = fields.size() > idFields.size();
+        if (hasNonIdField) {
+            register(UPDATE_BY_ID, SqlCommandType.UPDATE, new StatementBuilder() {
+                @Override
+                public String build(List<ParameterMapping> parameterMappings) {
+                    StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+                    boolean first = true;
+                    for (String field : fields) {
+                        if (idFields.contains(field)) {
+                            continue;
+                        }
+                        if (!first) {
+                            sql.append(", ");
+                        }
+                        first = false;
+                        sql.append(columns.get(field)).append(" = ?");
+                        parameterMappings.add(parameterMapping(field));
+                    }
+                    return sql.append(idCondition(parameterMappings)).toString();
+                }
+            });
+        }
+        register(DELETE_BY_ID, SqlCommandType.DELETE, new StatementBuilder() {
+            @Override
+            public String build(List<ParameterMapping> parameterMappings) {
+                return "DELETE FROM " + table + idCondition(parameterMappings);
+            }
+        });
+        register(SELECT_BY_ID, SqlCommandType.SELECT, new StatementBuilder() {
+            @Override
+            public String build(List<ParameterMapping> parameterMappings) {
+                return selectClause() + idCondition(parameterMappings);
+            }
+        });
+    }
+
+    private void registerIdsStatements(final int size) {
+        register("selectByIds_" + size, SqlCommandType.SELECT, new StatementBuilder() {
+            @Override
+            public String build(List<ParameterMapping> parameterMappings) {
+                return selectClause() + idInCondition(size, parameterMappings);
+            }
+        });
+        register("deleteByIds_" + size, SqlCommandType.DELETE, new StatementBuilder() {
+            @Override
+            public String build(List<ParameterMapping> parameterMappings) {
+                return "DELETE FROM " + table + idInCondition(size, parameterMappings);
+            }
+        });
+    }
+
+    private void registerUpsert(final int rows) {
+        final UpsertRenderer renderer = getUpsertRenderer();
+        register("upsert_" + rows, SqlCommandType.UPDATE, new StatementBuilder() {
+            @Override
+            public String build(List<ParameterMapping> parameterMappings) {
+                List<String> columnList = Collects.emptyArrayList();
+                List<String> keyColumns = Collects.emptyArrayList();
+                for (String field : fields) {
+                    columnList.add(columns.get(field));
+                    if (idFields.contains(field)) {
+                        keyColumns.add(columns.get(field));
+                    }
+                }
+                for (int row = 0; row < rows; row++) {
+                    for (String field : fields) {
+                        parameterMappings.add(new ParameterMapping.Builder(configuration, "e" + row + "." + field, getPropertyType(field)).build());
+                    }
+                }
+                return renderer.render(table, columnList, keyColumns, rows);
+            }
+        });
+    }
+
+    /**
+     * The sql is the select clause and a WHERE clause: {@code <where><if test="field != null">AND column = #{field}</if>...</where>},
+     * so a statement serves all the examples, the statements are not generated for the combinations of the properties
+     */
+    private SqlSource byExampleSqlSource(String selectClause) {
+        List<SqlNode> conditions = Collects.emptyArrayList();
+        for (String field : fields) {
+            String condition = " AND " + columns.get(field) + " = #{" + field + ",javaType=" + getPropertyType(field).getName() + "}";
+            conditions.add(new IfSqlNode(new StaticTextSqlNode(condition), field + " != null"));
+        }
+        List<SqlNode> contents = Collects.emptyArrayList();
+        contents.add(new StaticTextSqlNode(selectClause));
+        contents.add(new WhereSqlNode(configuration, new MixedSqlNode(conditions)));
+        return new DynamicSqlSource(configuration, new MixedSqlNode(contents));
+    }
+
+    private void register(String name, SqlCommandType commandType, StatementBuilder builder) {
+        String id = namespace + "." + name;
+        if (!configuration.hasStatement(id, false)) {
+            List<ParameterMapping> parameterMappings = Collects.emptyArrayList();
+            String sql = builder.build(parameterMappings);
+            register(name, commandType, new StaticSqlSource(configuration, sql, parameterMappings));
+        } else {
+            statements.put(name, id);
+        }
+    }
+
+    private void register(String name, SqlCommandType commandType, SqlSource sqlSource) {
+        String id = namespace + "." + name;
+        if (!configuration.hasStatement(id, false)) {
+            MappedStatement.Builder statementBuilder = new MappedStatement.Builder(configuration, id, sqlSource, commandType);
+            if (commandType == SqlCommandType.SELECT) {
+                if (name.startsWith("selectCount")) {
+                    ResultMap countResultMap = new ResultMap.Builder(configuration, id + "-Inline", Long.class, new ArrayList<ResultMapping>()).build();
+                    statementBuilder.resultMaps(Collects.newArrayList(countResultMap));
+                } else {
+                    statementBuilder.resultMaps(Collects.newArrayList(resultMap));
+                }
+            } else {
+                statementBuilder.flushCacheRequired(true);
+            }
+            configuration.addMappedStatement(statementBuilder.build());
+        }
+        statements.put(name, id);
+    }
+
+    private String statementId(String name) {
+        String id = statements.get(name);
+        Preconditions.checkNotNull(id, StringTemplates.formatWithPlaceholder("No statement {} of the class {}", name, Reflects.getFQNClassName(entityClass)));
+        return id;
+    }
+
+    private void checkId() {
+        Preconditions.checkTrue(hasId(), StringTemplates.formatWithPlaceholder("No id is mapped in the class {}, use the @PK or a field named 'id'", Reflects.getFQNClassName(entityClass)));
+    }
+
+    private void checkSingleId() {
+        checkId();
+        Preconditions.checkTrue(isSingleId(), StringTemplates.formatWithPlaceholder("The id of the class {} has more than one column", Reflects.getFQNClassName(entityClass)));
+    }
+
+    /**
+     * Quotes the identifier if it is a keyword, the others are kept as is, so the case of them is folded by the database
+     */
+    private String quote(String identifier) {
+        if (AnsiSqlKeywords.INSTANCE.sql2003().contains(identifier.toUpperCase(Locale.ROOT))) {
+            return dialect.getQuotedIdentifier(identifier);
+        }
+        return identifier;
+    }
+
+    private String unquote(String identifier) {
+        if (identifier.length() > 1 && identifier.charAt(0) == dialect.getBeforeQuote() && identifier.charAt(identifier.length() - 1) == dialect.getAfterQuote()) {
+            return identifier.substring(1, identifier.length() - 1);
+        }
+        return identifier;
+    }
+
+    private interface StatementBuilder {
+        /**
+         * @param parameterMappings the binding plan, the mappings are added in the order of the placeholders
+         */
+        String build(List<ParameterMapping> parameterMappings);
+    }
+}
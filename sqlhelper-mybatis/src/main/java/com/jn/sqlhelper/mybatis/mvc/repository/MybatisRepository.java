@@ -0,0 +1,498 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.mvc.repository;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.text.StringTemplates;
+import com.jn.langx.util.Emptys;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.Throwables;
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.common.batch.BatchMode;
+import com.jn.sqlhelper.common.batch.BatchResult;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+import com.jn.sqlhelper.dialect.upsert.UpsertRenderer;
+import com.jn.sqlhelper.mybatis.batch.MybatisBatchStatement;
+import com.jn.sqlhelper.mybatis.mvc.entity.Entity;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Repository} that executes the statements generated by {@link EntityStatements}.
+ * <p>
+ * Every operation opens a session of the session factory. With mybatis-spring the sessions join the spring transaction,
+ * a connection that is not in the auto-commit mode is treated as in a transaction.
+ * <p>
+ * The ids of {@link #selectByIds(List)} and {@link #deleteByIds(List)} are split into chunks by
+ * {@link Dialect#getMaxInListSize()}, the chunks are executed in parallel by the executor if it is set and the
+ * operation is not in a transaction.
+ * <p>
+ * The entities are merged by the upsert statements of the dialect if it supports, see {@link UpsertRenderer}.
+ */
+public class MybatisRepository<E extends Entity<ID>, ID> implements Repository<E, ID> {
+    private final SqlSessionFactory sessionFactory;
+    private final EntityStatements statements;
+    @Nullable
+    private ExecutorService executor;
+
+    public MybatisRepository(@NonNull SqlSessionFactory sessionFactory, @NonNull Class<E> entityClass) {
+        this(sessionFactory, entityClass, null);
+    }
+
+    public MybatisRepository(@NonNull SqlSessionFactory sessionFactory, @NonNull Class<E> entityClass, @Nullable Dialect dialect) {
+        Preconditions.checkNotNull(sessionFactory);
+        Preconditions.checkNotNull(entityClass);
+        this.sessionFactory = sessionFactory;
+        if (dialect == null) {
+            dialect = findDialect(sessionFactory.getConfiguration());
+        }
+        this.statements = new EntityStatements(sessionFactory.getConfiguration(), entityClass, dialect);
+    }
+
+    private static Dialect findDialect(Configuration configuration) {
+        String databaseId = configuration.getDatabaseId();
+        if (Emptys.isEmpty(databaseId)) {
+            databaseId = DialectRegistry.guessDatabaseId(configuration.getEnvironment().getDataSource());
+        }
+        Dialect dialect = Emptys.isEmpty(databaseId) ? null : DialectRegistry.getInstance().getDialectByName(databaseId);
+        Preconditions.checkNotNull(dialect, StringTemplates.formatWithPlaceholder("Can't find the dialect of the database: {}", databaseId));
+        return dialect;
+    }
+
+    public EntityStatements getStatements() {
+        return statements;
+    }
+
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void insert(final E entity) {
+        execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                return session.insert(statements.insert(), entity);
+            }
+        });
+    }
+
+    @Override
+    public void update(E entity) {
+        updateById(entity);
+    }
+
+    @Override
+    public void updateById(final E entity) {
+        execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                return session.update(statements.updateById(), entity);
+            }
+        });
+    }
+
+    @Override
+    public void delete(final E entity) {
+        execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                return session.delete(statements.deleteById(), entity);
+            }
+        });
+    }
+
+    @Override
+    public void deleteById(final ID id) {
+        execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                return session.delete(statements.deleteById(), id);
+            }
+        });
+    }
+
+    /**
+     * Upserts the entity if the dialect supports it, else updates the entity if a row has its id or inserts it
+     */
+    @Override
+    public void merge(final E entity) {
+        execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                if (statements.isSupportsUpsert()) {
+                    return session.update(statements.upsert(1), statements.newEntitiesParameter(Collects.newArrayList(entity)));
+                }
+                return updateOrInsert(session, entity) ? 1 : 0;
+            }
+        });
+    }
+
+    /**
+     * Upserts the entities with the multi-rows statements if the dialect supports it, a statement is a round trip.
+     * Else every entity is updated, or inserted if no row has its id.
+     */
+    @Override
+    public BatchResult<E> merge(final List<E> entities) {
+        final BatchResult<E> result = new BatchResult<E>();
+        result.setParameters(entities);
+        if (Emptys.isEmpty(entities)) {
+            result.setRowsInserted(0);
+            result.setRowsUpdated(0);
+            return result;
+        }
+        final BatchMode batchMode = statements.isSupportsUpsert() ? BatchMode.BATCH_SQL : BatchMode.SIMPLE;
+        final MetricsSample sample = SqlHelperMetrics.startBatch(batchMode.name(), entities.size());
+        try {
+            execute(new SessionCallback<Void>() {
+                @Override
+                public Void doInSession(SqlSession session) {
+                    if (batchMode == BatchMode.BATCH_SQL) {
+                        upsert(session, entities, result);
+                    } else {
+                        updateOrInsert(session, entities, result);
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            sample.stop();
+        }
+        return result;
+    }
+
+    private void upsert(SqlSession session, List<E> entities, BatchResult<E> result) {
+        UpsertRenderer renderer = statements.getUpsertRenderer();
+        // the rows of a statement must have the different keys (ON CONFLICT, MERGE)
+        entities = distinctByKey(entities);
+        int rowsAffected = 0;
+        int rowsInserted = 0;
+        int rowsUpdated = 0;
+        boolean insertedExposed = true;
+        boolean updatedExposed = true;
+        int offset = 0;
+        while (offset < entities.size()) {
+            int rows = statements.getUpsertRows(entities.size() - offset);
+            List<E> chunk = entities.subList(offset, offset + rows);
+            offset += rows;
+            String statement = statements.upsert(rows);
+            if (result.getStatement() == null) {
+                result.setStatement(new MybatisBatchStatement(BatchMode.BATCH_SQL, statement));
+            }
+            try {
+                int updated = session.update(statement, statements.newEntitiesParameter(chunk));
+                rowsAffected += updated;
+                int[] counts = renderer.getInsertedAndUpdatedRows(rows, updated);
+                if (counts == null) {
+                    insertedExposed = false;
+                    updatedExposed = false;
+                } else {
+                    insertedExposed = insertedExposed && counts[0] >= 0;
+                    updatedExposed = updatedExposed && counts[1] >= 0;
+                    rowsInserted += counts[0];
+                    rowsUpdated += counts[1];
+                }
+            } catch (Throwable ex) {
+                insertedExposed = false;
+                updatedExposed = false;
+                result.addThrowable(ex);
+            }
+        }
+        result.setRowsAffected(rowsAffected);
+        if (insertedExposed) {
+            result.setRowsInserted(rowsInserted);
+        }
+        if (updatedExposed) {
+            result.setRowsUpdated(rowsUpdated);
+        }
+    }
+
+    /**
+     * Removes the entities that have the same key as a later one, the later one is written, the same as the entities
+     * are written one by one. The entities whose key has a null value are kept.
+     */
+    private List<E> distinctByKey(List<E> entities) {
+        Map<List<Object>, Integer> lastIndexes = new HashMap<List<Object>, Integer>();
+        List<List<Object>> keys = new ArrayList<List<Object>>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            List<Object> key = statements.getIdValues(entities.get(i));
+            keys.add(key);
+            if (key != null) {
+                lastIndexes.put(key, i);
+            }
+        }
+        if (lastIndexes.size() == entities.size()) {
+            return entities;
+        }
+        List<E> distinct = new ArrayList<E>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            List<Object> key = keys.get(i);
+            if (key == null || lastIndexes.get(key) == i) {
+                distinct.add(entities.get(i));
+            }
+        }
+        return distinct;
+    }
+
+    private void updateOrInsert(SqlSession session, List<E> entities, BatchResult<E> result) {
+        result.setStatement(new MybatisBatchStatement(BatchMode.SIMPLE, statements.updateById()));
+        int rowsInserted = 0;
+        int rowsUpdated = 0;
+        for (E entity : entities) {
+            try {
+                if (updateOrInsert(session, entity)) {
+                    rowsUpdated++;
+                } else {
+                    rowsInserted++;
+                }
+            } catch (Throwable ex) {
+                result.addThrowable(ex);
+            }
+        }
+        result.setRowsAffected(rowsInserted + rowsUpdated);
+        result.setRowsInserted(rowsInserted);
+        result.setRowsUpdated(rowsUpdated);
+    }
+
+    /**
+     * @return true if it is updated, false if it is inserted
+     */
+    private boolean updateOrInsert(SqlSession session, E entity) {
+        if (session.update(statements.updateById(), entity) > 0) {
+            return true;
+        }
+        session.insert(statements.insert(), entity);
+        return false;
+    }
+
+    @Override
+    public E selectById(final ID id) {
+        return execute(new SessionCallback<E>() {
+            @Override
+            public E doInSession(SqlSession session) {
+                return session.selectOne(statements.selectById(), id);
+            }
+        });
+    }
+
+    @Override
+    public List<E> selectByIds(List<ID> ids) {
+        final List<E> entities = Collects.emptyArrayList();
+        if (Emptys.isEmpty(ids)) {
+            return entities;
+        }
+        if (!statements.isSingleId()) {
+            for (ID id : ids) {
+                E entity = selectById(id);
+                if (entity != null) {
+                    entities.add(entity);
+                }
+            }
+            return entities;
+        }
+        List<List<E>> chunks = executeChunks(ids, new ChunkCallback<ID, List<E>>() {
+            @Override
+            public List<E> doInSession(SqlSession session, List<ID> chunk) {
+                int size = statements.getInListSize(chunk.size());
+                return session.selectList(statements.selectByIds(size), statements.newIdsParameter(chunk, size));
+            }
+        });
+        for (List<E> chunk : chunks) {
+            entities.addAll(chunk);
+        }
+        return entities;
+    }
+
+    @Override
+    public void deleteByIds(List<ID> ids) {
+        if (Emptys.isEmpty(ids)) {
+            return;
+        }
+        if (!statements.isSingleId()) {
+            for (ID id : ids) {
+                deleteById(id);
+            }
+            return;
+        }
+        executeChunks(ids, new ChunkCallback<ID, Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session, List<ID> chunk) {
+                int size = statements.getInListSize(chunk.size());
+                return session.delete(statements.deleteByIds(size), statements.newIdsParameter(chunk, size));
+            }
+        });
+    }
+
+    /**
+     * Updates the entities in a batch
+     */
+    @Override
+    public void update(final List<E> entities) {
+        if (Emptys.isEmpty(entities)) {
+            return;
+        }
+        SqlSession session = sessionFactory.openSession(ExecutorType.BATCH, true);
+        try {
+            String statement = statements.updateById();
+            for (E entity : entities) {
+                session.update(statement, entity);
+            }
+            // flushes the batch, the transaction is committed by the auto-commit mode or the transaction manager
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public List<E> selectAll() {
+        return execute(new SessionCallback<List<E>>() {
+            @Override
+            public List<E> doInSession(SqlSession session) {
+                return session.selectList(statements.selectAll());
+            }
+        });
+    }
+
+    @Override
+    public Integer selectCount() {
+        return execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                Long count = session.selectOne(statements.selectCount());
+                return count == null ? 0 : count.intValue();
+            }
+        });
+    }
+
+    /**
+     * @param limit the not null properties of it are the conditions
+     */
+    @Override
+    public List<E> selectByLimit(final E limit) {
+        return execute(new SessionCallback<List<E>>() {
+            @Override
+            public List<E> doInSession(SqlSession session) {
+                return session.selectList(statements.selectByExample(), limit);
+            }
+        });
+    }
+
+    /**
+     * @param limit the not null properties of it are the conditions
+     */
+    @Override
+    public Integer selectCountByLimit(final E limit) {
+        return execute(new SessionCallback<Integer>() {
+            @Override
+            public Integer doInSession(SqlSession session) {
+                Long count = session.selectOne(statements.selectCountByExample(), limit);
+                return count == null ? 0 : count.intValue();
+            }
+        });
+    }
+
+    private <R> R execute(SessionCallback<R> callback) {
+        SqlSession session = sessionFactory.openSession(true);
+        try {
+            return callback.doInSession(session);
+        } finally {
+            session.close();
+        }
+    }
+
+    private <R> List<R> executeChunks(final List<ID> ids, final ChunkCallback<ID, R> callback) {
+        int chunkSize = statements.getMaxInListSize();
+        final List<List<ID>> chunks = new ArrayList<List<ID>>();
+        for (int offset = 0; offset < ids.size(); offset += chunkSize) {
+            chunks.add(ids.subList(offset, Math.min(ids.size(), offset + chunkSize)));
+        }
+        final List<R> results = new ArrayList<R>(chunks.size());
+        SqlSession session = sessionFactory.openSession(true);
+        try {
+            if (chunks.size() == 1 || executor == null || isInTransaction(session)) {
+                for (List<ID> chunk : chunks) {
+                    results.add(callback.doInSession(session, chunk));
+                }
+                return results;
+            }
+        } finally {
+            session.close();
+        }
+
+        List<Future<R>> futures = new ArrayList<Future<R>>(chunks.size());
+        for (final List<ID> chunk : chunks) {
+            futures.add(executor.submit(new Callable<R>() {
+                @Override
+                public R call() {
+                    return execute(new SessionCallback<R>() {
+                        @Override
+                        public R doInSession(SqlSession session) {
+                            return callback.doInSession(session, chunk);
+                        }
+                    });
+                }
+            }));
+        }
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw Throwables.wrapAsRuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw Throwables.wrapAsRuntimeException(ex.getCause());
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private static boolean isInTransaction(SqlSession session) {
+        try {
+            return !session.getConnection().getAutoCommit();
+        } catch (SQLException ex) {
+            // be safe, the chunks are executed in the current thread
+            return true;
+        }
+    }
+
+    private interface SessionCallback<R> {
+        R doInSession(SqlSession session);
+    }
+
+    private interface ChunkCallback<I, R> {
+        R doInSession(SqlSession session, List<I> chunk);
+    }
+}
@@ -14,6 +14,7 @@
 
 package com.jn.sqlhelper.mybatis.mvc.repository;
 
+import com.jn.sqlhelper.common.batch.BatchResult;
 import com.jn.sqlhelper.mybatis.mvc.entity.Entity;
 
 import java.util.List;
@@ -39,6 +40,11 @@ public interface Repository<E extends Entity<ID>, ID> {
 
     void update(List<E> entities);
 
+    /**
+     * Inserts the entities, or updates them if the rows of the same ids exist
+     */
+    BatchResult<E> merge(List<E> entities);
+
     List<E> selectAll();
 
     Integer selectCount();
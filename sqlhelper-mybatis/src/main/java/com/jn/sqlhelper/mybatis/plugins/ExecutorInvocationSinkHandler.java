@@ -3,6 +3,8 @@ package com.jn.sqlhelper.mybatis.plugins;
 import com.jn.langx.pipeline.AbstractHandler;
 import com.jn.langx.pipeline.HandlerContext;
 import com.jn.langx.util.Objects;
+import com.jn.sqlhelper.mybatis.MybatisUtils;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.Invocation;
 
 public class ExecutorInvocationSinkHandler extends AbstractHandler {
@@ -11,7 +13,14 @@ public class ExecutorInvocationSinkHandler extends AbstractHandler {
         ExecutorInvocation executorInvocation = (ExecutorInvocation) ctx.getPipeline().getTarget();
         Invocation invocation = executorInvocation.getInvocation();
         String method = executorInvocation.getMethodName();
-        if (!method.equals("query")) {
+        if (method.equals("update")) {
+            if (executorInvocation.isBoundSqlChanged() && Objects.isNotNull(executorInvocation.getBoundSql())) {
+                MappedStatement statement = MybatisUtils.newBoundStatement(executorInvocation.getMappedStatement(), executorInvocation.getBoundSql());
+                executorInvocation.setResult(executorInvocation.getExecutor().update(statement, executorInvocation.getParameter()));
+            } else {
+                executorInvocation.setResult(invocation.proceed());
+            }
+        } else if (!method.equals("query")) {
             executorInvocation.setResult(invocation.proceed());
         } else {
             if (executorInvocation.isBoundSqlChanged() && Objects.isNotNull(executorInvocation.getBoundSql())) {
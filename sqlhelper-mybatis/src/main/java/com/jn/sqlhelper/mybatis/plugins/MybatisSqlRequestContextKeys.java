@@ -24,6 +24,11 @@ public class MybatisSqlRequestContextKeys {
     // value: String
     public static final String COUNT_SQL_ID = "countSqlId";
 
+    // value: BoundSql, the count statement that is executed, it is kept after the count is finished
+    public static final String EXECUTED_COUNT_SQL = "executedCountSql";
+    // value: MappedStatement, the statement of the executed count
+    public static final String EXECUTED_COUNT_STATEMENT = "executedCountStatement";
+
     public static final String LIKE_ESCAPE_PARAMETERS_INDEXES = "LIKE_ESCAPE_PARAMETERS_INDEXES";
 
     public static final String LIKE_ESCAPER = "LIKE_ESCAPER";
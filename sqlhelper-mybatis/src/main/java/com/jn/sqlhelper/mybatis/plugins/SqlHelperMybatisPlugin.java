@@ -19,16 +19,28 @@ import com.jn.langx.lifecycle.InitializationException;
 import com.jn.langx.pipeline.*;
 import com.jn.langx.text.properties.PropertiesAccessor;
 import com.jn.langx.util.ClassLoaders;
+import com.jn.langx.util.Strings;
 import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.reflect.Reflects;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.pagination.PagingRequestContext;
 import com.jn.sqlhelper.dialect.pagination.PagingRequestContextHolder;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCache;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCacheConfig;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
+import com.jn.sqlhelper.mybatis.MybatisUtils;
+import com.jn.sqlhelper.mybatis.plugins.inlist.InListRewriteHandler;
 import com.jn.sqlhelper.mybatis.plugins.likeescape.LikeParameterEscapeHandler;
 import com.jn.sqlhelper.mybatis.plugins.pagination.PaginationConfig;
 import com.jn.sqlhelper.mybatis.plugins.pagination.PaginationHandler;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryConfig;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryDetector;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryHandler;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
@@ -39,6 +51,8 @@ import org.apache.ibatis.session.RowBounds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,14 +62,39 @@ import java.util.Properties;
         @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
         @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
         @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class}),
-        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "commit", args = {boolean.class}),
+        @Signature(type = Executor.class, method = "rollback", args = {boolean.class}),
+        @Signature(type = Executor.class, method = "close", args = {boolean.class})
 })
 public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
     private static final Logger logger = LoggerFactory.getLogger(SqlHelperMybatisPlugin.class);
+    /**
+     * the logger of the {@link DebugHandler}, the pipeline is required when it outputs
+     */
+    private static final Logger DEBUG_LOGGER = LoggerFactory.getLogger(DebugHandler.class);
     private PaginationConfig paginationConfig = new PaginationConfig();
+    private SlowQueryConfig slowQueryConfig = new SlowQueryConfig();
+    private SlowQueryDetector slowQueryDetector;
+    private PagingQueryRouter pagingQueryRouter;
+    private PageResultCacheConfig pageResultCacheConfig = new PageResultCacheConfig();
+    private PageResultCache pageResultCache;
     private static SQLStatementInstrumentor instrumentor = new SQLStatementInstrumentor();
     private boolean inited = false;
     private Map<String, Handler> handlerRegistry = new HashMap<String, Handler>();
+    /**
+     * the handlers of the pipelines, they are computed once in {@link #init()}
+     */
+    private Handler debugHandler;
+    private Handler sinkHandler;
+    private List<Handler> queryHandlers;
+    private List<Handler> pageHelperQueryHandlers;
+    private List<Handler> otherHandlers;
+    /**
+     * whether the pipeline is required for the query without any sql request context
+     */
+    private boolean pipelineRequiredForPlainQuery;
+    private boolean pipelineRequiredForPlainUpdate;
 
     @Override
     public void init() throws InitializationException {
@@ -65,8 +104,16 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
             handlerRegistry.put("debug", debugHandler);
             LikeParameterEscapeHandler likeParameterEscapeHandler = new LikeParameterEscapeHandler(instrumentor.getConfig().isEscapeLikeParameter());
             handlerRegistry.put("likeEscape", likeParameterEscapeHandler);
+            if (instrumentor.getConfig().isRewriteInList()) {
+                handlerRegistry.put("inList", new InListRewriteHandler());
+            }
             PaginationHandler paginationHandler = new PaginationHandler();
             paginationHandler.setPaginationConfig(this.paginationConfig);
+            paginationHandler.setPagingQueryRouter(this.pagingQueryRouter);
+            if (pageResultCacheConfig.isEnabled()) {
+                pageResultCache = new PageResultCache(pageResultCacheConfig);
+                paginationHandler.setPageResultCache(pageResultCache);
+            }
             paginationHandler.init();
             handlerRegistry.put("pagination", paginationHandler);
             if (paginationConfig.isPageHelperCompatible()) {
@@ -80,15 +127,83 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
                 }
             }
 
+            if (slowQueryConfig.isEnabled()) {
+                slowQueryDetector = new SlowQueryDetector(slowQueryConfig);
+                if (slowQueryConfig.isJmxEnabled()) {
+                    String name = instrumentor.getConfig().getName();
+                    slowQueryDetector.registerMBean(Strings.isBlank(name) ? "default" : name);
+                }
+                handlerRegistry.put("slowQuery", new SlowQueryHandler(slowQueryDetector));
+            }
+
             ExecutorInvocationSinkHandler sinkHandler = new ExecutorInvocationSinkHandler();
             handlerRegistry.put("sink", sinkHandler);
+            initPipelineHandlers();
             inited = true;
         }
     }
 
+    private void initPipelineHandlers() {
+        this.debugHandler = handlerRegistry.get("debug");
+        this.sinkHandler = handlerRegistry.get("sink");
+
+        List<Handler> handlers = Collects.emptyArrayList();
+        Handler slowQueryHandler = handlerRegistry.get("slowQuery");
+        if (slowQueryHandler != null) {
+            handlers.add(slowQueryHandler);
+        }
+        // the in list is rewritten before the like escape, the pagination, they find the parameters in the rewritten sql
+        Handler inListHandler = handlerRegistry.get("inList");
+        if (inListHandler != null) {
+            handlers.add(inListHandler);
+        }
+        this.otherHandlers = Collections.unmodifiableList(new ArrayList<Handler>(handlers));
+
+        handlers.add(handlerRegistry.get("likeEscape"));
+        handlers.add(handlerRegistry.get("pagination"));
+        this.queryHandlers = Collections.unmodifiableList(new ArrayList<Handler>(handlers));
+
+        Handler pageHelperHandler = handlerRegistry.get(PageHelperCompibles.pageHelperRequestFlag);
+        if (this.paginationConfig.isPageHelperCompatible() && pageHelperHandler != null) {
+            handlers.add(pageHelperHandler);
+        }
+        this.pageHelperQueryHandlers = Collections.unmodifiableList(handlers);
+
+        // the like escape handler, the in list handler do something without a sql request context
+        this.pipelineRequiredForPlainUpdate = slowQueryHandler != null || inListHandler != null;
+        this.pipelineRequiredForPlainQuery = pipelineRequiredForPlainUpdate || instrumentor.getConfig().isEscapeLikeParameter();
+    }
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
+        String methodName = invocation.getMethod().getName();
+        if ("commit".equals(methodName) || "rollback".equals(methodName) || "close".equals(methodName)) {
+            // the transaction ends, the pages that are loaded before it ends are invalidated
+            try {
+                return invocation.proceed();
+            } finally {
+                if (pageResultCache != null) {
+                    pageResultCache.endTransaction(invocation.getTarget());
+                }
+            }
+        }
+        if (pageResultCache != null && "update".equals(methodName)) {
+            try {
+                return doIntercept(invocation);
+            } finally {
+                invalidatePageResultCache(invocation);
+            }
+        }
+        return doIntercept(invocation);
+    }
+
+    private Object doIntercept(Invocation invocation) throws Throwable {
+        if (isFastPath(invocation)) {
+            return invocation.proceed();
+        }
+
         ExecutorInvocation executorInvocation = new ExecutorInvocation(invocation);
+        MetricsSample sample = SqlHelperMetrics.start(MetricNames.MYBATIS_PIPELINE).tag(MetricNames.TAG_METHOD, executorInvocation.getMethodName());
         try {
             Pipeline<ExecutorInvocation> pipeline = createPipeline(executorInvocation);
             pipeline.inbound();
@@ -96,40 +211,66 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
                 Pipelines.outbound(pipeline);
             }
             return executorInvocation.getResult();
+        } catch (Throwable ex) {
+            sample.error(ex);
+            throw ex;
         } finally {
-            if (!NestedStatements.isNestedStatement(executorInvocation.getMappedStatement())) {
+            sample.stop();
+            if (SqlRequestContextHolder.getInstance().get() != null && !NestedStatements.isNestedStatement(executorInvocation.getMappedStatement())) {
                 SqlRequestContextHolder.getInstance().clear();
             }
         }
     }
 
+    /**
+     * fast path: no paging (include the RowBounds paging), order by, like escape request, no metrics, no debug output,
+     * the executor is invoked directly
+     */
+    private boolean isFastPath(Invocation invocation) {
+        if (SqlRequestContextHolder.getInstance().get() != null || SqlHelperMetrics.isEnabled() || DEBUG_LOGGER.isDebugEnabled()) {
+            return false;
+        }
+        if ("query".equals(invocation.getMethod().getName())) {
+            return !pipelineRequiredForPlainQuery && !MybatisUtils.isPagingRowBounds((RowBounds) invocation.getArgs()[2]);
+        }
+        return !pipelineRequiredForPlainUpdate;
+    }
+
+    /**
+     * the cached pages that read the tables of the insert, update, delete statement are invalidated,
+     * and they are invalidated again when the executor commits, rolls back or is closed
+     */
+    private void invalidatePageResultCache(Invocation invocation) {
+        Object transaction = invocation.getTarget();
+        try {
+            MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+            pageResultCache.invalidate(transaction, ms.getBoundSql(invocation.getArgs()[1]).getSql());
+        } catch (Throwable ex) {
+            logger.warn("Can't find the tables of the statement, all the cached pages are invalidated: {}", ex.getMessage());
+            pageResultCache.invalidateAll(transaction);
+        }
+    }
+
     private Pipeline<ExecutorInvocation> createPipeline(ExecutorInvocation executorInvocation) {
-        Handler debugHandler = handlerRegistry.get("debug");
-        Handler sinkHandler = handlerRegistry.get("sink");
-        List<Handler> handlers = Collects.emptyArrayList();
+        List<Handler> handlers;
         if ("query".equals(executorInvocation.getMethodName())) {
-            handlers.add(handlerRegistry.get("likeEscape"));
-            handlers.add(handlerRegistry.get("pagination"));
-            Handler pageHelperHandler = handlerRegistry.get(PageHelperCompibles.pageHelperRequestFlag);
-            if (this.paginationConfig.isPageHelperCompatible() && pageHelperHandler != null) {
-                if (PagingRequestContextHolder.getContext().isPagingRequest()) {
-                    PagingRequestContext context = PagingRequestContextHolder.getContext().get();
-                    boolean isPageHelperRequest = context.getBoolean(PageHelperCompibles.pageHelperRequestFlag, false);
-                    if (isPageHelperRequest) {
-                        handlers.add(pageHelperHandler);
-                    }
-                }
-            }
+            handlers = isPageHelperRequest() ? pageHelperQueryHandlers : queryHandlers;
+        } else {
+            handlers = otherHandlers;
         }
-//        if("update".equals(executorInvocation.getMethodName())){
-//            handlers.add(handlerRegistry.get("likeEscape"));
-//        }
-
         DefaultPipeline<ExecutorInvocation> pipeline = Pipelines.newPipeline(debugHandler, sinkHandler, handlers);
         pipeline.bindTarget(executorInvocation);
         return pipeline;
     }
 
+    private boolean isPageHelperRequest() {
+        if (this.paginationConfig.isPageHelperCompatible() && PagingRequestContextHolder.getContext().isPagingRequest()) {
+            PagingRequestContext context = PagingRequestContextHolder.getContext().get();
+            return context.getBoolean(PageHelperCompibles.pageHelperRequestFlag, false);
+        }
+        return false;
+    }
+
     @Override
     public Object plugin(Object target) {
         if (target instanceof Executor) {
@@ -150,6 +291,8 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
             SQLInstrumentorConfig instrumentConfig = parseInstrumentorConfig(accessor);
             setInstrumentorConfig(instrumentConfig);
             setPaginationConfig(paginationConfig);
+            setSlowQueryConfig(parseSlowQueryConfig(accessor));
+            setPageResultCacheConfig(parsePageResultCacheConfig(accessor));
             init();
         }
     }
@@ -158,6 +301,39 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
         this.paginationConfig = config;
     }
 
+    /**
+     * routes the count queries (and the page queries of the read only requests) to the replicas
+     */
+    public void setPagingQueryRouter(PagingQueryRouter pagingQueryRouter) {
+        this.pagingQueryRouter = pagingQueryRouter;
+        Handler paginationHandler = handlerRegistry.get("pagination");
+        if (paginationHandler != null) {
+            ((PaginationHandler) paginationHandler).setPagingQueryRouter(pagingQueryRouter);
+        }
+    }
+
+    public void setSlowQueryConfig(SlowQueryConfig config) {
+        this.slowQueryConfig = config;
+    }
+
+    public void setPageResultCacheConfig(PageResultCacheConfig config) {
+        this.pageResultCacheConfig = config;
+    }
+
+    /**
+     * @return null if the page result cache is not enabled
+     */
+    public PageResultCache getPageResultCache() {
+        return pageResultCache;
+    }
+
+    /**
+     * @return null if the slow query detection is not enabled
+     */
+    public SlowQueryDetector getSlowQueryDetector() {
+        return slowQueryDetector;
+    }
+
     public void setInstrumentorConfig(SQLInstrumentorConfig config) {
         instrumentor.setConfig(config);
     }
@@ -184,6 +360,35 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
         return paginationConfig;
     }
 
+    private SlowQueryConfig parseSlowQueryConfig(PropertiesAccessor accessor) {
+        SlowQueryConfig slowQueryConfig = new SlowQueryConfig();
+        String slowQueryConfigPrefix = "sqlhelper.mybatis.slowQuery.";
+        slowQueryConfig.setEnabled(accessor.getBoolean(slowQueryConfigPrefix + "enabled", slowQueryConfig.isEnabled()));
+        slowQueryConfig.setSlowThresholdInMillis(accessor.getInteger(slowQueryConfigPrefix + "slowThresholdInMillis", (int) slowQueryConfig.getSlowThresholdInMillis()));
+        slowQueryConfig.setRepeatedExecutionsThreshold(accessor.getInteger(slowQueryConfigPrefix + "repeatedExecutionsThreshold", slowQueryConfig.getRepeatedExecutionsThreshold()));
+        slowQueryConfig.setWindowInSeconds(accessor.getInteger(slowQueryConfigPrefix + "windowInSeconds", slowQueryConfig.getWindowInSeconds()));
+        slowQueryConfig.setWindowSlots(accessor.getInteger(slowQueryConfigPrefix + "windowSlots", slowQueryConfig.getWindowSlots()));
+        slowQueryConfig.setMaxStatements(accessor.getInteger(slowQueryConfigPrefix + "maxStatements", slowQueryConfig.getMaxStatements()));
+        slowQueryConfig.setExplainEnabled(accessor.getBoolean(slowQueryConfigPrefix + "explainEnabled", slowQueryConfig.isExplainEnabled()));
+        slowQueryConfig.setExplainIntervalInSeconds(accessor.getInteger(slowQueryConfigPrefix + "explainIntervalInSeconds", slowQueryConfig.getExplainIntervalInSeconds()));
+        slowQueryConfig.setExplainTopN(accessor.getInteger(slowQueryConfigPrefix + "explainTopN", slowQueryConfig.getExplainTopN()));
+        slowQueryConfig.setExplainAnalyze(accessor.getBoolean(slowQueryConfigPrefix + "explainAnalyze", slowQueryConfig.isExplainAnalyze()));
+        slowQueryConfig.setJmxEnabled(accessor.getBoolean(slowQueryConfigPrefix + "jmxEnabled", slowQueryConfig.isJmxEnabled()));
+        return slowQueryConfig;
+    }
+
+    private PageResultCacheConfig parsePageResultCacheConfig(PropertiesAccessor accessor) {
+        PageResultCacheConfig pageResultCacheConfig = new PageResultCacheConfig();
+        String pageResultCacheConfigPrefix = "sqlhelper.mybatis.pageResultCache.";
+        pageResultCacheConfig.setEnabled(accessor.getBoolean(pageResultCacheConfigPrefix + "enabled", pageResultCacheConfig.isEnabled()));
+        pageResultCacheConfig.setCacheByDefault(accessor.getBoolean(pageResultCacheConfigPrefix + "cacheByDefault", pageResultCacheConfig.isCacheByDefault()));
+        pageResultCacheConfig.setMaxEntries(accessor.getInteger(pageResultCacheConfigPrefix + "maxEntries", pageResultCacheConfig.getMaxEntries()));
+        pageResultCacheConfig.setMaxWeightInBytes(accessor.getInteger(pageResultCacheConfigPrefix + "maxWeightInBytes", (int) pageResultCacheConfig.getMaxWeightInBytes()));
+        pageResultCacheConfig.setExpireAfterWriteInSeconds(accessor.getInteger(pageResultCacheConfigPrefix + "expireAfterWriteInSeconds", pageResultCacheConfig.getExpireAfterWriteInSeconds()));
+        pageResultCacheConfig.setSerialized(accessor.getBoolean(pageResultCacheConfigPrefix + "serialized", pageResultCacheConfig.isSerialized()));
+        return pageResultCacheConfig;
+    }
+
     private SQLInstrumentorConfig parseInstrumentorConfig(PropertiesAccessor accessor) {
         SQLInstrumentorConfig instrumentConfig = new SQLInstrumentorConfig();
         String instrumentorConfigPrefix = "sqlhelper.mybatis.instrumentor.";
@@ -195,6 +400,8 @@ public class SqlHelperMybatisPlugin implements Interceptor, Initializable {
         instrumentConfig.setDialectClassName(accessor.getString(instrumentorConfigPrefix + "dialectClassName", instrumentConfig.getDialectClassName()));
         instrumentConfig.setCacheInstrumentedSql(accessor.getBoolean(instrumentorConfigPrefix + "cacheInstruemtedSql", false));
         instrumentConfig.setEscapeLikeParameter(accessor.getBoolean(instrumentorConfigPrefix + "escapeLikeParameter", false));
+        instrumentConfig.setRewriteInList(accessor.getBoolean(instrumentorConfigPrefix + "rewriteInList", false));
+        instrumentConfig.setOptimizeCountSql(accessor.getBoolean(instrumentorConfigPrefix + "optimizeCountSql", false));
         return instrumentConfig;
     }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.inlist;
+
+import com.jn.langx.pipeline.AbstractHandler;
+import com.jn.langx.pipeline.HandlerContext;
+import com.jn.langx.pipeline.Pipelines;
+import com.jn.langx.util.Strings;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
+import com.jn.sqlhelper.dialect.inlist.InListSql;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.mybatis.MybatisUtils;
+import com.jn.sqlhelper.mybatis.plugins.ExecutorInvocation;
+import com.jn.sqlhelper.mybatis.plugins.SqlHelperMybatisPlugin;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pads the parameter IN lists of the queries and the updates to the power of two sizes,
+ * splits the lists that exceed the max size of the database, see {@link InListSql}.
+ * <p>
+ * {@link org.apache.ibatis.executor.Executor#query}
+ * {@link org.apache.ibatis.executor.Executor#update}
+ */
+public class InListRewriteHandler extends AbstractHandler {
+    private static final Logger logger = LoggerFactory.getLogger(InListRewriteHandler.class);
+
+    @Override
+    public void inbound(HandlerContext ctx) throws Throwable {
+        ExecutorInvocation executorInvocation = (ExecutorInvocation) ctx.getPipeline().getTarget();
+        MappedStatement mappedStatement = executorInvocation.getMappedStatement();
+        String method = executorInvocation.getMethodName();
+        if (!("query".equals(method) || "update".equals(method)) || !MybatisUtils.isPreparedStatement(mappedStatement) || MybatisUtils.isCallableStatement(mappedStatement)) {
+            Pipelines.skipHandler(ctx, true);
+            return;
+        }
+
+        BoundSql boundSql = executorInvocation.getBoundSql();
+        SQLStatementInstrumentor instrumentor = SqlHelperMybatisPlugin.getInstrumentor();
+        InListSql inListSql = instrumentor.instrumentInList(boundSql.getSql(), getDialect(instrumentor, executorInvocation));
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        if (!inListSql.isChanged() || inListSql.getOriginalParameterCount() != parameterMappings.size()) {
+            Pipelines.skipHandler(ctx, true);
+            return;
+        }
+
+        List<ParameterMapping> newParameterMappings = new ArrayList<ParameterMapping>(inListSql.getParameterCount());
+        for (int i = 0; i < inListSql.getParameterCount(); i++) {
+            newParameterMappings.add(parameterMappings.get(inListSql.getParameterIndex(i)));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("After in list rewrite, the sql of the statement {} has {} parameters, it had {} parameters", mappedStatement.getId(), newParameterMappings.size(), parameterMappings.size());
+        }
+        boundSql = MybatisUtils.rebuildBoundSql(inListSql.getSql(), newParameterMappings, mappedStatement.getConfiguration(), boundSql);
+        executorInvocation.setBoundSql(boundSql);
+        Pipelines.inbound(ctx);
+    }
+
+    private Dialect getDialect(SQLStatementInstrumentor instrumentor, ExecutorInvocation executorInvocation) {
+        String databaseId = MybatisUtils.getDatabaseId(SqlRequestContextHolder.getInstance(), instrumentor, executorInvocation.getMappedStatement(), executorInvocation.getExecutor());
+        return Strings.isBlank(databaseId) ? null : instrumentor.getDialectRegistry().getDialectByName(databaseId);
+    }
+}
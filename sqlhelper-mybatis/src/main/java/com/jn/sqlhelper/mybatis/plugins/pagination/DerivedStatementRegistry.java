@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.pagination;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.util.Objects;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An interned registry of the statements derived from a source {@link MappedStatement}, e.g. the count statement,
+ * the order by statement.
+ * <p>
+ * key: (configuration, source statement id, derived kind, fingerprint), the configuration is compared by identity,
+ * so the same-named statements of the different configurations (e.g. the SqlSessionFactory of every data source)
+ * have their own derived statements.
+ * <p>
+ * The derived statement will be created at the first use without any lock, if two threads create it at the same time,
+ * only one will be registered, the other one will be dropped.
+ * <p>
+ * It is bounded by the max capacity, the least recently used statements are evicted. If the max capacity is not
+ * positive, nothing is registered, a new statement is created for every call.
+ */
+public class DerivedStatementRegistry {
+
+    public enum DerivedKind {
+        COUNT,
+        ORDER_BY
+    }
+
+    public interface DerivedStatementFactory {
+        MappedStatement create(MappedStatement source);
+    }
+
+    private final ConcurrentMap<DerivedStatementKey, MappedStatement> statements;
+    /**
+     * the access order of the keys, the reads are recorded lossily, a contended read does not wait for the lock
+     */
+    private final LinkedHashMap<DerivedStatementKey, Boolean> accessOrder;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int maxCapacity;
+
+    public DerivedStatementRegistry(int initialCapacity, int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        int capacity = initialCapacity < 0 ? 16 : initialCapacity;
+        this.statements = new ConcurrentHashMap<DerivedStatementKey, MappedStatement>(capacity);
+        this.accessOrder = new LinkedHashMap<DerivedStatementKey, Boolean>(capacity, 0.75f, true);
+    }
+
+    public MappedStatement get(@NonNull MappedStatement source, @NonNull DerivedKind kind, @NonNull String fingerprint, @NonNull DerivedStatementFactory factory) {
+        if (maxCapacity <= 0) {
+            return factory.create(source);
+        }
+        DerivedStatementKey key = new DerivedStatementKey(source.getConfiguration(), source.getId(), kind, fingerprint);
+        MappedStatement statement = statements.get(key);
+        if (statement != null) {
+            if (lock.tryLock()) {
+                try {
+                    if (statements.get(key) == statement) {
+                        accessOrder.get(key);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return statement;
+        }
+        statement = factory.create(source);
+        lock.lock();
+        try {
+            MappedStatement existed = statements.putIfAbsent(key, statement);
+            if (existed != null) {
+                return existed;
+            }
+            accessOrder.put(key, Boolean.TRUE);
+            Iterator<DerivedStatementKey> iter = accessOrder.keySet().iterator();
+            while (accessOrder.size() > maxCapacity && iter.hasNext()) {
+                DerivedStatementKey eldest = iter.next();
+                iter.remove();
+                statements.remove(eldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return statement;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            statements.clear();
+            accessOrder.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class DerivedStatementKey {
+        private final Configuration configuration;
+        private final String sourceId;
+        private final DerivedKind kind;
+        private final String fingerprint;
+        private final int hash;
+
+        private DerivedStatementKey(Configuration configuration, String sourceId, DerivedKind kind, String fingerprint) {
+            this.configuration = configuration;
+            this.sourceId = sourceId;
+            this.kind = kind;
+            this.fingerprint = fingerprint;
+            this.hash = 31 * (31 * (31 * System.identityHashCode(configuration) + sourceId.hashCode()) + kind.hashCode()) + fingerprint.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof DerivedStatementKey)) {
+                return false;
+            }
+            DerivedStatementKey that = (DerivedStatementKey) object;
+            return hash == that.hash
+                    && configuration == that.configuration
+                    && kind == that.kind
+                    && Objects.equals(sourceId, that.sourceId)
+                    && Objects.equals(fingerprint, that.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
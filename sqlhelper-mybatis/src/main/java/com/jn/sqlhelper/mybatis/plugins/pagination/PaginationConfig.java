@@ -9,7 +9,7 @@ public class PaginationConfig extends PaginationProperties {
      */
     private int countCacheInitCapacity = 10;
     /**
-     * count sql 缓存的最大容量
+     * count sql 缓存的最大容量, 小于等于 0 时不缓存, 每次请求都重新创建 count statement
      */
     private int countCacheMaxCapacity = 1000;
     /**
@@ -18,9 +18,21 @@ public class PaginationConfig extends PaginationProperties {
     private String countSuffix = "_COUNT";
     /**
      * count sql 在cache中存活时间
+     *
+     * @deprecated the count statements are interned in the derived statement registry, they will not be expired
      */
+    @Deprecated
     private int countCacheExpireInSeconds = 5;
 
+    /**
+     * derived statement (count, order by) 缓存的初始容量
+     */
+    private int derivedStatementCacheInitCapacity = 16;
+    /**
+     * derived statement (count, order by) 缓存的最大容量, 小于等于 0 时不缓存
+     */
+    private int derivedStatementCacheMaxCapacity = 1000;
+
     public boolean enableCountCache() {
         return this.countCacheMaxCapacity > 0;
     }
@@ -57,14 +69,32 @@ public class PaginationConfig extends PaginationProperties {
         this.countSuffix = countSuffix;
     }
 
+    @Deprecated
     public int getCountCacheExpireInSeconds() {
         return countCacheExpireInSeconds;
     }
 
+    @Deprecated
     public void setCountCacheExpireInSeconds(int countCacheExpireInSeconds) {
         this.countCacheExpireInSeconds = countCacheExpireInSeconds;
     }
 
+    public int getDerivedStatementCacheInitCapacity() {
+        return derivedStatementCacheInitCapacity;
+    }
+
+    public void setDerivedStatementCacheInitCapacity(int derivedStatementCacheInitCapacity) {
+        this.derivedStatementCacheInitCapacity = derivedStatementCacheInitCapacity;
+    }
+
+    public int getDerivedStatementCacheMaxCapacity() {
+        return derivedStatementCacheMaxCapacity;
+    }
+
+    public void setDerivedStatementCacheMaxCapacity(int derivedStatementCacheMaxCapacity) {
+        this.derivedStatementCacheMaxCapacity = derivedStatementCacheMaxCapacity;
+    }
+
     public boolean isPageHelperCompatible() {
         return pageHelperCompatible;
     }
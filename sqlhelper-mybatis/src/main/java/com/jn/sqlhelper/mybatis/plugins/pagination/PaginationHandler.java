@@ -1,32 +1,42 @@
 package com.jn.sqlhelper.mybatis.plugins.pagination;
 
 import com.jn.langx.annotation.NonNull;
-import com.jn.langx.cache.Cache;
-import com.jn.langx.cache.CacheBuilder;
 import com.jn.langx.lifecycle.Initializable;
 import com.jn.langx.pipeline.AbstractHandler;
 import com.jn.langx.pipeline.HandlerContext;
 import com.jn.langx.pipeline.Pipelines;
 import com.jn.langx.util.*;
 import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.orderby.OrderBy;
 import com.jn.sqlhelper.dialect.pagination.*;
+import com.jn.sqlhelper.dialect.pagination.cache.PageCacheKey;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCache;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouters;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryType;
 import com.jn.sqlhelper.mybatis.MybatisUtils;
 import com.jn.sqlhelper.mybatis.plugins.*;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,13 +53,21 @@ public class PaginationHandler extends AbstractHandler implements Initializable
     private PagingRequestBasedRowSelectionBuilder rowSelectionBuilder = new PagingRequestBasedRowSelectionBuilder();
     private PaginationConfig paginationConfig = new PaginationConfig();
     /**
-     * count sql cache
-     * key: count sql, should not count_id, because the mysql's sql is dynamic
+     * the derived statements (count, order by) cache
+     * key: (source statement id, derived kind, fingerprint)
      */
-    private Cache<String, MappedStatement> countStatementCache;
+    private DerivedStatementRegistry derivedStatementRegistry;
     private String countSuffix = "_COUNT";
     private static final String ORDER_BY_SUFFIX = "_orderBy";
     private boolean inited = false;
+    /**
+     * routes the count queries, the page queries to the replicas
+     */
+    private PagingQueryRouter pagingQueryRouter;
+    /**
+     * caches the pages, it is null if it is not enabled
+     */
+    private PageResultCache pageResultCache;
 
 
     @Override
@@ -62,12 +80,8 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         if (!inited) {
             rowSelectionBuilder.setDefaultPageSize(paginationConfig.getDefaultPageSize());
 
+            this.derivedStatementRegistry = new DerivedStatementRegistry(paginationConfig.getDerivedStatementCacheInitCapacity(), paginationConfig.getDerivedStatementCacheMaxCapacity());
             if (paginationConfig.enableCountCache()) {
-                this.countStatementCache = CacheBuilder.<String, MappedStatement>newBuilder()
-                        .concurrencyLevel(Runtime.getRuntime().availableProcessors())
-                        .expireAfterWrite(paginationConfig.getCountCacheExpireInSeconds())
-                        .initialCapacity(paginationConfig.getCountCacheInitCapacity())
-                        .maxCapacity(paginationConfig.getCountCacheMaxCapacity()).build();
                 this.countSuffix = (Strings.isBlank(paginationConfig.getCountSuffix()) ? "_COUNT" : paginationConfig.getCountSuffix().trim());
             }
             inited = true;
@@ -78,6 +92,14 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         this.paginationConfig = config;
     }
 
+    public void setPagingQueryRouter(PagingQueryRouter pagingQueryRouter) {
+        this.pagingQueryRouter = pagingQueryRouter;
+    }
+
+    public void setPageResultCache(PageResultCache pageResultCache) {
+        this.pageResultCache = pageResultCache;
+    }
+
     private boolean isUseLastPageIfPageOut(@NonNull PagingRequest request) {
         Preconditions.checkNotNull(request);
         if (request.isUseLastPageIfPageOut() == null) {
@@ -169,10 +191,29 @@ public class PaginationHandler extends AbstractHandler implements Initializable
                 }
 
                 if (this.beginIfSupportsLimit(ms, executorInvocation)) {
+                    PageResultCache.PageLoad pageLoad = null;
+                    if (pageResultCache != null && pageResultCache.isCacheable(request)) {
+                        PageCacheKey pageCacheKey = pageResultCache.newKey(ms.getId(), executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql), request, needCount(request));
+                        if (pageResultCache.fill(pageCacheKey, result)) {
+                            rs = items;
+                            executorInvocation.setResult(rs);
+                            return;
+                        }
+                        pageLoad = pageResultCache.beginLoad(pageCacheKey, boundSql.getSql());
+                    }
                     boolean needQuery = true;
                     try {
                         if (this.needCount(request)) {
-                            final int count = this.executeCount(ms, parameter, rowBounds, resultHandler, executor, boundSql);
+                            final int count;
+                            MetricsSample countSample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "count").tag(MetricNames.TAG_FRAMEWORK, "mybatis");
+                            try {
+                                count = this.executeCount(ms, parameter, rowBounds, resultHandler, executor, boundSql);
+                            } catch (Throwable ex) {
+                                countSample.error(ex);
+                                throw ex;
+                            } finally {
+                                countSample.stop();
+                            }
                             if (count == 0) {
                                 needQuery = false;
                             }
@@ -192,10 +233,18 @@ public class PaginationHandler extends AbstractHandler implements Initializable
                             result.setTotal(-1);
                         }
                     } catch (Throwable ex) {
+                        // the total is unknown, the page is not cached
+                        pageLoad = null;
                         logger.error(ex.getMessage(), ex);
                     } finally {
                         if (needQuery) {
-                            List rows = this.executeQuery(ms, parameter, rowBounds, resultHandler, executor, boundSql, cacheKey);
+                            List rows;
+                            MetricsSample querySample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "page").tag(MetricNames.TAG_FRAMEWORK, "mybatis");
+                            try {
+                                rows = this.executeQuery(ms, parameter, rowBounds, resultHandler, executor, boundSql, cacheKey);
+                            } finally {
+                                querySample.stop();
+                            }
                             if (rows != null) {
                                 items.addAll(rows);
                             }
@@ -203,6 +252,10 @@ public class PaginationHandler extends AbstractHandler implements Initializable
                     }
                     request.setPageNo(requestPageNo);
                     result.setPageNo(request.getPageNo());
+                    SqlPaginations.peekNextPage(request, result);
+                    if (pageLoad != null) {
+                        pageResultCache.put(pageLoad, result);
+                    }
                     rs = items;
                     executorInvocation.setResult(rs);
                 } else {
@@ -236,7 +289,8 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         if (MybatisUtils.isPagingRowBounds(rowBounds)) {
             PagingRequest request = new PagingRequest();
             request.setPageSize(rowBounds.getLimit());
-            request.setPageNo(rowBounds.getOffset() / rowBounds.getLimit() + rowBounds.getOffset() % rowBounds.getLimit() == 0 ? 0 : 1);
+            // the page that the offset is in
+            request.setPageNo(rowBounds.getOffset() / rowBounds.getLimit() + 1);
             PagingRequestContextHolder.getContext().setPagingRequest(request);
         }
     }
@@ -327,7 +381,36 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         final BoundSql pageBoundSql = MybatisUtils.rebuildBoundSql(pageSql, ms.getConfiguration(), boundSql);
         cacheKey.update(request.getPageNo());
         cacheKey.update(request.getPageSize());
-        return executor.query(ms, parameter, RowBounds.DEFAULT, resultHandler, cacheKey, pageBoundSql);
+        return this.routedQuery(PagingQueryType.PAGE, request, executor, ms, parameter, resultHandler, cacheKey, pageBoundSql);
+    }
+
+    /**
+     * Executes the query on the data source that is chosen by the {@link PagingQueryRouter},
+     * with a new executor that is not intercepted by the plugins. The query is executed with the current executor
+     * if it is not routed, or it failed on the routed data source before any row is passed to the result handler.
+     * The queries in a write transaction are not routed.
+     */
+    private List routedQuery(PagingQueryType queryType, PagingRequest request, Executor executor, MappedStatement ms, Object parameter, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        DataSource dataSource = pagingQueryRouter == null ? null : PagingQueryRouters.route(pagingQueryRouter, queryType, request, executor.getTransaction().getConnection());
+        if (dataSource != null) {
+            Executor routedExecutor = new SimpleExecutor(ms.getConfiguration(), new JdbcTransaction(dataSource, null, true));
+            StreamedRowsResultHandler routedResultHandler = resultHandler == null ? null : new StreamedRowsResultHandler(resultHandler);
+            try {
+                return routedExecutor.query(ms, parameter, RowBounds.DEFAULT, routedResultHandler, cacheKey, boundSql);
+            } catch (Throwable ex) {
+                pagingQueryRouter.onError(dataSource, queryType, ex);
+                // the handled rows can't be taken back, the query on the primary would pass them again
+                if (routedResultHandler != null && routedResultHandler.streamed) {
+                    if (ex instanceof SQLException) {
+                        throw (SQLException) ex;
+                    }
+                    throw Throwables.wrapAsRuntimeException(ex);
+                }
+            } finally {
+                routedExecutor.close(false);
+            }
+        }
+        return executor.query(ms, parameter, RowBounds.DEFAULT, resultHandler, cacheKey, boundSql);
     }
 
     private String getOrderById(final MappedStatement ms, final OrderBy orderBy) {
@@ -343,7 +426,16 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         return builder.append(ORDER_BY_SUFFIX).toString();
     }
 
-    private MappedStatement customOrderByStatement(final MappedStatement ms, final String orderByStatementId) {
+    private MappedStatement customOrderByStatement(final MappedStatement ms, final OrderBy orderBy) {
+        return derivedStatementRegistry.get(ms, DerivedStatementRegistry.DerivedKind.ORDER_BY, orderBy.toString(), new DerivedStatementRegistry.DerivedStatementFactory() {
+            @Override
+            public MappedStatement create(MappedStatement source) {
+                return newOrderByStatement(source, getOrderById(source, orderBy));
+            }
+        });
+    }
+
+    private MappedStatement newOrderByStatement(final MappedStatement ms, final String orderByStatementId) {
         final MappedStatement.Builder builder = new MappedStatement.Builder(ms.getConfiguration(), orderByStatementId, ms.getSqlSource(), ms.getSqlCommandType());
         builder.resource(ms.getResource());
         builder.fetchSize(ms.getFetchSize());
@@ -369,8 +461,7 @@ public class PaginationHandler extends AbstractHandler implements Initializable
 
     private Object executeOrderBy(OrderBy orderBy, final MappedStatement ms, final Object parameter, final RowBounds rowBounds, final ResultHandler resultHandler, final Executor executor, final BoundSql boundSql) throws Throwable {
         SQLStatementInstrumentor instrumentor = SqlHelperMybatisPlugin.getInstrumentor();
-        String orderBySqlId = getOrderById(ms, orderBy);
-        MappedStatement orderByStatement = this.customOrderByStatement(ms, orderBySqlId);
+        MappedStatement orderByStatement = this.customOrderByStatement(ms, orderBy);
         final CacheKey orderByCacheKey = executor.createCacheKey(orderByStatement, parameter, RowBounds.DEFAULT, boundSql);
         final String orderBySql = instrumentor.instrumentOrderBySql(boundSql.getSql(), orderBy);
         BoundSql orderByBoundSql = MybatisUtils.rebuildBoundSql(orderBySql, orderByStatement.getConfiguration(), boundSql);
@@ -392,13 +483,14 @@ public class PaginationHandler extends AbstractHandler implements Initializable
                 countKey.update(request.getPageSize());
                 countBoundSql = countStatement.getBoundSql(parameter);
                 requestContext.set(MybatisSqlRequestContextKeys.COUNT_SQL, countBoundSql);
-                final Object countResultList = executor.query(countStatement, parameter, RowBounds.DEFAULT, resultHandler, countKey, countBoundSql);
+                final Object countResultList = this.routedQuery(PagingQueryType.COUNT, request, executor, countStatement, parameter, resultHandler, countKey, countBoundSql);
                 count = ((Number) ((List) countResultList).get(0)).intValue();
+                setExecutedCount(requestContext, countStatement, countBoundSql);
             } else {
                 String querySql = boundSql.getSql();
                 SQLStatementInstrumentor instrumentor = SqlHelperMybatisPlugin.getInstrumentor();
                 final String countSql = instrumentor.countSql(querySql, request.getCountColumn());
-                countStatement = this.customCountStatement(ms, countStatementId, querySql, request);
+                countStatement = this.customCountStatement(ms, countStatementId, request);
 
                 final CacheKey countKey2 = executor.createCacheKey(countStatement, parameter, RowBounds.DEFAULT, boundSql);
                 countKey2.update(request.getPageNo());
@@ -406,8 +498,9 @@ public class PaginationHandler extends AbstractHandler implements Initializable
 
                 countBoundSql = MybatisUtils.rebuildBoundSql(countSql, countStatement.getConfiguration(), boundSql);
                 requestContext.set(MybatisSqlRequestContextKeys.COUNT_SQL, countBoundSql);
-                final Object countResultList2 = executor.query(countStatement, parameter, RowBounds.DEFAULT, resultHandler, countKey2, countBoundSql);
+                final Object countResultList2 = this.routedQuery(PagingQueryType.COUNT, request, executor, countStatement, parameter, resultHandler, countKey2, countBoundSql);
                 count = ((Number) ((List) countResultList2).get(0)).intValue();
+                setExecutedCount(requestContext, countStatement, countBoundSql);
             }
         } catch (Throwable ex) {
             if (countBoundSql != null) {
@@ -420,7 +513,18 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         return count;
     }
 
+    /**
+     * records the executed count statement, e.g. the slow query handler explains it
+     */
+    private static void setExecutedCount(PagingRequestContext requestContext, MappedStatement countStatement, BoundSql countBoundSql) {
+        requestContext.set(MybatisSqlRequestContextKeys.EXECUTED_COUNT_STATEMENT, countStatement);
+        requestContext.set(MybatisSqlRequestContextKeys.EXECUTED_COUNT_SQL, countBoundSql);
+    }
+
     private boolean needCount(final PagingRequest request) {
+        if (SqlPaginations.isPeekNextPageRequest(request)) {
+            return false;
+        }
         if (request.needCount() == null) {
             return paginationConfig.isCount();
         }
@@ -448,40 +552,64 @@ public class PaginationHandler extends AbstractHandler implements Initializable
         return mappedStatement;
     }
 
-    private MappedStatement customCountStatement(final MappedStatement ms, final String countStatementId, String querySql, PagingRequest pagingRequest) {
-        MappedStatement countStatement = paginationConfig.enableCountCache() ? this.countStatementCache.getIfPresent(querySql) : null;
-        if (countStatement == null) {
-            final MappedStatement.Builder builder = new MappedStatement.Builder(ms.getConfiguration(), countStatementId, ms.getSqlSource(), ms.getSqlCommandType());
-            builder.resource(ms.getResource());
-            builder.fetchSize(ms.getFetchSize());
-            builder.statementType(ms.getStatementType());
-            builder.keyGenerator(ms.getKeyGenerator());
-            if (Emptys.isNotEmpty(ms.getKeyProperties())) {
-                final StringBuilder keyProperties = new StringBuilder();
-                for (final String keyProperty : ms.getKeyProperties()) {
-                    keyProperties.append(keyProperty).append(",");
-                }
-                keyProperties.delete(keyProperties.length() - 1, keyProperties.length());
-                builder.keyProperty(keyProperties.toString());
+    private MappedStatement customCountStatement(final MappedStatement ms, final String countStatementId, final PagingRequest pagingRequest) {
+        final boolean useCache = Objects.isNull(pagingRequest.getCacheCount()) ? ms.isUseCache() : pagingRequest.getCacheCount();
+        DerivedStatementRegistry.DerivedStatementFactory factory = new DerivedStatementRegistry.DerivedStatementFactory() {
+            @Override
+            public MappedStatement create(MappedStatement source) {
+                return newCountStatement(source, countStatementId, useCache);
             }
-            builder.timeout(ms.getTimeout());
-            builder.parameterMap(ms.getParameterMap());
-            final List<ResultMap> resultMaps = new ArrayList<ResultMap>();
-            final ResultMap resultMap = new ResultMap.Builder(ms.getConfiguration(), ms.getId(), Long.class, new ArrayList<ResultMapping>()).build();
-            resultMaps.add(resultMap);
-            builder.resultMaps(resultMaps);
-            builder.resultSetType(ms.getResultSetType());
-            builder.cache(ms.getCache());
-            builder.flushCacheRequired(ms.isFlushCacheRequired());
-            boolean useCache = Objects.isNull(pagingRequest.getCacheCount()) ? ms.isUseCache() : pagingRequest.getCacheCount();
-            builder.useCache(useCache);
-
-            countStatement = builder.build();
-            if (paginationConfig.enableCountCache() && useCache) {
-                this.countStatementCache.set(querySql, countStatement);
+        };
+        if (!paginationConfig.enableCountCache()) {
+            // the count cache is disabled explicitly (countCacheMaxCapacity <= 0), e.g. the mapped statements are reloaded at runtime,
+            // so the count statement is derived from the current statement every time. It is cheap: the SqlSource is shared, no sql is parsed
+            return factory.create(ms);
+        }
+        return derivedStatementRegistry.get(ms, DerivedStatementRegistry.DerivedKind.COUNT, countStatementId + (useCache ? ":cached" : ":uncached"), factory);
+    }
+
+    private MappedStatement newCountStatement(final MappedStatement ms, final String countStatementId, final boolean useCache) {
+        final MappedStatement.Builder builder = new MappedStatement.Builder(ms.getConfiguration(), countStatementId, ms.getSqlSource(), ms.getSqlCommandType());
+        builder.resource(ms.getResource());
+        builder.fetchSize(ms.getFetchSize());
+        builder.statementType(ms.getStatementType());
+        builder.keyGenerator(ms.getKeyGenerator());
+        if (Emptys.isNotEmpty(ms.getKeyProperties())) {
+            final StringBuilder keyProperties = new StringBuilder();
+            for (final String keyProperty : ms.getKeyProperties()) {
+                keyProperties.append(keyProperty).append(",");
             }
+            keyProperties.delete(keyProperties.length() - 1, keyProperties.length());
+            builder.keyProperty(keyProperties.toString());
         }
-        return countStatement;
+        builder.timeout(ms.getTimeout());
+        builder.parameterMap(ms.getParameterMap());
+        final List<ResultMap> resultMaps = new ArrayList<ResultMap>();
+        final ResultMap resultMap = new ResultMap.Builder(ms.getConfiguration(), ms.getId(), Long.class, new ArrayList<ResultMapping>()).build();
+        resultMaps.add(resultMap);
+        builder.resultMaps(resultMaps);
+        builder.resultSetType(ms.getResultSetType());
+        builder.cache(ms.getCache());
+        builder.flushCacheRequired(ms.isFlushCacheRequired());
+        builder.useCache(useCache);
+        return builder.build();
     }
 
+    /**
+     * records whether any row is passed to the result handler
+     */
+    private static class StreamedRowsResultHandler implements ResultHandler {
+        private final ResultHandler delegate;
+        private boolean streamed = false;
+
+        private StreamedRowsResultHandler(ResultHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void handleResult(ResultContext resultContext) {
+            streamed = true;
+            delegate.handleResult(resultContext);
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free latency histogram in a rolling time window.
+ * <p>
+ * The window is split into slots, every slot has {@link #BUCKETS} exponential buckets:
+ * the bucket i counts the latencies in [2^i, 2^(i+1)) microseconds. A slot is reset when it is reused by a later period,
+ * the records that race with the reset may be lost, it is acceptable for the statistics.
+ */
+public class LatencyHistogram {
+    public static final int BUCKETS = 32;
+    private static final int COUNT = BUCKETS;
+    private static final int TOTAL = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+    private static final int SLOT_WIDTH = BUCKETS + 3;
+
+    private final long slotMillis;
+    private final int slots;
+    /**
+     * the period of every slot: currentTimeMillis / slotMillis
+     */
+    private final AtomicLongArray periods;
+    /**
+     * per slot: the buckets, count, total nanos, max nanos
+     */
+    private final AtomicLongArray values;
+
+    public LatencyHistogram(int windowInSeconds, int slots) {
+        this.slots = Math.max(1, slots);
+        this.slotMillis = Math.max(1L, windowInSeconds * 1000L / this.slots);
+        this.periods = new AtomicLongArray(this.slots);
+        this.values = new AtomicLongArray(this.slots * SLOT_WIDTH);
+    }
+
+    public void record(long durationInNanos) {
+        record(durationInNanos, System.currentTimeMillis());
+    }
+
+    void record(long durationInNanos, long now) {
+        long period = now / slotMillis;
+        int slot = (int) (period % slots);
+        long slotPeriod = periods.get(slot);
+        if (slotPeriod != period) {
+            if (slotPeriod > period) {
+                // the slot is reused by a later period already
+                return;
+            }
+            if (periods.compareAndSet(slot, slotPeriod, period)) {
+                int base = slot * SLOT_WIDTH;
+                for (int i = 0; i < SLOT_WIDTH; i++) {
+                    values.set(base + i, 0);
+                }
+            }
+        }
+        int base = slot * SLOT_WIDTH;
+        values.incrementAndGet(base + bucketOf(durationInNanos));
+        values.incrementAndGet(base + COUNT);
+        values.addAndGet(base + TOTAL, durationInNanos);
+        long max = values.get(base + MAX);
+        while (durationInNanos > max && !values.compareAndSet(base + MAX, max, durationInNanos)) {
+            max = values.get(base + MAX);
+        }
+    }
+
+    static int bucketOf(long durationInNanos) {
+        long micros = durationInNanos / 1000;
+        if (micros <= 0) {
+            return 0;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    public LatencySnapshot snapshot() {
+        return snapshot(System.currentTimeMillis());
+    }
+
+    LatencySnapshot snapshot(long now) {
+        long currentPeriod = now / slotMillis;
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        long total = 0;
+        long max = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            long period = periods.get(slot);
+            if (period <= currentPeriod - slots || period > currentPeriod) {
+                continue;
+            }
+            int base = slot * SLOT_WIDTH;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += values.get(base + i);
+            }
+            count += values.get(base + COUNT);
+            total += values.get(base + TOTAL);
+            max = Math.max(max, values.get(base + MAX));
+        }
+        return new LatencySnapshot(buckets, count, total, max);
+    }
+}
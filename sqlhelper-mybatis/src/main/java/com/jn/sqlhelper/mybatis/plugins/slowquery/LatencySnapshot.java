@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+/**
+ * The latencies of a statement in the window, the times are in nanoseconds.
+ */
+public class LatencySnapshot {
+    private final long[] buckets;
+    private final long count;
+    private final long total;
+    private final long max;
+
+    LatencySnapshot(long[] buckets, long count, long total, long max) {
+        this.buckets = buckets;
+        this.count = count;
+        this.total = total;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * @param percentile in (0, 1], e.g. 0.99
+     * @return the upper bound of the bucket that contains the percentile, it is not greater than the max
+     */
+    public long getPercentile(double percentile) {
+        long bucketsCount = 0;
+        for (long bucket : buckets) {
+            bucketsCount += bucket;
+        }
+        if (bucketsCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * bucketsCount);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                long upperBound = (1L << (i + 1)) * 1000L;
+                return Math.min(upperBound, max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chooses the slow statements whose plans are sampled: the slowest N statements in an interval.
+ * A statement is sampled once in an interval at most, when N statements are sampled already,
+ * a statement is sampled only if it is slower than the fastest sampled one, which gives its place up.
+ */
+class QueryPlanSampler {
+    private final int topN;
+    private final long intervalInMillis;
+    private long intervalStartTime;
+    /**
+     * statement id to the duration when it was sampled
+     */
+    private final Map<String, Long> sampled = new HashMap<String, Long>();
+    /**
+     * the statements that are sampled in the interval, including the ones that gave their places up
+     */
+    private final Set<String> explained = new HashSet<String>();
+
+    QueryPlanSampler(int topN, long intervalInMillis) {
+        this.topN = topN;
+        this.intervalInMillis = intervalInMillis;
+    }
+
+    /**
+     * It is called for the slow statements only, so it is not contended.
+     *
+     * @return true if the caller should explain the statement now
+     */
+    synchronized boolean tryAcquire(String statementId, long durationInNanos) {
+        if (topN <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - intervalStartTime >= intervalInMillis) {
+            sampled.clear();
+            explained.clear();
+            intervalStartTime = now;
+        }
+        if (explained.contains(statementId)) {
+            return false;
+        }
+        if (sampled.size() >= topN) {
+            String fastest = null;
+            long fastestDuration = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : sampled.entrySet()) {
+                if (entry.getValue() < fastestDuration) {
+                    fastest = entry.getKey();
+                    fastestDuration = entry.getValue();
+                }
+            }
+            if (durationInNanos <= fastestDuration) {
+                return false;
+            }
+            sampled.remove(fastest);
+        }
+        sampled.put(statementId, durationInNanos);
+        explained.add(statementId);
+        return true;
+    }
+
+    synchronized void clear() {
+        sampled.clear();
+        explained.clear();
+        intervalStartTime = 0;
+    }
+}
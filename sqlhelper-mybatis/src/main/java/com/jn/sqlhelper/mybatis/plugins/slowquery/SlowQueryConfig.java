@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import com.jn.easyjson.core.JSONBuilderProvider;
+
+public class SlowQueryConfig {
+    private boolean enabled = false;
+    /**
+     * the statements that are slower than it are logged, and can be explained
+     */
+    private long slowThresholdInMillis = 1000;
+    /**
+     * a statement that is executed more than it times in a scope is flagged as a N+1 query
+     */
+    private int repeatedExecutionsThreshold = 10;
+    /**
+     * the latency histograms are rolling in the window
+     */
+    private int windowInSeconds = 300;
+    private int windowSlots = 10;
+    /**
+     * the max count of the statements that are tracked
+     */
+    private int maxStatements = 2000;
+    private boolean explainEnabled = false;
+    /**
+     * the plans are sampled in the interval: the slowest {@link #explainTopN} statements are explained,
+     * a statement is explained once in the interval at most
+     */
+    private int explainIntervalInSeconds = 3600;
+    private int explainTopN = 10;
+    /**
+     * execute the statement to show the actual rows and times of the plan, the selects are executed twice then
+     */
+    private boolean explainAnalyze = false;
+    /**
+     * register the detector as a JMX MBean: com.jn.sqlhelper:type=SlowQueryDetector
+     */
+    private boolean jmxEnabled = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSlowThresholdInMillis() {
+        return slowThresholdInMillis;
+    }
+
+    public void setSlowThresholdInMillis(long slowThresholdInMillis) {
+        this.slowThresholdInMillis = slowThresholdInMillis;
+    }
+
+    public int getRepeatedExecutionsThreshold() {
+        return repeatedExecutionsThreshold;
+    }
+
+    public void setRepeatedExecutionsThreshold(int repeatedExecutionsThreshold) {
+        this.repeatedExecutionsThreshold = repeatedExecutionsThreshold;
+    }
+
+    public int getWindowInSeconds() {
+        return windowInSeconds;
+    }
+
+    public void setWindowInSeconds(int windowInSeconds) {
+        this.windowInSeconds = windowInSeconds;
+    }
+
+    public int getWindowSlots() {
+        return windowSlots;
+    }
+
+    public void setWindowSlots(int windowSlots) {
+        this.windowSlots = windowSlots;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public void setMaxStatements(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    public boolean isExplainEnabled() {
+        return explainEnabled;
+    }
+
+    public void setExplainEnabled(boolean explainEnabled) {
+        this.explainEnabled = explainEnabled;
+    }
+
+    public int getExplainIntervalInSeconds() {
+        return explainIntervalInSeconds;
+    }
+
+    public void setExplainIntervalInSeconds(int explainIntervalInSeconds) {
+        this.explainIntervalInSeconds = explainIntervalInSeconds;
+    }
+
+    public int getExplainTopN() {
+        return explainTopN;
+    }
+
+    public void setExplainTopN(int explainTopN) {
+        this.explainTopN = explainTopN;
+    }
+
+    public boolean isExplainAnalyze() {
+        return explainAnalyze;
+    }
+
+    public void setExplainAnalyze(boolean explainAnalyze) {
+        this.explainAnalyze = explainAnalyze;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return JSONBuilderProvider.create().serializeNulls(true).build().toJson(this);
+    }
+}
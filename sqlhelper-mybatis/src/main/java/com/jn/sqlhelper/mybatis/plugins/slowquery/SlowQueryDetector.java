@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.langx.util.collection.Collects;
+import com.jn.langx.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the latencies of every statement in a rolling window, and finds the N+1 queries:
+ * a statement is executed many times in one scope. The scope must be opened explicitly with {@link #beginScope(String)},
+ * e.g. for a web request or a service method:
+ * <pre>
+ *     detector.beginScope("GET /users");
+ *     try {
+ *         ...
+ *     } finally {
+ *         detector.endScope();
+ *     }
+ * </pre>
+ * The executions out of any scope are not counted for the N+1 queries. The nested selects of a result map
+ * are executed by the executor directly, they are not seen by the mybatis plugin, so they are not counted either.
+ */
+public class SlowQueryDetector implements SlowQueryDetectorMBean {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryDetector.class);
+
+    private final SlowQueryConfig config;
+    private final long slowThresholdInNanos;
+    private final ConcurrentMap<String, StatementStatistics> statisticsMap = new ConcurrentHashMap<String, StatementStatistics>();
+    private final ThreadLocal<StatementScope> scopes = new ThreadLocal<StatementScope>();
+    private final QueryPlanSampler planSampler;
+    private ObjectName objectName;
+
+    public SlowQueryDetector(SlowQueryConfig config) {
+        Preconditions.checkNotNull(config);
+        this.config = config;
+        this.slowThresholdInNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowThresholdInMillis());
+        this.planSampler = new QueryPlanSampler(config.getExplainTopN(), TimeUnit.SECONDS.toMillis(config.getExplainIntervalInSeconds()));
+    }
+
+    public SlowQueryConfig getConfig() {
+        return config;
+    }
+
+    @Nullable
+    public StatementStatistics getStatistics(String statementId) {
+        return statisticsMap.get(statementId);
+    }
+
+    public Collection<StatementStatistics> getAllStatistics() {
+        return Collections.unmodifiableCollection(statisticsMap.values());
+    }
+
+    /**
+     * @return null if the statement is not tracked, the max statements are reached
+     */
+    @Nullable
+    private StatementStatistics getOrCreateStatistics(String statementId) {
+        StatementStatistics statistics = statisticsMap.get(statementId);
+        if (statistics == null) {
+            if (statisticsMap.size() >= config.getMaxStatements()) {
+                return null;
+            }
+            StatementStatistics newStatistics = new StatementStatistics(statementId, new LatencyHistogram(config.getWindowInSeconds(), config.getWindowSlots()));
+            statistics = statisticsMap.putIfAbsent(statementId, newStatistics);
+            if (statistics == null) {
+                statistics = newStatistics;
+            }
+        }
+        return statistics;
+    }
+
+    public boolean isSlow(long durationInNanos) {
+        return durationInNanos >= slowThresholdInNanos;
+    }
+
+    /**
+     * records an execution of the statement, it is counted in the current scope
+     *
+     * @return the statistics of the statement, null if it is not tracked
+     */
+    @Nullable
+    public StatementStatistics record(String statementId, String sql, long durationInNanos) {
+        StatementScope scope = scopes.get();
+        if (scope != null) {
+            scope.increment(statementId);
+        }
+        StatementStatistics statistics = getOrCreateStatistics(statementId);
+        boolean slow = isSlow(durationInNanos);
+        if (statistics != null) {
+            statistics.record(durationInNanos, slow);
+            if (statistics.getSql() == null) {
+                statistics.setSql(sql);
+            }
+        }
+        if (slow) {
+            logger.warn("Slow statement: {}, cost: {}ms, sql: {}", statementId, TimeUnit.NANOSECONDS.toMillis(durationInNanos), sql);
+        }
+        return statistics;
+    }
+
+    /**
+     * @return true if the plan of the statement should be sampled now, it is one of the slowest statements in the interval
+     */
+    boolean tryAcquireExplain(StatementStatistics statistics, long durationInNanos) {
+        return config.isExplainEnabled() && planSampler.tryAcquire(statistics.getStatementId(), durationInNanos);
+    }
+
+    public void beginScope(String name) {
+        StatementScope scope = scopes.get();
+        if (scope == null) {
+            scopes.set(new StatementScope(name));
+        } else {
+            scope.enter();
+        }
+    }
+
+    public void endScope() {
+        StatementScope scope = scopes.get();
+        if (scope == null || !scope.exit()) {
+            return;
+        }
+        scopes.remove();
+        int threshold = config.getRepeatedExecutionsThreshold();
+        for (Map.Entry<String, int[]> entry : scope.getExecutions().entrySet()) {
+            int executions = entry.getValue()[0];
+            boolean repeated = threshold > 0 && executions >= threshold;
+            StatementStatistics statistics = statisticsMap.get(entry.getKey());
+            if (statistics != null) {
+                statistics.recordExecutionsInScope(executions, repeated);
+            }
+            if (repeated) {
+                logger.warn("N+1 query: the statement {} is executed {} times in the scope {}", entry.getKey(), executions, scope.getName());
+            }
+        }
+    }
+
+    /**
+     * @return the statements that have the max p99 latencies
+     */
+    public List<StatementStatistics> getTopSlowest(int n) {
+        return top(n, new RankKey() {
+            @Override
+            public long get(StatementStatistics statistics, LatencySnapshot latency) {
+                return latency.getPercentile(0.99);
+            }
+        });
+    }
+
+    /**
+     * @return the statements that take the most time of the database in the window
+     */
+    public List<StatementStatistics> getTopTotalTime(int n) {
+        return top(n, new RankKey() {
+            @Override
+            public long get(StatementStatistics statistics, LatencySnapshot latency) {
+                return latency.getTotal();
+            }
+        });
+    }
+
+    /**
+     * @return the statements that are flagged as N+1 queries
+     */
+    public List<StatementStatistics> getTopRepeated(int n) {
+        return top(n, new RankKey() {
+            @Override
+            public long get(StatementStatistics statistics, LatencySnapshot latency) {
+                return statistics.getNPlusOneCount();
+            }
+        });
+    }
+
+    private interface RankKey {
+        long get(StatementStatistics statistics, LatencySnapshot latency);
+    }
+
+    private static class Ranked {
+        private final StatementStatistics statistics;
+        private final long key;
+        private final long max;
+
+        Ranked(StatementStatistics statistics, long key, long max) {
+            this.statistics = statistics;
+            this.key = key;
+            this.max = max;
+        }
+    }
+
+    /**
+     * the snapshot of every statement is taken once, the statements whose key is 0 are excluded
+     */
+    private List<StatementStatistics> top(int n, RankKey rankKey) {
+        List<Ranked> rankedList = new ArrayList<Ranked>();
+        for (StatementStatistics statistics : statisticsMap.values()) {
+            LatencySnapshot latency = statistics.getLatency();
+            long key = rankKey.get(statistics, latency);
+            if (key > 0) {
+                rankedList.add(new Ranked(statistics, key, latency.getMax()));
+            }
+        }
+        Collections.sort(rankedList, new Comparator<Ranked>() {
+            @Override
+            public int compare(Ranked o1, Ranked o2) {
+                int delta = compareLong(o2.key, o1.key);
+                return delta != 0 ? delta : compareLong(o2.max, o1.max);
+            }
+        });
+        List<StatementStatistics> top = new ArrayList<StatementStatistics>(Math.min(n, rankedList.size()));
+        for (int i = 0; i < rankedList.size() && i < n; i++) {
+            top.add(rankedList.get(i).statistics);
+        }
+        return top;
+    }
+
+    private static int compareLong(long x, long y) {
+        return x < y ? -1 : (x == y ? 0 : 1);
+    }
+
+    @Override
+    public int getTrackedStatementCount() {
+        return statisticsMap.size();
+    }
+
+    @Override
+    public String[] getTopSlowestStatements(int n) {
+        return toStrings(getTopSlowest(n));
+    }
+
+    @Override
+    public String[] getTopTotalTimeStatements(int n) {
+        return toStrings(getTopTotalTime(n));
+    }
+
+    @Override
+    public String[] getTopRepeatedStatements(int n) {
+        return toStrings(getTopRepeated(n));
+    }
+
+    private static String[] toStrings(List<StatementStatistics> statisticsList) {
+        Collection<String> strings = Collects.map(statisticsList, new Function<StatementStatistics, String>() {
+            @Override
+            public String apply(StatementStatistics statistics) {
+                return statistics.toString();
+            }
+        });
+        return strings.toArray(new String[strings.size()]);
+    }
+
+    @Override
+    public String getExplainPlan(String statementId) {
+        StatementStatistics statistics = statisticsMap.get(statementId);
+        return statistics == null ? null : statistics.getExplainPlan();
+    }
+
+    @Override
+    public String getCountExplainPlan(String statementId) {
+        StatementStatistics statistics = statisticsMap.get(statementId);
+        return statistics == null ? null : statistics.getCountExplainPlan();
+    }
+
+    @Override
+    public void reset() {
+        statisticsMap.clear();
+        planSampler.clear();
+    }
+
+    /**
+     * registers the detector to the platform MBean server: com.jn.sqlhelper:type=SlowQueryDetector,name={name}
+     */
+    public synchronized void registerMBean(String name) {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName newObjectName = new ObjectName("com.jn.sqlhelper:type=SlowQueryDetector,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(newObjectName)) {
+                server.registerMBean(this, newObjectName);
+                objectName = newObjectName;
+            }
+        } catch (Throwable ex) {
+            logger.warn("Can't register the slow query detector to JMX: {}", ex.getMessage(), ex);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Throwable ex) {
+                logger.warn("Can't unregister the slow query detector from JMX: {}", ex.getMessage(), ex);
+            }
+            objectName = null;
+        }
+    }
+}
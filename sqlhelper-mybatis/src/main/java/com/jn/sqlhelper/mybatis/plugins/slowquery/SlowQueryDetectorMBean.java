@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+/**
+ * The JMX view of the {@link SlowQueryDetector}
+ */
+public interface SlowQueryDetectorMBean {
+    int getTrackedStatementCount();
+
+    String[] getTopSlowestStatements(int n);
+
+    String[] getTopTotalTimeStatements(int n);
+
+    String[] getTopRepeatedStatements(int n);
+
+    String getExplainPlan(String statementId);
+
+    String getCountExplainPlan(String statementId);
+
+    void reset();
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.pipeline.AbstractHandler;
+import com.jn.langx.pipeline.HandlerContext;
+import com.jn.langx.pipeline.Pipelines;
+import com.jn.langx.util.Strings;
+import com.jn.sqlhelper.common.statement.PreparedStatementSetter;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.SqlRequestContextHolder;
+import com.jn.sqlhelper.dialect.explain.QueryPlan;
+import com.jn.sqlhelper.dialect.explain.QueryPlanExplainer;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContext;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestContextHolder;
+import com.jn.sqlhelper.mybatis.MybatisUtils;
+import com.jn.sqlhelper.mybatis.plugins.ExecutorInvocation;
+import com.jn.sqlhelper.mybatis.plugins.MybatisSqlRequestContextKeys;
+import com.jn.sqlhelper.mybatis.plugins.SqlHelperMybatisPlugin;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Times every {@link ExecutorInvocation}, records it into the {@link SlowQueryDetector}.
+ * The plans of the slowest {@link SlowQueryConfig#getExplainTopN()} selects are sampled in every
+ * {@link SlowQueryConfig#getExplainIntervalInSeconds()} with the {@link QueryPlanExplainer} of the current {@link Dialect},
+ * the count statement that is executed for a paging request is explained also, to find the count statement that lost the index usage.
+ * The statements are explained on the connection of the executor, in a savepoint if it is in a transaction,
+ * so a failed EXPLAIN does not abort the transaction (e.g. PostgreSQL), and nothing of the EXPLAIN is left in it.
+ * <p>
+ * The executions are counted for the N+1 queries only in a scope that is opened by {@link SlowQueryDetector#beginScope(String)}.
+ */
+public class SlowQueryHandler extends AbstractHandler {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryHandler.class);
+    private final SlowQueryDetector detector;
+
+    public SlowQueryHandler(SlowQueryDetector detector) {
+        this.detector = detector;
+    }
+
+    public SlowQueryDetector getDetector() {
+        return detector;
+    }
+
+    @Override
+    public void inbound(HandlerContext ctx) throws Throwable {
+        ExecutorInvocation executorInvocation = (ExecutorInvocation) ctx.getPipeline().getTarget();
+        MappedStatement mappedStatement = executorInvocation.getMappedStatement();
+        // the sql before it is instrumented
+        BoundSql boundSql = executorInvocation.getBoundSql();
+        // the paging request context is unbound when the statement is finished
+        PagingRequestContext pagingContext = PagingRequestContextHolder.getContext().get();
+        long startTime = System.nanoTime();
+        try {
+            Pipelines.inbound(ctx);
+        } finally {
+            long duration = System.nanoTime() - startTime;
+            StatementStatistics statistics = detector.record(mappedStatement.getId(), boundSql == null ? null : boundSql.getSql(), duration);
+            if (statistics != null && boundSql != null && detector.isSlow(duration)
+                    && MybatisUtils.isQueryStatement(mappedStatement) && detector.tryAcquireExplain(statistics, duration)) {
+                explain(executorInvocation, boundSql, pagingContext, statistics);
+            }
+        }
+    }
+
+    /**
+     * explains the statement, and the count statement that is executed for it if it is a paging request
+     */
+    private void explain(ExecutorInvocation executorInvocation, BoundSql boundSql, @Nullable PagingRequestContext pagingContext, StatementStatistics statistics) {
+        MappedStatement mappedStatement = executorInvocation.getMappedStatement();
+        SQLStatementInstrumentor instrumentor = SqlHelperMybatisPlugin.getInstrumentor();
+        try {
+            String databaseId = MybatisUtils.getDatabaseId(SqlRequestContextHolder.getInstance(), instrumentor, mappedStatement, executorInvocation.getExecutor());
+            Dialect dialect = Strings.isEmpty(databaseId) ? null : instrumentor.getDialectRegistry().getDialectByName(databaseId);
+            if (dialect == null || !dialect.isSupportsExplain()) {
+                return;
+            }
+            QueryPlanExplainer explainer = dialect.getQueryPlanExplainer();
+            Connection connection = executorInvocation.getExecutor().getTransaction().getConnection();
+            boolean analyze = detector.getConfig().isExplainAnalyze();
+            QueryPlan plan = explain(explainer, connection, mappedStatement, executorInvocation.getParameter(), boundSql, analyze);
+            statistics.setExplainPlan(plan.getText());
+            logger.info("The plan of the slow statement {}:\n{}", mappedStatement.getId(), plan.getText());
+
+            // the count statement and its parameter mappings are the executed ones, e.g. a custom count statement
+            MappedStatement countStatement = pagingContext == null ? null : (MappedStatement) pagingContext.get(MybatisSqlRequestContextKeys.EXECUTED_COUNT_STATEMENT);
+            BoundSql countBoundSql = pagingContext == null ? null : (BoundSql) pagingContext.get(MybatisSqlRequestContextKeys.EXECUTED_COUNT_SQL);
+            if (countStatement != null && countBoundSql != null) {
+                QueryPlan countPlan = explain(explainer, connection, countStatement, executorInvocation.getParameter(), countBoundSql, analyze);
+                statistics.setCountExplainPlan(countPlan.getText());
+                logger.info("The plan of the count statement of the slow statement {}:\n{}", mappedStatement.getId(), countPlan.getText());
+            }
+        } catch (Throwable ex) {
+            logger.warn("Can't explain the statement {}: {}", mappedStatement.getId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Explains the statement in a savepoint if the connection is in a transaction, it is always rolled back to the savepoint.
+     * The statement is not explained if the savepoint is not supported.
+     */
+    private static QueryPlan explain(QueryPlanExplainer explainer, Connection connection, MappedStatement mappedStatement, Object parameter, BoundSql boundSql, boolean analyze) throws SQLException {
+        if (connection.getAutoCommit()) {
+            return explainer.explain(connection, boundSql.getSql(), parametersSetter(mappedStatement, parameter), boundSql, analyze);
+        }
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            return explainer.explain(connection, boundSql.getSql(), parametersSetter(mappedStatement, parameter), boundSql, analyze);
+        } finally {
+            connection.rollback(savepoint);
+            try {
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException ex) {
+                // e.g. Oracle does not support it, the savepoint is released when the transaction ends
+            }
+        }
+    }
+
+    /**
+     * binds the parameters with the parameter handler of the statement, the same as the statement is executed
+     */
+    private static PreparedStatementSetter<BoundSql> parametersSetter(final MappedStatement mappedStatement, final Object parameter) {
+        return new PreparedStatementSetter<BoundSql>() {
+            @Override
+            public void setParameters(PreparedStatement statement, int startIndex, BoundSql boundSql) throws SQLException {
+                mappedStatement.getConfiguration().newParameterHandler(mappedStatement, parameter, boundSql).setParameters(statement);
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The statements executed in one thread between {@link SlowQueryDetector#beginScope(String)}
+ * and {@link SlowQueryDetector#endScope()}, it is used to find the N+1 queries.
+ */
+class StatementScope {
+    private final String name;
+    private int depth = 1;
+    /**
+     * key: statement id
+     * value: the executions
+     */
+    private final Map<String, int[]> executions = new HashMap<String, int[]>();
+
+    StatementScope(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void enter() {
+        depth++;
+    }
+
+    /**
+     * @return true if the scope is closed
+     */
+    boolean exit() {
+        depth--;
+        return depth <= 0;
+    }
+
+    void increment(String statementId) {
+        int[] count = executions.get(statementId);
+        if (count == null) {
+            count = new int[1];
+            executions.put(statementId, count);
+        }
+        count[0]++;
+    }
+
+    Map<String, int[]> getExecutions() {
+        return executions;
+    }
+}
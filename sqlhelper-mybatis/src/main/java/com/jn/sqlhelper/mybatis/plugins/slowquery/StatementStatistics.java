@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.plugins.slowquery;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of a {@link org.apache.ibatis.mapping.MappedStatement}
+ */
+public class StatementStatistics {
+    private final String statementId;
+    private final LatencyHistogram histogram;
+    private final AtomicLong slowCount = new AtomicLong();
+    /**
+     * the count of the scopes that the statement is flagged as a N+1 query
+     */
+    private final AtomicLong nPlusOneCount = new AtomicLong();
+    /**
+     * the max executions of the statement in one scope
+     */
+    private final AtomicInteger maxExecutionsInScope = new AtomicInteger();
+    private volatile String sql;
+    private volatile String explainPlan;
+    private volatile String countExplainPlan;
+
+    StatementStatistics(String statementId, LatencyHistogram histogram) {
+        this.statementId = statementId;
+        this.histogram = histogram;
+    }
+
+    void record(long durationInNanos, boolean slow) {
+        histogram.record(durationInNanos);
+        if (slow) {
+            slowCount.incrementAndGet();
+        }
+    }
+
+    void recordExecutionsInScope(int executions, boolean nPlusOne) {
+        int max = maxExecutionsInScope.get();
+        while (executions > max && !maxExecutionsInScope.compareAndSet(max, executions)) {
+            max = maxExecutionsInScope.get();
+        }
+        if (nPlusOne) {
+            nPlusOneCount.incrementAndGet();
+        }
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public LatencySnapshot getLatency() {
+        return histogram.snapshot();
+    }
+
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+
+    public long getNPlusOneCount() {
+        return nPlusOneCount.get();
+    }
+
+    public int getMaxExecutionsInScope() {
+        return maxExecutionsInScope.get();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * @return the last sampled query plan, null if the statement is not explained
+     */
+    public String getExplainPlan() {
+        return explainPlan;
+    }
+
+    void setExplainPlan(String explainPlan) {
+        this.explainPlan = explainPlan;
+    }
+
+    /**
+     * @return the last sampled query plan of the count statement that is generated for a paging request,
+     * null if the statement is not explained as a paging request
+     */
+    public String getCountExplainPlan() {
+        return countExplainPlan;
+    }
+
+    void setCountExplainPlan(String countExplainPlan) {
+        this.countExplainPlan = countExplainPlan;
+    }
+
+    @Override
+    public String toString() {
+        LatencySnapshot latency = getLatency();
+        return statementId
+                + " count=" + latency.getCount()
+                + ", mean=" + latency.getMean() / 1000 + "us"
+                + ", p99=" + latency.getPercentile(0.99) / 1000 + "us"
+                + ", max=" + latency.getMax() / 1000 + "us"
+                + ", slow=" + getSlowCount()
+                + ", nPlusOne=" + getNPlusOneCount()
+                + ", maxExecutionsInScope=" + getMaxExecutionsInScope();
+    }
+}
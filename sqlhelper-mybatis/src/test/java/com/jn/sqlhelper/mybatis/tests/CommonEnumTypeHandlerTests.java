@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.tests;
+
+import com.jn.langx.util.enums.base.CommonEnum;
+import com.jn.sqlhelper.mybatis.CommonEnumTypeHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class CommonEnumTypeHandlerTests {
+
+    @Test
+    public void testDenseCodes() throws SQLException {
+        CommonEnumTypeHandler<DenseEnum> handler = new CommonEnumTypeHandler<DenseEnum>(DenseEnum.class);
+        Assert.assertEquals(DenseEnum.MINUS_TWO, handler.getNullableResult(intResult(-2), 1));
+        Assert.assertEquals(DenseEnum.ZERO, handler.getNullableResult(intResult(0), 1));
+        Assert.assertEquals(DenseEnum.FIVE, handler.getNullableResult(intResult(5), 1));
+        // the first constant of the same code is used
+        Assert.assertEquals(DenseEnum.MINUS_ONE, handler.getNullableResult(intResult(-1), 1));
+        // unknown codes: in the range, out of the range
+        Assert.assertNull(handler.getNullableResult(intResult(3), 1));
+        Assert.assertNull(handler.getNullableResult(intResult(-3), 1));
+        Assert.assertNull(handler.getNullableResult(intResult(6), 1));
+        Assert.assertNull(handler.getNullableResult(intResult(Integer.MIN_VALUE), 1));
+        Assert.assertNull(handler.getNullableResult(intResult(Integer.MAX_VALUE), 1));
+    }
+
+    @Test
+    public void testSparseCodes() throws SQLException {
+        CommonEnumTypeHandler<SparseEnum> handler = new CommonEnumTypeHandler<SparseEnum>(SparseEnum.class);
+        for (SparseEnum constant : SparseEnum.values()) {
+            Assert.assertEquals(constant, handler.getNullableResult(intResult(constant.getCode()), 1));
+        }
+        // -54000 has the same slot as -100000, -93000, -86000, it is probed after them
+        Assert.assertNull(handler.getNullableResult(intResult(-54000), 1));
+        Assert.assertNull(handler.getNullableResult(intResult(0), 1));
+        Assert.assertNull(handler.getNullableResult(intResult(Integer.MAX_VALUE - 1), 1));
+    }
+
+    @Test
+    public void testNames() throws SQLException {
+        CommonEnumTypeHandler<DenseEnum> handler = new CommonEnumTypeHandler<DenseEnum>(DenseEnum.class, true, null);
+        for (DenseEnum constant : DenseEnum.values()) {
+            Assert.assertEquals(constant, handler.getNullableResult(stringResult(constant.getName()), 1));
+        }
+        Assert.assertNull(handler.getNullableResult(stringResult("unknown"), 1));
+        Assert.assertNull(handler.getNullableResult(stringResult(null), 1));
+
+        // "Aa" and "BB" have the same hash code
+        CommonEnumTypeHandler<CollidingNameEnum> collidingHandler = new CommonEnumTypeHandler<CollidingNameEnum>(CollidingNameEnum.class, true, null);
+        Assert.assertEquals(CollidingNameEnum.A, collidingHandler.getNullableResult(stringResult("Aa"), 1));
+        Assert.assertEquals(CollidingNameEnum.B, collidingHandler.getNullableResult(stringResult("BB"), 1));
+        Assert.assertNull(collidingHandler.getNullableResult(stringResult("C#"), 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCodeFails() throws SQLException {
+        CommonEnumTypeHandler<SparseEnum> handler = new CommonEnumTypeHandler<SparseEnum>(SparseEnum.class, false, CommonEnumTypeHandler.UnknownCodeStrategy.FAIL);
+        handler.getNullableResult(intResult(-54000), 1);
+    }
+
+    private static ResultSet intResult(int value) {
+        return newResultSet(value);
+    }
+
+    private static ResultSet stringResult(String value) {
+        return newResultSet(value);
+    }
+
+    private static ResultSet newResultSet(final Object value) {
+        return (ResultSet) Proxy.newProxyInstance(CommonEnumTypeHandlerTests.class.getClassLoader(), new Class[]{ResultSet.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getInt") || name.equals("getString")) {
+                    return value;
+                }
+                if (name.equals("wasNull")) {
+                    return value == null;
+                }
+                return null;
+            }
+        });
+    }
+
+    enum DenseEnum implements CommonEnum {
+        MINUS_TWO(-2),
+        MINUS_ONE(-1),
+        MINUS_ONE_AGAIN(-1),
+        ZERO(0),
+        FIVE(5);
+
+        private final int code;
+
+        DenseEnum(int code) {
+            this.code = code;
+        }
+
+        @Override
+        public int getCode() {
+            return code;
+        }
+
+        @Override
+        public String getName() {
+            return name().toLowerCase();
+        }
+
+        @Override
+        public String getDisplayText() {
+            return name();
+        }
+    }
+
+    enum SparseEnum implements CommonEnum {
+        MIN(Integer.MIN_VALUE),
+        A(-100000),
+        B(-93000),
+        C(-86000),
+        MAX(Integer.MAX_VALUE);
+
+        private final int code;
+
+        SparseEnum(int code) {
+            this.code = code;
+        }
+
+        @Override
+        public int getCode() {
+            return code;
+        }
+
+        @Override
+        public String getName() {
+            return name();
+        }
+
+        @Override
+        public String getDisplayText() {
+            return name();
+        }
+    }
+
+    enum CollidingNameEnum implements CommonEnum {
+        A("Aa"),
+        B("BB");
+
+        private final String name;
+
+        CollidingNameEnum(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int getCode() {
+            return ordinal();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDisplayText() {
+            return name;
+        }
+    }
+}
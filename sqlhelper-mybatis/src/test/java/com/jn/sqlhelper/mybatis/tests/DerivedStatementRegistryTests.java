@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.tests;
+
+import com.jn.sqlhelper.mybatis.plugins.pagination.DerivedStatementRegistry;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DerivedStatementRegistryTests {
+
+    @Test
+    public void testKeyedByConfiguration() {
+        DerivedStatementRegistry registry = new DerivedStatementRegistry(16, 100);
+        CountingFactory factory = new CountingFactory();
+        MappedStatement source1 = newStatement(new Configuration(), "UserDao.select");
+        MappedStatement source2 = newStatement(new Configuration(), "UserDao.select");
+
+        MappedStatement derived1 = registry.get(source1, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory);
+        MappedStatement derived2 = registry.get(source2, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory);
+        Assert.assertSame(source1.getConfiguration(), derived1.getConfiguration());
+        Assert.assertSame(source2.getConfiguration(), derived2.getConfiguration());
+        Assert.assertEquals(2, registry.size());
+
+        // they don't replace each other
+        Assert.assertSame(derived1, registry.get(source1, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory));
+        Assert.assertSame(derived2, registry.get(source2, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory));
+        Assert.assertEquals(2, factory.created.get());
+
+        // the kind and the fingerprint are a part of the key
+        Assert.assertNotSame(derived1, registry.get(source1, DerivedStatementRegistry.DerivedKind.ORDER_BY, "c", factory));
+        Assert.assertNotSame(derived1, registry.get(source1, DerivedStatementRegistry.DerivedKind.COUNT, "d", factory));
+        Assert.assertEquals(4, factory.created.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        DerivedStatementRegistry registry = new DerivedStatementRegistry(16, 3);
+        CountingFactory factory = new CountingFactory();
+        Configuration configuration = new Configuration();
+        MappedStatement hot = newStatement(configuration, "UserDao.hot");
+        MappedStatement derivedHot = registry.get(hot, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertSame(derivedHot, registry.get(hot, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory));
+            registry.get(newStatement(configuration, "UserDao.cold" + i), DerivedStatementRegistry.DerivedKind.COUNT, "c", factory);
+            Assert.assertTrue(registry.size() <= 3);
+        }
+        // the hot statement is read between the cold ones, it is never evicted
+        Assert.assertSame(derivedHot, registry.get(hot, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory));
+        Assert.assertEquals(11, factory.created.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        DerivedStatementRegistry registry = new DerivedStatementRegistry(16, 0);
+        CountingFactory factory = new CountingFactory();
+        MappedStatement source = newStatement(new Configuration(), "UserDao.select");
+        MappedStatement derived = registry.get(source, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory);
+        Assert.assertNotSame(derived, registry.get(source, DerivedStatementRegistry.DerivedKind.COUNT, "c", factory));
+        Assert.assertEquals(2, factory.created.get());
+        Assert.assertEquals(0, registry.size());
+    }
+
+    private static MappedStatement newStatement(Configuration configuration, String id) {
+        return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "select * from user"), SqlCommandType.SELECT).build();
+    }
+
+    private static class CountingFactory implements DerivedStatementRegistry.DerivedStatementFactory {
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public MappedStatement create(MappedStatement source) {
+            created.incrementAndGet();
+            return newStatement(source.getConfiguration(), source.getId() + "_COUNT");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.tests;
+
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.common.batch.BatchResult;
+import com.jn.sqlhelper.common.annotation.Table;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+import com.jn.sqlhelper.mybatis.mvc.entity.Entity;
+import com.jn.sqlhelper.mybatis.mvc.repository.EntityStatements;
+import com.jn.sqlhelper.mybatis.mvc.repository.MybatisRepository;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MybatisRepositoryTests {
+    private SqlSessionFactory sessionFactory;
+    private MybatisRepository<User, Integer> repository;
+
+    @Before
+    public void setup() throws SQLException {
+        UnpooledDataSource dataSource = new UnpooledDataSource("org.h2.Driver", "jdbc:h2:mem:repository_tests;DB_CLOSE_DELAY=-1", "sa", "");
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("drop table if exists t_repo_user");
+            statement.execute("create table t_repo_user (id int primary key, name varchar(32), age int)");
+            statement.close();
+        } finally {
+            connection.close();
+        }
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        repository = new MybatisRepository<User, Integer>(sessionFactory, User.class, DialectRegistry.getInstance().getDialectByName("h2"));
+    }
+
+    @Test
+    public void testStatementsRegisteredEagerly() {
+        Configuration configuration = sessionFactory.getConfiguration();
+        EntityStatements statements = repository.getStatements();
+        int max = statements.getMaxInListSize();
+        Assert.assertTrue(configuration.hasStatement(statements.selectByIds(1), false));
+        Assert.assertTrue(configuration.hasStatement(statements.deleteByIds(max), false));
+        Assert.assertTrue(configuration.hasStatement(statements.upsert(statements.getUpsertRows(Integer.MAX_VALUE)), false));
+        Assert.assertTrue(configuration.hasStatement(statements.selectByExample(), false));
+
+        // another repository of the entity reuses the statements
+        int statementCount = configuration.getMappedStatementNames().size();
+        MybatisRepository<User, Integer> another = new MybatisRepository<User, Integer>(sessionFactory, User.class, statements.getDialect());
+        Assert.assertEquals(statements.selectById(), another.getStatements().selectById());
+        Assert.assertEquals(statementCount, configuration.getMappedStatementNames().size());
+
+        // no statement is registered when the repository is used
+        repository.insert(new User(1, "a", 10));
+        repository.selectByLimit(new User(null, "a", null));
+        repository.selectByLimit(new User(null, null, 10));
+        repository.selectByIds(Collects.asList(1, 2, 3));
+        Assert.assertEquals(statementCount, configuration.getMappedStatementNames().size());
+    }
+
+    @Test
+    public void testSelectByExample() {
+        repository.insert(new User(1, "a", 10));
+        repository.insert(new User(2, "a", 20));
+        repository.insert(new User(3, "b", 20));
+
+        Assert.assertEquals(3, repository.selectByLimit(new User(null, null, null)).size());
+        Assert.assertEquals(Collects.asList(1, 2), ids(repository.selectByLimit(new User(null, "a", null))));
+        Assert.assertEquals(Collects.asList(2, 3), ids(repository.selectByLimit(new User(null, null, 20))));
+        Assert.assertEquals(Collects.asList(2), ids(repository.selectByLimit(new User(null, "a", 20))));
+        Assert.assertEquals(Integer.valueOf(1), repository.selectCountByLimit(new User(null, "b", null)));
+        Assert.assertEquals(Integer.valueOf(0), repository.selectCountByLimit(new User(4, null, null)));
+    }
+
+    @Test
+    public void testSelectAndDeleteByIds() {
+        for (int i = 1; i <= 5; i++) {
+            repository.insert(new User(i, "u" + i, i));
+        }
+        Assert.assertEquals("u2", repository.selectById(2).getName());
+        // 3 ids use the IN list of 4, it is padded with the last id
+        Assert.assertEquals(Collects.asList(1, 3, 5), ids(repository.selectByIds(Collects.asList(1, 3, 5))));
+        repository.deleteByIds(Collects.asList(1, 3, 5));
+        Assert.assertEquals(Integer.valueOf(2), repository.selectCount());
+    }
+
+    @Test
+    public void testMergeDuplicateKeys() {
+        repository.insert(new User(1, "a", 10));
+        List<User> users = Collects.asList(new User(1, "b", 11), new User(2, "c", 20), new User(1, "d", 12));
+        BatchResult<User> result = repository.merge(users);
+        Assert.assertFalse(result.hasThrowable());
+        // the first one of id 1 is removed, the others are upserted by a statement of 2 rows
+        Assert.assertEquals(2, result.getRowsAffected());
+        Assert.assertEquals("d", repository.selectById(1).getName());
+        Assert.assertEquals(Integer.valueOf(12), repository.selectById(1).getAge());
+        Assert.assertEquals("c", repository.selectById(2).getName());
+        Assert.assertEquals(Integer.valueOf(2), repository.selectCount());
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    @Table("t_repo_user")
+    public static class User implements Entity<Integer> {
+        private Integer id;
+        private String name;
+        private Integer age;
+
+        public User() {
+        }
+
+        public User(Integer id, String name, Integer age) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+        }
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        @Override
+        public Class<Integer> idClass() {
+            return Integer.class;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public void setAge(Integer age) {
+            this.age = age;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.tests;
+
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.dialect.tenant.TenantSql;
+import com.jn.sqlhelper.mybatis.MybatisUtils;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MybatisUtilsTests {
+
+    @Test
+    public void testRebuildTenantBoundSql() {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> mappings = Collects.asList(new ParameterMapping.Builder(configuration, "name", String.class).build());
+        BoundSql boundSql = new BoundSql(configuration, "select * from a where a.name = ?", mappings, "n");
+
+        TenantSql tenantSql = TenantSql.of("SELECT * FROM a WHERE a.tenant_id = :sqlhelper_tenant_0 AND a.name = ?");
+        BoundSql newBoundSql = MybatisUtils.rebuildTenantBoundSql(tenantSql, Collects.asList("o'1"), configuration, boundSql);
+
+        Assert.assertEquals("SELECT * FROM a WHERE a.tenant_id = ? AND a.name = ?", newBoundSql.getSql());
+        Assert.assertEquals(2, newBoundSql.getParameterMappings().size());
+        Assert.assertEquals("sqlhelper_tenant_0", newBoundSql.getParameterMappings().get(0).getProperty());
+        Assert.assertEquals("name", newBoundSql.getParameterMappings().get(1).getProperty());
+        // the tenant value is a bound parameter, it is never spliced into the sql
+        Assert.assertEquals("o'1", newBoundSql.getAdditionalParameter("sqlhelper_tenant_0"));
+    }
+}
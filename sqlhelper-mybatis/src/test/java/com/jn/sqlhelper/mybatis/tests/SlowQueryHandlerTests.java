@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.tests;
+
+import com.jn.langx.pipeline.DefaultPipeline;
+import com.jn.langx.pipeline.Handler;
+import com.jn.langx.pipeline.Pipelines;
+import com.jn.langx.util.collection.Collects;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.mybatis.plugins.SqlHelperMybatisPlugin;
+import com.jn.sqlhelper.mybatis.plugins.ExecutorInvocation;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryConfig;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryDetector;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.SlowQueryHandler;
+import com.jn.sqlhelper.mybatis.plugins.slowquery.StatementStatistics;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SlowQueryHandlerTests {
+    private static final String STATEMENT_ID = "UserDao.selectById";
+
+    @Test
+    public void testNoImplicitScope() throws Throwable {
+        SlowQueryDetector detector = newDetector();
+        SlowQueryHandler handler = new SlowQueryHandler(detector);
+        for (int i = 0; i < 5; i++) {
+            query(handler);
+        }
+        StatementStatistics statistics = detector.getStatistics(STATEMENT_ID);
+        Assert.assertEquals(5, statistics.getLatency().getCount());
+        Assert.assertEquals(0, statistics.getNPlusOneCount());
+        Assert.assertEquals(0, statistics.getMaxExecutionsInScope());
+    }
+
+    @Test
+    public void testExplicitScope() throws Throwable {
+        SlowQueryDetector detector = newDetector();
+        SlowQueryHandler handler = new SlowQueryHandler(detector);
+        detector.beginScope("GET /users");
+        try {
+            for (int i = 0; i < 5; i++) {
+                query(handler);
+            }
+        } finally {
+            detector.endScope();
+        }
+        StatementStatistics statistics = detector.getStatistics(STATEMENT_ID);
+        Assert.assertEquals(1, statistics.getNPlusOneCount());
+        Assert.assertEquals(5, statistics.getMaxExecutionsInScope());
+    }
+
+    @Test
+    public void testExplainInSavepoint() throws Throwable {
+        SQLStatementInstrumentor instrumentor = SqlHelperMybatisPlugin.getInstrumentor();
+        if (instrumentor.getDialectRegistry() == null) {
+            instrumentor.setDialectRegistry(DialectRegistry.getInstance());
+        }
+        SlowQueryConfig config = new SlowQueryConfig();
+        config.setSlowThresholdInMillis(0);
+        config.setExplainEnabled(true);
+        SlowQueryDetector detector = new SlowQueryDetector(config);
+
+        // in a transaction, the failed EXPLAIN is rolled back to the savepoint
+        List<String> calls = new ArrayList<String>();
+        query(new SlowQueryHandler(detector), newConnection(false, calls));
+        Assert.assertEquals(Collects.newArrayList("setSavepoint", "prepareStatement", "rollback", "releaseSavepoint"), calls);
+        Assert.assertNull(detector.getStatistics(STATEMENT_ID).getExplainPlan());
+
+        // auto commit, no savepoint
+        calls.clear();
+        detector = new SlowQueryDetector(config);
+        query(new SlowQueryHandler(detector), newConnection(true, calls));
+        Assert.assertEquals(Collects.newArrayList("prepareStatement"), calls);
+    }
+
+    /**
+     * the statements fail to be prepared
+     */
+    private static Connection newConnection(final boolean autoCommit, final List<String> calls) {
+        return (Connection) Proxy.newProxyInstance(SlowQueryHandlerTests.class.getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                String name = method.getName();
+                if ("getAutoCommit".equals(name)) {
+                    return autoCommit;
+                }
+                calls.add(name);
+                if ("setSavepoint".equals(name)) {
+                    return Proxy.newProxyInstance(SlowQueryHandlerTests.class.getClassLoader(), new Class[]{Savepoint.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return null;
+                        }
+                    });
+                }
+                if ("prepareStatement".equals(name)) {
+                    throw new SQLException("Table \"USER\" not found");
+                }
+                return null;
+            }
+        });
+    }
+
+    private static SlowQueryDetector newDetector() {
+        SlowQueryConfig config = new SlowQueryConfig();
+        config.setRepeatedExecutionsThreshold(3);
+        config.setExplainEnabled(false);
+        return new SlowQueryDetector(config);
+    }
+
+    private static void query(SlowQueryHandler handler) throws Throwable {
+        query(handler, null);
+    }
+
+    private static void query(SlowQueryHandler handler, final Connection connection) throws Throwable {
+        Configuration configuration = new Configuration();
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, STATEMENT_ID, new StaticSqlSource(configuration, "select * from user where id = 1"), SqlCommandType.SELECT)
+                .databaseId("h2").build();
+        final Transaction transaction = (Transaction) Proxy.newProxyInstance(SlowQueryHandlerTests.class.getClassLoader(), new Class[]{Transaction.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getConnection".equals(method.getName()) ? connection : null;
+            }
+        });
+        Executor executor = (Executor) Proxy.newProxyInstance(SlowQueryHandlerTests.class.getClassLoader(), new Class[]{Executor.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getTransaction".equals(method.getName()) ? transaction : null;
+            }
+        });
+        Method query = Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class);
+        ExecutorInvocation executorInvocation = new ExecutorInvocation(new Invocation(executor, query, new Object[]{mappedStatement, null, RowBounds.DEFAULT, null}));
+        DefaultPipeline<ExecutorInvocation> pipeline = Pipelines.newPipeline(Collects.<Handler>newArrayList(handler));
+        pipeline.bindTarget(executorInvocation);
+        pipeline.inbound();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.mybatis.tests;
+
+import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.mybatis.plugins.CustomScriptLanguageDriver;
+import com.jn.sqlhelper.mybatis.plugins.SqlHelperMybatisPlugin;
+import com.jn.sqlhelper.mybatis.plugins.pagination.PaginationConfig;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class SqlHelperMybatisPluginTests {
+    private static final List<String> preparedSqls = Collections.synchronizedList(new ArrayList<String>());
+    private static SqlSessionFactory sessionFactory;
+
+    @BeforeClass
+    public static void setup() throws SQLException {
+        UnpooledDataSource dataSource = new UnpooledDataSource("org.h2.Driver", "jdbc:h2:mem:plugin_tests;DB_CLOSE_DELAY=-1", "sa", "") {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return recording(super.getConnection());
+            }
+        };
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("create table t_user (id int primary key, name varchar(32))");
+            for (int i = 1; i <= 5; i++) {
+                statement.execute("insert into t_user values (" + i + ", 'u" + i + "')");
+            }
+            statement.close();
+        } finally {
+            connection.close();
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setDefaultScriptingLanguage(CustomScriptLanguageDriver.class);
+        List<ResultMap> resultMaps = new ArrayList<ResultMap>();
+        resultMaps.add(new ResultMap.Builder(configuration, "UserDao.selectAll-Inline", Map.class, new ArrayList<ResultMapping>()).build());
+        configuration.addMappedStatement(new MappedStatement.Builder(configuration, "UserDao.selectAll",
+                new StaticSqlSource(configuration, "select id, name from t_user order by id"), SqlCommandType.SELECT)
+                .resultMaps(resultMaps).build());
+
+        SqlHelperMybatisPlugin plugin = new SqlHelperMybatisPlugin();
+        plugin.setInstrumentorConfig(new SQLInstrumentorConfig());
+        plugin.setPaginationConfig(new PaginationConfig());
+        plugin.init();
+        configuration.addInterceptor(plugin);
+        sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    @Test
+    public void testRowBoundsPaging() {
+        SqlSession session = sessionFactory.openSession();
+        try {
+            preparedSqls.clear();
+            List<Map<String, Object>> page = session.selectList("UserDao.selectAll", null, new RowBounds(2, 2));
+            Assert.assertEquals(2, page.size());
+            Assert.assertEquals(3, ((Number) page.get(0).get("ID")).intValue());
+            Assert.assertEquals(4, ((Number) page.get(1).get("ID")).intValue());
+            // the page is limited by the database, the rows are not skipped by mybatis
+            Assert.assertTrue(preparedSqls.toString(), preparedSqls.toString().toLowerCase().contains("limit"));
+
+            // no paging, the executor is invoked directly
+            preparedSqls.clear();
+            Assert.assertEquals(5, session.selectList("UserDao.selectAll").size());
+            Assert.assertEquals(Collections.singletonList("select id, name from t_user order by id"), preparedSqls);
+        } finally {
+            session.close();
+        }
+    }
+
+    private static Connection recording(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SqlHelperMybatisPluginTests.class.getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("prepareStatement".equals(method.getName())) {
+                    preparedSqls.add((String) args[0]);
+                }
+                return method.invoke(connection, args);
+            }
+        });
+    }
+}
@@ -19,6 +19,7 @@ import com.baomidou.mybatisplus.autoconfigure.MybatisPlusAutoConfiguration;
 import com.baomidou.mybatisplus.core.MybatisConfiguration;
 import com.jn.langx.util.reflect.Reflects;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
 import com.jn.sqlhelper.mybatis.MybatisUtils;
 import com.jn.sqlhelper.mybatis.SqlHelperMybatisProperties;
 import com.jn.sqlhelper.mybatis.plugins.SqlHelperMybatisPlugin;
@@ -57,6 +58,13 @@ public class SqlHelperMybatisPlusAutoConfiguration implements ConfigurationCusto
         this.sqlHelperMybatisProperties = sqlHelperMybatisProperties;
     }
 
+    private PagingQueryRouter pagingQueryRouter;
+
+    @Autowired(required = false)
+    public void setPagingQueryRouter(PagingQueryRouter pagingQueryRouter) {
+        this.pagingQueryRouter = pagingQueryRouter;
+    }
+
     @Override
     public void customize(MybatisConfiguration configuration) {
         logger.info("Start to customize mybatis-plus configuration with mybatis-plus-boot-starter");
@@ -64,6 +72,9 @@ public class SqlHelperMybatisPlusAutoConfiguration implements ConfigurationCusto
 
         SqlHelperMybatisPlugin plugin = new SqlHelperMybatisPlugin();
         plugin.setPaginationConfig(sqlHelperMybatisProperties.getPagination());
+        plugin.setSlowQueryConfig(sqlHelperMybatisProperties.getSlowQuery());
+        plugin.setPageResultCacheConfig(sqlHelperMybatisProperties.getPageResultCache());
+        plugin.setPagingQueryRouter(pagingQueryRouter);
         plugin.setInstrumentorConfig(sqlHelperMybatisProperties.getInstrumentor());
         plugin.init();
 
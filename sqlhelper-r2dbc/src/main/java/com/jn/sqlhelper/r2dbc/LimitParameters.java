@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.r2dbc;
+
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the limit parameters that bound by a {@link Dialect}, so the dialect's binding rules
+ * (at start or at end of the query, in reverse order or not) can be reused without a JDBC statement.
+ */
+class LimitParameters {
+    private LimitParameters() {
+    }
+
+    /**
+     * @return all the parameters: the limit parameters at start, the original parameters, the limit parameters at end
+     */
+    static List<Object> bind(Dialect dialect, RowSelection selection, Object[] args) throws SQLException {
+        List<Object> originalArgs = args == null ? Collections.emptyList() : Arrays.asList(args);
+
+        Map<Integer, Object> atStart = new TreeMap<Integer, Object>();
+        dialect.bindLimitParametersAtStartOfQuery(selection, recorder(atStart), 1);
+
+        Map<Integer, Object> atEnd = new TreeMap<Integer, Object>();
+        dialect.bindLimitParametersAtEndOfQuery(selection, recorder(atEnd), 1);
+
+        List<Object> parameters = new ArrayList<Object>(atStart.size() + originalArgs.size() + atEnd.size());
+        parameters.addAll(atStart.values());
+        parameters.addAll(originalArgs);
+        parameters.addAll(atEnd.values());
+        return parameters;
+    }
+
+    private static PreparedStatement recorder(final Map<Integer, Object> parameters) {
+        return (PreparedStatement) Proxy.newProxyInstance(LimitParameters.class.getClassLoader(), new Class[]{PreparedStatement.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] methodArgs) {
+                String name = method.getName();
+                if (name.startsWith("set") && methodArgs != null && methodArgs.length >= 2 && methodArgs[0] instanceof Integer) {
+                    parameters.put((Integer) methodArgs[0], methodArgs[1]);
+                    return null;
+                }
+                Class<?> returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                if (returnType == long.class) {
+                    return 0L;
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.r2dbc;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+
+/**
+ * The sql instrumentor generates the sql with the JDBC style placeholder '?',
+ * but most of the R2DBC drivers use the native bind markers.
+ */
+public enum R2dbcBindMarkers {
+    /**
+     * ?, e.g. MySQL, MariaDB
+     */
+    JDBC,
+    /**
+     * $1, $2 ..., e.g. PostgreSQL, H2
+     */
+    DOLLAR_INDEXED,
+    /**
+     * &#64;P0, &#64;P1 ..., e.g. SQL Server
+     */
+    AT_P_INDEXED;
+
+    public static R2dbcBindMarkers of(@Nullable String databaseId) {
+        if (databaseId == null) {
+            return JDBC;
+        }
+        if ("postgresql".equals(databaseId) || "h2".equals(databaseId) || "cockroach".equals(databaseId)) {
+            return DOLLAR_INDEXED;
+        }
+        if ("sqlserver".equals(databaseId)) {
+            return AT_P_INDEXED;
+        }
+        return JDBC;
+    }
+
+    /**
+     * replace all the '?' placeholders with the native bind markers, the placeholders in the string literals,
+     * quoted identifiers and comments will be skipped.
+     */
+    public String toNative(@NonNull String sql) {
+        if (this == JDBC || sql.indexOf('?') == -1) {
+            return sql;
+        }
+        StringBuilder builder = new StringBuilder(sql.length() + 16);
+        int parameterIndex = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                end = end == -1 ? length : end + 1;
+                builder.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                end = end == -1 ? length : end;
+                builder.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                end = end == -1 ? length : end + 2;
+                builder.append(sql, i, end);
+                i = end;
+            } else if (c == '?') {
+                if (this == DOLLAR_INDEXED) {
+                    builder.append('$').append(parameterIndex + 1);
+                } else {
+                    builder.append("@P").append(parameterIndex);
+                }
+                parameterIndex++;
+                i++;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.r2dbc;
+
+import com.jn.langx.annotation.NonNull;
+import com.jn.langx.annotation.Nullable;
+import com.jn.langx.util.Preconditions;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.DialectRegistry;
+import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorProvider;
+import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingRequestBasedRowSelectionBuilder;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+import com.jn.sqlhelper.dialect.pagination.RowSelection;
+import com.jn.sqlhelper.dialect.pagination.SqlPaginations;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Pagination over R2DBC, the limit sql and the count sql are generated by the {@link SQLStatementInstrumentor}.
+ * <p>
+ * The count query and the page query are executed concurrently with two connections,
+ * the rows are streamed with backpressure.
+ */
+public class R2dbcPagingTemplate {
+    private static final Logger logger = LoggerFactory.getLogger(R2dbcPagingTemplate.class);
+    private final ConnectionFactory connectionFactory;
+    private SQLInstrumentorConfig instrumentConfig;
+    private R2dbcPaginationProperties paginationConfig = new R2dbcPaginationProperties();
+    private PagingRequestBasedRowSelectionBuilder rowSelectionBuilder = new PagingRequestBasedRowSelectionBuilder();
+    private volatile Dialect dialect;
+
+    public R2dbcPagingTemplate(@NonNull ConnectionFactory connectionFactory) {
+        Preconditions.checkNotNull(connectionFactory);
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Query a page, the count query and the page query will be executed concurrently.
+     *
+     * @param sql     the query sql with JDBC style placeholders '?'
+     * @param request the paging request
+     * @param mapper  the row mapper
+     * @param args    the arguments of the sql
+     */
+    public <E> Mono<PagingResult<E>> query(@NonNull final String sql, @NonNull final PagingRequest request, @NonNull final BiFunction<Row, RowMetadata, ? extends E> mapper, final Object... args) {
+        Preconditions.checkNotNull(request);
+        final PagingResult<E> result = new PagingResult<E>();
+        result.setPageNo(request.getPageNo());
+        result.setPageSize(request.getPageSize());
+
+        if (request.isEmptyRequest()) {
+            result.setTotal(0);
+            result.setItems(new ArrayList<E>());
+            return Mono.just(result);
+        }
+
+        final Dialect dialect = getLimitDialect();
+        if (request.isGetAllRequest() || dialect == null) {
+            String sql0 = request.needOrderBy() ? getInstrumentor().instrumentOrderBySql(sql, request.getOrderBy()) : sql;
+            return this.<E>execute(sql0, argsAsList(args), mapper).collectList().map(items -> {
+                result.setItems(items);
+                result.setTotal(items.size());
+                return result;
+            });
+        }
+
+        if (SqlPaginations.isSubqueryPagingRequest(request)) {
+            logger.warn("The subquery pagination is not supported in the R2DBC pagination, will page the whole sql");
+        }
+
+        final RowSelection rowSelection = rowSelectionBuilder.build(request);
+        Mono<Long> countMono = needCount(request) ? count(sql, request.getCountColumn(), args) : Mono.just(-1L);
+        Mono<List<E>> pageMono = this.<E>page(dialect, sql, request, rowSelection, mapper, args).collectList();
+
+        return Mono.zip(countMono, pageMono).flatMap(tuple -> {
+            long total = tuple.getT1();
+            result.setTotal(total);
+            result.setItems(tuple.getT2());
+            SqlPaginations.peekNextPage(request, result);
+            int maxPage = result.getMaxPage();
+            if (total >= 0 && request.getPageNo() > maxPage) {
+                if (maxPage > 0 && isUseLastPageIfPageOut(request)) {
+                    RowSelection lastPageSelection = rowSelectionBuilder.build(request);
+                    lastPageSelection.setOffset((long) (maxPage - 1) * request.getPageSize());
+                    result.setPageNo(maxPage);
+                    return this.<E>page(dialect, sql, request, lastPageSelection, mapper, args).collectList().map(items -> {
+                        result.setItems(items);
+                        return result;
+                    });
+                }
+                result.setItems(new ArrayList<E>());
+            }
+            return Mono.just(result);
+        });
+    }
+
+    /**
+     * Stream the rows of a page, no count query will be executed.
+     */
+    public <E> Flux<E> queryForFlux(@NonNull final String sql, @NonNull final PagingRequest request, @NonNull final BiFunction<Row, RowMetadata, ? extends E> mapper, final Object... args) {
+        Preconditions.checkNotNull(request);
+        if (request.isEmptyRequest()) {
+            return Flux.empty();
+        }
+        final Dialect dialect = getLimitDialect();
+        if (request.isGetAllRequest() || dialect == null) {
+            String sql0 = request.needOrderBy() ? getInstrumentor().instrumentOrderBySql(sql, request.getOrderBy()) : sql;
+            return execute(sql0, argsAsList(args), mapper);
+        }
+        Flux<E> rows = page(dialect, sql, request, rowSelectionBuilder.build(request), mapper, args);
+        // the peeked row is not a row of the page
+        return SqlPaginations.isPeekNextPageRequest(request) ? rows.take(request.getPageSize()) : rows;
+    }
+
+    public Mono<Long> count(@NonNull String sql, @Nullable String countColumn, final Object... args) {
+        String countSql = getInstrumentor().countSql(sql, countColumn);
+        return execute(countSql, argsAsList(args), (row, rowMetadata) -> {
+            Object value = row.get(0);
+            return value == null ? 0L : ((Number) value).longValue();
+        }).next().defaultIfEmpty(0L);
+    }
+
+    private <E> Flux<E> page(Dialect dialect, String sql, PagingRequest request, RowSelection rowSelection, BiFunction<Row, RowMetadata, ? extends E> mapper, Object[] args) {
+        SQLStatementInstrumentor instrumentor = getInstrumentor();
+        String pageSql;
+        if (request.needOrderBy()) {
+            pageSql = instrumentor.instrumentOrderByLimitSql(sql, request.getOrderBy(), dialect, rowSelection);
+        } else {
+            pageSql = instrumentor.instrumentLimitSql(dialect, sql, rowSelection);
+        }
+        List<Object> parameters;
+        try {
+            parameters = LimitParameters.bind(dialect, rowSelection, args);
+        } catch (SQLException ex) {
+            return Flux.error(ex);
+        }
+        return execute(pageSql, parameters, mapper);
+    }
+
+    private <E> Flux<E> execute(String sql, final List<Object> parameters, final BiFunction<Row, RowMetadata, ? extends E> mapper) {
+        Dialect dialect = getDialect();
+        final String nativeSql = R2dbcBindMarkers.of(dialect == null ? null : dialect.getDatabaseId()).toNative(sql);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Executing \"{}\" {}", nativeSql, parameters);
+        }
+        return Flux.usingWhen(Mono.<Connection>from(connectionFactory.create()), connection -> {
+            Statement statement = connection.createStatement(nativeSql);
+            for (int i = 0; i < parameters.size(); i++) {
+                Object value = parameters.get(i);
+                if (value == null) {
+                    statement.bindNull(i, Object.class);
+                } else {
+                    statement.bind(i, value);
+                }
+            }
+            return Flux.from(statement.execute()).concatMap(result -> result.map(mapper));
+        }, Connection::close);
+    }
+
+    private static List<Object> argsAsList(Object[] args) {
+        return args == null ? Collections.emptyList() : Arrays.asList(args);
+    }
+
+    private boolean needCount(final PagingRequest request) {
+        if (SqlPaginations.isPeekNextPageRequest(request)) {
+            return false;
+        }
+        if (request.needCount() == null) {
+            return paginationConfig.isCount();
+        }
+        return request.needCount();
+    }
+
+    private boolean isUseLastPageIfPageOut(final PagingRequest request) {
+        if (request.isUseLastPageIfPageOut() == null) {
+            return paginationConfig.isUseLastPageIfPageOut();
+        }
+        return request.isUseLastPageIfPageOut();
+    }
+
+    private Dialect getLimitDialect() {
+        Dialect dialect = getDialect();
+        return dialect != null && dialect.isSupportsLimit() ? dialect : null;
+    }
+
+    private Dialect getDialect() {
+        if (dialect == null) {
+            SQLStatementInstrumentor instrumentor = getInstrumentor();
+            Dialect d = instrumentor.getDialect((DatabaseMetaData) null);
+            if (d == null) {
+                String databaseId = DialectRegistry.guessDatabaseId(connectionFactory.getMetadata().getName());
+                if (databaseId != null) {
+                    d = instrumentor.getDialectRegistry().getDialectByName(databaseId);
+                }
+            }
+            if (d == null) {
+                logger.warn("Can't find a suitable dialect for the R2DBC connection factory: {}", connectionFactory.getMetadata().getName());
+            }
+            dialect = d;
+        }
+        return dialect;
+    }
+
+    private SQLStatementInstrumentor getInstrumentor() {
+        return SQLInstrumentorProvider.getInstance().get(instrumentConfig);
+    }
+
+    public ConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public SQLInstrumentorConfig getInstrumentConfig() {
+        return instrumentConfig;
+    }
+
+    public void setInstrumentConfig(SQLInstrumentorConfig instrumentConfig) {
+        this.instrumentConfig = instrumentConfig;
+    }
+
+    public R2dbcPaginationProperties getPaginationConfig() {
+        return paginationConfig;
+    }
+
+    public void setPaginationConfig(R2dbcPaginationProperties paginationConfig) {
+        this.paginationConfig = paginationConfig;
+        this.rowSelectionBuilder.setDefaultPageSize(paginationConfig.getDefaultPageSize());
+    }
+}
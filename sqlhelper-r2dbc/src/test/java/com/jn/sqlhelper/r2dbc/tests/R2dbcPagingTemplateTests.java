@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the LGPL, Version 3.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at  http://www.gnu.org/licenses/lgpl-3.0.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jn.sqlhelper.r2dbc.tests;
+
+import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.orderby.OrderBy;
+import com.jn.sqlhelper.dialect.pagination.PagingRequest;
+import com.jn.sqlhelper.dialect.pagination.PagingResult;
+import com.jn.sqlhelper.r2dbc.R2dbcBindMarkers;
+import com.jn.sqlhelper.r2dbc.R2dbcPagingTemplate;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.h2.H2ConnectionOption;
+import io.r2dbc.spi.Connection;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class R2dbcPagingTemplateTests {
+    private static H2ConnectionFactory connectionFactory;
+    private static R2dbcPagingTemplate template;
+
+    @BeforeClass
+    public static void init() {
+        connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .inMemory("sqlhelper_r2dbc")
+                .property(H2ConnectionOption.DB_CLOSE_DELAY, "-1")
+                .build());
+
+        Flux.usingWhen(connectionFactory.create(), (Connection connection) -> {
+            Flux<?> ddl = Flux.from(connection.createStatement("create table t_user(id int primary key, name varchar(32))").execute())
+                    .flatMap(result -> result.getRowsUpdated());
+            Flux<?> rows = Flux.range(1, 25).concatMap(id ->
+                    Flux.from(connection.createStatement("insert into t_user(id, name) values ($1, $2)")
+                            .bind(0, id)
+                            .bind(1, "name_" + id)
+                            .execute()).flatMap(result -> result.getRowsUpdated()));
+            return ddl.thenMany(rows);
+        }, Connection::close).blockLast();
+
+        SQLInstrumentorConfig config = new SQLInstrumentorConfig();
+        config.setDialect("h2");
+        template = new R2dbcPagingTemplate(connectionFactory);
+        template.setInstrumentConfig(config);
+    }
+
+    @Test
+    public void testPaging() {
+        OrderBy orderBy = new OrderBy();
+        orderBy.addAsc("id");
+        PagingRequest request = new PagingRequest().limit(2, 10);
+        request.setOrderBy(orderBy);
+
+        PagingResult<Integer> result = template.<Integer>query("select id, name from t_user where id > ?", request, (row, rowMetadata) -> row.get("id", Integer.class), 0).block();
+        Assert.assertNotNull(result);
+        Assert.assertEquals(25, result.getTotal());
+        Assert.assertEquals(10, result.getItems().size());
+        Assert.assertEquals(Integer.valueOf(11), result.getItems().get(0));
+    }
+
+    @Test
+    public void testPageOut() {
+        OrderBy orderBy = new OrderBy();
+        orderBy.addAsc("id");
+        PagingRequest request = new PagingRequest().limit(5, 10);
+        request.setOrderBy(orderBy);
+        request.setUseLastPageIfPageOut(true);
+
+        PagingResult<Integer> result = template.<Integer>query("select id, name from t_user", request, (row, rowMetadata) -> row.get("id", Integer.class)).block();
+        Assert.assertNotNull(result);
+        Assert.assertEquals(3, result.getPageNo());
+        Assert.assertEquals(5, result.getItems().size());
+    }
+
+    @Test
+    public void testStreaming() {
+        PagingRequest request = new PagingRequest().limit(1, 20);
+        StepVerifier.create(template.<Integer>queryForFlux("select id from t_user order by id", request, (row, rowMetadata) -> row.get("id", Integer.class)), 5)
+                .expectNext(1, 2, 3, 4, 5)
+                .thenRequest(15)
+                .expectNextCount(15)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testCount() {
+        Long count = template.count("select id from t_user where name like ?", null, "name_1%").block();
+        Assert.assertEquals(Long.valueOf(11), count);
+    }
+
+    @Test
+    public void testBindMarkers() {
+        Assert.assertEquals("select * from t where a = $1 and b = '?' and c = $2", R2dbcBindMarkers.DOLLAR_INDEXED.toNative("select * from t where a = ? and b = '?' and c = ?"));
+        Assert.assertEquals("select * from t where a = @P0", R2dbcBindMarkers.AT_P_INDEXED.toNative("select * from t where a = ?"));
+    }
+}
@@ -15,11 +15,14 @@
 package com.jn.sqlhelper.springjdbc.spring.boot.autoconfigure;
 
 import com.jn.langx.util.reflect.Reflects;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCache;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
 import com.jn.sqlhelper.springjdbc.JdbcTemplate;
 import com.jn.sqlhelper.springjdbc.JdbcTemplatePaginationProperties;
 import com.jn.sqlhelper.springjdbc.NamedParameterJdbcTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -45,7 +48,7 @@ public class JdbcTemplateAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     @Primary
-    public JdbcTemplate jdbcTemplate(DataSource dataSource, SpringJdbcTemplateProperties properties) {
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, SpringJdbcTemplateProperties properties, ObjectProvider<PagingQueryRouter> pagingQueryRouter) {
         JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
 
         JdbcTemplateNativeProperties templateConfig = properties.getTemplate();
@@ -57,6 +60,10 @@ public class JdbcTemplateAutoConfiguration {
         jdbcTemplate.setPaginationConfig(paginationProperties);
 
         jdbcTemplate.setInstrumentConfig(properties.getInstrumentor());
+        jdbcTemplate.setPagingQueryRouter(pagingQueryRouter.getIfAvailable());
+        if (properties.getPageResultCache().isEnabled()) {
+            jdbcTemplate.setPageResultCache(new PageResultCache(properties.getPageResultCache()));
+        }
         if (logger.isInfoEnabled()) {
             logger.info("Initial Spring JdbcTemplate [{}] with configuration: {}", Reflects.getFQNClassName(JdbcTemplate.class), properties);
         }
@@ -1,6 +1,7 @@
 package com.jn.sqlhelper.springjdbc.spring.boot.autoconfigure;
 
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCacheConfig;
 import com.jn.sqlhelper.springjdbc.JdbcTemplatePaginationProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
@@ -13,6 +14,8 @@ public class SpringJdbcTemplateProperties {
     private JdbcTemplatePaginationProperties pagination = new JdbcTemplatePaginationProperties();
     @NestedConfigurationProperty
     private JdbcTemplateNativeProperties template = new JdbcTemplateNativeProperties();
+    @NestedConfigurationProperty
+    private PageResultCacheConfig pageResultCache = new PageResultCacheConfig();
 
     public SQLInstrumentorConfig getInstrumentor() {
         return instrumentor;
@@ -38,12 +41,21 @@ public class SpringJdbcTemplateProperties {
         this.template = template;
     }
 
+    public PageResultCacheConfig getPageResultCache() {
+        return pageResultCache;
+    }
+
+    public void setPageResultCache(PageResultCacheConfig pageResultCache) {
+        this.pageResultCache = pageResultCache;
+    }
+
     @Override
     public String toString() {
         return "SpringJdbcTemplateProperties{" +
                 "instrumentor=" + instrumentor +
                 ", pagination=" + pagination +
                 ", template=" + template +
+                ", pageResultCache=" + pageResultCache +
                 '}';
     }
 }
@@ -5,13 +5,24 @@ import com.jn.langx.util.Preconditions;
 import com.jn.langx.util.Strings;
 import com.jn.langx.util.collection.Collects;
 import com.jn.langx.util.reflect.Reflects;
+import com.jn.sqlhelper.common.ddl.catalog.DatabaseCatalogRegistry;
+import com.jn.sqlhelper.common.metrics.MetricNames;
+import com.jn.sqlhelper.common.metrics.MetricsSample;
+import com.jn.sqlhelper.common.metrics.SqlHelperMetrics;
 import com.jn.sqlhelper.common.utils.SQLs;
+import com.jn.sqlhelper.dialect.Dialect;
+import com.jn.sqlhelper.dialect.inlist.InListSql;
 import com.jn.sqlhelper.dialect.pagination.PagedPreparedParameterSetter;
 import com.jn.sqlhelper.dialect.pagination.RowSelection;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorProvider;
 import com.jn.sqlhelper.dialect.instrument.SQLStatementInstrumentor;
 import com.jn.sqlhelper.dialect.instrument.SQLInstrumentorConfig;
 import com.jn.sqlhelper.dialect.pagination.*;
+import com.jn.sqlhelper.dialect.pagination.cache.PageCacheKey;
+import com.jn.sqlhelper.dialect.pagination.cache.PageResultCache;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouter;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryRouters;
+import com.jn.sqlhelper.dialect.pagination.routing.PagingQueryType;
 import com.jn.sqlhelper.springjdbc.resultset.SelectCountRSExtractor;
 import com.jn.sqlhelper.springjdbc.statement.NamedParameterPreparedStatementCreator;
 import com.jn.sqlhelper.springjdbc.statement.PagedPreparedStatementSetter;
@@ -24,13 +35,19 @@ import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
@@ -40,6 +57,12 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
 
     private JdbcTemplatePaginationProperties paginationConfig = new JdbcTemplatePaginationProperties();
     private SQLInstrumentorConfig instrumentConfig;
+    private PagingQueryRouter pagingQueryRouter;
+    /**
+     * caches the pages, the pages are invalidated by the updates of this template,
+     * and again when the spring managed transaction of the updates is completed
+     */
+    private PageResultCache pageResultCache;
 
     public JdbcTemplate() {
         super();
@@ -71,6 +94,21 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
         this.paginationConfig = paginationConfig;
     }
 
+    /**
+     * routes the count queries to the replicas
+     */
+    public void setPagingQueryRouter(PagingQueryRouter pagingQueryRouter) {
+        this.pagingQueryRouter = pagingQueryRouter;
+    }
+
+    public void setPageResultCache(PageResultCache pageResultCache) {
+        this.pageResultCache = pageResultCache;
+    }
+
+    public PageResultCache getPageResultCache() {
+        return pageResultCache;
+    }
+
     public void setInstrumentConfig(SQLInstrumentorConfig instrumentConfig) {
         if (instrumentConfig == null) {
             instrumentConfig = SQLInstrumentorConfig.DEFAULT;
@@ -140,11 +178,26 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
 
             Preconditions.checkNotNull(instrumentor);
             try {
-                if (instrumentor.beginIfSupportsLimit(conn.getMetaData())) {
+                if (instrumentor.beginIfSupportsLimit(DatabaseCatalogRegistry.getInstance().getCatalog(dataSource()).getCapabilities(conn))) {
+                    PageResultCache.PageLoad pageLoad = null;
+                    if (pageResultCache != null && pageResultCache.isCacheable(request)) {
+                        PageCacheKey pageCacheKey = pageResultCache.newKey(sql, Collections.emptyList(), request, needCountInPagingRequest(request));
+                        if (pageResultCache.fill(pageCacheKey, result)) {
+                            return (T) items;
+                        }
+                        pageLoad = pageResultCache.beginLoad(pageCacheKey, sql);
+                    }
                     boolean needQuery = true;
                     if (needCountInPagingRequest(request)) {
                         String countSql = instrumentor.countSql(sql, request.getCountColumn());
-                        int count = super.query(countSql, new SelectCountRSExtractor());
+                        int count;
+                        MetricsSample countSample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "count").tag(MetricNames.TAG_FRAMEWORK, "springjdbc");
+                        try {
+                            Integer routedCount = queryCountOnRoutedDataSource(conn, request, countSql, null, false);
+                            count = routedCount != null ? routedCount : super.query(countSql, new SelectCountRSExtractor());
+                        } finally {
+                            countSample.stop();
+                        }
                         if (count <= 0) {
                             needQuery = false;
                         }
@@ -211,11 +264,13 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
                         instrumentor.bindParameters(ps, new PagedPreparedStatementSetter(null), queryParameters, true);
                         // DO execute
                         ResultSet resultSet = null;
+                        MetricsSample querySample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "page").tag(MetricNames.TAG_FRAMEWORK, "springjdbc");
                         try {
                             resultSet = ps.executeQuery();
                             List rows = (List) rse.extractData(resultSet);
                             items.addAll(rows);
                         } finally {
+                            querySample.stop();
                             JdbcUtils.closeResultSet(resultSet);
                         }
                         handleWarnings(ps);
@@ -223,6 +278,10 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
 
                     request.setPageNo(requestPageNo);
                     result.setPageNo(request.getPageNo());
+                    SqlPaginations.peekNextPage(request, result);
+                    if (pageLoad != null) {
+                        pageResultCache.put(pageLoad, result);
+                    }
                     rs = items;
                 } else {
                     return super.query(sql, rse);
@@ -289,11 +348,30 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
 
             Connection conn = DataSourceUtils.getConnection(dataSource());
             try {
-                if (instrumentor.beginIfSupportsLimit(conn.getMetaData())) {
+                if (instrumentor.beginIfSupportsLimit(DatabaseCatalogRegistry.getInstance().getCatalog(dataSource()).getCapabilities(conn))) {
+                    PageResultCache.PageLoad pageLoad = null;
+                    if (pageResultCache != null && pageResultCache.isCacheable(request)) {
+                        List parameters = getPageCacheParameters(psc, pss);
+                        if (parameters != null) {
+                            PageCacheKey pageCacheKey = pageResultCache.newKey(sql, parameters, request, needCountInPagingRequest(request));
+                            if (pageResultCache.fill(pageCacheKey, result)) {
+                                return (T) items;
+                            }
+                            pageLoad = pageResultCache.beginLoad(pageCacheKey, sql);
+                        }
+                    }
                     boolean needQuery = true;
                     if (needCountInPagingRequest(request)) {
                         String countSql = instrumentor.countSql(sql, request.getCountColumn());
-                        int count = super.query(new SimplePreparedStatementCreator(countSql), pss == null && (psc instanceof NamedParameterPreparedStatementCreator) ? (NamedParameterPreparedStatementCreator) psc : pss, new SelectCountRSExtractor());
+                        int count;
+                        MetricsSample countSample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "count").tag(MetricNames.TAG_FRAMEWORK, "springjdbc");
+                        try {
+                            PreparedStatementSetter countPss = pss == null && (psc instanceof NamedParameterPreparedStatementCreator) ? (NamedParameterPreparedStatementCreator) psc : pss;
+                            Integer routedCount = queryCountOnRoutedDataSource(conn, request, countSql, countPss, true);
+                            count = routedCount != null ? routedCount : super.query(new SimplePreparedStatementCreator(countSql), countPss, new SelectCountRSExtractor());
+                        } finally {
+                            countSample.stop();
+                        }
                         if (count <= 0) {
                             needQuery = false;
                         }
@@ -394,11 +472,13 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
                         instrumentor.bindParameters(ps, proxySetter, queryParameters, true);
                         // DO execute
                         ResultSet resultSet = null;
+                        MetricsSample querySample = SqlHelperMetrics.start(MetricNames.QUERY).tag(MetricNames.TAG_TYPE, "page").tag(MetricNames.TAG_FRAMEWORK, "springjdbc");
                         try {
                             resultSet = ps.executeQuery();
                             List rows = (List) rse.extractData(resultSet);
                             items.addAll(rows);
                         } finally {
+                            querySample.stop();
                             JdbcUtils.closeResultSet(resultSet);
                             if (pss instanceof ParameterDisposer) {
                                 ((ParameterDisposer) pss).cleanupParameters();
@@ -409,6 +489,10 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
 
                     request.setPageNo(requestPageNo);
                     result.setPageNo(request.getPageNo());
+                    SqlPaginations.peekNextPage(request, result);
+                    if (pageLoad != null) {
+                        pageResultCache.put(pageLoad, result);
+                    }
                     rs = items;
                 } else {
                     return super.query(new SimplePreparedStatementCreator(sql), pss, rse);
@@ -422,6 +506,211 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
         }
     }
 
+    @Override
+    public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) throws DataAccessException {
+        InListSql inListSql = instrumentInList(sql, args);
+        if (inListSql == null) {
+            return super.query(sql, args, rse);
+        }
+        return super.query(inListSql.getSql(), inListSql.bindParameters(Arrays.asList(args)).toArray(), rse);
+    }
+
+    @Override
+    public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) throws DataAccessException {
+        InListSql inListSql = instrumentInList(sql, args);
+        if (inListSql == null || argTypes == null || argTypes.length != args.length) {
+            return super.query(sql, args, argTypes, rse);
+        }
+        return super.query(inListSql.getSql(), inListSql.bindParameters(Arrays.asList(args)).toArray(), bindArgTypes(inListSql, argTypes), rse);
+    }
+
+    @Override
+    public int update(String sql, Object... args) throws DataAccessException {
+        InListSql inListSql = instrumentInList(sql, args);
+        if (inListSql == null) {
+            return super.update(sql, args);
+        }
+        return super.update(inListSql.getSql(), inListSql.bindParameters(Arrays.asList(args)).toArray());
+    }
+
+    @Override
+    public int update(String sql, Object[] args, int[] argTypes) throws DataAccessException {
+        InListSql inListSql = instrumentInList(sql, args);
+        if (inListSql == null || argTypes == null || argTypes.length != args.length) {
+            return super.update(sql, args, argTypes);
+        }
+        return super.update(inListSql.getSql(), inListSql.bindParameters(Arrays.asList(args)).toArray(), bindArgTypes(inListSql, argTypes));
+    }
+
+    /**
+     * Pads and splits the IN lists of the sql if the 'rewriteInList' of the instrument config is enabled
+     *
+     * @return null if the sql is not changed
+     */
+    private InListSql instrumentInList(String sql, Object[] args) {
+        if (instrumentConfig == null || !instrumentConfig.isRewriteInList() || args == null || args.length == 0) {
+            return null;
+        }
+        SQLStatementInstrumentor instrumentor = SQLInstrumentorProvider.getInstance().get(instrumentConfig);
+        Dialect dialect = instrumentor.getDialect(DatabaseCatalogRegistry.getInstance().getCatalog(dataSource()).getCapabilities());
+        InListSql inListSql = instrumentor.instrumentInList(sql, dialect);
+        // the count of the arguments is not the count of the '?', e.g. the '?' in a postgresql json operator
+        if (!inListSql.isChanged() || inListSql.getOriginalParameterCount() != args.length) {
+            return null;
+        }
+        return inListSql;
+    }
+
+    private static int[] bindArgTypes(InListSql inListSql, int[] argTypes) {
+        int[] types = new int[inListSql.getParameterCount()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = argTypes[inListSql.getParameterIndex(i)];
+        }
+        return types;
+    }
+
+    @Override
+    public int update(String sql) throws DataAccessException {
+        try {
+            return super.update(sql);
+        } finally {
+            invalidatePageResultCache(sql);
+        }
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        try {
+            return super.update(psc, pss);
+        } finally {
+            invalidatePageResultCache(psc);
+        }
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+        try {
+            return super.update(psc, generatedKeyHolder);
+        } finally {
+            invalidatePageResultCache(psc);
+        }
+    }
+
+    @Override
+    public int[] batchUpdate(String... sql) throws DataAccessException {
+        try {
+            return super.batchUpdate(sql);
+        } finally {
+            for (String s : sql) {
+                invalidatePageResultCache(s);
+            }
+        }
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
+        try {
+            return super.batchUpdate(sql, pss);
+        } finally {
+            invalidatePageResultCache(sql);
+        }
+    }
+
+    @Override
+    public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) throws DataAccessException {
+        try {
+            return super.batchUpdate(sql, batchArgs, batchSize, pss);
+        } finally {
+            invalidatePageResultCache(sql);
+        }
+    }
+
+    private void invalidatePageResultCache(String sql) {
+        if (pageResultCache != null) {
+            Object transaction = getPageCacheTransaction();
+            if (transaction == null) {
+                pageResultCache.invalidate(sql);
+            } else {
+                pageResultCache.invalidate(transaction, sql);
+            }
+        }
+    }
+
+    private void invalidatePageResultCache(PreparedStatementCreator psc) {
+        if (pageResultCache != null) {
+            String sql = psc instanceof SqlProvider ? ((SqlProvider) psc).getSql() : null;
+            if (sql != null) {
+                invalidatePageResultCache(sql);
+                return;
+            }
+            Object transaction = getPageCacheTransaction();
+            if (transaction == null) {
+                pageResultCache.invalidateAll();
+            } else {
+                pageResultCache.invalidateAll(transaction);
+            }
+        }
+    }
+
+    /**
+     * @return the connection holder of the spring managed transaction that the updates are executed in,
+     * the pages are invalidated again when it is completed. null if there is no transaction synchronization
+     */
+    private Object getPageCacheTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Object connectionHolder = TransactionSynchronizationManager.getResource(getDataSource());
+        if (connectionHolder == null) {
+            return null;
+        }
+        PageResultCacheSynchronization synchronization = new PageResultCacheSynchronization(pageResultCache, connectionHolder);
+        if (!TransactionSynchronizationManager.getSynchronizations().contains(synchronization)) {
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+        return connectionHolder;
+    }
+
+    /**
+     * @return the values of the parameters, null if they can't be read from the setter, then the page is not cached
+     */
+    private List getPageCacheParameters(PreparedStatementCreator psc, PreparedStatementSetter pss) {
+        if (pss == null) {
+            if (psc instanceof NamedParameterPreparedStatementCreator) {
+                List parameters = ((NamedParameterPreparedStatementCreator) psc).getParameters();
+                return parameters == null ? Collections.emptyList() : new ArrayList(parameters);
+            }
+            return Collections.emptyList();
+        }
+        if (pss instanceof ArgumentPreparedStatementSetter) {
+            Object[] args = com.jn.sqlhelper.springjdbc.statement.ArgumentPreparedStatementSetter.Factory.getArgs((ArgumentPreparedStatementSetter) pss);
+            return args == null ? Collections.emptyList() : Arrays.asList(args);
+        }
+        return null;
+    }
+
+    /**
+     * @param conn the connection of the primary, the count query is not routed if it is in a write transaction
+     * @return the count, null if the count query is not routed, or it failed on the routed data source
+     */
+    private Integer queryCountOnRoutedDataSource(Connection conn, PagingRequest request, String countSql, PreparedStatementSetter pss, boolean prepared) {
+        DataSource routedDataSource = PagingQueryRouters.route(pagingQueryRouter, PagingQueryType.COUNT, request, conn);
+        if (routedDataSource == null) {
+            return null;
+        }
+        try {
+            org.springframework.jdbc.core.JdbcTemplate template = new org.springframework.jdbc.core.JdbcTemplate(routedDataSource);
+            template.setQueryTimeout(getQueryTimeout());
+            if (prepared) {
+                return template.query(new SimplePreparedStatementCreator(countSql), pss, new SelectCountRSExtractor());
+            }
+            return template.query(countSql, new SelectCountRSExtractor());
+        } catch (Throwable ex) {
+            pagingQueryRouter.onError(routedDataSource, PagingQueryType.COUNT, ex);
+            return null;
+        }
+    }
+
     /**
      * for Spring 4.x
      */
@@ -454,6 +743,9 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
 
 
     private boolean needCountInPagingRequest(PagingRequest request) {
+        if (SqlPaginations.isPeekNextPageRequest(request)) {
+            return false;
+        }
         if (request.needCount() == null) {
             return paginationConfig.isCount();
         }
@@ -470,4 +762,36 @@ public class JdbcTemplate extends org.springframework.jdbc.core.JdbcTemplate {
         }
         return request.isUseLastPageIfPageOut();
     }
+
+    private static class PageResultCacheSynchronization extends TransactionSynchronizationAdapter {
+        private final PageResultCache pageResultCache;
+        private final Object transaction;
+
+        private PageResultCacheSynchronization(PageResultCache pageResultCache, Object transaction) {
+            this.pageResultCache = pageResultCache;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            pageResultCache.endTransaction(transaction);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageResultCacheSynchronization)) {
+                return false;
+            }
+            PageResultCacheSynchronization that = (PageResultCacheSynchronization) o;
+            return pageResultCache == that.pageResultCache && transaction == that.transaction;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(pageResultCache) * 31 + System.identityHashCode(transaction);
+        }
+    }
 }
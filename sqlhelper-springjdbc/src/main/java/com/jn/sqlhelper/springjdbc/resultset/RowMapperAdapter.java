@@ -1,17 +1,41 @@
 package com.jn.sqlhelper.springjdbc.resultset;
 
 import com.jn.sqlhelper.common.resultset.ResultSetDescription;
+import com.jn.sqlhelper.common.resultset.RowMappingPlanCache;
 import org.springframework.jdbc.core.RowMapper;
 
+import java.lang.ref.WeakReference;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class RowMapperAdapter implements RowMapper {
     private com.jn.sqlhelper.common.resultset.RowMapper delegate;
+    /**
+     * the description of the last result set, the adapter may be shared by the threads
+     */
+    private volatile DescribedResultSet last;
 
     @Override
     public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return delegate.mapping(rs, rowNum, new ResultSetDescription(rs.getMetaData()));
+        DescribedResultSet last = this.last;
+        if (last == null || last.resultSet.get() != rs) {
+            last = new DescribedResultSet(rs, RowMappingPlanCache.getInstance().getResultSetDescription(rs.getMetaData()));
+            this.last = last;
+        }
+        return delegate.mapping(rs, rowNum, last.description);
+    }
+
+    private static class DescribedResultSet {
+        /**
+         * weak, the rows of a closed result set are not retained
+         */
+        private final WeakReference<ResultSet> resultSet;
+        private final ResultSetDescription description;
+
+        private DescribedResultSet(ResultSet resultSet, ResultSetDescription description) {
+            this.resultSet = new WeakReference<ResultSet>(resultSet);
+            this.description = description;
+        }
     }
 
     public RowMapperAdapter (com.jn.sqlhelper.common.resultset.RowMapper rowMapper){
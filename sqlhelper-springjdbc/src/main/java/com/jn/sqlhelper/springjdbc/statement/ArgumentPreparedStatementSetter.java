@@ -123,12 +123,15 @@ public class ArgumentPreparedStatementSetter implements PreparedStatementSetter,
         static Field argsField = null;
 
         public static ArgumentPreparedStatementSetter create(org.springframework.jdbc.core.ArgumentPreparedStatementSetter setter) {
+            return new ArgumentPreparedStatementSetter(getArgs(setter));
+        }
+
+        public static Object[] getArgs(org.springframework.jdbc.core.ArgumentPreparedStatementSetter setter) {
             if (argsField == null) {
                 argsField = Reflects.getDeclaredField(org.springframework.jdbc.core.ArgumentPreparedStatementSetter.class, "args");
                 argsField.setAccessible(true);
             }
-            Object[] args = Reflects.getFieldValue(argsField, setter, true, false);
-            return new ArgumentPreparedStatementSetter(args);
+            return Reflects.getFieldValue(argsField, setter, true, false);
         }
     }
 